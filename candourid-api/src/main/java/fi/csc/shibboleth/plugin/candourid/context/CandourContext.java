@@ -15,6 +15,8 @@
  */
 package fi.csc.shibboleth.plugin.candourid.context;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -48,6 +50,10 @@ public class CandourContext extends BaseContext {
     @Nonnull
     private Map<String, Object> resultClaims = new HashMap<String, Object>();
 
+    /** Deadline of the current stage of the flow. */
+    @Nullable
+    private Instant deadline;
+
     /**
      * Get response to invitation request.
      * 
@@ -144,4 +150,40 @@ public class CandourContext extends BaseContext {
         resultClaims = claims;
     }
 
+    /**
+     * Get deadline of the current stage of the flow.
+     * 
+     * @return deadline of the current stage or null if there is none
+     */
+    @Nullable
+    public Instant getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Set deadline of the current stage of the flow. The Candour API calls of the
+     * stage are given only the time remaining and best-effort steps are skipped
+     * once it has passed.
+     * 
+     * @param time deadline of the current stage or null for none
+     */
+    public void setDeadline(@Nullable Instant time) {
+        deadline = time;
+    }
+
+    /**
+     * Get time remaining to the deadline of the current stage of the flow.
+     * 
+     * @return time remaining, zero if the deadline has passed, or null if there is
+     *         no deadline
+     */
+    @Nullable
+    public Duration getRemainingTime() {
+        if (deadline == null) {
+            return null;
+        }
+        final Duration remaining = Duration.between(Instant.now(), deadline);
+        return remaining.isNegative() ? Duration.ZERO : remaining;
+    }
+
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.image;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Store keeping large image claims out of the heap for the duration of the
+ * authentication flow. Only the returned {@link StoredImage} handle is kept in
+ * the flow state.
+ */
+public interface ImageStore {
+
+    /**
+     * Store an image claim value.
+     * 
+     * @param image image claim value, either a base64 string or decoded bytes
+     * @return handle to the stored image
+     * @throws IOException if storing the image fails
+     */
+    @Nonnull
+    StoredImage store(@Nonnull Object image) throws IOException;
+
+}
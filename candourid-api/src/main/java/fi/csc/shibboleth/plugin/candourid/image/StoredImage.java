@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.image;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Handle to an image claim value held by an {@link ImageStore}.
+ */
+public interface StoredImage {
+
+    /**
+     * Read the image claim value. The value is read from the store on each call.
+     * 
+     * @return image claim value of the same type it was stored as
+     * @throws IOException if the image cannot be read or has been deleted
+     */
+    @Nonnull
+    Object load() throws IOException;
+
+    /**
+     * Get the size of the stored image in bytes.
+     * 
+     * @return size of the stored image in bytes
+     */
+    long getSize();
+
+    /**
+     * Delete the stored image. Deleting an already deleted image has no effect.
+     */
+    void delete();
+
+}
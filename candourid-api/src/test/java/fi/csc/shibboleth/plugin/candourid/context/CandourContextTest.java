@@ -15,6 +15,9 @@
  */
 package fi.csc.shibboleth.plugin.candourid.context;
 
+import java.time.Duration;
+import java.time.Instant;
+
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -30,6 +33,8 @@ public class CandourContextTest {
         Assert.assertNull(ctx.getInvitationResponse());
         Assert.assertNull(ctx.getSessionId());
         Assert.assertNotNull(ctx.getResultClaims());
+        Assert.assertNull(ctx.getDeadline());
+        Assert.assertNull(ctx.getRemainingTime());
     }
 
     @Test
@@ -44,4 +49,14 @@ public class CandourContextTest {
         Assert.assertEquals("id", ctx.getSessionId());
     }
 
+    @Test
+    public void testRemainingTime() {
+        ctx.setDeadline(Instant.now().plusSeconds(60));
+        final Duration remaining = ctx.getRemainingTime();
+        Assert.assertTrue(remaining.compareTo(Duration.ofSeconds(60)) <= 0);
+        Assert.assertTrue(remaining.compareTo(Duration.ofSeconds(50)) > 0);
+        ctx.setDeadline(Instant.now().minusSeconds(1));
+        Assert.assertEquals(ctx.getRemainingTime(), Duration.ZERO);
+    }
+
 }
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.bench;
+
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import javax.annotation.Nonnull;
+
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.AllowedVerificationDocuments;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.AllowedVerificationMethods;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourInvitationRequestPayload;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.ResultProperties;
+
+/**
+ * Shared, deterministic fixtures for the benchmarks.
+ *
+ * <p>
+ * Image sizes are in the range seen from the Candour sandbox: a selfie and a
+ * chip image of some tens of kilobytes and two document side images of a few
+ * hundred kilobytes.
+ * </p>
+ */
+public final class BenchmarkFixtures {
+
+    /** Candour API location used by the benchmarks. Never contacted. */
+    @Nonnull
+    public static final String API_URI = "https://rest-sandbox.candour.fi/v1";
+
+    /** Client public key. */
+    @Nonnull
+    public static final String PUBLIC_KEY = "4c75a6b6-88e5-4365-972b-f88edb7f14e8";
+
+    /** Client hmac key. */
+    @Nonnull
+    public static final String HMAC_KEY = "d818a281-3226-4615-8455-7a004894ca97";
+
+    /** Candour verification session id. */
+    @Nonnull
+    public static final String SESSION_ID = "0b7a4d3e-6f0e-4f4a-9c1e-2f3f5d0c9a11";
+
+    /** Invitation link as returned by invitation response and result claims. */
+    @Nonnull
+    public static final String INVITATION_LINK = "https://id-sandbox.candour.fi/verify/" + SESSION_ID;
+
+    /** Callback url of the flow. */
+    @Nonnull
+    public static final String CALLBACK_URL = "https://idp.example.org/idp/profile/SAML2/Redirect/SSO?execution=e1s2"
+            + "&_eventId_proceed=1";
+
+    /** Seed for the image content. */
+    private static final long SEED = 20240601L;
+
+    /** Constructor. */
+    private BenchmarkFixtures() {
+        // no op
+    }
+
+    /**
+     * Invitation request payload matching the shipped default configuration with
+     * all result properties requested.
+     *
+     * @return invitation request payload
+     */
+    @Nonnull
+    public static CandourInvitationRequestPayload invitationRequestPayload() {
+        return invitationRequestPayload(true);
+    }
+
+    /**
+     * Invitation request payload matching the shipped default configuration with
+     * all textual result properties requested.
+     *
+     * @param withImages whether to request the four image result properties
+     * @return invitation request payload
+     */
+    @Nonnull
+    public static CandourInvitationRequestPayload invitationRequestPayload(final boolean withImages) {
+        return CandourInvitationRequestPayload.builder()
+                .setCallbackUrl(CALLBACK_URL)
+                .setAllowedVerificationMethods(AllowedVerificationMethods.builder().setIdWeb(true).build())
+                .setAllowedVerificationDocuments(
+                        AllowedVerificationDocuments.builder().setPassport(true).setIdCard(true).build())
+                .setResultProperties(ResultProperties.builder()
+                        .setName(true)
+                        .setDateOfBirth(true)
+                        .setNationalIdentificationNumber(true)
+                        .setIdNumber(true)
+                        .setIdDocumentType(true)
+                        .setIdExpiration(true)
+                        .setIdIssuer(true)
+                        .setNationality(true)
+                        .setSex(true)
+                        .setSelfieImage(withImages)
+                        .setIdMrzImage(withImages)
+                        .setIdOtherImage(withImages)
+                        .setIdChipImage(withImages)
+                        .build())
+                .build();
+    }
+
+    /**
+     * Json payload of a successful invitation response.
+     *
+     * @return invitation response json
+     */
+    @Nonnull
+    public static String invitationResponse() {
+        return "{\"redirectUrl\":\"" + INVITATION_LINK + "\",\"verificationSessionId\":\"" + SESSION_ID
+                + "\",\"timestamp\":\"2024-06-01T10:00:00.000Z\",\"validUntil\":\"2024-06-01T10:10:00.000Z\"}";
+    }
+
+    /**
+     * Json payload of a successful result response.
+     *
+     * @param withImages whether to include the four base64 image claims
+     * @return result response json
+     */
+    @Nonnull
+    public static String resultResponse(final boolean withImages) {
+        final StringBuilder json = new StringBuilder(withImages ? 1 << 20 : 1024).append('{');
+        for (final Map.Entry<String, String> claim : textClaims().entrySet()) {
+            appendClaim(json, claim.getKey(), claim.getValue());
+        }
+        json.append("\"nameScore\":100,\"nameMatch\":true,\"dateOfBirthMatch\":true");
+        if (withImages) {
+            final SplittableRandom random = new SplittableRandom(SEED);
+            json.append(',');
+            appendClaim(json, "selfieImage", image(random, 48 * 1024));
+            appendClaim(json, "idMrzImage", image(random, 180 * 1024));
+            appendClaim(json, "idOtherImage", image(random, 180 * 1024));
+            appendClaim(json, "idChipImage", image(random, 16 * 1024));
+            json.setLength(json.length() - 1);
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * Textual claims of the result response.
+     *
+     * @return textual claims in response order
+     */
+    @Nonnull
+    private static Map<String, String> textClaims() {
+        final Map<String, String> claims = new LinkedHashMap<>();
+        claims.put("name", "Matti Meikäläinen");
+        claims.put("firstName", "Matti");
+        claims.put("lastName", "Meikäläinen");
+        claims.put("dateOfBirth", "1980-01-01");
+        claims.put("nationalIdentificationNumber", "010180-123N");
+        claims.put("idNumber", "XP1234567");
+        claims.put("idDocumentType", "PASSPORT");
+        claims.put("idExpiration", "2030-01-01");
+        claims.put("idIssuer", "FIN");
+        claims.put("nationality", "FIN");
+        claims.put("sex", "M");
+        claims.put("invitationLink", INVITATION_LINK);
+        return claims;
+    }
+
+    /**
+     * Append a string claim followed by a comma.
+     *
+     * @param json  target
+     * @param name  claim name
+     * @param value claim value
+     */
+    private static void appendClaim(@Nonnull final StringBuilder json, @Nonnull final String name,
+            @Nonnull final String value) {
+        json.append('"').append(name).append("\":\"").append(value).append("\",");
+    }
+
+    /**
+     * Random image content as base64.
+     *
+     * @param random random source
+     * @param size   binary size of the image
+     * @return base64 encoded image
+     */
+    @Nonnull
+    private static String image(@Nonnull final SplittableRandom random, final int size) {
+        final byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+
+}
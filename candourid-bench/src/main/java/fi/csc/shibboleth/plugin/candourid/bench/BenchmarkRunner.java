@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark jar.
+ *
+ * <p>
+ * Accepts the standard JMH command line and always attaches the
+ * {@link GCProfiler} so that allocation per operation ({@code gc.alloc.rate.norm})
+ * is reported next to the timings.
+ * </p>
+ * 
+ * <pre>
+ * java -jar candourid-bench/target/benchmarks.jar [JMH options] [benchmark regexp]
+ * </pre>
+ */
+public final class BenchmarkRunner {
+
+    /** Constructor. */
+    private BenchmarkRunner() {
+        // no op
+    }
+
+    /**
+     * Run the benchmarks.
+     * 
+     * @param args JMH command line arguments
+     * @throws CommandLineOptionException if the arguments are invalid
+     * @throws RunnerException            if running the benchmarks fails
+     */
+    public static void main(final String[] args) throws CommandLineOptionException, RunnerException {
+        final CommandLineOptions commandLine = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder().parent(commandLine).addProfiler(GCProfiler.class).build()).run();
+    }
+
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.bench;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequest;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opensaml.profile.context.ProfileRequestContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.webflow.execution.RequestContext;
+
+import fi.csc.shibboleth.plugin.candourid.CandourEventIds;
+import fi.csc.shibboleth.plugin.candourid.context.CandourContext;
+import fi.csc.shibboleth.plugin.candourid.impl.CreateSession;
+import fi.csc.shibboleth.plugin.candourid.impl.ExtractAuthenticationResponse;
+import fi.csc.shibboleth.plugin.candourid.impl.GetUserClaims;
+import fi.csc.shibboleth.plugin.candourid.impl.InitializeCandourContext;
+import fi.csc.shibboleth.plugin.candourid.impl.ValidateInvitationLink;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourHmacSigner;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourInvitationRequestPayload;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponse;
+import net.shibboleth.idp.authn.context.AuthenticationContext;
+import net.shibboleth.idp.profile.context.navigate.WebflowRequestContextProfileRequestContextLookup;
+import net.shibboleth.idp.profile.testing.RequestContextBuilder;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.servlet.impl.HttpServletRequestResponseContext;
+import net.shibboleth.shared.servlet.impl.ThreadLocalHttpServletRequestSupplier;
+
+/**
+ * Benchmark of a login through the Candour actions, with the actions created
+ * and initialized per login as prototypes or shared as singletons.
+ *
+ * <p>
+ * Allocation per login is reported by the GC profiler as
+ * {@code gc.alloc.rate.norm}. The prototype figures do not include the bean
+ * factory overhead of a real deployment and are a lower bound. The http client
+ * is a stub, the network is not part of the measurement.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class CandourActionScopeBenchmark {
+
+    /** Callback uri of the flow, as set by the flow definition. */
+    private static final String CALLBACK_URI = "/idp/profile/SAML2/Redirect/SSO?execution=e1s2&_eventId_proceed=1";
+
+    /** Whether the actions are created per login. */
+    @Param({ "false", "true" })
+    public boolean prototype;
+
+    /** Http client stub answering the invitation, result and delete requests. */
+    private HttpClient httpClient;
+
+    /** Signer shared by the actions. */
+    private CandourHmacSigner hmacSigner;
+
+    /** Invitation request payload. */
+    private CandourInvitationRequestPayload payload;
+
+    /** Shared actions, used unless actions are created per login. */
+    private Actions singletons;
+
+    /**
+     * Build the http client stub and the shared actions.
+     * 
+     * @throws Exception if initialization fails
+     */
+    @SuppressWarnings("unchecked")
+    @Setup
+    public void setup() throws Exception {
+        final byte[] invitation = BenchmarkFixtures.invitationResponse().getBytes(StandardCharsets.UTF_8);
+        final byte[] result = BenchmarkFixtures.resultResponse(false).getBytes(StandardCharsets.UTF_8);
+        httpClient = Mockito.mock(HttpClient.class, Mockito.withSettings().stubOnly());
+        Mockito.when(httpClient.execute((HttpUriRequest) Mockito.any(), (HttpContext) Mockito.any(),
+                (HttpClientResponseHandler<CandourResponse>) Mockito.any())).thenAnswer(invocation -> {
+                    final String method = ((HttpUriRequest) invocation.getArgument(0)).getMethod();
+                    final BasicClassicHttpResponse response = new BasicClassicHttpResponse(200);
+                    if ("POST".equals(method)) {
+                        response.setEntity(new ByteArrayEntity(invitation, ContentType.APPLICATION_JSON));
+                    } else if ("GET".equals(method)) {
+                        response.setEntity(new ByteArrayEntity(result, ContentType.APPLICATION_JSON));
+                    }
+                    return ((HttpClientResponseHandler<CandourResponse>) invocation.getArgument(2))
+                            .handleResponse(response);
+                });
+        hmacSigner = new CandourHmacSigner(BenchmarkFixtures.HMAC_KEY);
+        payload = BenchmarkFixtures.invitationRequestPayload();
+        singletons = new Actions();
+
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setParameter("status", "success");
+        request.setParameter("sessionId", BenchmarkFixtures.SESSION_ID);
+        HttpServletRequestResponseContext.loadCurrent(request, new MockHttpServletResponse());
+    }
+
+    /**
+     * Run a login through the actions.
+     * 
+     * @return the candour context of the login
+     * @throws ComponentInitializationException if initialization of the actions
+     *                                          fails
+     */
+    @Benchmark
+    public CandourContext login() throws ComponentInitializationException {
+        final Actions actions = prototype ? new Actions() : singletons;
+        final RequestContext src = new RequestContextBuilder().buildRequestContext();
+        final ProfileRequestContext prc = new WebflowRequestContextProfileRequestContextLookup().apply(src);
+        final AuthenticationContext authnContext = prc.addSubcontext(new AuthenticationContext());
+        actions.initializeCandourContext.execute(src);
+        final CandourContext candourContext = authnContext.getSubcontext(CandourContext.class);
+        candourContext.setCallbackUri(CALLBACK_URI);
+        actions.createSession.execute(src);
+        actions.extractAuthenticationResponse.execute(src);
+        actions.getUserClaims.execute(src);
+        actions.validateInvitationLink.execute(src);
+        return candourContext;
+    }
+
+    /** The actions of a login, configured as in the flow. */
+    private final class Actions {
+
+        /** Initializes the candour context. */
+        private final InitializeCandourContext initializeCandourContext = new InitializeCandourContext();
+
+        /** Sends the invitation. */
+        private final CreateSession createSession = new CreateSession();
+
+        /** Reads the redirect response. */
+        private final ExtractAuthenticationResponse extractAuthenticationResponse =
+                new ExtractAuthenticationResponse();
+
+        /** Fetches and deletes the result. */
+        private final GetUserClaims getUserClaims = new GetUserClaims();
+
+        /** Validates the invitation link of the result. */
+        private final ValidateInvitationLink validateInvitationLink = new ValidateInvitationLink();
+
+        /**
+         * Constructor.
+         * 
+         * @throws ComponentInitializationException if initialization fails
+         */
+        private Actions() throws ComponentInitializationException {
+            initializeCandourContext.initialize();
+
+            createSession.setHttpServletRequestSupplier(new ThreadLocalHttpServletRequestSupplier());
+            createSession.setHttpClient(httpClient);
+            createSession.setCandouridURI(BenchmarkFixtures.API_URI);
+            createSession.setClientPublicKey(BenchmarkFixtures.PUBLIC_KEY);
+            createSession.setClientHmacKey(BenchmarkFixtures.HMAC_KEY);
+            createSession.setHmacSigner(hmacSigner);
+            createSession.setPayload(payload);
+            createSession.initialize();
+
+            extractAuthenticationResponse.setHttpServletRequestSupplier(new ThreadLocalHttpServletRequestSupplier());
+            extractAuthenticationResponse
+                    .setMappedStatuses(Map.of("cancelled", CandourEventIds.CANDOUR_REDIRECT_RESP_CANCELLED));
+            extractAuthenticationResponse.initialize();
+
+            getUserClaims.setHttpServletRequestSupplier(new ThreadLocalHttpServletRequestSupplier());
+            getUserClaims.setHttpClient(httpClient);
+            getUserClaims.setCandouridURI(BenchmarkFixtures.API_URI);
+            getUserClaims.setClientPublicKey(BenchmarkFixtures.PUBLIC_KEY);
+            getUserClaims.setClientHmacKey(BenchmarkFixtures.HMAC_KEY);
+            getUserClaims.setHmacSigner(hmacSigner);
+            getUserClaims.initialize();
+
+            validateInvitationLink.initialize();
+        }
+    }
+
+}
@@ -0,0 +1,718 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.bench;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.opensaml.profile.context.ProfileRequestContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.webflow.execution.Event;
+import org.springframework.webflow.execution.RequestContext;
+
+import com.sun.management.OperatingSystemMXBean;
+import com.sun.management.ThreadMXBean;
+
+import fi.csc.shibboleth.plugin.candourid.CandourEventIds;
+import fi.csc.shibboleth.plugin.candourid.context.CandourContext;
+import fi.csc.shibboleth.plugin.candourid.impl.CandourCircuitBreaker;
+import fi.csc.shibboleth.plugin.candourid.impl.CandourHttpClientFactoryBean;
+import fi.csc.shibboleth.plugin.candourid.impl.CandourResultDeleter;
+import fi.csc.shibboleth.plugin.candourid.impl.CandourRetryPolicy;
+import fi.csc.shibboleth.plugin.candourid.impl.CreateSession;
+import fi.csc.shibboleth.plugin.candourid.impl.ExtractAuthenticationResponse;
+import fi.csc.shibboleth.plugin.candourid.impl.GetUserClaims;
+import fi.csc.shibboleth.plugin.candourid.impl.InitializeCandourContext;
+import fi.csc.shibboleth.plugin.candourid.impl.ReleaseStoredImages;
+import fi.csc.shibboleth.plugin.candourid.impl.SimpleCandourIdentifierCanonicalization;
+import fi.csc.shibboleth.plugin.candourid.impl.ValidateAuthentication;
+import fi.csc.shibboleth.plugin.candourid.impl.ValidateInvitationLink;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourHmacSigner;
+import fi.csc.shibboleth.plugin.candourid.simulator.CandourApiSimulator;
+import fi.csc.shibboleth.plugin.candourid.transport.CandourTransport;
+import fi.csc.shibboleth.plugin.candourid.transport.impl.HttpClientCandourTransport;
+import fi.csc.shibboleth.plugin.candourid.transport.impl.JdkHttpClientCandourTransport;
+import net.shibboleth.idp.authn.AuthenticationFlowDescriptor;
+import net.shibboleth.idp.authn.context.AuthenticationContext;
+import net.shibboleth.idp.authn.context.SubjectCanonicalizationContext;
+import net.shibboleth.idp.profile.context.navigate.WebflowRequestContextProfileRequestContextLookup;
+import net.shibboleth.idp.profile.testing.RequestContextBuilder;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.logic.PredicateSupport;
+import net.shibboleth.shared.servlet.impl.HttpServletRequestResponseContext;
+import net.shibboleth.shared.servlet.impl.ThreadLocalHttpServletRequestSupplier;
+
+/**
+ * Throughput and latency harness of the {@code authn/candourid} flow.
+ *
+ * <p>
+ * Each login runs the actions of the flow states in flow order, configured as
+ * by the shipped defaults: Start, AuthnRequest, ExtractAuthenticationResponse,
+ * FinalizeResponse and the CandourIdentifier c14n flow, ending with the on-end
+ * action. The user's visit to Candour is skipped, the session id is taken from
+ * the invitation link. Audit actions and the web flow engine itself are not
+ * run. Servlet requests are mocks, the Candour API is the
+ * {@link CandourApiSimulator} reached over loopback, or with transport
+ * {@code stub} the {@link InMemoryCandourTransport}.
+ * </p>
+ *
+ * <p>
+ * A number of threads run logins back to back. After the warm-up the harness
+ * reports throughput, latency percentiles per flow state, failed logins by
+ * event, and the bytes allocated and CPU time used per login on the login
+ * threads. Logins per CPU second of the login threads is the capacity figure of
+ * one core. Result deletes run on the threads of the result deleter and, with
+ * transport {@code jdk}, I/O on the selector thread of the JDK client; neither
+ * is included in the per login figures. The process CPU time includes the
+ * simulator.
+ * </p>
+ *
+ * <pre>
+ * java -cp candourid-bench/target/benchmarks.jar fi.csc.shibboleth.plugin.candourid.bench.CandourFlowHarness \
+ *     [--threads=N] [--warmup=SECONDS] [--duration=SECONDS] [--transport=blocking|jdk|stub] [--images=true|false] \
+ *     [--latency=MILLIS] [--latencySigma=SIGMA] [--throttleRate=RATE] [--serverErrorRate=RATE]
+ * </pre>
+ */
+public final class CandourFlowHarness {
+
+    /** Callback uri of the flow, as set by the flow definition. */
+    @Nonnull
+    private static final String CALLBACK_URI = "/idp/profile/SAML2/Redirect/SSO?execution=e1s2&_eventId_proceed=1";
+
+    /** Percentiles reported. */
+    @Nonnull
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    /** States of the flow, with the login as a whole. */
+    private enum FlowState {
+
+        /** Start state. */
+        START("Start"),
+
+        /** Invitation of the user. */
+        AUTHN_REQUEST("AuthnRequest"),
+
+        /** Result of the verification. */
+        EXTRACT_AUTHENTICATION_RESPONSE("ExtractAuthenticationResponse"),
+
+        /** Authentication result. */
+        FINALIZE_RESPONSE("FinalizeResponse"),
+
+        /** Subject canonicalization. */
+        SUBJECT_CANONICALIZATION("CallSubjectCanonicalization"),
+
+        /** Successful login, all states. */
+        LOGIN("login");
+
+        /** Name of the state. */
+        @Nonnull
+        private final String stateName;
+
+        /**
+         * Constructor.
+         * 
+         * @param name name of the state
+         */
+        FlowState(@Nonnull final String name) {
+            stateName = name;
+        }
+    }
+
+    /** Number of login threads. */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /** Warm-up duration. */
+    @Nonnull
+    private Duration warmup = Duration.ofSeconds(10);
+
+    /** Measurement duration. */
+    @Nonnull
+    private Duration duration = Duration.ofSeconds(30);
+
+    /** Transport to the Candour API. */
+    @Nonnull
+    private String transportName = "blocking";
+
+    /** Whether the images are requested. */
+    private boolean images = true;
+
+    /** Median latency of the Candour API. */
+    @Nonnull
+    private Duration latency = Duration.ZERO;
+
+    /** Shape parameter of the latency distribution. */
+    private double latencySigma;
+
+    /** Rate of 429 responses. */
+    private double throttleRate;
+
+    /** Rate of 503 responses. */
+    private double serverErrorRate;
+
+    /** The Candour API, unless the transport is a stub. */
+    @Nullable
+    private CandourApiSimulator simulator;
+
+    /** Blocking http client, if used. */
+    @Nullable
+    private CandourHttpClientFactoryBean httpClientFactory;
+
+    /** Result deleter. */
+    @Nullable
+    private CandourResultDeleter resultDeleter;
+
+    /** Flow of the logins. */
+    @Nullable
+    private AuthenticationFlowDescriptor flow;
+
+    /** Initializes the candour context. */
+    @Nonnull
+    private final InitializeCandourContext initializeCandourContext = new InitializeCandourContext();
+
+    /** Sends the invitation. */
+    @Nonnull
+    private final CreateSession createSession = new CreateSession();
+
+    /** Reads the redirect response. */
+    @Nonnull
+    private final ExtractAuthenticationResponse extractAuthenticationResponse = new ExtractAuthenticationResponse();
+
+    /** Fetches the result. */
+    @Nonnull
+    private final GetUserClaims getUserClaims = new GetUserClaims();
+
+    /** Validates the invitation link of the result. */
+    @Nonnull
+    private final ValidateInvitationLink validateInvitationLink = new ValidateInvitationLink();
+
+    /** Releases the stored images. */
+    @Nonnull
+    private final ReleaseStoredImages releaseStoredImages = new ReleaseStoredImages();
+
+    /** Whether the logins are measured. */
+    private volatile boolean measuring;
+
+    /** Whether the logins are to stop. */
+    private volatile boolean stopping;
+
+    /** Failed logins by state and event. */
+    @Nonnull
+    private final ConcurrentMap<String, LongAdder> failures = new ConcurrentHashMap<>();
+
+    /** Constructor. */
+    private CandourFlowHarness() {
+        // no op
+    }
+
+    /**
+     * Run the harness.
+     * 
+     * @param args options, as {@code --name=value}
+     * @throws Exception if running fails
+     */
+    public static void main(final String[] args) throws Exception {
+        final CandourFlowHarness harness = new CandourFlowHarness();
+        harness.parse(args);
+        harness.setup();
+        try {
+            harness.run();
+        } finally {
+            harness.teardown();
+        }
+    }
+
+    /**
+     * Read the options.
+     * 
+     * @param args options, as {@code --name=value}
+     */
+    private void parse(@Nonnull final String[] args) {
+        for (final String arg : args) {
+            final int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Options are given as --name=value, not " + arg);
+            }
+            final String value = arg.substring(separator + 1);
+            switch (arg.substring(2, separator)) {
+                case "threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "warmup":
+                    warmup = Duration.ofSeconds(Long.parseLong(value));
+                    break;
+                case "duration":
+                    duration = Duration.ofSeconds(Long.parseLong(value));
+                    break;
+                case "transport":
+                    transportName = value;
+                    break;
+                case "images":
+                    images = Boolean.parseBoolean(value);
+                    break;
+                case "latency":
+                    latency = Duration.ofMillis(Long.parseLong(value));
+                    break;
+                case "latencySigma":
+                    latencySigma = Double.parseDouble(value);
+                    break;
+                case "throttleRate":
+                    throttleRate = Double.parseDouble(value);
+                    break;
+                case "serverErrorRate":
+                    serverErrorRate = Double.parseDouble(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Number of threads must be greater than 0");
+        }
+    }
+
+    /**
+     * Start the Candour API and build the actions.
+     * 
+     * @throws Exception if initialization fails
+     */
+    private void setup() throws Exception {
+        final CandourTransport transport = buildTransport();
+        final String apiUri = simulator != null ? simulator.getApiUri() : BenchmarkFixtures.API_URI;
+        final CandourHmacSigner hmacSigner = new CandourHmacSigner(BenchmarkFixtures.HMAC_KEY);
+        final CandourCircuitBreaker circuitBreaker = new CandourCircuitBreaker();
+        circuitBreaker.initialize();
+        final CandourRetryPolicy retryPolicy = new CandourRetryPolicy();
+        retryPolicy.initialize();
+
+        resultDeleter = new CandourResultDeleter();
+        resultDeleter.setTransport(transport);
+        resultDeleter.setCandouridURI(apiUri);
+        resultDeleter.setClientPublicKey(BenchmarkFixtures.PUBLIC_KEY);
+        resultDeleter.setHmacSigner(hmacSigner);
+        resultDeleter.initialize();
+
+        initializeCandourContext.initialize();
+
+        createSession.setHttpServletRequestSupplier(new ThreadLocalHttpServletRequestSupplier());
+        createSession.setTransport(transport);
+        createSession.setCandouridURI(apiUri);
+        createSession.setClientPublicKey(BenchmarkFixtures.PUBLIC_KEY);
+        createSession.setClientHmacKey(BenchmarkFixtures.HMAC_KEY);
+        createSession.setHmacSigner(hmacSigner);
+        createSession.setCircuitBreaker(circuitBreaker);
+        createSession.setRetryPolicy(retryPolicy);
+        createSession.setPayload(BenchmarkFixtures.invitationRequestPayload(images));
+        createSession.initialize();
+
+        extractAuthenticationResponse.setHttpServletRequestSupplier(new ThreadLocalHttpServletRequestSupplier());
+        extractAuthenticationResponse
+                .setMappedStatuses(Map.of("cancelled", CandourEventIds.CANDOUR_REDIRECT_RESP_CANCELLED));
+        extractAuthenticationResponse.initialize();
+
+        getUserClaims.setHttpServletRequestSupplier(new ThreadLocalHttpServletRequestSupplier());
+        getUserClaims.setTransport(transport);
+        getUserClaims.setCandouridURI(apiUri);
+        getUserClaims.setClientPublicKey(BenchmarkFixtures.PUBLIC_KEY);
+        getUserClaims.setClientHmacKey(BenchmarkFixtures.HMAC_KEY);
+        getUserClaims.setHmacSigner(hmacSigner);
+        getUserClaims.setCircuitBreaker(circuitBreaker);
+        getUserClaims.setRetryPolicy(retryPolicy);
+        getUserClaims.setResultDeleter(resultDeleter);
+        getUserClaims.initialize();
+
+        validateInvitationLink.initialize();
+        releaseStoredImages.initialize();
+
+        flow = new AuthenticationFlowDescriptor();
+        flow.setId("authn/candourid");
+        flow.initialize();
+    }
+
+    /**
+     * Build the transport to the Candour API, starting the simulator unless the
+     * transport is a stub.
+     * 
+     * @return the transport
+     * @throws Exception if initialization fails
+     */
+    @Nonnull
+    private CandourTransport buildTransport() throws Exception {
+        if ("stub".equals(transportName)) {
+            final InMemoryCandourTransport stub = new InMemoryCandourTransport();
+            stub.setMedianLatency(latency);
+            stub.setLatencySigma(latencySigma);
+            stub.setThrottleRate(throttleRate);
+            stub.setServerErrorRate(serverErrorRate);
+            stub.initialize();
+            return stub;
+        }
+        simulator = new CandourApiSimulator();
+        simulator.setClientPublicKey(BenchmarkFixtures.PUBLIC_KEY);
+        simulator.setClientHmacKey(BenchmarkFixtures.HMAC_KEY);
+        simulator.setThreads(Math.max(64, 2 * threads));
+        simulator.initialize();
+        simulator.getFaults().setMedianLatency(latency);
+        simulator.getFaults().setLatencySigma(latencySigma);
+        simulator.getFaults().setThrottleRate(throttleRate);
+        simulator.getFaults().setServerErrorRate(serverErrorRate);
+        if ("jdk".equals(transportName)) {
+            final JdkHttpClientCandourTransport jdk = new JdkHttpClientCandourTransport();
+            jdk.setHttp2(false);
+            jdk.initialize();
+            return jdk;
+        } else if ("blocking".equals(transportName)) {
+            httpClientFactory = new CandourHttpClientFactoryBean();
+            // Room for the login threads and the workers of the result deleter
+            httpClientFactory.setMaxConnectionsTotal(threads + 8);
+            httpClientFactory.setMaxConnectionsPerRoute(threads + 8);
+            httpClientFactory.afterPropertiesSet();
+            final CloseableHttpClient client = httpClientFactory.getObject();
+            return new HttpClientCandourTransport(client, null);
+        }
+        throw new IllegalArgumentException("Unknown transport " + transportName);
+    }
+
+    /**
+     * Stop the Candour API and the background work.
+     * 
+     * @throws Exception if closing the http client fails
+     */
+    private void teardown() throws Exception {
+        if (resultDeleter != null) {
+            resultDeleter.destroy();
+        }
+        if (httpClientFactory != null) {
+            httpClientFactory.destroy();
+        }
+        if (simulator != null) {
+            simulator.destroy();
+        }
+    }
+
+    /**
+     * Run the logins and report.
+     * 
+     * @throws InterruptedException if interrupted
+     */
+    private void run() throws InterruptedException {
+        final ThreadMXBean threadBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final OperatingSystemMXBean osBean = (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        final List<Worker> workers = new ArrayList<>();
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            final Worker worker = new Worker(done);
+            final Thread thread = new Thread(worker, "candourid-login-" + i);
+            thread.setDaemon(true);
+            worker.thread = thread;
+            workers.add(worker);
+        }
+        System.out.printf(Locale.ROOT, "Candour flow: %d threads, transport %s, images %s, latency %d ms%n", threads,
+                transportName, images, latency.toMillis());
+        workers.forEach(w -> w.thread.start());
+        TimeUnit.NANOSECONDS.sleep(warmup.toNanos());
+
+        final long[] threadIds = workers.stream().mapToLong(w -> w.thread.getId()).toArray();
+        final long[] allocatedBefore = threadBean.getThreadAllocatedBytes(threadIds);
+        final long[] cpuBefore = threadCpuTimes(threadBean, threadIds);
+        final long processCpuBefore = osBean.getProcessCpuTime();
+        final long start = System.nanoTime();
+        measuring = true;
+        TimeUnit.NANOSECONDS.sleep(duration.toNanos());
+        measuring = false;
+        final long elapsed = System.nanoTime() - start;
+        final long[] allocatedAfter = threadBean.getThreadAllocatedBytes(threadIds);
+        final long[] cpuAfter = threadCpuTimes(threadBean, threadIds);
+        final long processCpu = osBean.getProcessCpuTime() - processCpuBefore;
+        stopping = true;
+        done.await();
+
+        long allocated = 0;
+        long cpu = 0;
+        for (int i = 0; i < threadIds.length; i++) {
+            allocated += allocatedAfter[i] - allocatedBefore[i];
+            cpu += cpuAfter[i] - cpuBefore[i];
+        }
+        final Map<FlowState, LatencyHistogram> histograms = new EnumMap<>(FlowState.class);
+        long logins = 0;
+        for (final Worker worker : workers) {
+            logins += worker.logins;
+            for (final FlowState state : FlowState.values()) {
+                histograms.computeIfAbsent(state, s -> new LatencyHistogram()).add(worker.histograms.get(state));
+            }
+        }
+        report(logins, elapsed, allocated, cpu, processCpu, histograms);
+    }
+
+    /**
+     * CPU time of threads.
+     * 
+     * @param threadBean thread management bean
+     * @param threadIds  ids of the threads
+     * @return CPU time of the threads in nanoseconds
+     */
+    @Nonnull
+    private static long[] threadCpuTimes(@Nonnull final ThreadMXBean threadBean, @Nonnull final long[] threadIds) {
+        final long[] times = new long[threadIds.length];
+        for (int i = 0; i < threadIds.length; i++) {
+            times[i] = threadBean.getThreadCpuTime(threadIds[i]);
+        }
+        return times;
+    }
+
+    /**
+     * Print the results.
+     * 
+     * @param logins     number of logins measured
+     * @param elapsed    measurement time in nanoseconds
+     * @param allocated  bytes allocated by the login threads
+     * @param cpu        CPU time of the login threads in nanoseconds
+     * @param processCpu CPU time of the process in nanoseconds
+     * @param histograms latencies by state
+     */
+    private void report(final long logins, final long elapsed, final long allocated, final long cpu,
+            final long processCpu, @Nonnull final Map<FlowState, LatencyHistogram> histograms) {
+        final double seconds = elapsed / 1e9;
+        final long successful = histograms.get(FlowState.LOGIN).getCount();
+        System.out.printf(Locale.ROOT, "%nLogins: %d in %.1f s, %d successful%n", logins, seconds, successful);
+        System.out.printf(Locale.ROOT, "Throughput: %.1f logins/s%n", logins / seconds);
+        if (logins > 0) {
+            System.out.printf(Locale.ROOT, "Per core: %.1f logins per CPU second of the login threads%n",
+                    logins / (cpu / 1e9));
+            System.out.printf(Locale.ROOT, "CPU per login: %.1f us login threads, %.1f us process%n",
+                    cpu / 1e3 / logins, processCpu / 1e3 / logins);
+            System.out.printf(Locale.ROOT, "Allocated per login: %d bytes%n", allocated / logins);
+        }
+        System.out.printf(Locale.ROOT, "%nLatency (ms)%n%-30s %10s", "state", "count");
+        for (final double percentile : PERCENTILES) {
+            System.out.printf(Locale.ROOT, " %9s", "p" + (percentile % 1 == 0 ? (int) percentile : percentile));
+        }
+        System.out.printf(Locale.ROOT, " %9s%n", "max");
+        for (final FlowState state : FlowState.values()) {
+            final LatencyHistogram histogram = histograms.get(state);
+            System.out.printf(Locale.ROOT, "%-30s %10d", state.stateName, histogram.getCount());
+            for (final double percentile : PERCENTILES) {
+                System.out.printf(Locale.ROOT, " %9.3f", histogram.getValueAtPercentile(percentile) / 1e6);
+            }
+            System.out.printf(Locale.ROOT, " %9.3f%n", histogram.getMax() / 1e6);
+        }
+        if (!failures.isEmpty()) {
+            System.out.printf(Locale.ROOT, "%nFailed logins%n");
+            failures.forEach((key, count) -> System.out.printf(Locale.ROOT, "%-60s %10d%n", key, count.sum()));
+        }
+    }
+
+    /**
+     * Run a login.
+     * 
+     * @param histograms latencies by state, null if the login is not measured
+     */
+    private void login(@Nullable final Map<FlowState, LatencyHistogram> histograms) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/idp/profile/SAML2/Redirect/SSO");
+        request.setScheme("https");
+        request.setServerName("idp.example.org");
+        request.setServerPort(443);
+        request.setSecure(true);
+        HttpServletRequestResponseContext.loadCurrent(request, new MockHttpServletResponse());
+        final RequestContext src = new RequestContextBuilder().buildRequestContext();
+        final ProfileRequestContext prc = new WebflowRequestContextProfileRequestContextLookup().apply(src);
+        final AuthenticationContext authnContext = prc.addSubcontext(new AuthenticationContext());
+        authnContext.setAttemptedFlow(flow);
+        final long start = System.nanoTime();
+        try {
+            long stateStart = start;
+            if (failed(FlowState.START, initializeCandourContext.execute(src))) {
+                return;
+            }
+            stateStart = record(histograms, FlowState.START, stateStart);
+
+            final CandourContext candourContext = authnContext.getSubcontext(CandourContext.class);
+            candourContext.setCallbackUri(CALLBACK_URI);
+            if (failed(FlowState.AUTHN_REQUEST, createSession.execute(src))) {
+                return;
+            }
+            stateStart = record(histograms, FlowState.AUTHN_REQUEST, stateStart);
+
+            // The user verifies at Candour and returns to the callback
+            final String link = candourContext.getAuthenticationUri();
+            request.setParameter("status", "success");
+            request.setParameter("sessionId", link.substring(link.lastIndexOf('/') + 1));
+            if (failed(FlowState.EXTRACT_AUTHENTICATION_RESPONSE, extractAuthenticationResponse.execute(src))
+                    || failed(FlowState.EXTRACT_AUTHENTICATION_RESPONSE, getUserClaims.execute(src))
+                    || failed(FlowState.EXTRACT_AUTHENTICATION_RESPONSE, validateInvitationLink.execute(src))) {
+                return;
+            }
+            stateStart = record(histograms, FlowState.EXTRACT_AUTHENTICATION_RESPONSE, stateStart);
+
+            if (failed(FlowState.FINALIZE_RESPONSE, finalizeResponse(src, prc, authnContext))) {
+                return;
+            }
+            stateStart = record(histograms, FlowState.FINALIZE_RESPONSE, stateStart);
+
+            if (failed(FlowState.SUBJECT_CANONICALIZATION, canonicalize(src))) {
+                return;
+            }
+            record(histograms, FlowState.SUBJECT_CANONICALIZATION, stateStart);
+            record(histograms, FlowState.LOGIN, start);
+        } finally {
+            releaseStoredImages.execute(src);
+            HttpServletRequestResponseContext.clearCurrent();
+        }
+    }
+
+    /**
+     * Build the authentication result and populate the subject canonicalization
+     * context, with the prototype scoped action created per login as in the flow.
+     * 
+     * @param src          webflow request context
+     * @param prc          profile request context
+     * @param authnContext authentication context
+     * @return the event of the action, null on success
+     */
+    @Nullable
+    private Event finalizeResponse(@Nonnull final RequestContext src, @Nonnull final ProfileRequestContext prc,
+            @Nonnull final AuthenticationContext authnContext) {
+        final ValidateAuthentication validateAuthentication = new ValidateAuthentication();
+        validateAuthentication.setClaimSourceIds(List.of("name"));
+        try {
+            validateAuthentication.initialize();
+        } catch (final ComponentInitializationException e) {
+            throw new IllegalStateException(e);
+        }
+        final Event event = validateAuthentication.execute(src);
+        if (event == null) {
+            prc.ensureSubcontext(SubjectCanonicalizationContext.class)
+                    .setSubject(authnContext.getAuthenticationResult().getSubject());
+        }
+        return event;
+    }
+
+    /**
+     * Canonicalize the subject, with the prototype scoped action created per
+     * login as in the flow.
+     * 
+     * @param src webflow request context
+     * @return the event of the action, null on success
+     */
+    @Nullable
+    private static Event canonicalize(@Nonnull final RequestContext src) {
+        final SimpleCandourIdentifierCanonicalization action = new SimpleCandourIdentifierCanonicalization();
+        action.setActivationCondition(PredicateSupport.alwaysTrue());
+        try {
+            action.initialize();
+        } catch (final ComponentInitializationException e) {
+            throw new IllegalStateException(e);
+        }
+        return action.execute(src);
+    }
+
+    /**
+     * Record a failed login, if the event of an action is not a success.
+     * 
+     * @param state state of the action
+     * @param event event of the action
+     * @return whether the login failed
+     */
+    private boolean failed(@Nonnull final FlowState state, @Nullable final Event event) {
+        if (event == null) {
+            return false;
+        }
+        if (measuring) {
+            failures.computeIfAbsent(state.stateName + " " + event.getId(), k -> new LongAdder()).increment();
+        }
+        return true;
+    }
+
+    /**
+     * Record the latency of a state.
+     * 
+     * @param histograms latencies by state, null if the login is not measured
+     * @param state      the state
+     * @param stateStart start of the state
+     * @return end of the state
+     */
+    private static long record(@Nullable final Map<FlowState, LatencyHistogram> histograms,
+            @Nonnull final FlowState state, final long stateStart) {
+        final long now = System.nanoTime();
+        if (histograms != null) {
+            histograms.get(state).record(now - stateStart);
+        }
+        return now;
+    }
+
+    /** Thread running logins back to back. */
+    private final class Worker implements Runnable {
+
+        /** Latencies by state. */
+        @Nonnull
+        private final Map<FlowState, LatencyHistogram> histograms = new EnumMap<>(FlowState.class);
+
+        /** Signalled when the thread stops. */
+        @Nonnull
+        private final CountDownLatch done;
+
+        /** Thread of the worker. */
+        @Nullable
+        private Thread thread;
+
+        /** Number of logins measured. */
+        private long logins;
+
+        /**
+         * Constructor.
+         * 
+         * @param latch signalled when the thread stops
+         */
+        private Worker(@Nonnull final CountDownLatch latch) {
+            done = latch;
+            for (final FlowState state : FlowState.values()) {
+                histograms.put(state, new LatencyHistogram());
+            }
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void run() {
+            try {
+                while (!stopping) {
+                    if (measuring) {
+                        login(histograms);
+                        logins++;
+                    } else {
+                        login(null);
+                    }
+                }
+            } finally {
+                done.countDown();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.bench;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.hc.client5.http.utils.Hex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourHmacSigner;
+
+/**
+ * Benchmark for {@link CandourHmacSigner} against a per call {@link Mac}
+ * lookup, run with several threads to expose provider lookup contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@Threads(8)
+public class CandourHmacSignerBenchmark {
+
+    /** Signer under test. */
+    private CandourHmacSigner signer;
+
+    /**
+     * Build the signer.
+     * 
+     * @throws Exception if the key is invalid
+     */
+    @Setup
+    public void setup() throws Exception {
+        signer = new CandourHmacSigner(BenchmarkFixtures.HMAC_KEY);
+    }
+
+    /**
+     * Sign a session id with the pooled signer.
+     * 
+     * @return signature
+     */
+    @Benchmark
+    public String sign() {
+        return signer.sign(BenchmarkFixtures.SESSION_ID);
+    }
+
+    /**
+     * Sign a session id as previously done per request.
+     * 
+     * @return signature
+     * @throws Exception if signing fails
+     */
+    @Benchmark
+    public String signBaseline() throws Exception {
+        final Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(BenchmarkFixtures.HMAC_KEY.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return Hex.encodeHexString(mac.doFinal(BenchmarkFixtures.SESSION_ID.getBytes(StandardCharsets.UTF_8)));
+    }
+
+}
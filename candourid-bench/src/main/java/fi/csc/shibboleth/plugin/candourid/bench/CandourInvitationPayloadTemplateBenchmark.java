@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.bench;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourInvitationPayloadTemplate;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourInvitationRequestPayload;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourJsonCodec;
+
+/**
+ * Benchmarks for {@link CandourInvitationPayloadTemplate} against serializing
+ * the invitation request payload with {@link CandourJsonCodec}.
+ *
+ * <p>
+ * The setup fails unless the template renders the same bytes as the codec for
+ * a set of instants and callback urls.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class CandourInvitationPayloadTemplateBenchmark {
+
+    /** Instants the template is verified with. */
+    private static final String[] INSTANTS = { "1970-01-01T00:00:00Z", "2024-06-01T10:00:00.123Z",
+            "2024-12-31T23:55:59.999Z", "9999-12-31T23:59:59.999Z", "+10000-01-01T00:00:00Z" };
+
+    /** Callback urls the template is verified with. */
+    private static final String[] CALLBACK_URLS = { BenchmarkFixtures.CALLBACK_URL,
+            "https://idp.example.org/\"quoted\"\\path\t\u0001/päivä/€" };
+
+    /** Codec serializing the payload. */
+    private CandourJsonCodec codec;
+
+    /** Invitation request payload. */
+    private CandourInvitationRequestPayload payload;
+
+    /** Template under test. */
+    private CandourInvitationPayloadTemplate template;
+
+    /**
+     * Build the template and verify it against the codec.
+     * 
+     * @throws Exception if serialization fails
+     */
+    @Setup
+    public void setup() throws Exception {
+        codec = CandourJsonCodec.getDefault();
+        payload = BenchmarkFixtures.invitationRequestPayload();
+        template = new CandourInvitationPayloadTemplate(payload, codec);
+        for (final String instant : INSTANTS) {
+            for (final String callbackUrl : CALLBACK_URLS) {
+                final CandourInvitationRequestPayload expected = payload.toBuilder()
+                        .setClock(Clock.fixed(Instant.parse(instant), ZoneOffset.UTC))
+                        .setCallbackUrl(callbackUrl)
+                        .build();
+                if (!Arrays.equals(codec.writeInvitationRequestPayload(expected).getBytes(StandardCharsets.UTF_8),
+                        template.render(callbackUrl, Instant.parse(instant).toEpochMilli()))) {
+                    throw new IllegalStateException("Template output differs from the serializer at " + instant);
+                }
+            }
+        }
+    }
+
+    /**
+     * Serialize the payload with the codec and encode it as UTF-8.
+     * 
+     * @return json bytes
+     * @throws Exception if serialization fails
+     */
+    @Benchmark
+    public byte[] serializer() throws Exception {
+        return codec.writeInvitationRequestPayload(payload).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Render the payload with the template.
+     * 
+     * @return json bytes
+     */
+    @Benchmark
+    public byte[] template() {
+        return template.render(BenchmarkFixtures.CALLBACK_URL);
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.bench;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourInvitationRequestPayload;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourInvitationSuccessResponsePayload;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourJsonCodec;
+
+/**
+ * Benchmarks for {@link CandourJsonCodec}, with and without bytecode
+ * acceleration, against the previous per call {@link ObjectMapper}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class CandourJsonCodecBenchmark {
+
+    /** Whether the codec uses bytecode acceleration. */
+    @Param({ "false", "true" })
+    public boolean accelerated;
+
+    /** Codec under test. */
+    private CandourJsonCodec codec;
+
+    /** Invitation request payload. */
+    private CandourInvitationRequestPayload invitationRequest;
+
+    /** Invitation response json. */
+    private String invitationResponse;
+
+    /** Result response json without images. */
+    private String resultResponse;
+
+    /** Build the codec and the fixtures. */
+    @Setup
+    public void setup() {
+        codec = new CandourJsonCodec(accelerated);
+        invitationRequest = BenchmarkFixtures.invitationRequestPayload();
+        invitationResponse = BenchmarkFixtures.invitationResponse();
+        resultResponse = BenchmarkFixtures.resultResponse(false);
+    }
+
+    /**
+     * Serialize the invitation request payload.
+     * 
+     * @return json
+     * @throws Exception if serialization fails
+     */
+    @Benchmark
+    public String writeInvitationRequest() throws Exception {
+        return codec.writeInvitationRequestPayload(invitationRequest);
+    }
+
+    /**
+     * Serialize the invitation request payload with a new {@link ObjectMapper}.
+     * 
+     * @return json
+     * @throws Exception if serialization fails
+     */
+    @Benchmark
+    public String writeInvitationRequestBaseline() throws Exception {
+        return new ObjectMapper().writeValueAsString(invitationRequest);
+    }
+
+    /**
+     * Parse the invitation response.
+     * 
+     * @return parsed response
+     * @throws Exception if parsing fails
+     */
+    @Benchmark
+    public CandourInvitationSuccessResponsePayload readInvitationResponse() throws Exception {
+        return codec.readInvitationSuccessResponse(invitationResponse);
+    }
+
+    /**
+     * Parse the invitation response with a new {@link ObjectMapper}.
+     * 
+     * @return parsed response
+     * @throws Exception if parsing fails
+     */
+    @Benchmark
+    public CandourInvitationSuccessResponsePayload readInvitationResponseBaseline() throws Exception {
+        return new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+                .readValue(invitationResponse, CandourInvitationSuccessResponsePayload.class);
+    }
+
+    /**
+     * Parse the result claims.
+     * 
+     * @return claims
+     * @throws Exception if parsing fails
+     */
+    @Benchmark
+    public Map<String, Object> readResultClaims() throws Exception {
+        return codec.readResultClaims(resultResponse);
+    }
+
+    /**
+     * Parse the result claims with a new {@link ObjectMapper}.
+     * 
+     * @return claims
+     * @throws Exception if parsing fails
+     */
+    @Benchmark
+    public Map<String, Object> readResultClaimsBaseline() throws Exception {
+        return new ObjectMapper().readValue(resultResponse, new TypeReference<Map<String, Object>>() {
+        });
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.bench;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourDeleteRequest;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourInvitationRequest;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResultRequest;
+
+/**
+ * Benchmarks for turning Candour messages into signed http requests, covering
+ * payload serialization, hmac calculation and uri building.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class CandourRequestBenchmark {
+
+    /** Invitation request, as built by {@link fi.csc.shibboleth.plugin.candourid.impl.CreateSession}. */
+    private CandourInvitationRequest invitationRequest;
+
+    /** Result request, as built by {@link fi.csc.shibboleth.plugin.candourid.impl.GetUserClaims}. */
+    private CandourResultRequest resultRequest;
+
+    /** Delete request, as built by {@link fi.csc.shibboleth.plugin.candourid.impl.GetUserClaims}. */
+    private CandourDeleteRequest deleteRequest;
+
+    /**
+     * Build the messages.
+     * 
+     * @throws Exception if the api uri is invalid
+     */
+    @Setup
+    public void setup() throws Exception {
+        final URI uri = new URI(BenchmarkFixtures.API_URI);
+        invitationRequest = new CandourInvitationRequest(uri, BenchmarkFixtures.PUBLIC_KEY,
+                BenchmarkFixtures.HMAC_KEY);
+        invitationRequest.setPayload(BenchmarkFixtures.invitationRequestPayload());
+        resultRequest = new CandourResultRequest(uri, BenchmarkFixtures.PUBLIC_KEY, BenchmarkFixtures.HMAC_KEY);
+        resultRequest.setPayload(BenchmarkFixtures.SESSION_ID);
+        deleteRequest = new CandourDeleteRequest(uri, BenchmarkFixtures.PUBLIC_KEY, BenchmarkFixtures.HMAC_KEY);
+        deleteRequest.setPayload(BenchmarkFixtures.SESSION_ID);
+    }
+
+    /**
+     * Invitation POST request.
+     * 
+     * @return http request
+     * @throws Exception if building the request fails
+     */
+    @Benchmark
+    public ClassicHttpRequest invitationRequest() throws Exception {
+        return invitationRequest.toHttpRequest();
+    }
+
+    /**
+     * Result GET request.
+     * 
+     * @return http request
+     * @throws Exception if building the request fails
+     */
+    @Benchmark
+    public ClassicHttpRequest resultRequest() throws Exception {
+        return resultRequest.toHttpRequest();
+    }
+
+    /**
+     * Result DELETE request.
+     * 
+     * @return http request
+     * @throws Exception if building the request fails
+     */
+    @Benchmark
+    public ClassicHttpRequest deleteRequest() throws Exception {
+        return deleteRequest.toHttpRequest();
+    }
+
+}
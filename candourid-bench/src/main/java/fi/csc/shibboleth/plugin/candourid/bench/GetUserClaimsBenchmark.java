@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.bench;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequest;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opensaml.profile.context.ProfileRequestContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.webflow.execution.Event;
+import org.springframework.webflow.execution.RequestContext;
+
+import fi.csc.shibboleth.plugin.candourid.context.CandourContext;
+import fi.csc.shibboleth.plugin.candourid.impl.GetUserClaims;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponse;
+import net.shibboleth.idp.authn.context.AuthenticationContext;
+import net.shibboleth.idp.profile.context.navigate.WebflowRequestContextProfileRequestContextLookup;
+import net.shibboleth.idp.profile.testing.RequestContextBuilder;
+import net.shibboleth.shared.servlet.impl.HttpServletRequestResponseContext;
+import net.shibboleth.shared.servlet.impl.ThreadLocalHttpServletRequestSupplier;
+
+/**
+ * Benchmark for {@link GetUserClaims}: result and delete request building,
+ * signing and parsing of the result claims.
+ *
+ * <p>
+ * The http client is a stub passing a prepared response body to the response
+ * handler of the action, the network is not part of the measurement.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class GetUserClaimsBenchmark {
+
+    /** Whether the result contains base64 image claims. */
+    @Param({ "false", "true" })
+    public boolean images;
+
+    /** Comma separated result claims stored to context, empty for all claims. */
+    @Param({ "", "name,invitationLink" })
+    public String claims;
+
+    /** Whether image claims are decoded to byte arrays. */
+    @Param({ "false", "true" })
+    public boolean decodeImages;
+
+    /** Action under test. */
+    private GetUserClaims action;
+
+    /** Webflow request context. */
+    private RequestContext src;
+
+    /**
+     * Build the action and the contexts.
+     * 
+     * @throws Exception if initialization fails
+     */
+    @SuppressWarnings("unchecked")
+    @Setup
+    public void setup() throws Exception {
+        src = new RequestContextBuilder().buildRequestContext();
+        final ProfileRequestContext prc = new WebflowRequestContextProfileRequestContextLookup().apply(src);
+        final CandourContext ctx = (CandourContext) prc.addSubcontext(new AuthenticationContext())
+                .addSubcontext(new CandourContext());
+        ctx.setSessionId(BenchmarkFixtures.SESSION_ID);
+        HttpServletRequestResponseContext.loadCurrent(new MockHttpServletRequest(), new MockHttpServletResponse());
+
+        final HttpClient httpClient = Mockito.mock(HttpClient.class, Mockito.withSettings().stubOnly());
+        final byte[] body = BenchmarkFixtures.resultResponse(images).getBytes(StandardCharsets.UTF_8);
+        Mockito.when(httpClient.execute((HttpUriRequest) Mockito.any(), (HttpContext) Mockito.any(),
+                (HttpClientResponseHandler<CandourResponse>) Mockito.any())).thenAnswer(invocation -> {
+                    final BasicClassicHttpResponse response = new BasicClassicHttpResponse(200);
+                    response.setEntity(new ByteArrayEntity(body, ContentType.APPLICATION_JSON));
+                    return ((HttpClientResponseHandler<CandourResponse>) invocation.getArgument(2))
+                            .handleResponse(response);
+                });
+
+        action = new GetUserClaims();
+        action.setCandouridURI(BenchmarkFixtures.API_URI);
+        action.setClientPublicKey(BenchmarkFixtures.PUBLIC_KEY);
+        action.setClientHmacKey(BenchmarkFixtures.HMAC_KEY);
+        action.setHttpServletRequestSupplier(new ThreadLocalHttpServletRequestSupplier());
+        action.setHttpClient(httpClient);
+        action.setResultClaimNames(Arrays.asList(claims.split(",")));
+        action.setDecodeImages(decodeImages);
+        action.initialize();
+    }
+
+    /**
+     * Fetch, parse and delete the result.
+     * 
+     * @return the event of the action, null on success
+     */
+    @Benchmark
+    public Event execute() {
+        return action.execute(src);
+    }
+
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.bench;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.hc.client5.http.ClientProtocolException;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponse;
+import fi.csc.shibboleth.plugin.candourid.transport.CandourOperation;
+import fi.csc.shibboleth.plugin.candourid.transport.CandourTransport;
+import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
+import net.shibboleth.shared.annotation.constraint.ThreadSafeAfterInit;
+import net.shibboleth.shared.collection.CollectionSupport;
+import net.shibboleth.shared.component.AbstractInitializableComponent;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.logic.Constraint;
+
+/**
+ * Transport answering the requests in memory as the Candour API would, for
+ * load testing and benchmarking the flow without network access.
+ * 
+ * <p>
+ * As any session results in a valid looking result, the transport is for the
+ * benchmarks only and must never be available to a deployed flow.
+ * </p>
+ * 
+ * <p>
+ * An invitation creates a new session id and an invitation link of the
+ * session. The result of any session holds the configured claims and the
+ * invitation link of the session, so the result passes the invitation link
+ * validation. Deletes always succeed. Requests are neither authenticated nor
+ * otherwise validated.
+ * </p>
+ * 
+ * <p>
+ * The latency of a call is log-normally distributed around the median latency,
+ * the spread set by the shape parameter sigma; 0 gives a constant latency. A
+ * call exceeding the time to wait fails with a timeout once the time has
+ * passed. A call may fail at random with a dropped connection, a 429 or a 503
+ * response, each at its configured rate.
+ * </p>
+ */
+@ThreadSafeAfterInit
+public class InMemoryCandourTransport extends AbstractInitializableComponent implements CandourTransport {
+
+    /** Http status code of too many requests. */
+    private static final int SC_TOO_MANY_REQUESTS = 429;
+
+    /** Http status code of service unavailable. */
+    private static final int SC_SERVICE_UNAVAILABLE = 503;
+
+    /** How long an invitation is valid. */
+    @Nonnull
+    private static final Duration INVITATION_VALIDITY = Duration.ofMinutes(10);
+
+    /** Location the invitation links are built of by appending the session id. */
+    @Nonnull
+    private String invitationLinkBase = "https://candour.invalid/verify/";
+
+    /** Claims of the results. */
+    @Nonnull
+    private Map<String, String> resultClaims;
+
+    /** Median latency of a call. */
+    @Nonnull
+    private Duration medianLatency = Duration.ZERO;
+
+    /** Shape parameter of the log-normal latency distribution. */
+    private double latencySigma;
+
+    /** Rate of calls failing with a dropped connection. */
+    private double connectionFailureRate;
+
+    /** Rate of calls answered with 429. */
+    private double throttleRate;
+
+    /** Rate of calls answered with 503. */
+    private double serverErrorRate;
+
+    /** Result json up to the invitation link claim, which closes the result. */
+    @NonnullAfterInit
+    private String resultPrefix;
+
+    /** Constructor. */
+    public InMemoryCandourTransport() {
+        final Map<String, String> claims = new LinkedHashMap<>();
+        claims.put("firstName", "Matti");
+        claims.put("lastName", "Meikäläinen");
+        claims.put("dateOfBirth", "1980-01-01");
+        claims.put("nationalIdentificationNumber", "010180-9026");
+        claims.put("idDocumentType", "PASSPORT");
+        claims.put("nationality", "FIN");
+        resultClaims = CollectionSupport.copyToMap(claims);
+    }
+
+    /**
+     * Set location the invitation links are built of by appending the session id.
+     * 
+     * @param base location of the invitation links
+     */
+    public void setInvitationLinkBase(@Nonnull final String base) {
+        checkSetterPreconditions();
+        invitationLinkBase = Constraint.isNotNull(base, "Invitation link base cannot be null");
+    }
+
+    /**
+     * Set claims of the results, the invitation link claim is added.
+     * 
+     * @param claims claims of the results
+     */
+    public void setResultClaims(@Nonnull final Map<String, String> claims) {
+        checkSetterPreconditions();
+        resultClaims = CollectionSupport.copyToMap(Constraint.isNotNull(claims, "Result claims cannot be null"));
+    }
+
+    /**
+     * Set median latency of a call. Defaults to 0.
+     * 
+     * @param latency median latency of a call
+     */
+    public void setMedianLatency(@Nonnull final Duration latency) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(latency, "Median latency cannot be null");
+        Constraint.isFalse(latency.isNegative(), "Median latency cannot be negative");
+        medianLatency = latency;
+    }
+
+    /**
+     * Set shape parameter of the log-normal latency distribution. Defaults to 0,
+     * a constant latency.
+     * 
+     * @param sigma shape parameter of the latency distribution
+     */
+    public void setLatencySigma(final double sigma) {
+        checkSetterPreconditions();
+        Constraint.isTrue(sigma >= 0, "Latency sigma cannot be negative");
+        latencySigma = sigma;
+    }
+
+    /**
+     * Set rate of calls failing with a dropped connection, between 0 and 1.
+     * 
+     * @param rate rate of dropped connections
+     */
+    public void setConnectionFailureRate(final double rate) {
+        checkSetterPreconditions();
+        connectionFailureRate = checkRate(rate);
+    }
+
+    /**
+     * Set rate of calls answered with 429, between 0 and 1.
+     * 
+     * @param rate rate of 429 responses
+     */
+    public void setThrottleRate(final double rate) {
+        checkSetterPreconditions();
+        throttleRate = checkRate(rate);
+    }
+
+    /**
+     * Set rate of calls answered with 503, between 0 and 1.
+     * 
+     * @param rate rate of 503 responses
+     */
+    public void setServerErrorRate(final double rate) {
+        checkSetterPreconditions();
+        serverErrorRate = checkRate(rate);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doInitialize() throws ComponentInitializationException {
+        super.doInitialize();
+        if (connectionFailureRate + throttleRate + serverErrorRate > 1) {
+            throw new ComponentInitializationException("Failure rates cannot add up to more than 1");
+        }
+        final String claims;
+        try {
+            claims = new ObjectMapper().writeValueAsString(resultClaims);
+        } catch (final JsonProcessingException e) {
+            throw new ComponentInitializationException("Result claims cannot be serialized", e);
+        }
+        resultPrefix = resultClaims.isEmpty() ? "{" : claims.substring(0, claims.length() - 1) + ",";
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Nullable
+    public CandourResponse execute(@Nonnull final CandourOperation operation,
+            @Nonnull final ClassicHttpRequest request, @Nullable final Duration timeout,
+            @Nonnull final HttpClientResponseHandler<CandourResponse> responseHandler) throws IOException {
+        checkComponentActive();
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final long latency = latencySigma > 0
+                ? (long) (medianLatency.toNanos() * Math.exp(latencySigma * random.nextGaussian()))
+                : medianLatency.toNanos();
+        if (timeout != null && latency > timeout.toNanos()) {
+            sleep(timeout.toNanos());
+            throw new SocketTimeoutException("Candour API stub timed out after " + timeout);
+        }
+        sleep(latency);
+        final double draw = random.nextDouble();
+        if (draw < connectionFailureRate) {
+            throw new SocketException("Connection dropped by Candour API stub");
+        }
+        final BasicClassicHttpResponse response;
+        if (draw < connectionFailureRate + throttleRate) {
+            response = new BasicClassicHttpResponse(SC_TOO_MANY_REQUESTS);
+        } else if (draw < connectionFailureRate + throttleRate + serverErrorRate) {
+            response = new BasicClassicHttpResponse(SC_SERVICE_UNAVAILABLE);
+        } else {
+            response = respond(operation, request);
+        }
+        try (response) {
+            return responseHandler.handleResponse(response);
+        } catch (final HttpException e) {
+            throw new ClientProtocolException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Build the successful response of the operation.
+     * 
+     * @param operation the operation of the request
+     * @param request   the request
+     * @return the response
+     */
+    @Nonnull
+    private BasicClassicHttpResponse respond(@Nonnull final CandourOperation operation,
+            @Nonnull final ClassicHttpRequest request) {
+        final BasicClassicHttpResponse response = new BasicClassicHttpResponse(200);
+        final String json;
+        switch (operation) {
+            case CREATE_INVITATION:
+                final String id = UUID.randomUUID().toString();
+                final Instant now = Instant.now();
+                json = "{\"redirectUrl\":\"" + invitationLinkBase + id + "\",\"verificationSessionId\":\""
+                        + id + "\",\"timestamp\":\"" + now + "\",\"validUntil\":\""
+                        + now.plus(INVITATION_VALIDITY) + "\"}";
+                break;
+            case FETCH_RESULT:
+                json = resultPrefix + "\"invitationLink\":\"" + invitationLinkBase + sessionId(request) + "\"}";
+                break;
+            default:
+                return response;
+        }
+        response.setEntity(new ByteArrayEntity(json.getBytes(StandardCharsets.UTF_8), ContentType.APPLICATION_JSON));
+        return response;
+    }
+
+    /**
+     * Get the session id of a result request, the last segment of the path.
+     * 
+     * @param request the request
+     * @return the session id
+     */
+    @Nonnull
+    private static String sessionId(@Nonnull final ClassicHttpRequest request) {
+        final String path = request.getPath();
+        final int query = path.indexOf('?');
+        final int end = query >= 0 ? query : path.length();
+        return path.substring(path.lastIndexOf('/', end - 1) + 1, end);
+    }
+
+    /**
+     * Sleep for the given time.
+     * 
+     * @param nanos time to sleep in nanoseconds
+     * @throws InterruptedIOException if interrupted
+     */
+    private static void sleep(final long nanos) throws InterruptedIOException {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for Candour API stub response");
+        }
+    }
+
+    /**
+     * Check a rate is between 0 and 1.
+     * 
+     * @param rate the rate
+     * @return the rate
+     */
+    private static double checkRate(final double rate) {
+        Constraint.isTrue(rate >= 0 && rate <= 1, "Rate must be between 0 and 1");
+        return rate;
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.bench;
+
+import javax.annotation.Nonnull;
+
+import net.shibboleth.shared.logic.Constraint;
+
+/**
+ * Log-linear histogram of latencies in nanoseconds.
+ *
+ * <p>
+ * Each power of two range is split into 16 buckets, so a reported percentile is
+ * at most 1/16 above the recorded value. Recording does not allocate. Not
+ * thread safe, each thread records to its own histogram and the histograms are
+ * merged when reporting.
+ * </p>
+ */
+public final class LatencyHistogram {
+
+    /** Number of bits of the value kept below the highest set bit. */
+    private static final int SUB_BUCKET_BITS = 4;
+
+    /** Number of buckets per power of two. */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /** Bucket counts. */
+    @Nonnull
+    private final long[] counts = new long[(Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+
+    /** Number of recorded values. */
+    private long count;
+
+    /** Largest recorded value. */
+    private long max;
+
+    /**
+     * Record a value.
+     * 
+     * @param nanos value in nanoseconds, negative values are recorded as 0
+     */
+    public void record(final long nanos) {
+        final long value = Math.max(0, nanos);
+        counts[index(value)]++;
+        count++;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Add the values of another histogram to this one.
+     * 
+     * @param other the other histogram
+     */
+    public void add(@Nonnull final LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Get number of recorded values.
+     * 
+     * @return number of recorded values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get largest recorded value.
+     * 
+     * @return largest recorded value in nanoseconds
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Get value at a percentile.
+     * 
+     * @param percentile percentile, between 0 and 100
+     * @return upper bound of the bucket holding the percentile in nanoseconds, 0
+     *         if nothing is recorded
+     */
+    public long getValueAtPercentile(final double percentile) {
+        Constraint.isTrue(percentile >= 0 && percentile <= 100, "Percentile must be between 0 and 100");
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Bucket of a value.
+     * 
+     * @param value non-negative value
+     * @return index of the bucket
+     */
+    private static int index(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final int mantissa = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + mantissa;
+    }
+
+    /**
+     * Largest value of a bucket.
+     * 
+     * @param index index of the bucket
+     * @return largest value of the bucket
+     */
+    private static long upperBound(final int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = index / SUB_BUCKETS - 1;
+        final long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+}
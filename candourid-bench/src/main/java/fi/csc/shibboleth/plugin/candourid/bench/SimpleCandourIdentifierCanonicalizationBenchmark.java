@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.security.auth.Subject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opensaml.profile.context.ProfileRequestContext;
+import org.springframework.webflow.execution.Event;
+import org.springframework.webflow.execution.RequestContext;
+
+import fi.csc.shibboleth.plugin.candourid.impl.SimpleCandourIdentifierCanonicalization;
+import fi.csc.shibboleth.plugin.candourid.principal.CandourIdentifierPrincipal;
+import net.shibboleth.idp.authn.context.SubjectCanonicalizationContext;
+import net.shibboleth.idp.profile.context.navigate.WebflowRequestContextProfileRequestContextLookup;
+import net.shibboleth.idp.profile.testing.RequestContextBuilder;
+import net.shibboleth.shared.collection.Pair;
+import net.shibboleth.shared.logic.PredicateSupport;
+
+/**
+ * Benchmark for {@link SimpleCandourIdentifierCanonicalization} with a single
+ * transform configured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class SimpleCandourIdentifierCanonicalizationBenchmark {
+
+    /** Action under test. */
+    private SimpleCandourIdentifierCanonicalization action;
+
+    /** Webflow request context. */
+    private RequestContext src;
+
+    /**
+     * Build the action and the contexts.
+     * 
+     * @throws Exception if initialization fails
+     */
+    @Setup
+    public void setup() throws Exception {
+        src = new RequestContextBuilder().buildRequestContext();
+        final ProfileRequestContext prc = new WebflowRequestContextProfileRequestContextLookup().apply(src);
+        final Subject subject = new Subject();
+        subject.getPrincipals().add(new CandourIdentifierPrincipal("Matti Meikäläinen"));
+        prc.ensureSubcontext(SubjectCanonicalizationContext.class).setSubject(subject);
+
+        action = new SimpleCandourIdentifierCanonicalization();
+        action.setTransforms(List.of(new Pair<>("^(.+)@example\\.org$", "$1")));
+        action.setActivationCondition(PredicateSupport.alwaysTrue());
+        action.initialize();
+    }
+
+    /**
+     * Canonicalize the subject.
+     * 
+     * @return the event of the action, null on success
+     */
+    @Benchmark
+    public Event execute() {
+        return action.execute(src);
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.bench;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opensaml.profile.context.ProfileRequestContext;
+import org.springframework.webflow.execution.Event;
+import org.springframework.webflow.execution.RequestContext;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fi.csc.shibboleth.plugin.candourid.context.CandourContext;
+import fi.csc.shibboleth.plugin.candourid.impl.ValidateAuthentication;
+import net.shibboleth.idp.authn.AuthenticationFlowDescriptor;
+import net.shibboleth.idp.authn.context.AuthenticationContext;
+import net.shibboleth.idp.profile.context.navigate.WebflowRequestContextProfileRequestContextLookup;
+import net.shibboleth.idp.profile.testing.RequestContextBuilder;
+
+/**
+ * Benchmark for {@link ValidateAuthentication}, dominated by
+ * {@code populateSubject} turning the result claims into principals.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class ValidateAuthenticationBenchmark {
+
+    /** Whether the result claims contain base64 image claims. */
+    @Param({ "false", "true" })
+    public boolean images;
+
+    /** Action under test. */
+    private ValidateAuthentication action;
+
+    /** Webflow request context. */
+    private RequestContext src;
+
+    /**
+     * Build the action and the contexts.
+     * 
+     * @throws Exception if initialization fails
+     */
+    @Setup
+    public void setup() throws Exception {
+        src = new RequestContextBuilder().buildRequestContext();
+        final ProfileRequestContext prc = new WebflowRequestContextProfileRequestContextLookup().apply(src);
+        final AuthenticationContext authnContext = prc.addSubcontext(new AuthenticationContext());
+        final AuthenticationFlowDescriptor flow = new AuthenticationFlowDescriptor();
+        flow.setId("authn/candourid");
+        flow.initialize();
+        authnContext.setAttemptedFlow(flow);
+        final CandourContext ctx = authnContext.addSubcontext(new CandourContext());
+        final Map<String, Object> claims = new ObjectMapper().readValue(BenchmarkFixtures.resultResponse(images),
+                new TypeReference<Map<String, Object>>() {
+                });
+        ctx.setResultClaims(claims);
+
+        action = new ValidateAuthentication();
+        action.setClaimSourceIds(List.of("name"));
+        action.initialize();
+    }
+
+    /**
+     * Build the authentication result.
+     * 
+     * @return the event of the action, null on success
+     */
+    @Benchmark
+    public Event execute() {
+        return action.execute(src);
+    }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.bench;
+
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.Map;
+
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourInvitationSuccessResponsePayload;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourJsonCodec;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponse;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponseHandler;
+import net.shibboleth.shared.component.ComponentInitializationException;
+
+/** Tests for {@link InMemoryCandourTransport}. */
+public class InMemoryCandourTransportTest {
+
+    private InMemoryCandourTransport transport;
+
+    private ClassicHttpRequest invitation;
+
+    @BeforeMethod
+    public void setup() {
+        transport = new InMemoryCandourTransport();
+        transport.setInvitationLinkBase("https://id.example.org/verify/");
+        transport.setResultClaims(Map.of("firstName", "Matti"));
+        invitation = ClassicRequestBuilder.post("https://example.com/api")
+                .setEntity("{\"callbackUrl\":\"https://idp.example.org\"}", ContentType.APPLICATION_JSON).build();
+    }
+
+    @Test
+    public void testSession() throws Exception {
+        transport.initialize();
+        final CandourResponse created = transport.createInvitation(invitation, null, new CandourResponseHandler());
+        Assert.assertEquals(created.getCode(), 200);
+        final CandourInvitationSuccessResponsePayload payload = CandourInvitationSuccessResponsePayload
+                .parse(created.getPayload());
+        final String sessionId = payload.getVerificationSessionId();
+        Assert.assertNotNull(sessionId);
+        Assert.assertEquals(payload.getRedirectUrl(), "https://id.example.org/verify/" + sessionId);
+
+        final CandourResponse result = transport.fetchResult(
+                ClassicRequestBuilder.get("https://example.com/api/" + sessionId).build(), null,
+                new CandourResponseHandler());
+        Assert.assertEquals(result.getCode(), 200);
+        final Map<String, Object> claims = CandourJsonCodec.getDefault().readResultClaims(result.getPayload());
+        Assert.assertEquals(claims.get("firstName"), "Matti");
+        Assert.assertEquals(claims.get("invitationLink"), "https://id.example.org/verify/" + sessionId);
+
+        final CandourResponse deleted = transport.deleteResult(
+                ClassicRequestBuilder.delete("https://example.com/api/" + sessionId).build(), null,
+                new CandourResponseHandler());
+        Assert.assertEquals(deleted.getCode(), 200);
+        Assert.assertNull(deleted.getPayload());
+    }
+
+    @Test
+    public void testNoClaims() throws Exception {
+        transport.setResultClaims(Map.of());
+        transport.initialize();
+        final CandourResponse result = transport.fetchResult(
+                ClassicRequestBuilder.get("https://example.com/api/sid?x=y").build(), null,
+                new CandourResponseHandler());
+        final Map<String, Object> claims = CandourJsonCodec.getDefault().readResultClaims(result.getPayload());
+        Assert.assertEquals(claims, Map.of("invitationLink", "https://id.example.org/verify/sid"));
+    }
+
+    @Test(expectedExceptions = SocketException.class)
+    public void testConnectionFailure() throws Exception {
+        transport.setConnectionFailureRate(1);
+        transport.initialize();
+        transport.createInvitation(invitation, null, new CandourResponseHandler());
+    }
+
+    @Test
+    public void testThrottled() throws Exception {
+        transport.setThrottleRate(1);
+        transport.initialize();
+        Assert.assertEquals(transport.createInvitation(invitation, null, new CandourResponseHandler()).getCode(),
+                429);
+    }
+
+    @Test
+    public void testServerError() throws Exception {
+        transport.setServerErrorRate(1);
+        transport.initialize();
+        Assert.assertEquals(transport.createInvitation(invitation, null, new CandourResponseHandler()).getCode(),
+                503);
+    }
+
+    @Test
+    public void testLatency() throws Exception {
+        transport.setMedianLatency(Duration.ofMillis(50));
+        transport.initialize();
+        final long start = System.nanoTime();
+        transport.createInvitation(invitation, null, new CandourResponseHandler());
+        Assert.assertTrue(System.nanoTime() - start >= Duration.ofMillis(50).toNanos());
+    }
+
+    @Test(expectedExceptions = SocketTimeoutException.class)
+    public void testTimeout() throws Exception {
+        transport.setMedianLatency(Duration.ofSeconds(10));
+        transport.initialize();
+        transport.createInvitation(invitation, Duration.ofMillis(10), new CandourResponseHandler());
+    }
+
+    @Test(expectedExceptions = ComponentInitializationException.class)
+    public void testRatesOverOne() throws Exception {
+        transport.setThrottleRate(0.6);
+        transport.setServerErrorRate(0.6);
+        transport.initialize();
+    }
+
+}
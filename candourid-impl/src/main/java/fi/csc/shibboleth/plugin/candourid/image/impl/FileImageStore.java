@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.image.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+
+import fi.csc.shibboleth.plugin.candourid.image.ImageStore;
+import fi.csc.shibboleth.plugin.candourid.image.StoredImage;
+import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
+import net.shibboleth.shared.annotation.constraint.ThreadSafeAfterInit;
+import net.shibboleth.shared.component.AbstractInitializableComponent;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.logic.Constraint;
+import net.shibboleth.shared.primitive.LoggerFactory;
+
+/**
+ * {@link ImageStore} writing images to files in a local directory.
+ * 
+ * <p>
+ * Each image is written to its own owner readable file with a random name, the
+ * returned handle carries only the path and is read lazily. Deletion overwrites
+ * the file content before removing it. Files left behind by abandoned or timed
+ * out flows are removed by a background task once older than the configured
+ * maximum age.
+ * </p>
+ * 
+ * <p>
+ * Overwriting is best effort: copy-on-write file systems and flash storage may
+ * retain the original blocks. Place the directory on an encrypted or memory
+ * backed file system where that matters.
+ * </p>
+ */
+@ThreadSafeAfterInit
+public class FileImageStore extends AbstractInitializableComponent implements ImageStore {
+
+    /** Default name of the directory created under the system temporary directory. */
+    @Nonnull
+    public static final String DEFAULT_DIRECTORY_NAME = "candourid-images";
+
+    /** Suffix of the image files. */
+    @Nonnull
+    private static final String FILE_SUFFIX = ".img";
+
+    /** Size of the buffer used to overwrite deleted files. */
+    private static final int WIPE_BUFFER_SIZE = 8192;
+
+    /** Class logger. */
+    @Nonnull
+    private final Logger log = LoggerFactory.getLogger(FileImageStore.class);
+
+    /** Directory the images are written to. */
+    @NonnullAfterInit
+    private Path directory;
+
+    /** Age after which an image file is removed by the cleanup task. */
+    @Nonnull
+    private Duration maxAge = Duration.ofHours(1);
+
+    /** Interval of the cleanup task, zero disables the task. */
+    @Nonnull
+    private Duration cleanupInterval = Duration.ofMinutes(5);
+
+    /** Timer used to schedule the cleanup task. */
+    @Nullable
+    private Timer cleanupTaskTimer;
+
+    /** Timer created for the cleanup task if none was set. */
+    @Nullable
+    private Timer internalTaskTimer;
+
+    /** Cleanup task. */
+    @Nullable
+    private TimerTask cleanupTask;
+
+    /**
+     * Set directory the images are written to. Defaults to
+     * {@value #DEFAULT_DIRECTORY_NAME} under the system temporary directory.
+     * 
+     * @param dir directory the images are written to
+     */
+    public void setDirectory(@Nullable final Path dir) {
+        checkSetterPreconditions();
+        directory = dir;
+    }
+
+    /**
+     * Set age after which an image file is removed by the cleanup task. Should
+     * exceed the lifetime of an authentication flow.
+     * 
+     * @param age age after which an image file is removed
+     */
+    public void setMaxAge(@Nonnull final Duration age) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(age, "Maximum age cannot be null");
+        Constraint.isFalse(age.isNegative() || age.isZero(), "Maximum age must be greater than 0");
+        maxAge = age;
+    }
+
+    /**
+     * Set interval of the cleanup task. Zero disables the task.
+     * 
+     * @param interval interval of the cleanup task
+     */
+    public void setCleanupInterval(@Nonnull final Duration interval) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(interval, "Cleanup interval cannot be null");
+        Constraint.isFalse(interval.isNegative(), "Cleanup interval cannot be negative");
+        cleanupInterval = interval;
+    }
+
+    /**
+     * Set timer used to schedule the cleanup task. A dedicated timer is created
+     * if none is set.
+     * 
+     * @param timer timer used to schedule the cleanup task
+     */
+    public void setCleanupTaskTimer(@Nullable final Timer timer) {
+        checkSetterPreconditions();
+        cleanupTaskTimer = timer;
+    }
+
+    /**
+     * Get directory the images are written to.
+     * 
+     * @return directory the images are written to
+     */
+    @NonnullAfterInit
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doInitialize() throws ComponentInitializationException {
+        super.doInitialize();
+        if (directory == null) {
+            directory = Path.of(System.getProperty("java.io.tmpdir"), DEFAULT_DIRECTORY_NAME);
+        }
+        try {
+            if (!Files.isDirectory(directory)) {
+                Files.createDirectories(directory, ownerOnly("rwx------"));
+            }
+        } catch (final IOException e) {
+            throw new ComponentInitializationException("Unable to create image directory " + directory, e);
+        }
+        if (!Files.isWritable(directory)) {
+            throw new ComponentInitializationException("Image directory " + directory + " is not writable");
+        }
+        if (!cleanupInterval.isZero()) {
+            Timer timer = cleanupTaskTimer;
+            if (timer == null) {
+                internalTaskTimer = new Timer("candourid-image-cleanup", true);
+                timer = internalTaskTimer;
+            }
+            cleanupTask = new TimerTask() {
+                @Override
+                public void run() {
+                    removeExpired();
+                }
+            };
+            // First run removes files left behind by a previous process
+            timer.schedule(cleanupTask, 0, cleanupInterval.toMillis());
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doDestroy() {
+        if (cleanupTask != null) {
+            cleanupTask.cancel();
+            cleanupTask = null;
+        }
+        if (internalTaskTimer != null) {
+            internalTaskTimer.cancel();
+            internalTaskTimer = null;
+        }
+        super.doDestroy();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Nonnull
+    public StoredImage store(@Nonnull final Object image) throws IOException {
+        checkComponentActive();
+        final boolean binary;
+        final byte[] content;
+        if (image instanceof byte[]) {
+            binary = true;
+            content = (byte[]) image;
+        } else if (image instanceof String) {
+            binary = false;
+            content = ((String) image).getBytes(StandardCharsets.UTF_8);
+        } else {
+            throw new IllegalArgumentException("Image must be a string or a byte array");
+        }
+        final Path file = Files.createTempFile(directory, null, FILE_SUFFIX, ownerOnly("rw-------"));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            final ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (final IOException e) {
+            wipe(file);
+            throw e;
+        }
+        log.trace("Stored image of {} bytes to {}", content.length, file);
+        return new FileStoredImage(file, content.length, binary);
+    }
+
+    /**
+     * Remove image files older than the maximum age.
+     */
+    protected void removeExpired() {
+        final Instant expiration = Instant.now().minus(maxAge);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            for (final Path file : files) {
+                try {
+                    if (Files.getLastModifiedTime(file).toInstant().isBefore(expiration)) {
+                        log.debug("Removing expired image {}", file);
+                        wipe(file);
+                    }
+                } catch (final IOException e) {
+                    // Removed concurrently
+                    log.trace("Unable to check image {}", file, e);
+                }
+            }
+        } catch (final IOException e) {
+            log.warn("Unable to list image directory {}", directory, e);
+        }
+    }
+
+    /**
+     * Overwrite the content of a file with zeros and delete it.
+     * 
+     * @param file file to delete
+     */
+    static void wipe(@Nonnull final Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            final ByteBuffer zeros = ByteBuffer.allocate(WIPE_BUFFER_SIZE);
+            long remaining = channel.size();
+            while (remaining > 0) {
+                zeros.clear().limit((int) Math.min(WIPE_BUFFER_SIZE, remaining));
+                remaining -= channel.write(zeros);
+            }
+            channel.force(false);
+        } catch (final IOException e) {
+            LoggerFactory.getLogger(FileImageStore.class).debug("Unable to overwrite image {}", file, e);
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (final IOException e) {
+            LoggerFactory.getLogger(FileImageStore.class).warn("Unable to delete image {}", file, e);
+        }
+    }
+
+    /**
+     * Owner only permissions on file systems supporting them.
+     * 
+     * @param permissions posix permissions
+     * @return file attributes to create the file or directory with
+     */
+    @Nonnull
+    private static FileAttribute<?>[] ownerOnly(@Nonnull final String permissions) {
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            return new FileAttribute<?>[] {
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString(permissions)) };
+        }
+        return new FileAttribute<?>[0];
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.image.impl;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nonnull;
+
+import fi.csc.shibboleth.plugin.candourid.image.StoredImage;
+
+/**
+ * Handle to an image written to a file by {@link FileImageStore}.
+ */
+final class FileStoredImage implements StoredImage {
+
+    /** File holding the image. */
+    @Nonnull
+    private final Path file;
+
+    /** Size of the image in bytes. */
+    private final long size;
+
+    /** Whether the image was stored as bytes instead of a base64 string. */
+    private final boolean binary;
+
+    /** Whether the image has been deleted. */
+    @Nonnull
+    private final AtomicBoolean deleted = new AtomicBoolean();
+
+    /**
+     * Constructor.
+     * 
+     * @param path   file holding the image
+     * @param length size of the image in bytes
+     * @param bytes  whether the image was stored as bytes
+     */
+    FileStoredImage(@Nonnull final Path path, final long length, final boolean bytes) {
+        file = path;
+        size = length;
+        binary = bytes;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Nonnull
+    public Object load() throws IOException {
+        if (deleted.get()) {
+            throw new IOException("Image has been deleted");
+        }
+        final byte[] content = Files.readAllBytes(file);
+        return binary ? content : new String(content, StandardCharsets.UTF_8);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void delete() {
+        if (deleted.compareAndSet(false, true)) {
+            FileImageStore.wipe(file);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return "StoredImage[" + size + " bytes]";
+    }
+
+}
@@ -15,9 +15,11 @@
  */
 package fi.csc.shibboleth.plugin.candourid.impl;
 
+import java.util.function.Function;
+
 import javax.annotation.Nonnull;
-import javax.annotation.Nullable;
 
+import org.opensaml.messaging.context.navigate.ChildContextLookup;
 import org.opensaml.profile.action.ActionSupport;
 import org.opensaml.profile.action.EventIds;
 import org.opensaml.profile.context.ProfileRequestContext;
@@ -25,33 +27,117 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import fi.csc.shibboleth.plugin.candourid.context.CandourContext;
-import net.shibboleth.idp.authn.AbstractAuthenticationAction;
 import net.shibboleth.idp.authn.context.AuthenticationContext;
+import net.shibboleth.idp.profile.AbstractProfileAction;
+import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
+import net.shibboleth.shared.annotation.constraint.ThreadSafeAfterInit;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.logic.Constraint;
 
 /**
  * Abstract class for actions expecting {@link CandourContext} to be available.
+ * 
+ * <p>
+ * The contexts are looked up for each execution and passed to the subclass, no
+ * per request state is kept in fields. Subclasses are expected to do the same,
+ * so that a single initialized instance may be shared by concurrent flows.
+ * </p>
+ * 
+ * <p>
+ * The executions are monitored with a {@link CandourActionMonitor}, counting
+ * the {@link fi.csc.shibboleth.plugin.candourid.CandourEventIds} events
+ * signalled and metering the stage when enabled.
+ * </p>
  */
-abstract class AbstractCandourAuthenticationAction extends AbstractAuthenticationAction {
+@ThreadSafeAfterInit
+abstract class AbstractCandourAuthenticationAction extends AbstractProfileAction {
 
     /** Class logger. */
     @Nonnull
     private final Logger log = LoggerFactory.getLogger(AbstractCandourAuthenticationAction.class);
 
-    /** candour context. */
-    @Nullable
-    protected CandourContext candourContext;
+    /** Whether to meter the allocation and CPU time of the executions. */
+    private boolean stageMetering;
+
+    /** Monitor of the executions. */
+    @NonnullAfterInit
+    private CandourActionMonitor monitor;
+
+    /** Lookup strategy for the authentication context. */
+    @Nonnull
+    private Function<ProfileRequestContext, AuthenticationContext> authenticationContextLookupStrategy;
+
+    /** Constructor. */
+    AbstractCandourAuthenticationAction() {
+        authenticationContextLookupStrategy = new ChildContextLookup<>(AuthenticationContext.class);
+    }
+
+    /**
+     * Set the lookup strategy for the authentication context.
+     * 
+     * @param strategy lookup strategy for the authentication context
+     */
+    public void setAuthenticationContextLookupStrategy(
+            @Nonnull final Function<ProfileRequestContext, AuthenticationContext> strategy) {
+        checkSetterPreconditions();
+        authenticationContextLookupStrategy = Constraint.isNotNull(strategy,
+                "AuthenticationContext lookup strategy cannot be null");
+    }
+
+    /**
+     * Set whether to meter the heap allocated and the CPU time consumed by the
+     * executions of the action.
+     * 
+     * @param enabled whether to meter the executions
+     */
+    public void setStageMetering(final boolean enabled) {
+        checkSetterPreconditions();
+        stageMetering = enabled;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doInitialize() throws ComponentInitializationException {
+        super.doInitialize();
+        monitor = new CandourActionMonitor(this, stageMetering, getLogPrefix());
+    }
 
     /** {@inheritDoc} */
     @Override
-    protected boolean doPreExecute(@Nonnull final ProfileRequestContext profileRequestContext,
-            @Nonnull final AuthenticationContext authenticationContext) {
+    protected final void doExecute(@Nonnull final ProfileRequestContext profileRequestContext) {
+        monitor.execute(profileRequestContext, () -> doExecuteWithContexts(profileRequestContext));
+    }
 
-        candourContext = authenticationContext.getSubcontext(CandourContext.class);
+    /**
+     * Look up the contexts of the current request and perform this action with
+     * them.
+     * 
+     * @param profileRequestContext the current profile request context
+     */
+    private void doExecuteWithContexts(@Nonnull final ProfileRequestContext profileRequestContext) {
+        final AuthenticationContext authenticationContext = authenticationContextLookupStrategy
+                .apply(profileRequestContext);
+        if (authenticationContext == null) {
+            log.error("{} No authentication context", getLogPrefix());
+            ActionSupport.buildEvent(profileRequestContext, EventIds.INVALID_PROFILE_CTX);
+            return;
+        }
+        final CandourContext candourContext = authenticationContext.getSubcontext(CandourContext.class);
         if (candourContext == null) {
             log.error("{} No candour context", getLogPrefix());
             ActionSupport.buildEvent(profileRequestContext, EventIds.INVALID_PROFILE_CTX);
-            return false;
+            return;
         }
-        return true;
+        doExecute(profileRequestContext, authenticationContext, candourContext);
     }
+
+    /**
+     * Performs this action with the contexts of the current request.
+     * 
+     * @param profileRequestContext the current profile request context
+     * @param authenticationContext the current authentication context
+     * @param candourContext        the current candour context
+     */
+    protected abstract void doExecute(@Nonnull final ProfileRequestContext profileRequestContext,
+            @Nonnull final AuthenticationContext authenticationContext, @Nonnull final CandourContext candourContext);
 }
@@ -16,21 +16,36 @@
 package fi.csc.shibboleth.plugin.candourid.impl;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import org.apache.hc.client5.http.classic.HttpClient;
-import org.apache.hc.client5.http.protocol.HttpClientContext;
 import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
 import org.opensaml.security.httpclient.HttpClientSecurityParameters;
-import org.opensaml.security.httpclient.HttpClientSecuritySupport;
 import org.slf4j.Logger;
 
+import fi.csc.shibboleth.plugin.candourid.context.CandourContext;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourHmacSigner;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourJsonCodec;
 import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponse;
 import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponseHandler;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponseTooLargeException;
+import fi.csc.shibboleth.plugin.candourid.transport.CandourOperation;
+import fi.csc.shibboleth.plugin.candourid.transport.CandourTransport;
+import fi.csc.shibboleth.plugin.candourid.transport.impl.HttpClientCandourTransport;
+import fi.csc.shibboleth.plugin.candourid.transport.impl.HttpExecutorCandourTransport;
+import fi.csc.shibboleth.plugin.candourid.transport.impl.MeteredCandourTransport;
 
 import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
 import net.shibboleth.shared.annotation.constraint.ThreadSafeAfterInit;
@@ -40,7 +55,10 @@ import net.shibboleth.shared.primitive.LoggerFactory;
 
 /**
  * An abstract class for Candour actions that make synchronous HTTP requests and
- * return types of {@link CandourResponse responses}.
+ * return types of {@link CandourResponse responses}. The requests are carried
+ * by the {@link CandourTransport} if set, otherwise by the
+ * {@link CandourHttpExecutor} if set, otherwise by the blocking
+ * {@link HttpClient}. Each call is recorded by a {@link MeteredCandourTransport}.
  */
 @ThreadSafeAfterInit
 public abstract class AbstractCandourHttpAuthenticationAction extends AbstractCandourAuthenticationAction {
@@ -61,14 +79,46 @@ public abstract class AbstractCandourHttpAuthenticationAction extends AbstractCa
     @NonnullAfterInit
     private String clientHmacKey;
 
-    /** Http client for contacting the endpoint. */
+    /** Signer for Candour API client hmac key. */
     @NonnullAfterInit
+    private CandourHmacSigner hmacSigner;
+
+    /** Http client for contacting the endpoint, required unless a transport is set. */
+    @Nullable
     private HttpClient httpClient;
 
     /** HTTP client security parameters. */
     @Nullable
     private HttpClientSecurityParameters httpClientSecurityParameters;
 
+    /** Executor of the requests used instead of the http client. */
+    @Nullable
+    private CandourHttpExecutor httpExecutor;
+
+    /** Transport of the requests used instead of the executor and http client. */
+    @NonnullAfterInit
+    private CandourTransport transport;
+
+    /** Codec for Candour json messages. */
+    @Nonnull
+    private CandourJsonCodec jsonCodec = CandourJsonCodec.getDefault();
+
+    /** Ledger of unfinished Candour sessions. */
+    @Nullable
+    private CandourSessionLedger sessionLedger;
+
+    /** Circuit breaker of the Candour API calls. */
+    @Nullable
+    private CandourCircuitBreaker circuitBreaker;
+
+    /** Hedger of the idempotent Candour API calls. */
+    @Nullable
+    private CandourRequestHedger requestHedger;
+
+    /** Retry policy of the idempotent Candour API calls. */
+    @Nullable
+    private CandourRetryPolicy retryPolicy;
+
     /**
      * Set the {@link HttpClient} to use.
      * 
@@ -89,6 +139,100 @@ public abstract class AbstractCandourHttpAuthenticationAction extends AbstractCa
         httpClientSecurityParameters = params;
     }
 
+    /**
+     * Set the optional executor of the requests. If set, requests are executed
+     * by it instead of the blocking {@link HttpClient}.
+     * 
+     * @param executor executor of the requests
+     */
+    public void setHttpExecutor(@Nullable final CandourHttpExecutor executor) {
+        checkSetterPreconditions();
+        httpExecutor = executor;
+    }
+
+    /**
+     * Set the optional transport of the requests. If set, requests are carried by
+     * it instead of the executor or the {@link HttpClient}, which is then not
+     * required.
+     * 
+     * @param candourTransport transport of the requests
+     */
+    public void setTransport(@Nullable final CandourTransport candourTransport) {
+        checkSetterPreconditions();
+        transport = candourTransport;
+    }
+
+    /**
+     * Set the codec for Candour json messages.
+     * 
+     * @param codec codec for Candour json messages
+     */
+    public void setJsonCodec(@Nonnull final CandourJsonCodec codec) {
+        checkSetterPreconditions();
+        jsonCodec = Constraint.isNotNull(codec, "JsonCodec cannot be null");
+    }
+
+    /**
+     * Get the codec for Candour json messages.
+     * 
+     * @return codec for Candour json messages
+     */
+    @Nonnull
+    public CandourJsonCodec getJsonCodec() {
+        return jsonCodec;
+    }
+
+    /**
+     * Set the optional ledger of unfinished Candour sessions.
+     * 
+     * @param ledger ledger of unfinished Candour sessions
+     */
+    public void setSessionLedger(@Nullable final CandourSessionLedger ledger) {
+        checkSetterPreconditions();
+        sessionLedger = ledger;
+    }
+
+    /**
+     * Get the optional ledger of unfinished Candour sessions.
+     * 
+     * @return ledger of unfinished Candour sessions
+     */
+    @Nullable
+    public CandourSessionLedger getSessionLedger() {
+        return sessionLedger;
+    }
+
+    /**
+     * Set the optional circuit breaker of the Candour API calls. The breaker is
+     * meant to be shared by all the actions.
+     * 
+     * @param breaker circuit breaker of the Candour API calls
+     */
+    public void setCircuitBreaker(@Nullable final CandourCircuitBreaker breaker) {
+        checkSetterPreconditions();
+        circuitBreaker = breaker;
+    }
+
+    /**
+     * Set the optional hedger of the idempotent Candour API calls.
+     * 
+     * @param hedger hedger of the idempotent Candour API calls
+     */
+    public void setRequestHedger(@Nullable final CandourRequestHedger hedger) {
+        checkSetterPreconditions();
+        requestHedger = hedger;
+    }
+
+    /**
+     * Set the optional retry policy of the idempotent Candour API calls.
+     * 
+     * @param policy retry policy of the idempotent Candour API calls
+     */
+    public void setRetryPolicy(@Nullable final CandourRetryPolicy policy) {
+        checkSetterPreconditions();
+        retryPolicy = policy;
+    }
+
     /**
      * Set Candour API location.
      * 
@@ -150,12 +294,45 @@ public abstract class AbstractCandourHttpAuthenticationAction extends AbstractCa
         return clientHmacKey;
     }
 
+    /**
+     * Set signer for Candour API client hmac key. If not set, one is created of
+     * the client hmac key.
+     * 
+     * @param signer signer for Candour API client hmac key
+     */
+    public void setHmacSigner(@Nullable final CandourHmacSigner signer) {
+        checkSetterPreconditions();
+        hmacSigner = signer;
+    }
+
+    /**
+     * Get signer for Candour API client hmac key.
+     * 
+     * @return signer for Candour API client hmac key
+     */
+    @NonnullAfterInit
+    public CandourHmacSigner getHmacSigner() {
+        return hmacSigner;
+    }
+
     @Override
     protected void doInitialize() throws ComponentInitializationException {
         super.doInitialize();
 
-        if (httpClient == null) {
-            throw new ComponentInitializationException("httpClient cannot be null");
+        if (transport == null) {
+            if (httpClient == null) {
+                throw new ComponentInitializationException("httpClient cannot be null");
+            }
+            transport = httpExecutor != null
+                    ? new HttpExecutorCandourTransport(httpExecutor, httpClientSecurityParameters)
+                    : new HttpClientCandourTransport(httpClient, httpClientSecurityParameters);
+        }
+        if (!transport.isSupported(httpClientSecurityParameters)) {
+            throw new ComponentInitializationException(
+                    "Transport does not apply the configured http client security parameters");
+        }
+        if (!(transport instanceof MeteredCandourTransport)) {
+            transport = new MeteredCandourTransport(transport);
         }
         if (candouridURI == null) {
             throw new ComponentInitializationException("CandouridURI cannot be null");
@@ -166,35 +343,236 @@ public abstract class AbstractCandourHttpAuthenticationAction extends AbstractCa
         if (clientHmacKey == null) {
             throw new ComponentInitializationException("ClientHmacKey cannot be null");
         }
+        if (hmacSigner == null) {
+            try {
+                hmacSigner = new CandourHmacSigner(clientHmacKey);
+            } catch (final NoSuchAlgorithmException | InvalidKeyException e) {
+                throw new ComponentInitializationException("ClientHmacKey cannot be used for signing", e);
+            }
+        }
     }
 
     /**
      * Performs a call to an Http endpoint using the configured HttpClient,
      * HttpClientResponseHandler, and security parameters.
      * 
-     * @param request                the prepared HTTP request
-     * @param authenticatableContext an authenticatable context to set the
-     *                               authenticated flag. Can be {@literal null} if
-     *                               no flag is supplied.
+     * @param candourContext the candour context of the current request
+     * @param request        the prepared HTTP request
+     * 
+     * @return the encoded Http response.
+     * 
+     * @throws IOException if there is an error producing a response
+     */
+    @Nullable
+    protected CandourResponse executeHttpRequest(@Nonnull final CandourContext candourContext,
+            @Nonnull final ClassicHttpRequest request) throws IOException {
+        return executeHttpRequest(candourContext, request, new CandourResponseHandler());
+    }
+
+    /**
+     * Performs a call to an Http endpoint using the configured HttpClient, the
+     * given HttpClientResponseHandler, and security parameters. The call waits
+     * for at most the time remaining to the deadline of the flow stage and is not
+     * attempted once the deadline has passed.
+     * 
+     * @param candourContext  the candour context of the current request
+     * @param request         the prepared HTTP request
+     * @param responseHandler the handler producing the response
+     * 
+     * @return the encoded Http response.
+     * 
+     * @throws IOException if there is an error producing a response
+     */
+    @Nullable
+    protected CandourResponse executeHttpRequest(@Nonnull final CandourContext candourContext,
+            @Nonnull final ClassicHttpRequest request,
+            @Nonnull final HttpClientResponseHandler<CandourResponse> responseHandler) throws IOException {
+
+        final Duration remaining = getRemainingTime(candourContext);
+        if (remaining != null && remaining.isZero()) {
+            throw new CandourDeadlineExceededException("Deadline of the flow stage passed, call not attempted");
+        }
+        final CandourCircuitBreaker breaker = circuitBreaker;
+        if (breaker == null) {
+            return doExecuteHttpRequest(request, remaining, responseHandler);
+        }
+        if (!breaker.tryAcquirePermission()) {
+            throw new CandourCircuitOpenException("Candour API circuit breaker is open, call not attempted");
+        }
+        final long start = System.nanoTime();
+        boolean failed = true;
+        boolean cancelled = false;
+        try {
+            final CandourResponse response = doExecuteHttpRequest(request, remaining, responseHandler);
+            failed = response == null || isServerFailure(response.getCode());
+            return response;
+        } catch (final CandourResponseTooLargeException e) {
+            // The API answered, the size limit is ours
+            failed = false;
+            throw e;
+        } catch (final InterruptedIOException e) {
+            cancelled = !(e instanceof SocketTimeoutException);
+            throw e;
+        } catch (final CancellationException e) {
+            cancelled = true;
+            throw e;
+        } finally {
+            // Attempts cancelled by the hedger or interrupted tell nothing of the API
+            if (cancelled || Thread.currentThread().isInterrupted()) {
+                breaker.onIgnored();
+            } else {
+                breaker.onResult(System.nanoTime() - start, failed);
+            }
+        }
+
+    }
+
+    /**
+     * Performs a call to an Http endpoint like
+     * {@link #executeHttpRequest(CandourContext, ClassicHttpRequest, HttpClientResponseHandler)},
+     * retrying it with the retry policy if set. Only to be used for idempotent
+     * requests.
+     * 
+     * @param candourContext  the candour context of the current request
+     * @param request         the prepared HTTP request
+     * @param responseHandler the handler producing the response
+     * 
+     * @return the encoded Http response.
+     * 
+     * @throws IOException if there is an error producing a response
+     */
+    @Nullable
+    protected CandourResponse executeRetriedHttpRequest(@Nonnull final CandourContext candourContext,
+            @Nonnull final ClassicHttpRequest request,
+            @Nonnull final HttpClientResponseHandler<CandourResponse> responseHandler) throws IOException {
+        return retry(candourContext, request, attempt -> executeHttpRequest(candourContext, attempt, responseHandler));
+    }
+
+    /**
+     * Performs a call to an Http endpoint like
+     * {@link #executeRetriedHttpRequest(CandourContext, ClassicHttpRequest, HttpClientResponseHandler)},
+     * hedging each attempt with the request hedger if set. Only to be used for
+     * idempotent requests with a response handler that may be shared by
+     * concurrent attempts.
+     * 
+     * @param candourContext  the candour context of the current request
+     * @param request         the prepared HTTP request
+     * @param responseHandler the handler producing the response
+     * 
+     * @return the encoded Http response.
+     * 
+     * @throws IOException if there is an error producing a response
+     */
+    @Nullable
+    protected CandourResponse executeHedgedHttpRequest(@Nonnull final CandourContext candourContext,
+            @Nonnull final ClassicHttpRequest request,
+            @Nonnull final HttpClientResponseHandler<CandourResponse> responseHandler) throws IOException {
+        final CandourRequestHedger hedger = requestHedger;
+        if (hedger == null) {
+            return executeRetriedHttpRequest(candourContext, request, responseHandler);
+        }
+        return retry(candourContext, request, attempt -> hedger.execute(attempt,
+                hedged -> executeHttpRequest(candourContext, hedged, responseHandler),
+                getRemainingTime(candourContext)));
+    }
+
+    /**
+     * Execute the attempts of the request with the retry policy if set, otherwise
+     * once.
+     * 
+     * @param candourContext the candour context of the current request
+     * @param request        the prepared HTTP request
+     * @param attempt        executes an attempt of the request
      * 
      * @return the encoded Http response.
      * 
      * @throws IOException if there is an error producing a response
      */
     @Nullable
-    protected CandourResponse executeHttpRequest(@Nonnull final ClassicHttpRequest request) throws IOException {
-
-        Constraint.isNotNull(request, "Request can not be null");
-        final HttpClientContext clientContext = HttpClientContext.create();
-        assert clientContext != null;
-        HttpClientSecuritySupport.marshalSecurityParameters(clientContext, httpClientSecurityParameters, true);
-        HttpClientSecuritySupport.addDefaultTLSTrustEngineCriteria(clientContext, request);
-        CandourResponse candourResponse = httpClient.execute(request, clientContext, new CandourResponseHandler());
-        final String scheme = request.getScheme();
-        assert scheme != null;
-        HttpClientSecuritySupport.checkTLSCredentialEvaluated(clientContext, scheme);
-        return candourResponse;
+    private CandourResponse retry(@Nonnull final CandourContext candourContext,
+            @Nonnull final ClassicHttpRequest request, @Nonnull final CandourHttpAttempt<CandourResponse> attempt)
+            throws IOException {
+        if (retryPolicy == null) {
+            return attempt.execute(request);
+        }
+        return retryPolicy.execute(request, attempt, getRemainingTime(candourContext));
+    }
 
+    /**
+     * Get time remaining to the deadline of the current flow stage.
+     * 
+     * @param candourContext the candour context of the current request
+     * @return time remaining, zero if the deadline has passed, or null if there is
+     *         no deadline
+     */
+    @Nullable
+    protected Duration getRemainingTime(@Nonnull final CandourContext candourContext) {
+        return candourContext.getRemainingTime();
+    }
+
+    /**
+     * Carry the request with the transport as the operation of its http method,
+     * recording the call as a {@link CandourApiCallEvent} when the event is
+     * enabled.
+     * 
+     * @param request         the prepared HTTP request
+     * @param timeout         the optional time to wait for the response
+     * @param responseHandler the handler producing the response
+     * 
+     * @return the encoded Http response.
+     * 
+     * @throws IOException if there is an error producing a response
+     */
+    @Nullable
+    private CandourResponse doExecuteHttpRequest(@Nonnull final ClassicHttpRequest request,
+            @Nullable final Duration timeout, @Nonnull final HttpClientResponseHandler<CandourResponse> responseHandler)
+            throws IOException {
+        final CandourOperation operation = CandourOperation.forMethod(request.getMethod());
+        if (operation == null) {
+            throw new IOException("No Candour API operation for http method " + request.getMethod());
+        }
+        final CandourApiCallEvent event = new CandourApiCallEvent();
+        if (!event.isEnabled()) {
+            return transport.execute(operation, request, timeout, responseHandler);
+        }
+        CandourHttpSupport.resetPoolWait();
+        event.begin();
+        try {
+            return transport.execute(operation, request, timeout, response -> {
+                event.statusCode = response.getCode();
+                final HttpEntity entity = response.getEntity();
+                if (entity != null) {
+                    event.responseSize = entity.getContentLength();
+                }
+                return responseHandler.handleResponse(response);
+            });
+        } catch (final IOException | RuntimeException e) {
+            event.failure = e.getClass().getName();
+            throw e;
+        } finally {
+            event.end();
+            final long poolWait = CandourHttpSupport.resetPoolWait();
+            if (event.shouldCommit()) {
+                event.operation = operation.getOperationName();
+                final HttpEntity entity = request.getEntity();
+                if (entity != null) {
+                    event.requestSize = entity.getContentLength();
+                }
+                event.poolWait = poolWait;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Whether the status code tells the Candour API failed to serve the call, as
+     * opposed to rejecting the call itself.
+     * 
+     * @param code http status code
+     * @return whether the status indicates a failure of the API
+     */
+    private static boolean isServerFailure(final int code) {
+        return code >= 500 || code == 429;
     }
 
 }
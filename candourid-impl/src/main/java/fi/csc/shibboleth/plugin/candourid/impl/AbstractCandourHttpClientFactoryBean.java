@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.time.Duration;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.hc.client5.http.ConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.DefaultConnectionKeepAliveStrategy;
+import org.apache.hc.core5.pool.ConnPoolControl;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.opensaml.core.metrics.MetricsSupport;
+import org.springframework.beans.factory.config.AbstractFactoryBean;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import net.shibboleth.shared.logic.Constraint;
+
+/**
+ * Base class for factories of pooling HTTP clients tuned for the Candour API.
+ * 
+ * <p>
+ * All Candour API traffic goes to a single route, one POST per login start and
+ * one GET and one DELETE per return. The pool is sized for that route, idle
+ * connections are kept alive for reuse and validated after a period of
+ * inactivity, and connections idle for too long are evicted in the background.
+ * </p>
+ * 
+ * <p>
+ * Statistics of the pool (leased, pending, available and max connections) are
+ * registered as gauges under {@value #METRIC_PREFIX} followed by the pool name.
+ * </p>
+ * 
+ * @param <T> type of the client
+ */
+public abstract class AbstractCandourHttpClientFactoryBean<T> extends AbstractFactoryBean<T> {
+
+    /** Prefix of the metrics. */
+    @Nonnull
+    public static final String METRIC_PREFIX = "fi.csc.shibboleth.plugin.candourid.http.pool";
+
+    /** Names of the pool statistics gauges. */
+    @Nonnull
+    private static final String[] POOL_STATS = { "leased", "pending", "available", "max" };
+
+    /** Maximum number of connections. */
+    private int maxConnectionsTotal = 100;
+
+    /** Maximum number of connections per route. */
+    private int maxConnectionsPerRoute = 100;
+
+    /** Timeout of establishing a connection. */
+    @Nonnull
+    private Duration connectionTimeout = Duration.ofSeconds(5);
+
+    /** Timeout of waiting for data on a connection. */
+    @Nonnull
+    private Duration socketTimeout = Duration.ofSeconds(30);
+
+    /** Timeout of waiting for a connection from the pool. */
+    @Nonnull
+    private Duration connectionRequestTimeout = Duration.ofSeconds(5);
+
+    /** Maximum time an idle connection is kept alive. */
+    @Nonnull
+    private Duration keepAlive = Duration.ofMinutes(1);
+
+    /** Period of inactivity after which a connection is validated before reuse. */
+    @Nonnull
+    private Duration validateAfterInactivity = Duration.ofSeconds(2);
+
+    /** Idle time after which a connection is evicted, zero to disable eviction. */
+    @Nonnull
+    private Duration idleTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Set maximum number of connections.
+     * 
+     * @param max maximum number of connections
+     */
+    public void setMaxConnectionsTotal(final int max) {
+        maxConnectionsTotal = (int) Constraint.isGreaterThan(0, max, "Maximum connections must be greater than 0");
+    }
+
+    /**
+     * Set maximum number of connections per route.
+     * 
+     * @param max maximum number of connections per route
+     */
+    public void setMaxConnectionsPerRoute(final int max) {
+        maxConnectionsPerRoute = (int) Constraint.isGreaterThan(0, max,
+                "Maximum connections per route must be greater than 0");
+    }
+
+    /**
+     * Set timeout of establishing a connection.
+     * 
+     * @param timeout timeout of establishing a connection
+     */
+    public void setConnectionTimeout(@Nonnull final Duration timeout) {
+        connectionTimeout = positive(timeout, "Connection timeout");
+    }
+
+    /**
+     * Set timeout of waiting for data on a connection.
+     * 
+     * @param timeout timeout of waiting for data
+     */
+    public void setSocketTimeout(@Nonnull final Duration timeout) {
+        socketTimeout = positive(timeout, "Socket timeout");
+    }
+
+    /**
+     * Set timeout of waiting for a connection from the pool.
+     * 
+     * @param timeout timeout of waiting for a connection from the pool
+     */
+    public void setConnectionRequestTimeout(@Nonnull final Duration timeout) {
+        connectionRequestTimeout = positive(timeout, "Connection request timeout");
+    }
+
+    /**
+     * Set maximum time an idle connection is kept alive. A shorter keep-alive
+     * announced by the server takes precedence.
+     * 
+     * @param duration maximum keep-alive time
+     */
+    public void setKeepAlive(@Nonnull final Duration duration) {
+        keepAlive = positive(duration, "Keep-alive");
+    }
+
+    /**
+     * Set period of inactivity after which a connection is validated before
+     * reuse.
+     * 
+     * @param period period of inactivity
+     */
+    public void setValidateAfterInactivity(@Nonnull final Duration period) {
+        validateAfterInactivity = positive(period, "Validate after inactivity");
+    }
+
+    /**
+     * Set idle time after which a connection is evicted. Zero disables the
+     * eviction.
+     * 
+     * @param timeout idle time after which a connection is evicted
+     */
+    public void setIdleTimeout(@Nonnull final Duration timeout) {
+        Constraint.isNotNull(timeout, "Idle timeout cannot be null");
+        Constraint.isFalse(timeout.isNegative(), "Idle timeout cannot be negative");
+        idleTimeout = timeout;
+    }
+
+    /**
+     * Get maximum number of connections.
+     * 
+     * @return maximum number of connections
+     */
+    protected int getMaxConnectionsTotal() {
+        return maxConnectionsTotal;
+    }
+
+    /**
+     * Get maximum number of connections per route.
+     * 
+     * @return maximum number of connections per route
+     */
+    protected int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    /**
+     * Get idle time after which a connection is evicted.
+     * 
+     * @return idle time or {@literal null} if idle connections are not evicted
+     */
+    @Nullable
+    protected TimeValue getIdleTimeout() {
+        return idleTimeout.isZero() ? null : TimeValue.ofMilliseconds(idleTimeout.toMillis());
+    }
+
+    /**
+     * Get the name of the pool used in the metric names.
+     * 
+     * @return name of the pool
+     */
+    @Nonnull
+    protected abstract String getPoolName();
+
+    /**
+     * Build the connection configuration of the pool.
+     * 
+     * @return connection configuration
+     */
+    @Nonnull
+    protected ConnectionConfig buildConnectionConfig() {
+        return ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(connectionTimeout.toMillis()))
+                .setSocketTimeout(Timeout.ofMilliseconds(socketTimeout.toMillis()))
+                .setValidateAfterInactivity(TimeValue.ofMilliseconds(validateAfterInactivity.toMillis()))
+                .build();
+    }
+
+    /**
+     * Build the default request configuration of the client.
+     * 
+     * @return request configuration
+     */
+    @Nonnull
+    protected RequestConfig buildRequestConfig() {
+        return CandourHttpSupport.buildRequestConfig(connectionRequestTimeout, socketTimeout);
+    }
+
+    /**
+     * Build the keep-alive strategy honouring the keep-alive announced by the
+     * server up to the configured maximum.
+     * 
+     * @return keep-alive strategy
+     */
+    @Nonnull
+    protected ConnectionKeepAliveStrategy buildKeepAliveStrategy() {
+        final TimeValue max = TimeValue.ofMilliseconds(keepAlive.toMillis());
+        return (response, context) -> {
+            final TimeValue announced = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response,
+                    context);
+            return announced != null && TimeValue.isNonNegative(announced) && announced.compareTo(max) < 0
+                    ? announced
+                    : max;
+        };
+    }
+
+    /**
+     * Register the statistics of the pool as gauges.
+     * 
+     * @param pool the pool
+     */
+    protected void registerPoolMetrics(@Nonnull final ConnPoolControl<HttpRoute> pool) {
+        final MetricRegistry registry = MetricsSupport.getMetricRegistry();
+        removePoolMetrics();
+        registry.register(metricName("leased"), (Gauge<Integer>) () -> pool.getTotalStats().getLeased());
+        registry.register(metricName("pending"), (Gauge<Integer>) () -> pool.getTotalStats().getPending());
+        registry.register(metricName("available"), (Gauge<Integer>) () -> pool.getTotalStats().getAvailable());
+        registry.register(metricName("max"), (Gauge<Integer>) () -> pool.getTotalStats().getMax());
+    }
+
+    /** Remove the pool statistics gauges. */
+    protected void removePoolMetrics() {
+        final MetricRegistry registry = MetricsSupport.getMetricRegistry();
+        for (final String stat : POOL_STATS) {
+            registry.remove(metricName(stat));
+        }
+    }
+
+    /**
+     * Get the name of a pool statistics gauge.
+     * 
+     * @param stat name of the statistic
+     * @return name of the gauge
+     */
+    @Nonnull
+    private String metricName(@Nonnull final String stat) {
+        return MetricRegistry.name(METRIC_PREFIX, getPoolName(), stat);
+    }
+
+    /**
+     * Check the duration is positive.
+     * 
+     * @param duration the duration
+     * @param name     name of the duration for the error message
+     * @return the duration
+     */
+    @Nonnull
+    private static Duration positive(@Nonnull final Duration duration, @Nonnull final String name) {
+        Constraint.isNotNull(duration, name + " cannot be null");
+        Constraint.isFalse(duration.isNegative() || duration.isZero(), name + " must be positive");
+        return duration;
+    }
+
+}
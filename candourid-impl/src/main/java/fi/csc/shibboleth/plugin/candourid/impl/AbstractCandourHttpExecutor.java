@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.opensaml.core.metrics.MetricsSupport;
+import org.opensaml.security.httpclient.HttpClientSecurityParameters;
+import org.slf4j.Logger;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponse;
+import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
+import net.shibboleth.shared.annotation.constraint.ThreadSafeAfterInit;
+import net.shibboleth.shared.component.AbstractInitializableComponent;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.logic.Constraint;
+import net.shibboleth.shared.primitive.LoggerFactory;
+
+/**
+ * Base class for {@link CandourHttpExecutor executors} running the requests
+ * off the calling thread.
+ * 
+ * <p>
+ * The calling thread waits for the response for at most the request timeout.
+ * The number of requests in flight may be limited, requests over the limit
+ * fail at once instead of tying up further container threads while the
+ * Candour API is slow. A request stays in flight until it completes, also
+ * after the calling thread has stopped waiting for it.
+ * </p>
+ * 
+ * <p>
+ * Metrics are registered under {@value #METRIC_PREFIX}.
+ * </p>
+ */
+@ThreadSafeAfterInit
+public abstract class AbstractCandourHttpExecutor extends AbstractInitializableComponent
+        implements CandourHttpExecutor {
+
+    /** Prefix of the metrics. */
+    @Nonnull
+    public static final String METRIC_PREFIX = "fi.csc.shibboleth.plugin.candourid.http";
+
+    /** Class logger. */
+    @Nonnull
+    private final Logger log = LoggerFactory.getLogger(AbstractCandourHttpExecutor.class);
+
+    /** Maximum number of requests in flight, 0 for no limit. */
+    private int maxConcurrentRequests = 200;
+
+    /** How long the calling thread waits for the response. */
+    @Nonnull
+    private Duration requestTimeout = Duration.ofSeconds(30);
+
+    /** Permits of the requests in flight. */
+    @Nullable
+    private Semaphore permits;
+
+    /** Requests rejected for the limit of requests in flight. */
+    @NonnullAfterInit
+    private Counter rejected;
+
+    /** Requests timed out waiting for the response. */
+    @NonnullAfterInit
+    private Counter timedOut;
+
+    /**
+     * Set maximum number of requests in flight, further requests fail at once. 0
+     * for no limit. Defaults to 200.
+     * 
+     * @param max maximum number of requests in flight
+     */
+    public void setMaxConcurrentRequests(final int max) {
+        checkSetterPreconditions();
+        maxConcurrentRequests = (int) Constraint.isGreaterThanOrEqual(0, max,
+                "Maximum concurrent requests cannot be negative");
+    }
+
+    /**
+     * Set how long the calling thread waits for the response.
+     * 
+     * @param timeout how long to wait for the response
+     */
+    public void setRequestTimeout(@Nonnull final Duration timeout) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(timeout, "Request timeout cannot be null");
+        Constraint.isFalse(timeout.isNegative() || timeout.isZero(), "Request timeout must be positive");
+        requestTimeout = timeout;
+    }
+
+    /**
+     * Get how long the calling thread waits for the response.
+     * 
+     * @return how long to wait for the response
+     */
+    @Nonnull
+    public Duration getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doInitialize() throws ComponentInitializationException {
+        super.doInitialize();
+        permits = maxConcurrentRequests > 0 ? new Semaphore(maxConcurrentRequests) : null;
+        final MetricRegistry registry = MetricsSupport.getMetricRegistry();
+        rejected = registry.counter(MetricRegistry.name(METRIC_PREFIX, "rejected"));
+        timedOut = registry.counter(MetricRegistry.name(METRIC_PREFIX, "timedOut"));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Nullable
+    public CandourResponse execute(@Nonnull final ClassicHttpRequest request,
+            @Nullable final HttpClientSecurityParameters securityParams, @Nullable final Duration timeout,
+            @Nonnull final HttpClientResponseHandler<CandourResponse> responseHandler) throws IOException {
+        checkComponentActive();
+        Constraint.isNotNull(request, "Request can not be null");
+        Constraint.isNotNull(responseHandler, "Response handler can not be null");
+        final Semaphore limit = permits;
+        if (limit != null && !limit.tryAcquire()) {
+            rejected.inc();
+            log.warn("Rejecting Candour API request, {} requests already in flight", maxConcurrentRequests);
+            throw new IOException("Too many concurrent Candour API requests");
+        }
+        final Runnable release;
+        if (limit != null) {
+            final AtomicBoolean released = new AtomicBoolean();
+            release = () -> {
+                if (released.compareAndSet(false, true)) {
+                    limit.release();
+                }
+            };
+        } else {
+            release = () -> {
+            };
+        }
+        return doExecute(request, securityParams, timeout, responseHandler, release);
+    }
+
+    /**
+     * Execute the request once admitted. The permit of the request must be
+     * released once the request completes, or at once if it is not sent. Running
+     * the release more than once has no effect.
+     * 
+     * @param request         the prepared HTTP request
+     * @param securityParams  the optional client security parameters
+     * @param timeout         the optional time to wait, if shorter than the
+     *                        request timeout
+     * @param responseHandler the handler producing the response
+     * @param release         the release of the permit of the request
+     * 
+     * @return the encoded Http response
+     * 
+     * @throws IOException if there is an error producing a response
+     */
+    @Nullable
+    protected abstract CandourResponse doExecute(@Nonnull final ClassicHttpRequest request,
+            @Nullable final HttpClientSecurityParameters securityParams, @Nullable final Duration timeout,
+            @Nonnull final HttpClientResponseHandler<CandourResponse> responseHandler, @Nonnull final Runnable release)
+            throws IOException;
+
+    /**
+     * Wait for the result of the request for at most the request timeout. The
+     * request is cancelled if it does not complete in time or the calling thread
+     * is interrupted.
+     * 
+     * @param <T>    type of the result
+     * @param future pending result of the request
+     * 
+     * @return the result
+     * 
+     * @throws IOException if the request failed, timed out or was interrupted
+     */
+    protected <T> T await(@Nonnull final Future<T> future) throws IOException {
+        return await(future, null);
+    }
+
+    /**
+     * Wait for the result of the request for at most the request timeout or the
+     * given time, whichever is shorter. The request is cancelled if it does not
+     * complete in time or the calling thread is interrupted.
+     * 
+     * @param <T>     type of the result
+     * @param future  pending result of the request
+     * @param timeout the optional time to wait
+     * 
+     * @return the result
+     * 
+     * @throws IOException if the request failed, timed out or was interrupted
+     */
+    protected <T> T await(@Nonnull final Future<T> future, @Nullable final Duration timeout) throws IOException {
+        final Duration wait = timeout != null && timeout.compareTo(requestTimeout) < 0 ? timeout : requestTimeout;
+        try {
+            return future.get(wait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (final TimeoutException e) {
+            future.cancel(true);
+            timedOut.inc();
+            throw new SocketTimeoutException("Candour API request timed out after " + wait);
+        } catch (final InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for Candour API response");
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+}
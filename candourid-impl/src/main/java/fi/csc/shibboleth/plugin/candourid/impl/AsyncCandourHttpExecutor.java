@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.hc.client5.http.ClientProtocolException;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
+import org.apache.hc.core5.http.nio.AsyncRequestProducer;
+import org.apache.hc.core5.http.nio.entity.BasicAsyncEntityProducer;
+import org.apache.hc.core5.http.nio.support.AsyncRequestBuilder;
+import org.apache.hc.core5.http.nio.support.BasicResponseConsumer;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.io.CloseMode;
+import org.opensaml.security.httpclient.HttpClientSecurityParameters;
+import org.opensaml.security.httpclient.HttpClientSecuritySupport;
+
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponse;
+import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
+import net.shibboleth.shared.annotation.constraint.ThreadSafeAfterInit;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.logic.Constraint;
+
+/**
+ * Executes the requests with the non-blocking HttpClient 5
+ * {@link CloseableHttpAsyncClient async client}.
+ * 
+ * <p>
+ * Requests are multiplexed over HTTP/2 connections when the Candour API
+ * negotiates it and sent over a small number of I/O threads, the calling thread
+ * only waits for the response. The response body is buffered up to the maximum
+ * response size and handed to the response handler as a classic response.
+ * </p>
+ * 
+ * <p>
+ * If no client is set, one is created using the TLS settings of the JVM
+ * system properties and closed on {@link #destroy()}. The security parameters
+ * are applied to the request context and the TLS credential evaluation is
+ * checked after the exchange as with the blocking client. The TLS layer of the
+ * async client is configured with the client, not per request, so security
+ * parameters with a TLS trust engine, client TLS credential, TLS protocols,
+ * cipher suites or hostname verifier are not
+ * {@link #isSupported(HttpClientSecurityParameters) supported}; use the
+ * blocking or virtual thread mode for those.
+ * </p>
+ */
+@ThreadSafeAfterInit
+public class AsyncCandourHttpExecutor extends AbstractCandourHttpExecutor {
+
+    /** Async client for contacting the endpoint. */
+    @NonnullAfterInit
+    private CloseableHttpAsyncClient httpAsyncClient;
+
+    /** Default request configuration of the client, shortened by the request timeouts. */
+    @Nullable
+    private RequestConfig defaultRequestConfig;
+
+    /** Whether the client was created and is closed by this executor. */
+    private boolean ownClient;
+
+    /** Maximum size of a response body in bytes. */
+    private long maxResponseSize = 8 * 1024 * 1024;
+
+    /** Maximum number of connections of a created client. */
+    private int maxConnections = 20;
+
+    /** Whether a created client negotiates HTTP/2. */
+    private boolean http2 = true;
+
+    /**
+     * Set the async client to use. The client is started if not started yet, its
+     * lifecycle is otherwise left to the caller.
+     * 
+     * @param client client to use
+     */
+    public void setHttpAsyncClient(@Nullable final CloseableHttpAsyncClient client) {
+        checkSetterPreconditions();
+        httpAsyncClient = client;
+    }
+
+    /**
+     * Set the default request configuration of the client. The timeouts of each
+     * request are the configured ones shortened to the time remaining. Defaults
+     * to the configuration of the client if it exposes one.
+     * 
+     * @param config default request configuration of the client
+     */
+    public void setDefaultRequestConfig(@Nullable final RequestConfig config) {
+        checkSetterPreconditions();
+        defaultRequestConfig = config;
+    }
+
+    /**
+     * Set maximum size of a response body in bytes.
+     * 
+     * @param size maximum size of a response body in bytes
+     */
+    public void setMaxResponseSize(final long size) {
+        checkSetterPreconditions();
+        maxResponseSize = Constraint.isGreaterThan(0, size, "Maximum response size must be greater than 0");
+    }
+
+    /**
+     * Set maximum number of connections of a created client.
+     * 
+     * @param max maximum number of connections
+     */
+    public void setMaxConnections(final int max) {
+        checkSetterPreconditions();
+        maxConnections = (int) Constraint.isGreaterThan(0, max, "Maximum connections must be greater than 0");
+    }
+
+    /**
+     * Set whether a created client negotiates HTTP/2. Defaults to true.
+     * 
+     * @param flag whether to negotiate HTTP/2
+     */
+    public void setHttp2(final boolean flag) {
+        checkSetterPreconditions();
+        http2 = flag;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isSupported(@Nullable final HttpClientSecurityParameters securityParams) {
+        return securityParams == null || (securityParams.getTLSTrustEngine() == null
+                && securityParams.getClientTLSCredential() == null && securityParams.getTLSProtocols() == null
+                && securityParams.getTLSCipherSuites() == null && securityParams.getHostnameVerifier() == null);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doInitialize() throws ComponentInitializationException {
+        super.doInitialize();
+        if (httpAsyncClient == null) {
+            httpAsyncClient = HttpAsyncClients.custom()
+                    .setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create()
+                            .setTlsStrategy(ClientTlsStrategyBuilder.create().useSystemProperties().build())
+                            .setDefaultTlsConfig(TlsConfig.custom()
+                                    .setVersionPolicy(
+                                            http2 ? HttpVersionPolicy.NEGOTIATE : HttpVersionPolicy.FORCE_HTTP_1)
+                                    .build())
+                            .setMaxConnTotal(maxConnections)
+                            .setMaxConnPerRoute(maxConnections)
+                            .build())
+                    .setDefaultRequestConfig(defaultRequestConfig)
+                    .disableCookieManagement()
+                    .disableRedirectHandling()
+                    .build();
+            ownClient = true;
+        } else if (defaultRequestConfig == null) {
+            defaultRequestConfig = CandourHttpSupport.getDefaultRequestConfig(httpAsyncClient);
+        }
+        httpAsyncClient.start();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doDestroy() {
+        if (ownClient && httpAsyncClient != null) {
+            httpAsyncClient.close(CloseMode.GRACEFUL);
+        }
+        super.doDestroy();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Nullable
+    protected CandourResponse doExecute(@Nonnull final ClassicHttpRequest request,
+            @Nullable final HttpClientSecurityParameters securityParams, @Nullable final Duration timeout,
+            @Nonnull final HttpClientResponseHandler<CandourResponse> responseHandler, @Nonnull final Runnable release)
+            throws IOException {
+        final HttpClientContext clientContext = HttpClientContext.create();
+        assert clientContext != null;
+        final Future<Message<HttpResponse, byte[]>> future;
+        try {
+            HttpClientSecuritySupport.marshalSecurityParameters(clientContext, securityParams, true);
+            HttpClientSecuritySupport.addDefaultTLSTrustEngineCriteria(clientContext, request);
+            CandourHttpSupport.applyTimeout(clientContext, defaultRequestConfig, timeout);
+            future = httpAsyncClient.execute(toProducer(request),
+                    new BasicResponseConsumer<>(new SizeLimitedAsyncEntityConsumer(maxResponseSize)), null,
+                    clientContext, new ReleasingCallback<>(release));
+        } catch (final IOException | RuntimeException e) {
+            release.run();
+            throw e;
+        }
+        final Message<HttpResponse, byte[]> message = await(future, timeout);
+        final String scheme = request.getScheme();
+        assert scheme != null;
+        HttpClientSecuritySupport.checkTLSCredentialEvaluated(clientContext, scheme);
+        try (BasicClassicHttpResponse response = toClassicResponse(message)) {
+            return responseHandler.handleResponse(response);
+        } catch (final HttpException e) {
+            throw new ClientProtocolException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Convert a classic request to a request producer of the async client.
+     * 
+     * @param request classic request
+     * @return request producer
+     * @throws IOException if the request cannot be converted
+     */
+    @Nonnull
+    private static AsyncRequestProducer toProducer(@Nonnull final ClassicHttpRequest request) throws IOException {
+        final AsyncRequestBuilder builder;
+        try {
+            builder = AsyncRequestBuilder.create(request.getMethod()).setUri(request.getUri());
+        } catch (final URISyntaxException e) {
+            throw new IOException("Invalid request uri", e);
+        }
+        for (final Header header : request.getHeaders()) {
+            builder.addHeader(header);
+        }
+        final HttpEntity entity = request.getEntity();
+        if (entity != null) {
+            final String contentType = entity.getContentType();
+            builder.setEntity(new BasicAsyncEntityProducer(EntityUtils.toByteArray(entity),
+                    contentType != null ? ContentType.parseLenient(contentType) : null));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Convert a response of the async client to a classic response.
+     * 
+     * @param message response head and body
+     * @return classic response
+     */
+    @Nonnull
+    private static BasicClassicHttpResponse toClassicResponse(@Nonnull final Message<HttpResponse, byte[]> message) {
+        final HttpResponse head = message.getHead();
+        final BasicClassicHttpResponse response = new BasicClassicHttpResponse(head.getCode(),
+                head.getReasonPhrase());
+        response.setHeaders(head.getHeaders());
+        final byte[] body = message.getBody();
+        if (body != null) {
+            final Header contentType = head.getFirstHeader(HttpHeaders.CONTENT_TYPE);
+            response.setEntity(new ByteArrayEntity(body,
+                    contentType != null ? ContentType.parseLenient(contentType.getValue()) : null));
+        }
+        return response;
+    }
+
+    /**
+     * Callback releasing the permit of the request once the exchange completes,
+     * fails or is cancelled.
+     * 
+     * @param <T> type of the result
+     */
+    private static final class ReleasingCallback<T> implements FutureCallback<T> {
+
+        /** Release of the permit of the request. */
+        @Nonnull
+        private final Runnable release;
+
+        /**
+         * Constructor.
+         * 
+         * @param onDone release of the permit of the request
+         */
+        private ReleasingCallback(@Nonnull final Runnable onDone) {
+            release = onDone;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void completed(final T result) {
+            release.run();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void failed(final Exception ex) {
+            release.run();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void cancelled() {
+            release.run();
+        }
+
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import javax.annotation.Nonnull;
+
+import org.opensaml.profile.context.EventContext;
+import org.opensaml.profile.context.ProfileRequestContext;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of the execution of a Candour action.
+ * 
+ * <p>
+ * The event is disabled unless enabled by the recording settings and then costs
+ * no more than a check of the event state.
+ * </p>
+ */
+@Name(CandourActionEvent.NAME)
+@Label("Candour Action")
+@Description("Execution of a Candour authentication flow action")
+@Category({"Shibboleth", "Candour ID"})
+@StackTrace(false)
+final class CandourActionEvent extends Event {
+
+    /** Name of the event type. */
+    static final String NAME = "fi.csc.shibboleth.plugin.candourid.Action";
+
+    /** Simple class name of the action. */
+    @Label("Action")
+    String action;
+
+    /** Event signalled by the action, null if the action proceeded. */
+    @Label("Outcome")
+    String outcome;
+
+    /**
+     * End the event and commit it if the recording asks for it.
+     * 
+     * @param actionName            simple class name of the action
+     * @param profileRequestContext the current profile request context
+     */
+    void end(@Nonnull final String actionName, @Nonnull final ProfileRequestContext profileRequestContext) {
+        end();
+        if (shouldCommit()) {
+            action = actionName;
+            final EventContext eventContext = profileRequestContext.getSubcontext(EventContext.class);
+            outcome = eventContext != null && eventContext.getEvent() != null ? eventContext.getEvent().toString()
+                    : null;
+            commit();
+        }
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.opensaml.core.metrics.MetricsSupport;
+import org.opensaml.profile.context.EventContext;
+import org.opensaml.profile.context.ProfileRequestContext;
+import org.slf4j.Logger;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+
+import fi.csc.shibboleth.plugin.candourid.CandourEventIds;
+import net.shibboleth.shared.annotation.constraint.ThreadSafe;
+import net.shibboleth.shared.primitive.LoggerFactory;
+
+/**
+ * Monitors the executions of a Candour action.
+ * 
+ * <p>
+ * The {@link CandourEventIds} events signalled by the action are counted under
+ * {@value #EVENT_METRIC_PREFIX} followed by the event id. Each execution is
+ * recorded as a {@link CandourActionEvent flight recorder event} when enabled
+ * by the recording and, if stage metering is enabled, with the
+ * {@link CandourStageMeter} of the stage named by the action.
+ * </p>
+ */
+@ThreadSafe
+final class CandourActionMonitor {
+
+    /** Prefix of the event counter names. */
+    @Nonnull
+    public static final String EVENT_METRIC_PREFIX = "fi.csc.shibboleth.plugin.candourid.events";
+
+    /** Events counted. */
+    @Nonnull
+    private static final List<String> COUNTED_EVENTS = List.of(CandourEventIds.CANDOUR_API_COMM_FAILURE,
+            CandourEventIds.CANDOUR_API_RESP_FAILURE, CandourEventIds.CANDOUR_API_RESP_MALFORMED,
+            CandourEventIds.CANDOUR_REDIRECT_RESP_MALFORMED, CandourEventIds.CANDOUR_REDIRECT_RESP_CANCELLED,
+            CandourEventIds.CANDOUR_REDIRECT_RESP_CANCELLED_U_D, CandourEventIds.CANDOUR_REDIRECT_RESP_CANCELLED_U_ID,
+            CandourEventIds.CANDOUR_INVITE_LINK_VALIDATION_FAILURE);
+
+    /** Class logger. */
+    @Nonnull
+    private final Logger log = LoggerFactory.getLogger(CandourActionMonitor.class);
+
+    /** Simple class name of the action. */
+    @Nonnull
+    private final String actionName;
+
+    /** Meter of the executions, if metered. */
+    @Nullable
+    private final CandourStageMeter stageMeter;
+
+    /** Counters of the events, by event id. */
+    @Nonnull
+    private final Map<String, Counter> eventCounters;
+
+    /**
+     * Constructor.
+     * 
+     * @param action        the monitored action
+     * @param stageMetering whether to meter the heap allocated and the CPU time
+     *                          consumed by the executions
+     * @param logPrefix     log prefix of the action
+     */
+    CandourActionMonitor(@Nonnull final Object action, final boolean stageMetering,
+            @Nonnull final String logPrefix) {
+        actionName = action.getClass().getSimpleName();
+        if (stageMetering) {
+            stageMeter = CandourStageMeter.forStage(actionName);
+            if (stageMeter == null) {
+                log.warn("{} Thread allocation or CPU time accounting is not enabled, stage is not metered",
+                        logPrefix);
+            }
+        } else {
+            stageMeter = null;
+        }
+        final MetricRegistry registry = MetricsSupport.getMetricRegistry();
+        final Map<String, Counter> counters = new HashMap<>();
+        for (final String event : COUNTED_EVENTS) {
+            counters.put(event, registry.counter(MetricRegistry.name(EVENT_METRIC_PREFIX, event)));
+        }
+        eventCounters = Map.copyOf(counters);
+    }
+
+    /**
+     * Run an execution of the action.
+     * 
+     * @param profileRequestContext the current profile request context
+     * @param execution             the execution of the action
+     */
+    void execute(@Nonnull final ProfileRequestContext profileRequestContext, @Nonnull final Runnable execution) {
+        final CandourStageMeter.Sample sample = stageMeter != null ? stageMeter.start() : null;
+        final CandourActionEvent event = new CandourActionEvent();
+        event.begin();
+        try {
+            execution.run();
+        } finally {
+            if (sample != null) {
+                sample.stop();
+            }
+            final EventContext eventContext = profileRequestContext.getSubcontext(EventContext.class);
+            if (eventContext != null && eventContext.getEvent() instanceof String) {
+                final Counter counter = eventCounters.get(eventContext.getEvent());
+                if (counter != null) {
+                    counter.inc();
+                }
+            }
+            event.end(actionName, profileRequestContext);
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event of a call to the Candour API, one for each attempt of a
+ * retried or hedged call.
+ * 
+ * <p>
+ * The event is disabled unless enabled by the recording settings and then costs
+ * no more than a check of the event state, so it may be left recording in
+ * production and correlated with the garbage collection and thread events of
+ * the same recording.
+ * </p>
+ */
+@Name(CandourApiCallEvent.NAME)
+@Label("Candour API Call")
+@Description("Call to the Candour API, response handling included")
+@Category({"Shibboleth", "Candour ID"})
+@StackTrace(false)
+final class CandourApiCallEvent extends Event {
+
+    /** Name of the event type. */
+    static final String NAME = "fi.csc.shibboleth.plugin.candourid.ApiCall";
+
+    /** Candour API operation. */
+    @Label("Operation")
+    String operation;
+
+    /** Http status code of the response, zero if none was received. */
+    @Label("Status Code")
+    int statusCode;
+
+    /** Size of the request payload, -1 if unknown. */
+    @Label("Request Size")
+    @DataAmount
+    long requestSize = -1;
+
+    /** Size of the response payload, -1 if unknown. */
+    @Label("Response Size")
+    @DataAmount
+    long responseSize = -1;
+
+    /** Time waited for a connection of the pool, -1 if unknown. */
+    @Label("Pool Wait")
+    @Description("Time to lease a connection from the pool, connecting included for a new connection")
+    @Timespan(Timespan.NANOSECONDS)
+    long poolWait = -1;
+
+    /** Class of the exception failing the call, if any. */
+    @Label("Failure")
+    String failure;
+
+}
@@ -0,0 +1,357 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.time.Duration;
+import java.util.Locale;
+
+import javax.annotation.Nonnull;
+
+import org.opensaml.core.metrics.MetricsSupport;
+import org.slf4j.Logger;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
+import net.shibboleth.shared.annotation.constraint.ThreadSafeAfterInit;
+import net.shibboleth.shared.component.AbstractInitializableComponent;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.logic.Constraint;
+import net.shibboleth.shared.primitive.LoggerFactory;
+
+/**
+ * Circuit breaker of the Candour API calls.
+ * 
+ * <p>
+ * The outcomes of the latest calls are kept in a sliding window. Once the
+ * window holds at least the minimum number of calls and either the rate of
+ * failed calls or the rate of slow calls reaches its threshold, the breaker
+ * opens and calls are rejected without contacting the API. After the open
+ * duration the breaker lets a number of probe calls through. If their failure
+ * and slow call rates stay below the thresholds the breaker closes, otherwise it
+ * opens again.
+ * </p>
+ * 
+ * <p>
+ * The state is published as a gauge (0 closed, 1 open, 2 half-open) under
+ * {@value #METRIC_PREFIX}, along with counters of the state transitions and the
+ * rejected calls. State changes are logged.
+ * </p>
+ */
+@ThreadSafeAfterInit
+public class CandourCircuitBreaker extends AbstractInitializableComponent {
+
+    /** Prefix of the metrics. */
+    @Nonnull
+    public static final String METRIC_PREFIX = "fi.csc.shibboleth.plugin.candourid.circuitBreaker";
+
+    /** States of the breaker. */
+    public enum State {
+        /** Calls are let through and their outcomes recorded. */
+        CLOSED,
+        /** Calls are rejected. */
+        OPEN,
+        /** A limited number of probe calls are let through. */
+        HALF_OPEN
+    }
+
+    /** Outcome flag of a failed call. */
+    private static final byte FAILED = 1;
+
+    /** Outcome flag of a slow call. */
+    private static final byte SLOW = 2;
+
+    /** Class logger. */
+    @Nonnull
+    private final Logger log = LoggerFactory.getLogger(CandourCircuitBreaker.class);
+
+    /** Number of calls in the sliding window. */
+    private int windowSize = 20;
+
+    /** Minimum number of calls in the window before the rates are evaluated. */
+    private int minimumCalls = 10;
+
+    /** Failure rate in percent opening the breaker. */
+    private int failureRateThreshold = 50;
+
+    /** Slow call rate in percent opening the breaker. */
+    private int slowCallRateThreshold = 80;
+
+    /** Duration after which a call is slow. */
+    @Nonnull
+    private Duration slowCallDuration = Duration.ofSeconds(10);
+
+    /** How long the breaker stays open before probing. */
+    @Nonnull
+    private Duration openDuration = Duration.ofSeconds(30);
+
+    /** Number of probe calls in the half-open state. */
+    private int halfOpenCalls = 3;
+
+    /** Current state. */
+    @Nonnull
+    private volatile State state = State.CLOSED;
+
+    /** Outcomes of the calls in the window. */
+    @NonnullAfterInit
+    private byte[] window;
+
+    /** Position of the next outcome in the window. */
+    private int position;
+
+    /** Number of outcomes in the window. */
+    private int recorded;
+
+    /** Number of failed calls in the window. */
+    private int failures;
+
+    /** Number of slow calls in the window. */
+    private int slowCalls;
+
+    /** Time the breaker was opened in nanoseconds. */
+    private long openedAt;
+
+    /** Number of probe calls let through in the half-open state. */
+    private int probesPermitted;
+
+    /** Calls rejected as the breaker was open. */
+    @NonnullAfterInit
+    private Counter rejected;
+
+    /**
+     * Set number of calls in the sliding window.
+     * 
+     * @param size number of calls in the sliding window
+     */
+    public void setWindowSize(final int size) {
+        checkSetterPreconditions();
+        windowSize = (int) Constraint.isGreaterThan(0, size, "Window size must be greater than 0");
+    }
+
+    /**
+     * Set minimum number of calls in the window before the rates are evaluated.
+     * 
+     * @param calls minimum number of calls
+     */
+    public void setMinimumCalls(final int calls) {
+        checkSetterPreconditions();
+        minimumCalls = (int) Constraint.isGreaterThan(0, calls, "Minimum calls must be greater than 0");
+    }
+
+    /**
+     * Set failure rate in percent opening the breaker.
+     * 
+     * @param threshold failure rate in percent, 1-100
+     */
+    public void setFailureRateThreshold(final int threshold) {
+        checkSetterPreconditions();
+        Constraint.isTrue(threshold > 0 && threshold <= 100, "Failure rate threshold must be between 1 and 100");
+        failureRateThreshold = threshold;
+    }
+
+    /**
+     * Set slow call rate in percent opening the breaker.
+     * 
+     * @param threshold slow call rate in percent, 1-100
+     */
+    public void setSlowCallRateThreshold(final int threshold) {
+        checkSetterPreconditions();
+        Constraint.isTrue(threshold > 0 && threshold <= 100, "Slow call rate threshold must be between 1 and 100");
+        slowCallRateThreshold = threshold;
+    }
+
+    /**
+     * Set duration after which a call is slow.
+     * 
+     * @param duration duration after which a call is slow
+     */
+    public void setSlowCallDuration(@Nonnull final Duration duration) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(duration, "Slow call duration cannot be null");
+        Constraint.isFalse(duration.isNegative() || duration.isZero(), "Slow call duration must be positive");
+        slowCallDuration = duration;
+    }
+
+    /**
+     * Set how long the breaker stays open before probing.
+     * 
+     * @param duration how long the breaker stays open
+     */
+    public void setOpenDuration(@Nonnull final Duration duration) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(duration, "Open duration cannot be null");
+        Constraint.isFalse(duration.isNegative(), "Open duration cannot be negative");
+        openDuration = duration;
+    }
+
+    /**
+     * Set number of probe calls in the half-open state.
+     * 
+     * @param calls number of probe calls
+     */
+    public void setHalfOpenCalls(final int calls) {
+        checkSetterPreconditions();
+        halfOpenCalls = (int) Constraint.isGreaterThan(0, calls, "Half-open calls must be greater than 0");
+    }
+
+    /**
+     * Get the current state.
+     * 
+     * @return current state
+     */
+    @Nonnull
+    public State getState() {
+        return state;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doInitialize() throws ComponentInitializationException {
+        super.doInitialize();
+        if (minimumCalls > windowSize) {
+            throw new ComponentInitializationException("Minimum calls cannot exceed the window size");
+        }
+        window = new byte[windowSize];
+        final MetricRegistry registry = MetricsSupport.getMetricRegistry();
+        rejected = registry.counter(MetricRegistry.name(METRIC_PREFIX, "rejected"));
+        registry.remove(MetricRegistry.name(METRIC_PREFIX, "state"));
+        registry.register(MetricRegistry.name(METRIC_PREFIX, "state"), (Gauge<Integer>) () -> state.ordinal());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doDestroy() {
+        MetricsSupport.getMetricRegistry().remove(MetricRegistry.name(METRIC_PREFIX, "state"));
+        super.doDestroy();
+    }
+
+    /**
+     * Ask for permission to make a call. Each permitted call must be followed by
+     * a call to {@link #onResult(long, boolean)} or {@link #onIgnored()}.
+     * 
+     * @return whether the call is permitted
+     */
+    public synchronized boolean tryAcquirePermission() {
+        checkComponentActive();
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openDuration.toNanos()) {
+                rejected.inc();
+                return false;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesPermitted >= halfOpenCalls) {
+                rejected.inc();
+                return false;
+            }
+            probesPermitted++;
+        }
+        return true;
+    }
+
+    /**
+     * Record the outcome of a permitted call.
+     * 
+     * @param durationNanos duration of the call in nanoseconds
+     * @param failed        whether the call failed
+     */
+    public synchronized void onResult(final long durationNanos, final boolean failed) {
+        if (state == State.OPEN) {
+            // Outcome of a call started before the breaker opened
+            return;
+        }
+        final byte outcome = (byte) ((failed ? FAILED : 0) | (durationNanos >= slowCallDuration.toNanos() ? SLOW : 0));
+        record(outcome);
+        if (state == State.HALF_OPEN) {
+            if (recorded >= halfOpenCalls) {
+                if (thresholdsExceeded()) {
+                    transition(State.OPEN);
+                } else {
+                    transition(State.CLOSED);
+                }
+            }
+        } else if (recorded >= minimumCalls && thresholdsExceeded()) {
+            transition(State.OPEN);
+        }
+    }
+
+    /**
+     * Release the permission of a call whose outcome tells nothing of the API,
+     * for instance a call cancelled by the caller, without recording it.
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && probesPermitted > 0) {
+            probesPermitted--;
+        }
+    }
+
+    /**
+     * Add an outcome to the window.
+     * 
+     * @param outcome outcome flags of the call
+     */
+    private void record(final byte outcome) {
+        if (recorded == window.length) {
+            final byte evicted = window[position];
+            failures -= evicted & FAILED;
+            slowCalls -= (evicted & SLOW) >> 1;
+        } else {
+            recorded++;
+        }
+        window[position] = outcome;
+        position = (position + 1) % window.length;
+        failures += outcome & FAILED;
+        slowCalls += (outcome & SLOW) >> 1;
+    }
+
+    /**
+     * Whether the failure or slow call rate of the window reaches its threshold.
+     * 
+     * @return whether a threshold is reached
+     */
+    private boolean thresholdsExceeded() {
+        return failures * 100 >= failureRateThreshold * recorded || slowCalls * 100 >= slowCallRateThreshold * recorded;
+    }
+
+    /**
+     * Move to a new state, resetting the window.
+     * 
+     * @param newState the new state
+     */
+    private void transition(@Nonnull final State newState) {
+        final State oldState = state;
+        if (newState == State.OPEN) {
+            openedAt = System.nanoTime();
+            log.warn("Candour API circuit breaker opened from {}, {}/{} calls failed and {}/{} were slow, "
+                    + "rejecting calls for {}", oldState, failures, recorded, slowCalls, recorded, openDuration);
+        } else {
+            log.info("Candour API circuit breaker moved from {} to {}", oldState, newState);
+        }
+        state = newState;
+        position = 0;
+        recorded = 0;
+        failures = 0;
+        slowCalls = 0;
+        probesPermitted = 0;
+        MetricsSupport.getMetricRegistry()
+                .counter(MetricRegistry.name(METRIC_PREFIX, "transitions", newState.name().toLowerCase(Locale.ROOT)))
+                .inc();
+    }
+
+}
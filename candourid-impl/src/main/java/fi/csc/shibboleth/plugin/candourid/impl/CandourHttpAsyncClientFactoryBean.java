@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClientBuilder;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.core5.http.nio.ssl.TlsStrategy;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.util.TimeValue;
+
+/**
+ * Factory of the pooling {@link CloseableHttpAsyncClient async client} for the
+ * Candour API, negotiating HTTP/2 unless disabled. The client is started when
+ * created.
+ * 
+ * <p>
+ * Unless set, the TLS strategy uses the TLS settings of the JVM system
+ * properties.
+ * </p>
+ */
+public class CandourHttpAsyncClientFactoryBean
+        extends AbstractCandourHttpClientFactoryBean<CloseableHttpAsyncClient> {
+
+    /** TLS strategy of the pool. */
+    @Nullable
+    private TlsStrategy tlsStrategy;
+
+    /** Whether to negotiate HTTP/2. */
+    private boolean http2 = true;
+
+    /**
+     * Set TLS strategy of the pool.
+     * 
+     * @param strategy TLS strategy
+     */
+    public void setTlsStrategy(@Nullable final TlsStrategy strategy) {
+        tlsStrategy = strategy;
+    }
+
+    /**
+     * Set whether to negotiate HTTP/2. Defaults to true.
+     * 
+     * @param flag whether to negotiate HTTP/2
+     */
+    public void setHttp2(final boolean flag) {
+        http2 = flag;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Nonnull
+    public Class<?> getObjectType() {
+        return CloseableHttpAsyncClient.class;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Nonnull
+    protected String getPoolName() {
+        return "async";
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Nonnull
+    protected CloseableHttpAsyncClient createInstance() throws Exception {
+        final TlsStrategy strategy = tlsStrategy != null ? tlsStrategy
+                : ClientTlsStrategyBuilder.create().useSystemProperties().build();
+        final PoolingAsyncClientConnectionManager connectionManager = PoolingAsyncClientConnectionManagerBuilder
+                .create()
+                .setTlsStrategy(strategy)
+                .setDefaultTlsConfig(TlsConfig.custom()
+                        .setVersionPolicy(http2 ? HttpVersionPolicy.NEGOTIATE : HttpVersionPolicy.FORCE_HTTP_1)
+                        .build())
+                .setMaxConnTotal(getMaxConnectionsTotal())
+                .setMaxConnPerRoute(getMaxConnectionsPerRoute())
+                .setDefaultConnectionConfig(buildConnectionConfig())
+                .build();
+        final HttpAsyncClientBuilder builder = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(buildRequestConfig())
+                .setKeepAliveStrategy(buildKeepAliveStrategy())
+                .disableCookieManagement()
+                .disableRedirectHandling()
+                .useSystemProperties()
+                .evictExpiredConnections();
+        final TimeValue idleTimeout = getIdleTimeout();
+        if (idleTimeout != null) {
+            builder.evictIdleConnections(idleTimeout);
+        }
+        final CloseableHttpAsyncClient client = builder.build();
+        client.start();
+        registerPoolMetrics(connectionManager);
+        return client;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void destroyInstance(@Nullable final CloseableHttpAsyncClient client) throws Exception {
+        removePoolMetrics();
+        if (client != null) {
+            client.close(CloseMode.GRACEFUL);
+        }
+    }
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+
+import org.apache.hc.core5.http.ClassicHttpRequest;
+
+/**
+ * An attempt to execute a Candour API request, repeated or run concurrently
+ * with other attempts of the same request by the request hedger and the retry
+ * policy.
+ * 
+ * @param <T> type of the result
+ */
+@FunctionalInterface
+public interface CandourHttpAttempt<T> {
+
+    /**
+     * Execute the request.
+     * 
+     * @param request the request
+     * @return the result
+     * @throws IOException if the request fails
+     */
+    T execute(@Nonnull ClassicHttpRequest request) throws IOException;
+
+}
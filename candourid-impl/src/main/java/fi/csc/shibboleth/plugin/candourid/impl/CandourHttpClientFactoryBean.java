@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.impl.ChainElement;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.socket.LayeredConnectionSocketFactory;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.util.TimeValue;
+import org.opensaml.security.httpclient.HttpClientSecuritySupport;
+
+/**
+ * Factory of the blocking pooling {@link CloseableHttpClient} for the Candour
+ * API.
+ * 
+ * <p>
+ * Unless set, the TLS socket factory is the security enhanced one of
+ * {@link HttpClientSecuritySupport#buildTLSSocketFactory()}, evaluating the TLS
+ * trust engine of the client security parameters when one is set and the JVM
+ * trust otherwise.
+ * </p>
+ * 
+ * <p>
+ * The time each request waits for a connection, to lease one from the pool and
+ * to connect it if new, is noted for the flight recorder events of
+ * {@link CandourHttpSupport}.
+ * </p>
+ */
+public class CandourHttpClientFactoryBean extends AbstractCandourHttpClientFactoryBean<CloseableHttpClient> {
+
+    /** TLS socket factory of the pool. */
+    @Nullable
+    private LayeredConnectionSocketFactory tlsSocketFactory;
+
+    /**
+     * Set TLS socket factory of the pool.
+     * 
+     * @param factory TLS socket factory
+     */
+    public void setTLSSocketFactory(@Nullable final LayeredConnectionSocketFactory factory) {
+        tlsSocketFactory = factory;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Nonnull
+    public Class<?> getObjectType() {
+        return CloseableHttpClient.class;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Nonnull
+    protected String getPoolName() {
+        return "blocking";
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Nonnull
+    protected CloseableHttpClient createInstance() throws Exception {
+        final PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder
+                .create()
+                .setSSLSocketFactory(
+                        tlsSocketFactory != null ? tlsSocketFactory : HttpClientSecuritySupport.buildTLSSocketFactory())
+                .setMaxConnTotal(getMaxConnectionsTotal())
+                .setMaxConnPerRoute(getMaxConnectionsPerRoute())
+                .setDefaultConnectionConfig(buildConnectionConfig())
+                .build();
+        final HttpClientBuilder builder = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(buildRequestConfig())
+                .setKeepAliveStrategy(buildKeepAliveStrategy())
+                .disableCookieManagement()
+                .disableRedirectHandling()
+                .useSystemProperties()
+                .evictExpiredConnections()
+                .addExecInterceptorBefore(ChainElement.CONNECT.name(), "candourConnectionRequested",
+                        CandourHttpClientFactoryBean::connectionRequested)
+                .addExecInterceptorAfter(ChainElement.CONNECT.name(), "candourConnectionLeased",
+                        CandourHttpClientFactoryBean::connectionLeased);
+        final TimeValue idleTimeout = getIdleTimeout();
+        if (idleTimeout != null) {
+            builder.evictIdleConnections(idleTimeout);
+        }
+        final CloseableHttpClient client = builder.build();
+        registerPoolMetrics(connectionManager);
+        return client;
+    }
+
+    /**
+     * Note the time a connection is requested for the request.
+     * 
+     * @param request the request
+     * @param scope   the execution scope
+     * @param chain   the rest of the execution chain
+     * @return the response
+     * @throws IOException   if an I/O error occurs
+     * @throws HttpException if a protocol error occurs
+     */
+    @Nonnull
+    private static ClassicHttpResponse connectionRequested(@Nonnull final ClassicHttpRequest request,
+            @Nonnull final ExecChain.Scope scope, @Nonnull final ExecChain chain) throws IOException, HttpException {
+        scope.clientContext.setAttribute(CandourHttpSupport.CONNECTION_REQUESTED, System.nanoTime());
+        return chain.proceed(request, scope);
+    }
+
+    /**
+     * Add the time waited for the connection, once leased and connected, to the
+     * pool wait of the request.
+     * 
+     * @param request the request
+     * @param scope   the execution scope
+     * @param chain   the rest of the execution chain
+     * @return the response
+     * @throws IOException   if an I/O error occurs
+     * @throws HttpException if a protocol error occurs
+     */
+    @Nonnull
+    private static ClassicHttpResponse connectionLeased(@Nonnull final ClassicHttpRequest request,
+            @Nonnull final ExecChain.Scope scope, @Nonnull final ExecChain chain) throws IOException, HttpException {
+        final HttpContext context = scope.clientContext;
+        final Object requested = context.getAttribute(CandourHttpSupport.CONNECTION_REQUESTED);
+        if (requested instanceof Long) {
+            final Object waited = context.getAttribute(CandourHttpSupport.POOL_WAIT);
+            context.setAttribute(CandourHttpSupport.POOL_WAIT, System.nanoTime() - (Long) requested
+                    + (waited instanceof Long ? (Long) waited : 0L));
+        }
+        return chain.proceed(request, scope);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void destroyInstance(@Nullable final CloseableHttpClient client) throws Exception {
+        removePoolMetrics();
+        if (client != null) {
+            client.close(CloseMode.GRACEFUL);
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.opensaml.security.httpclient.HttpClientSecurityParameters;
+
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponse;
+
+/**
+ * Executes prepared Candour API requests. Used by the actions in place of
+ * their own blocking {@link org.apache.hc.client5.http.classic.HttpClient}
+ * when set.
+ * 
+ * <p>
+ * Implementations must apply the security parameters to the request and check
+ * the TLS credential was evaluated before the response is returned, as
+ * {@link org.opensaml.security.httpclient.HttpClientSecuritySupport} does for
+ * the blocking client.
+ * </p>
+ */
+public interface CandourHttpExecutor {
+
+    /**
+     * Whether the executor applies the given http client security parameters to
+     * the requests and checks the TLS credential evaluation they call for.
+     * 
+     * @param securityParams the optional client security parameters
+     * 
+     * @return whether the security parameters are applied, by default true
+     */
+    default boolean isSupported(@Nullable final HttpClientSecurityParameters securityParams) {
+        return true;
+    }
+
+    /**
+     * Execute the request and produce the response with the given handler.
+     * 
+     * @param request         the prepared HTTP request
+     * @param securityParams  the optional client security parameters
+     * @param responseHandler the handler producing the response
+     * 
+     * @return the encoded Http response
+     * 
+     * @throws IOException if there is an error producing a response
+     */
+    @Nullable
+    default CandourResponse execute(@Nonnull ClassicHttpRequest request,
+            @Nullable HttpClientSecurityParameters securityParams,
+            @Nonnull HttpClientResponseHandler<CandourResponse> responseHandler) throws IOException {
+        return execute(request, securityParams, null, responseHandler);
+    }
+
+    /**
+     * Execute the request and produce the response with the given handler,
+     * waiting for the response for at most the given time.
+     * 
+     * @param request         the prepared HTTP request
+     * @param securityParams  the optional client security parameters
+     * @param timeout         the optional time to wait, if shorter than the
+     *                        timeout of the executor
+     * @param responseHandler the handler producing the response
+     * 
+     * @return the encoded Http response
+     * 
+     * @throws IOException if there is an error producing a response
+     */
+    @Nullable
+    CandourResponse execute(@Nonnull ClassicHttpRequest request, @Nullable HttpClientSecurityParameters securityParams,
+            @Nullable Duration timeout, @Nonnull HttpClientResponseHandler<CandourResponse> responseHandler)
+            throws IOException;
+
+}
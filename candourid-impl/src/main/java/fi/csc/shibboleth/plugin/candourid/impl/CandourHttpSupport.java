@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.client5.http.config.Configurable;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.opensaml.security.httpclient.HttpClientSecurityParameters;
+import org.opensaml.security.httpclient.HttpClientSecuritySupport;
+
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponse;
+import net.shibboleth.shared.logic.Constraint;
+
+/**
+ * Support for executing Candour API requests with the security parameters
+ * applied and the TLS trust evaluation checked.
+ * 
+ * <p>
+ * With a client of {@link CandourHttpClientFactoryBean}, the time the last
+ * request of the calling thread waited for a connection is kept for the
+ * {@link CandourApiCallEvent} of the call.
+ * </p>
+ */
+public final class CandourHttpSupport {
+
+    /** Context attribute of the time a connection was requested, in nanoseconds. */
+    @Nonnull
+    static final String CONNECTION_REQUESTED = "fi.csc.shibboleth.plugin.candourid.connectionRequested";
+
+    /** Context attribute of the total time waited for a connection, in nanoseconds. */
+    @Nonnull
+    static final String POOL_WAIT = "fi.csc.shibboleth.plugin.candourid.poolWait";
+
+    /** Time the last request of the thread waited for a connection, -1 if unknown. */
+    @Nonnull
+    private static final ThreadLocal<long[]> LAST_POOL_WAIT = ThreadLocal.withInitial(() -> new long[] {-1});
+
+    /** Constructor. */
+    private CandourHttpSupport() {
+    }
+
+    /**
+     * Performs a call to an Http endpoint using the given HttpClient,
+     * HttpClientResponseHandler, and security parameters.
+     * 
+     * @param httpClient      the client to use
+     * @param securityParams  the optional client security parameters
+     * @param request         the prepared HTTP request
+     * @param responseHandler the handler producing the response
+     * 
+     * @return the encoded Http response.
+     * 
+     * @throws IOException if there is an error producing a response
+     */
+    @Nullable
+    public static CandourResponse execute(@Nonnull final HttpClient httpClient,
+            @Nullable final HttpClientSecurityParameters securityParams, @Nonnull final ClassicHttpRequest request,
+            @Nonnull final HttpClientResponseHandler<CandourResponse> responseHandler) throws IOException {
+        return execute(httpClient, securityParams, request, null, responseHandler);
+    }
+
+    /**
+     * Performs a call to an Http endpoint using the given HttpClient,
+     * HttpClientResponseHandler, and security parameters, waiting for a
+     * connection and for the response for at most the given time.
+     * 
+     * @param httpClient      the client to use
+     * @param securityParams  the optional client security parameters
+     * @param request         the prepared HTTP request
+     * @param timeout         the optional time to wait, shortening the timeouts
+     *                        of the request configuration of the client
+     * @param responseHandler the handler producing the response
+     * 
+     * @return the encoded Http response.
+     * 
+     * @throws IOException if there is an error producing a response
+     */
+    @Nullable
+    public static CandourResponse execute(@Nonnull final HttpClient httpClient,
+            @Nullable final HttpClientSecurityParameters securityParams, @Nonnull final ClassicHttpRequest request,
+            @Nullable final Duration timeout, @Nonnull final HttpClientResponseHandler<CandourResponse> responseHandler)
+            throws IOException {
+
+        Constraint.isNotNull(request, "Request can not be null");
+        Constraint.isNotNull(responseHandler, "Response handler can not be null");
+        final HttpClientContext clientContext = HttpClientContext.create();
+        assert clientContext != null;
+        HttpClientSecuritySupport.marshalSecurityParameters(clientContext, securityParams, true);
+        HttpClientSecuritySupport.addDefaultTLSTrustEngineCriteria(clientContext, request);
+        applyTimeout(clientContext, getDefaultRequestConfig(httpClient), timeout);
+        final CandourResponse candourResponse;
+        try {
+            candourResponse = httpClient.execute(request, clientContext, responseHandler);
+        } finally {
+            final Object poolWait = clientContext.getAttribute(POOL_WAIT);
+            if (poolWait instanceof Long) {
+                LAST_POOL_WAIT.get()[0] = (Long) poolWait;
+            }
+        }
+        final String scheme = request.getScheme();
+        assert scheme != null;
+        HttpClientSecuritySupport.checkTLSCredentialEvaluated(clientContext, scheme);
+        return candourResponse;
+
+    }
+
+    /**
+     * Get and clear the time the last request executed by the calling thread
+     * waited for a connection of the pool.
+     * 
+     * @return time waited in nanoseconds, -1 if unknown
+     */
+    public static long resetPoolWait() {
+        final long[] poolWait = LAST_POOL_WAIT.get();
+        final long value = poolWait[0];
+        poolWait[0] = -1;
+        return value;
+    }
+
+    /**
+     * Get the default request configuration of a client, if the client exposes
+     * it.
+     * 
+     * @param client the client
+     * 
+     * @return the default request configuration, null if not known
+     */
+    @Nullable
+    public static RequestConfig getDefaultRequestConfig(@Nullable final Object client) {
+        return client instanceof Configurable ? ((Configurable) client).getConfig() : null;
+    }
+
+    /**
+     * Build the request configuration waiting for a connection and for the
+     * response for at most the given times, redirects disabled.
+     * 
+     * @param connectionRequestTimeout the time to wait for a connection
+     * @param responseTimeout          the time to wait for the response
+     * 
+     * @return the request configuration
+     */
+    @Nonnull
+    public static RequestConfig buildRequestConfig(@Nonnull final Duration connectionRequestTimeout,
+            @Nonnull final Duration responseTimeout) {
+        return RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectionRequestTimeout.toMillis()))
+                .setResponseTimeout(Timeout.ofMilliseconds(responseTimeout.toMillis()))
+                .setRedirectsEnabled(false)
+                .build();
+    }
+
+    /**
+     * Limit the time waiting for a connection and for the response of the request
+     * executed with the context. The default request configuration of the client
+     * is kept otherwise, and its timeouts are only shortened.
+     * 
+     * @param clientContext the client context of the request
+     * @param defaults      the optional default request configuration of the
+     *                      client
+     * @param timeout       the optional time to wait
+     */
+    public static void applyTimeout(@Nonnull final HttpClientContext clientContext,
+            @Nullable final RequestConfig defaults, @Nullable final Duration timeout) {
+        if (timeout != null) {
+            final Timeout wait = Timeout.ofMilliseconds(Math.max(1, timeout.toMillis()));
+            final RequestConfig config = defaults != null ? defaults : RequestConfig.DEFAULT;
+            clientContext.setRequestConfig(RequestConfig.copy(config)
+                    .setConnectionRequestTimeout(min(config.getConnectionRequestTimeout(), wait))
+                    .setResponseTimeout(min(config.getResponseTimeout(), wait))
+                    .build());
+        }
+    }
+
+    /**
+     * Get the shorter of a configured timeout and the time remaining.
+     * 
+     * @param configured the optional configured timeout, disabled if not positive
+     * @param remaining  the time remaining
+     * 
+     * @return the shorter timeout
+     */
+    @Nonnull
+    private static Timeout min(@Nullable final Timeout configured, @Nonnull final Timeout remaining) {
+        return TimeValue.isPositive(configured) && configured.toMilliseconds() < remaining.toMilliseconds()
+                ? configured : remaining;
+    }
+
+}
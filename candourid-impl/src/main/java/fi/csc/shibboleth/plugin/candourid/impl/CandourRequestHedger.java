@@ -0,0 +1,392 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
+import org.opensaml.core.metrics.MetricsSupport;
+import org.slf4j.Logger;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+
+import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
+import net.shibboleth.shared.annotation.constraint.ThreadSafeAfterInit;
+import net.shibboleth.shared.component.AbstractInitializableComponent;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.logic.Constraint;
+import net.shibboleth.shared.primitive.LoggerFactory;
+
+/**
+ * Hedges idempotent Candour API requests.
+ * 
+ * <p>
+ * The request is sent on a worker thread. If it has not completed within the
+ * hedge delay, a copy of it is sent as a second attempt, typically on another
+ * pooled connection, and the response of whichever attempt succeeds first is
+ * used. The other attempt is cancelled. Hedges are limited by a budget: each
+ * request earns the configured percentage of a hedge up to a reserve of
+ * hedges, and each hedge spends one, capping the extra load to the percentage
+ * over time.
+ * </p>
+ * 
+ * <p>
+ * The attempts run on a bounded pool of threads. Once all the threads are
+ * busy, requests are executed on the calling thread without hedging.
+ * </p>
+ * 
+ * <p>
+ * Counters of the requests, hedges, hedges denied by the budget, requests
+ * not hedged for lack of threads and hedges answering first are registered under {@value #METRIC_PREFIX}.
+ * </p>
+ */
+@ThreadSafeAfterInit
+public class CandourRequestHedger extends AbstractInitializableComponent {
+
+    /** Prefix of the metrics. */
+    @Nonnull
+    public static final String METRIC_PREFIX = "fi.csc.shibboleth.plugin.candourid.hedge";
+
+    /** Budget units of one hedge. */
+    private static final long HEDGE_COST = 1000;
+
+    /** Class logger. */
+    @Nonnull
+    private final Logger log = LoggerFactory.getLogger(CandourRequestHedger.class);
+
+    /** Delay after which the second attempt is sent. */
+    @Nonnull
+    private Duration hedgeDelay = Duration.ofSeconds(2);
+
+    /** Hedges earned by a request in percent. */
+    private int budgetPercent = 10;
+
+    /** Maximum number of hedges saved in the budget. */
+    private int budgetReserve = 10;
+
+    /** How long to wait for the attempts in total. */
+    @Nonnull
+    private Duration timeout = Duration.ofSeconds(60);
+
+    /** Maximum number of threads running the attempts. */
+    private int maxThreads = 64;
+
+    /** Budget in units of {@link #HEDGE_COST} per hedge. */
+    @Nonnull
+    private final AtomicLong budget = new AtomicLong();
+
+    /** Threads running the attempts. */
+    @NonnullAfterInit
+    private ExecutorService executor;
+
+    /** Requests executed. */
+    @NonnullAfterInit
+    private Counter requests;
+
+    /** Hedges sent. */
+    @NonnullAfterInit
+    private Counter hedged;
+
+    /** Hedges denied by the budget. */
+    @NonnullAfterInit
+    private Counter denied;
+
+    /** Requests not hedged for lack of threads. */
+    @NonnullAfterInit
+    private Counter saturated;
+
+    /** Hedges succeeding before the first attempt. */
+    @NonnullAfterInit
+    private Counter hedgeWins;
+
+    /**
+     * Set delay after which the second attempt is sent. Set it to about the 95th
+     * percentile of the request latency.
+     * 
+     * @param delay delay after which the second attempt is sent
+     */
+    public void setHedgeDelay(@Nonnull final Duration delay) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(delay, "Hedge delay cannot be null");
+        Constraint.isFalse(delay.isNegative() || delay.isZero(), "Hedge delay must be positive");
+        hedgeDelay = delay;
+    }
+
+    /**
+     * Set hedges earned by a request in percent, the maximum extra load over
+     * time.
+     * 
+     * @param percent hedges earned by a request in percent
+     */
+    public void setBudgetPercent(final int percent) {
+        checkSetterPreconditions();
+        Constraint.isTrue(percent >= 0 && percent <= 100, "Budget percent must be between 0 and 100");
+        budgetPercent = percent;
+    }
+
+    /**
+     * Set maximum number of hedges saved in the budget, the maximum burst of
+     * hedges.
+     * 
+     * @param reserve maximum number of hedges saved
+     */
+    public void setBudgetReserve(final int reserve) {
+        checkSetterPreconditions();
+        budgetReserve = (int) Constraint.isGreaterThan(0, reserve, "Budget reserve must be greater than 0");
+    }
+
+    /**
+     * Set maximum number of threads running the attempts.
+     * 
+     * @param max maximum number of threads
+     */
+    public void setMaxThreads(final int max) {
+        checkSetterPreconditions();
+        maxThreads = (int) Constraint.isGreaterThan(0, max, "Maximum threads must be greater than 0");
+    }
+
+    /**
+     * Set how long to wait for the attempts in total.
+     * 
+     * @param duration how long to wait for the attempts
+     */
+    public void setTimeout(@Nonnull final Duration duration) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(duration, "Timeout cannot be null");
+        Constraint.isFalse(duration.isNegative() || duration.isZero(), "Timeout must be positive");
+        timeout = duration;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doInitialize() throws ComponentInitializationException {
+        super.doInitialize();
+        budget.set(budgetReserve * HEDGE_COST);
+        final AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(0, maxThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "candourid-hedge-" + count.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        final MetricRegistry registry = MetricsSupport.getMetricRegistry();
+        requests = registry.counter(MetricRegistry.name(METRIC_PREFIX, "requests"));
+        hedged = registry.counter(MetricRegistry.name(METRIC_PREFIX, "hedged"));
+        denied = registry.counter(MetricRegistry.name(METRIC_PREFIX, "denied"));
+        saturated = registry.counter(MetricRegistry.name(METRIC_PREFIX, "saturated"));
+        hedgeWins = registry.counter(MetricRegistry.name(METRIC_PREFIX, "hedgeWins"));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doDestroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        super.doDestroy();
+    }
+
+    /**
+     * Execute an idempotent request, hedging it if it is slow to complete.
+     * 
+     * @param <T>     type of the result
+     * @param request the request, copied for the second attempt
+     * @param attempt executes an attempt of the request
+     * @return the result of the first successful attempt
+     * @throws IOException if all attempts fail or time out
+     */
+    public <T> T execute(@Nonnull final ClassicHttpRequest request, @Nonnull final CandourHttpAttempt<T> attempt)
+            throws IOException {
+        return execute(request, attempt, null);
+    }
+
+    /**
+     * Execute an idempotent request, hedging it if it is slow to complete, within
+     * the time available to the caller.
+     * 
+     * @param <T>     type of the result
+     * @param request the request, copied for the second attempt
+     * @param attempt executes an attempt of the request
+     * @param budget  the optional time available, if shorter than the timeout
+     * @return the result of the first successful attempt
+     * @throws IOException if all attempts fail or time out
+     */
+    public <T> T execute(@Nonnull final ClassicHttpRequest request, @Nonnull final CandourHttpAttempt<T> attempt,
+            @Nullable final Duration budget) throws IOException {
+        checkComponentActive();
+        requests.inc();
+        deposit();
+        final Duration wait = budget != null && budget.compareTo(timeout) < 0 ? budget : timeout;
+        final long deadline = System.nanoTime() + wait.toNanos();
+        final CompletionService<T> completion = new ExecutorCompletionService<>(executor);
+        final Future<T> first;
+        try {
+            first = completion.submit(() -> attempt.execute(request));
+        } catch (final RejectedExecutionException e) {
+            saturated.inc();
+            log.debug("No thread available for hedging, executing Candour request to {} unhedged",
+                    request.getRequestUri());
+            return attempt.execute(request);
+        }
+        Future<T> second = null;
+        try {
+            Future<T> done = completion.poll(Math.min(hedgeDelay.toNanos(), wait.toNanos()), TimeUnit.NANOSECONDS);
+            if (done == null) {
+                if (withdraw()) {
+                    log.debug("Candour request to {} not completed in {}, hedging it", request.getRequestUri(),
+                            hedgeDelay);
+                    final ClassicHttpRequest copy = ClassicRequestBuilder.copy(request).build();
+                    try {
+                        second = completion.submit(() -> attempt.execute(copy));
+                        hedged.inc();
+                    } catch (final RejectedExecutionException e) {
+                        // Hedge not sent, returned to the budget
+                        refund();
+                        saturated.inc();
+                    }
+                } else {
+                    denied.inc();
+                }
+                done = take(completion, deadline);
+            }
+            ExecutionException failure = null;
+            for (int pending = second != null ? 2 : 1; pending > 0; pending--) {
+                try {
+                    final T result = done.get();
+                    if (done == second) {
+                        hedgeWins.inc();
+                    }
+                    return result;
+                } catch (final ExecutionException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                    if (pending > 1) {
+                        done = take(completion, deadline);
+                    }
+                }
+            }
+            throw unwrap(failure);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for Candour API response");
+        } finally {
+            first.cancel(true);
+            if (second != null) {
+                second.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Take the next completed attempt.
+     * 
+     * @param <T>        type of the result
+     * @param completion the completion service of the attempts
+     * @param deadline   deadline of the attempts in nanoseconds
+     * @return the completed attempt
+     * @throws InterruptedException   if interrupted while waiting
+     * @throws SocketTimeoutException if no attempt completes before the deadline
+     */
+    @Nonnull
+    private <T> Future<T> take(@Nonnull final CompletionService<T> completion, final long deadline)
+            throws InterruptedException, SocketTimeoutException {
+        final Future<T> done = completion.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        if (done == null) {
+            throw new SocketTimeoutException("Candour API request timed out, hedged attempts not completed");
+        }
+        return done;
+    }
+
+    /** Add the share of a request to the budget. */
+    private void deposit() {
+        final long max = budgetReserve * HEDGE_COST;
+        final long share = budgetPercent * HEDGE_COST / 100;
+        budget.getAndUpdate(current -> Math.min(max, current + share));
+    }
+
+    /** Return an unsent hedge to the budget. */
+    private void refund() {
+        final long max = budgetReserve * HEDGE_COST;
+        budget.getAndUpdate(current -> Math.min(max, current + HEDGE_COST));
+    }
+
+    /**
+     * Get the number of hedges available in the budget.
+     * 
+     * @return number of hedges available
+     */
+    int getAvailableHedges() {
+        return (int) (budget.get() / HEDGE_COST);
+    }
+
+    /**
+     * Spend a hedge from the budget.
+     * 
+     * @return whether the budget allowed a hedge
+     */
+    private boolean withdraw() {
+        long current;
+        do {
+            current = budget.get();
+            if (current < HEDGE_COST) {
+                return false;
+            }
+        } while (!budget.compareAndSet(current, current - HEDGE_COST));
+        return true;
+    }
+
+    /**
+     * Get the exception failing an attempt.
+     * 
+     * @param e the exception of the attempt
+     * @return the exception to throw
+     */
+    @Nonnull
+    private static IOException unwrap(@Nonnull final ExecutionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IOException(cause);
+    }
+
+}
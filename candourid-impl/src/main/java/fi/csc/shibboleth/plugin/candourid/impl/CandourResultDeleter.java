@@ -0,0 +1,617 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.opensaml.core.metrics.MetricsSupport;
+import org.opensaml.security.httpclient.HttpClientSecurityParameters;
+import org.slf4j.Logger;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourDeleteRequest;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourHmacSigner;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponse;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponseHandler;
+import fi.csc.shibboleth.plugin.candourid.transport.CandourTransport;
+import fi.csc.shibboleth.plugin.candourid.transport.impl.HttpClientCandourTransport;
+import fi.csc.shibboleth.plugin.candourid.transport.impl.MeteredCandourTransport;
+import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
+import net.shibboleth.shared.annotation.constraint.ThreadSafeAfterInit;
+import net.shibboleth.shared.component.AbstractInitializableComponent;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.logic.Constraint;
+import net.shibboleth.shared.primitive.LoggerFactory;
+
+/**
+ * Deletes Candour verification results in the background.
+ * 
+ * <p>
+ * Session ids are put to a bounded queue drained in batches by a fixed number
+ * of worker threads. Deletes failing for an I/O error, 429 or a 5xx status are
+ * retried with exponential backoff. Session ids not fitting the queue are
+ * dropped and counted. On {@link #destroy()} new session ids are rejected and
+ * the queue is drained for at most the configured drain timeout.
+ * </p>
+ * 
+ * <p>
+ * Metrics are registered under {@value #METRIC_PREFIX}, the calls themselves
+ * are recorded by a {@link MeteredCandourTransport}.
+ * </p>
+ */
+@ThreadSafeAfterInit
+public class CandourResultDeleter extends AbstractInitializableComponent {
+
+    /** Prefix of the metrics. */
+    @Nonnull
+    public static final String METRIC_PREFIX = "fi.csc.shibboleth.plugin.candourid.delete";
+
+    /** Http status code of too many requests. */
+    private static final int SC_TOO_MANY_REQUESTS = 429;
+
+    /** Http status code of not found. */
+    private static final int SC_NOT_FOUND = 404;
+
+    /** How long an idle worker waits for work before checking for shutdown. */
+    private static final long POLL_MILLIS = 200;
+
+    /** Class logger. */
+    @Nonnull
+    private final Logger log = LoggerFactory.getLogger(CandourResultDeleter.class);
+
+    /** Candour API location. */
+    @NonnullAfterInit
+    private URI candouridURI;
+
+    /** Candour API client public key. */
+    @NonnullAfterInit
+    private String clientPublicKey;
+
+    /** Signer for Candour API client hmac key. */
+    @NonnullAfterInit
+    private CandourHmacSigner hmacSigner;
+
+    /** Http client for contacting the endpoint, required unless a transport is set. */
+    @Nullable
+    private HttpClient httpClient;
+
+    /** HTTP client security parameters. */
+    @Nullable
+    private HttpClientSecurityParameters httpClientSecurityParameters;
+
+    /** Transport of the delete requests. */
+    @NonnullAfterInit
+    private CandourTransport transport;
+
+    /** Capacity of the queue. */
+    private int queueCapacity = 1000;
+
+    /** Number of worker threads. */
+    private int workerCount = 2;
+
+    /** Maximum number of deletes a worker takes from the queue at once. */
+    private int batchSize = 16;
+
+    /** Maximum number of attempts per delete. */
+    private int maxAttempts = 3;
+
+    /** Delay before the first retry, doubled for each further retry. */
+    @Nonnull
+    private Duration retryBackoff = Duration.ofSeconds(1);
+
+    /** How long {@link #destroy()} waits for the queue to drain. */
+    @Nonnull
+    private Duration drainTimeout = Duration.ofSeconds(10);
+
+    /** Queue of pending deletes. */
+    @NonnullAfterInit
+    private BlockingQueue<PendingDelete> queue;
+
+    /** Worker threads. */
+    @Nonnull
+    private final List<Thread> workers = new ArrayList<>();
+
+    /** Scheduler putting retried deletes back to the queue. */
+    @NonnullAfterInit
+    private ScheduledExecutorService retryScheduler;
+
+    /**
+     * Number of deletes queued, taken by workers or waiting for a retry. Counted
+     * before a delete is queued and until it is done, never while it moves
+     * between the queue, a worker and the retry scheduler.
+     */
+    @Nonnull
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /** Whether new session ids are accepted. */
+    private volatile boolean accepting;
+
+    /** Whether the workers keep running. */
+    private volatile boolean running;
+
+    /** Session ids accepted to the queue. */
+    @NonnullAfterInit
+    private Counter enqueued;
+
+    /** Session ids dropped for a full queue or shutdown. */
+    @NonnullAfterInit
+    private Counter dropped;
+
+    /** Deletes that succeeded. */
+    @NonnullAfterInit
+    private Counter succeeded;
+
+    /** Deletes retried. */
+    @NonnullAfterInit
+    private Counter retried;
+
+    /** Deletes that failed for good. */
+    @NonnullAfterInit
+    private Counter failed;
+
+    /**
+     * Set Candour API location.
+     * 
+     * @param uri Candour API location
+     * @throws URISyntaxException if the location is not a valid uri
+     */
+    public void setCandouridURI(@Nonnull final String uri) throws URISyntaxException {
+        checkSetterPreconditions();
+        candouridURI = new URI(Constraint.isNotNull(uri, "CandouridURI cannot be null"));
+    }
+
+    /**
+     * Set Candour API client public key.
+     * 
+     * @param publicKey Candour API client public key
+     */
+    public void setClientPublicKey(@Nonnull final String publicKey) {
+        checkSetterPreconditions();
+        clientPublicKey = Constraint.isNotNull(publicKey, "ClientPublicKey cannot be null");
+    }
+
+    /**
+     * Set signer for Candour API client hmac key.
+     * 
+     * @param signer signer for Candour API client hmac key
+     */
+    public void setHmacSigner(@Nonnull final CandourHmacSigner signer) {
+        checkSetterPreconditions();
+        hmacSigner = Constraint.isNotNull(signer, "HmacSigner cannot be null");
+    }
+
+    /**
+     * Set the {@link HttpClient} to use.
+     * 
+     * @param client client to use
+     */
+    public void setHttpClient(@Nonnull final HttpClient client) {
+        checkSetterPreconditions();
+        httpClient = Constraint.isNotNull(client, "HttpClient cannot be null");
+    }
+
+    /**
+     * Set the optional client security parameters.
+     * 
+     * @param params the new client security parameters
+     */
+    public void setHttpClientSecurityParameters(@Nullable final HttpClientSecurityParameters params) {
+        checkSetterPreconditions();
+        httpClientSecurityParameters = params;
+    }
+
+    /**
+     * Set the optional transport of the delete requests. If set, requests are
+     * carried by it instead of the {@link HttpClient}, which is then not required.
+     * 
+     * @param candourTransport transport of the delete requests
+     */
+    public void setTransport(@Nullable final CandourTransport candourTransport) {
+        checkSetterPreconditions();
+        transport = candourTransport;
+    }
+
+    /**
+     * Set capacity of the queue.
+     * 
+     * @param capacity capacity of the queue
+     */
+    public void setQueueCapacity(final int capacity) {
+        checkSetterPreconditions();
+        queueCapacity = (int) Constraint.isGreaterThan(0, capacity, "Queue capacity must be greater than 0");
+    }
+
+    /**
+     * Set number of worker threads.
+     * 
+     * @param count number of worker threads
+     */
+    public void setWorkerCount(final int count) {
+        checkSetterPreconditions();
+        workerCount = (int) Constraint.isGreaterThan(0, count, "Worker count must be greater than 0");
+    }
+
+    /**
+     * Set maximum number of deletes a worker takes from the queue at once.
+     * 
+     * @param size maximum number of deletes a worker takes at once
+     */
+    public void setBatchSize(final int size) {
+        checkSetterPreconditions();
+        batchSize = (int) Constraint.isGreaterThan(0, size, "Batch size must be greater than 0");
+    }
+
+    /**
+     * Set maximum number of attempts per delete.
+     * 
+     * @param attempts maximum number of attempts per delete
+     */
+    public void setMaxAttempts(final int attempts) {
+        checkSetterPreconditions();
+        maxAttempts = (int) Constraint.isGreaterThan(0, attempts, "Maximum attempts must be greater than 0");
+    }
+
+    /**
+     * Set delay before the first retry. The delay is doubled for each further
+     * retry.
+     * 
+     * @param backoff delay before the first retry
+     */
+    public void setRetryBackoff(@Nonnull final Duration backoff) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(backoff, "Retry backoff cannot be null");
+        Constraint.isFalse(backoff.isNegative(), "Retry backoff cannot be negative");
+        retryBackoff = backoff;
+    }
+
+    /**
+     * Set how long {@link #destroy()} waits for the queue to drain.
+     * 
+     * @param timeout how long to wait for the queue to drain
+     */
+    public void setDrainTimeout(@Nonnull final Duration timeout) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(timeout, "Drain timeout cannot be null");
+        Constraint.isFalse(timeout.isNegative(), "Drain timeout cannot be negative");
+        drainTimeout = timeout;
+    }
+
+    /**
+     * Get number of deletes queued or in progress.
+     * 
+     * @return number of deletes queued or in progress
+     */
+    public int getPending() {
+        return pending.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doInitialize() throws ComponentInitializationException {
+        super.doInitialize();
+        if (transport == null) {
+            if (httpClient == null) {
+                throw new ComponentInitializationException("httpClient cannot be null");
+            }
+            transport = new HttpClientCandourTransport(httpClient, httpClientSecurityParameters);
+        }
+        if (!transport.isSupported(httpClientSecurityParameters)) {
+            throw new ComponentInitializationException(
+                    "Transport does not apply the configured http client security parameters");
+        }
+        if (!(transport instanceof MeteredCandourTransport)) {
+            transport = new MeteredCandourTransport(transport);
+        }
+        if (candouridURI == null) {
+            throw new ComponentInitializationException("CandouridURI cannot be null");
+        }
+        if (clientPublicKey == null) {
+            throw new ComponentInitializationException("ClientPublicKey cannot be null");
+        }
+        if (hmacSigner == null) {
+            throw new ComponentInitializationException("HmacSigner cannot be null");
+        }
+        final MetricRegistry registry = MetricsSupport.getMetricRegistry();
+        enqueued = registry.counter(MetricRegistry.name(METRIC_PREFIX, "enqueued"));
+        dropped = registry.counter(MetricRegistry.name(METRIC_PREFIX, "dropped"));
+        succeeded = registry.counter(MetricRegistry.name(METRIC_PREFIX, "succeeded"));
+        retried = registry.counter(MetricRegistry.name(METRIC_PREFIX, "retried"));
+        failed = registry.counter(MetricRegistry.name(METRIC_PREFIX, "failed"));
+        registry.remove(MetricRegistry.name(METRIC_PREFIX, "pending"));
+        registry.register(MetricRegistry.name(METRIC_PREFIX, "pending"), (Gauge<Integer>) this::getPending);
+
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "candourid-delete-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        accepting = true;
+        for (int i = 0; i < workerCount; i++) {
+            final Thread worker = new Thread(this::work, "candourid-delete-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doDestroy() {
+        accepting = false;
+        final long deadline = System.nanoTime() + drainTimeout.toNanos();
+        try {
+            while (getPending() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(POLL_MILLIS / 4);
+            }
+            running = false;
+            for (final Thread worker : workers) {
+                worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        running = false;
+        for (final Thread worker : workers) {
+            worker.interrupt();
+        }
+        workers.clear();
+        retryScheduler.shutdownNow();
+        final int abandoned = getPending();
+        if (abandoned > 0) {
+            log.warn("Abandoned {} Candour result deletes on shutdown", abandoned);
+            dropped.inc(abandoned);
+        }
+        MetricsSupport.getMetricRegistry().remove(MetricRegistry.name(METRIC_PREFIX, "pending"));
+        super.doDestroy();
+    }
+
+    /**
+     * Queue the result of the session for deletion.
+     * 
+     * @param sessionId Candour session id
+     * @return whether the session id was queued
+     */
+    public boolean enqueue(@Nonnull final String sessionId) {
+        return enqueue(sessionId, null);
+    }
+
+    /**
+     * Queue the result of the session for deletion, running the given callback
+     * once the result is deleted. The callback is not run for a delete that
+     * fails, runs out of attempts or is abandoned on shutdown.
+     * 
+     * @param sessionId Candour session id
+     * @param onDeleted optional callback run by the worker once the result is
+     *                      deleted or found not to exist
+     * @return whether the session id was queued
+     */
+    public boolean enqueue(@Nonnull final String sessionId, @Nullable final Runnable onDeleted) {
+        checkComponentActive();
+        Constraint.isNotNull(sessionId, "Session id cannot be null");
+        if (!accepting) {
+            dropped.inc();
+            log.warn("Candour result deleter is shutting down, result of session {} is not deleted", sessionId);
+            return false;
+        }
+        pending.incrementAndGet();
+        if (queue.offer(new PendingDelete(sessionId, 1, onDeleted))) {
+            enqueued.inc();
+            return true;
+        }
+        pending.decrementAndGet();
+        dropped.inc();
+        log.warn("Candour result delete queue is full, result of session {} is not deleted", sessionId);
+        return false;
+    }
+
+    /**
+     * Worker loop.
+     */
+    private void work() {
+        final List<PendingDelete> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                final PendingDelete first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                for (final PendingDelete delete : batch) {
+                    try {
+                        process(delete);
+                    } catch (final RuntimeException e) {
+                        log.error("Deleting Candour result of session {} failed", delete.sessionId, e);
+                        failed.inc();
+                    } finally {
+                        pending.decrementAndGet();
+                    }
+                }
+                batch.clear();
+            } catch (final InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Delete the result of the session right away, without retries.
+     * 
+     * @param sessionId Candour session id
+     * @return whether the result was deleted or did not exist
+     */
+    public boolean deleteNow(@Nonnull final String sessionId) {
+        checkComponentActive();
+        Constraint.isNotNull(sessionId, "Session id cannot be null");
+        final Outcome outcome = attempt(sessionId);
+        if (outcome == Outcome.DELETED) {
+            succeeded.inc();
+            return true;
+        }
+        failed.inc();
+        return false;
+    }
+
+    /**
+     * Send the delete request, retrying if it failed for a transient reason.
+     * 
+     * @param delete pending delete
+     */
+    private void process(@Nonnull final PendingDelete delete) {
+        switch (attempt(delete.sessionId)) {
+            case DELETED:
+                succeeded.inc();
+                if (delete.onDeleted != null) {
+                    try {
+                        delete.onDeleted.run();
+                    } catch (final RuntimeException e) {
+                        log.warn("Callback of the deleted Candour result of session {} failed", delete.sessionId,
+                                e);
+                    }
+                }
+                break;
+            case RETRY:
+                retry(delete);
+                break;
+            default:
+                failed.inc();
+        }
+    }
+
+    /**
+     * Send the delete request.
+     * 
+     * @param sessionId Candour session id
+     * @return outcome of the request
+     */
+    @Nonnull
+    private Outcome attempt(@Nonnull final String sessionId) {
+        final CandourDeleteRequest message = new CandourDeleteRequest(candouridURI, clientPublicKey, hmacSigner);
+        message.setPayload(sessionId);
+        final CandourResponse response;
+        try {
+            response = transport.deleteResult(message.toHttpRequest(), null, new CandourResponseHandler());
+        } catch (final IOException e) {
+            log.debug("Candour delete of session {} failed", sessionId, e);
+            return Outcome.RETRY;
+        } catch (final InvalidKeyException | NoSuchAlgorithmException | IllegalStateException
+                | URISyntaxException e) {
+            log.error("Candour delete request of session {} cannot be built", sessionId, e);
+            return Outcome.FAILED;
+        }
+        if (response.indicateSuccess() || response.getCode() == SC_NOT_FOUND) {
+            return Outcome.DELETED;
+        } else if (response.getCode() == SC_TOO_MANY_REQUESTS || response.getCode() >= 500) {
+            log.debug("Candour delete of session {} failed with status code {}", sessionId, response.getCode());
+            return Outcome.RETRY;
+        }
+        log.error("Candour delete response indicates error. Status code {}, payload {}", response.getCode(),
+                response.getPayload());
+        return Outcome.FAILED;
+    }
+
+    /**
+     * Schedule the delete to be queued again after a backoff, unless out of
+     * attempts.
+     * 
+     * @param delete pending delete
+     */
+    private void retry(@Nonnull final PendingDelete delete) {
+        if (delete.attempt >= maxAttempts) {
+            log.error("Candour delete of session {} failed after {} attempts", delete.sessionId, delete.attempt);
+            failed.inc();
+            return;
+        }
+        retried.inc();
+        final long delay = retryBackoff.toMillis() << Math.min(delete.attempt - 1, 20);
+        pending.incrementAndGet();
+        try {
+            retryScheduler.schedule(() -> {
+                if (!queue.offer(new PendingDelete(delete.sessionId, delete.attempt + 1,
+                        delete.onDeleted))) {
+                    pending.decrementAndGet();
+                    dropped.inc();
+                    log.warn("Candour result delete queue is full, retry of session {} dropped", delete.sessionId);
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (final RuntimeException e) {
+            // Scheduler is shut down
+            pending.decrementAndGet();
+            dropped.inc();
+        }
+    }
+
+    /** Outcome of a delete request. */
+    private enum Outcome {
+        /** Result was deleted or did not exist. */
+        DELETED,
+        /** Request failed for a transient reason. */
+        RETRY,
+        /** Request failed for good. */
+        FAILED
+    }
+
+    /** Delete waiting in the queue. */
+    private static final class PendingDelete {
+
+        /** Candour session id. */
+        @Nonnull
+        private final String sessionId;
+
+        /** Number of the attempt, starting from 1. */
+        private final int attempt;
+
+        /** Callback run once the result is deleted. */
+        @Nullable
+        private final Runnable onDeleted;
+
+        /**
+         * Constructor.
+         * 
+         * @param id       Candour session id
+         * @param count    number of the attempt
+         * @param callback callback run once the result is deleted
+         */
+        private PendingDelete(@Nonnull final String id, final int count, @Nullable final Runnable callback) {
+            sessionId = id;
+            attempt = count;
+            onDeleted = callback;
+        }
+    }
+
+}
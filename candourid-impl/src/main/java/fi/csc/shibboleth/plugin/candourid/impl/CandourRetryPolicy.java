@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ConnectionClosedException;
+import org.apache.hc.core5.http.NoHttpResponseException;
+import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
+import org.opensaml.core.metrics.MetricsSupport;
+import org.slf4j.Logger;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponse;
+import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
+import net.shibboleth.shared.annotation.constraint.ThreadSafeAfterInit;
+import net.shibboleth.shared.collection.CollectionSupport;
+import net.shibboleth.shared.component.AbstractInitializableComponent;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.logic.Constraint;
+import net.shibboleth.shared.primitive.LoggerFactory;
+
+/**
+ * Retry policy of idempotent Candour API requests.
+ * 
+ * <p>
+ * An attempt is retried if it fails with one of the retryable I/O exceptions
+ * or the response has one of the retryable status codes, up to the maximum
+ * number of attempts. Retries are delayed by an exponentially growing backoff
+ * with full jitter, i.e. a random delay between zero and the backoff, and are
+ * not made if the delay would pass the deadline of the request. The response
+ * or the exception of the last attempt is returned once retries are spent.
+ * </p>
+ * 
+ * <p>
+ * Counters of the retries and the outcomes of the retried requests are
+ * registered under {@value #METRIC_PREFIX}.
+ * </p>
+ */
+@ThreadSafeAfterInit
+public class CandourRetryPolicy extends AbstractInitializableComponent {
+
+    /** Prefix of the metrics. */
+    @Nonnull
+    public static final String METRIC_PREFIX = "fi.csc.shibboleth.plugin.candourid.retry";
+
+    /** Class logger. */
+    @Nonnull
+    private final Logger log = LoggerFactory.getLogger(CandourRetryPolicy.class);
+
+    /** Maximum number of attempts, including the first one. */
+    private int maxAttempts = 3;
+
+    /** Backoff before the first retry. */
+    @Nonnull
+    private Duration initialBackoff = Duration.ofMillis(200);
+
+    /** Maximum backoff. */
+    @Nonnull
+    private Duration maxBackoff = Duration.ofSeconds(2);
+
+    /** Factor by which the backoff grows for each retry. */
+    private double multiplier = 2.0;
+
+    /** Time after which no more retries are made. */
+    @Nonnull
+    private Duration timeout = Duration.ofSeconds(20);
+
+    /** Status codes of responses to retry. */
+    @Nonnull
+    private Set<Integer> retryableStatuses = CollectionSupport.setOf(429, 502, 503, 504);
+
+    /** Types of the exceptions to retry. */
+    @Nonnull
+    private List<Class<? extends IOException>> retryableExceptions = CollectionSupport.listOf(SocketException.class,
+            SocketTimeoutException.class, NoHttpResponseException.class, ConnectionClosedException.class);
+
+    /** Retries made. */
+    @NonnullAfterInit
+    private Counter retries;
+
+    /** Retried requests succeeding. */
+    @NonnullAfterInit
+    private Counter recovered;
+
+    /** Retried requests failing after the maximum number of attempts. */
+    @NonnullAfterInit
+    private Counter exhausted;
+
+    /** Requests not retried as the backoff would pass the deadline. */
+    @NonnullAfterInit
+    private Counter deadlineExceeded;
+
+    /**
+     * Set maximum number of attempts, including the first one. 1 disables retries.
+     * 
+     * @param attempts maximum number of attempts
+     */
+    public void setMaxAttempts(final int attempts) {
+        checkSetterPreconditions();
+        maxAttempts = (int) Constraint.isGreaterThan(0, attempts, "Max attempts must be greater than 0");
+    }
+
+    /**
+     * Set backoff before the first retry.
+     * 
+     * @param backoff backoff before the first retry
+     */
+    public void setInitialBackoff(@Nonnull final Duration backoff) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(backoff, "Initial backoff cannot be null");
+        Constraint.isFalse(backoff.isNegative(), "Initial backoff cannot be negative");
+        initialBackoff = backoff;
+    }
+
+    /**
+     * Set maximum backoff.
+     * 
+     * @param backoff maximum backoff
+     */
+    public void setMaxBackoff(@Nonnull final Duration backoff) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(backoff, "Max backoff cannot be null");
+        Constraint.isFalse(backoff.isNegative(), "Max backoff cannot be negative");
+        maxBackoff = backoff;
+    }
+
+    /**
+     * Set factor by which the backoff grows for each retry.
+     * 
+     * @param factor factor by which the backoff grows
+     */
+    public void setMultiplier(final double factor) {
+        checkSetterPreconditions();
+        Constraint.isTrue(factor >= 1.0, "Multiplier must be at least 1");
+        multiplier = factor;
+    }
+
+    /**
+     * Set time from the start of the request after which no more retries are
+     * made.
+     * 
+     * @param duration time after which no more retries are made
+     */
+    public void setTimeout(@Nonnull final Duration duration) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(duration, "Timeout cannot be null");
+        Constraint.isFalse(duration.isNegative() || duration.isZero(), "Timeout must be positive");
+        timeout = duration;
+    }
+
+    /**
+     * Set status codes of responses to retry.
+     * 
+     * @param statuses status codes of responses to retry
+     */
+    public void setRetryableStatuses(@Nullable final Collection<Integer> statuses) {
+        checkSetterPreconditions();
+        retryableStatuses = statuses != null ? CollectionSupport.copyToSet(statuses) : CollectionSupport.emptySet();
+    }
+
+    /**
+     * Set types of the exceptions to retry. Subtypes are retried as well.
+     * 
+     * @param exceptions types of the exceptions to retry
+     */
+    public void setRetryableExceptions(@Nullable final Collection<Class<? extends IOException>> exceptions) {
+        checkSetterPreconditions();
+        retryableExceptions = exceptions != null ? CollectionSupport.copyToList(exceptions)
+                : CollectionSupport.emptyList();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doInitialize() throws ComponentInitializationException {
+        super.doInitialize();
+        final MetricRegistry registry = MetricsSupport.getMetricRegistry();
+        retries = registry.counter(MetricRegistry.name(METRIC_PREFIX, "retries"));
+        recovered = registry.counter(MetricRegistry.name(METRIC_PREFIX, "recovered"));
+        exhausted = registry.counter(MetricRegistry.name(METRIC_PREFIX, "exhausted"));
+        deadlineExceeded = registry.counter(MetricRegistry.name(METRIC_PREFIX, "deadlineExceeded"));
+    }
+
+    /**
+     * Execute an idempotent request, retrying it according to the policy.
+     * 
+     * @param request the request, copied for the retries
+     * @param attempt executes an attempt of the request
+     * @return the response of the last attempt
+     * @throws IOException if the last attempt fails
+     */
+    @Nullable
+    public CandourResponse execute(@Nonnull final ClassicHttpRequest request,
+            @Nonnull final CandourHttpAttempt<CandourResponse> attempt) throws IOException {
+        return execute(request, attempt, null);
+    }
+
+    /**
+     * Execute an idempotent request, retrying it according to the policy within
+     * the time available to the caller.
+     * 
+     * @param request the request, copied for the retries
+     * @param attempt executes an attempt of the request
+     * @param budget  the optional time available, if shorter than the timeout
+     * @return the response of the last attempt
+     * @throws IOException if the last attempt fails
+     */
+    @Nullable
+    public CandourResponse execute(@Nonnull final ClassicHttpRequest request,
+            @Nonnull final CandourHttpAttempt<CandourResponse> attempt, @Nullable final Duration budget)
+            throws IOException {
+        checkComponentActive();
+        final long deadline = System.nanoTime()
+                + (budget != null && budget.compareTo(timeout) < 0 ? budget : timeout).toNanos();
+        long backoff = initialBackoff.toNanos();
+        ClassicHttpRequest current = request;
+        for (int attempts = 1;; attempts++) {
+            CandourResponse response = null;
+            IOException failure = null;
+            try {
+                response = attempt.execute(current);
+            } catch (final IOException e) {
+                if (!isRetryable(e)) {
+                    throw e;
+                }
+                failure = e;
+            }
+            if (failure == null && (response == null || !retryableStatuses.contains(response.getCode()))) {
+                if (attempts > 1) {
+                    recovered.inc();
+                }
+                return response;
+            }
+            if (attempts >= maxAttempts) {
+                exhausted.inc();
+                return respond(response, failure);
+            }
+            final long delay = ThreadLocalRandom.current().nextLong(Math.min(backoff, maxBackoff.toNanos()) + 1);
+            if (System.nanoTime() + delay >= deadline) {
+                deadlineExceeded.inc();
+                return respond(response, failure);
+            }
+            log.debug("Candour request to {} attempt {} failed ({}), retrying in {} ms", request.getRequestUri(),
+                    attempts, failure != null ? failure.toString() : "status " + response.getCode(),
+                    TimeUnit.NANOSECONDS.toMillis(delay));
+            retries.inc();
+            sleep(delay);
+            backoff = (long) Math.min(backoff * multiplier, Long.MAX_VALUE / 2);
+            current = ClassicRequestBuilder.copy(request).build();
+        }
+    }
+
+    /**
+     * Whether the exception is of a retryable type.
+     * 
+     * @param e the exception
+     * @return whether to retry
+     */
+    private boolean isRetryable(@Nonnull final IOException e) {
+        for (final Class<? extends IOException> type : retryableExceptions) {
+            if (type.isInstance(e)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return the response or throw the exception of the last attempt.
+     * 
+     * @param response response of the last attempt
+     * @param failure  exception of the last attempt
+     * @return the response
+     * @throws IOException the exception of the last attempt
+     */
+    @Nullable
+    private static CandourResponse respond(@Nullable final CandourResponse response,
+            @Nullable final IOException failure) throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        return response;
+    }
+
+    /**
+     * Wait before the retry.
+     * 
+     * @param nanos time to wait in nanoseconds
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    private static void sleep(final long nanos) throws InterruptedIOException {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting to retry Candour API request");
+        }
+    }
+
+}
@@ -0,0 +1,772 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.opensaml.core.metrics.MetricsSupport;
+import org.opensaml.storage.StorageRecord;
+import org.opensaml.storage.StorageService;
+import org.opensaml.storage.VersionMismatchException;
+import org.slf4j.Logger;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+
+import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
+import net.shibboleth.shared.annotation.constraint.ThreadSafeAfterInit;
+import net.shibboleth.shared.component.AbstractInitializableComponent;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.logic.Constraint;
+import net.shibboleth.shared.primitive.LoggerFactory;
+
+/**
+ * Ledger of Candour verification sessions created but not yet finished, kept
+ * in a {@link StorageService}.
+ * 
+ * <p>
+ * Recording a session only notes it in memory, the login does not wait for
+ * the storage service. A background task flushes the noted sessions: each is
+ * stored as a record of its own and indexed to a time bucket of its validity
+ * end by a page record listing the session ids of the flush. Pages are
+ * written once, with numbers claimed by creating the record, so concurrent
+ * nodes never update the same record and the size of a record is bounded. If
+ * a page cannot be written, the session records of the page are removed and
+ * the sessions noted again for the next flush.
+ * </p>
+ * 
+ * <p>
+ * A session record is removed once the result of the session is deleted. A
+ * background task sweeps the buckets whose sessions are no longer valid and
+ * deletes the sessions still recorded, in parallel batches and rate limited.
+ * The buckets are claimed with lock records, so any number of nodes sharing
+ * the storage service can sweep at the same time.
+ * </p>
+ * 
+ * <p>
+ * For the ledger to survive restarts and to work across cluster nodes, the
+ * storage service must be persistent and shared, for instance a JPA storage
+ * service.
+ * </p>
+ */
+@ThreadSafeAfterInit
+public class CandourSessionLedger extends AbstractInitializableComponent {
+
+    /** Storage context of the ledger. */
+    @Nonnull
+    public static final String STORAGE_CONTEXT = "fi.csc.shibboleth.plugin.candourid.pending";
+
+    /** Prefix of the metrics. */
+    @Nonnull
+    public static final String METRIC_PREFIX = "fi.csc.shibboleth.plugin.candourid.ledger";
+
+    /** Key prefix of the session records. */
+    @Nonnull
+    private static final String SESSION_PREFIX = "session.";
+
+    /** Key prefix of the bucket records. */
+    @Nonnull
+    private static final String BUCKET_PREFIX = "bucket.";
+
+    /** Key prefix of the bucket lock records. */
+    @Nonnull
+    private static final String LOCK_PREFIX = "lock.";
+
+    /** Key of the record of the first bucket not yet swept. */
+    @Nonnull
+    private static final String CURSOR_KEY = "cursor";
+
+    /** Maximum number of session ids in a page record. */
+    private static final int PAGE_SIZE = 100;
+
+    /** Class logger. */
+    @Nonnull
+    private final Logger log = LoggerFactory.getLogger(CandourSessionLedger.class);
+
+    /** Identifier of this node in the lock records. */
+    @Nonnull
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /** Storage service of the ledger. */
+    @NonnullAfterInit
+    private StorageService storageService;
+
+    /** Deleter of the abandoned sessions. */
+    @NonnullAfterInit
+    private CandourResultDeleter resultDeleter;
+
+    /** Time span of a bucket. */
+    @Nonnull
+    private Duration bucketSpan = Duration.ofMinutes(1);
+
+    /** Time after the validity end before a session is swept. */
+    @Nonnull
+    private Duration gracePeriod = Duration.ofMinutes(5);
+
+    /** How long records are kept for the sweeper. */
+    @Nonnull
+    private Duration retention = Duration.ofDays(1);
+
+    /** Validity assumed for a session without a parseable validity end. */
+    @Nonnull
+    private Duration defaultValidity = Duration.ofMinutes(30);
+
+    /** How long a bucket stays claimed by a sweeping node. */
+    @Nonnull
+    private Duration lockTimeout = Duration.ofMinutes(5);
+
+    /** Interval of the flush task. */
+    @Nonnull
+    private Duration flushInterval = Duration.ofSeconds(1);
+
+    /** Maximum number of sessions noted and not yet flushed. */
+    private int maxUnflushed = 10000;
+
+    /** Sessions noted and not yet flushed, with their validity end in milliseconds. */
+    @Nonnull
+    private final Map<String, Long> unflushed = new ConcurrentHashMap<>();
+
+    /** Next page number to try by bucket, guarded by the flush lock. */
+    @Nonnull
+    private final Map<Long, Integer> nextPages = new HashMap<>();
+
+    /** Flush task. */
+    @Nullable
+    private TimerTask flushTask;
+
+    /** Interval of the sweep task, zero disables the task. */
+    @Nonnull
+    private Duration sweepInterval = Duration.ofMinutes(1);
+
+    /** Number of sessions deleted sequentially by one task. */
+    private int batchSize = 20;
+
+    /** Number of batches deleted in parallel. */
+    private int parallelism = 4;
+
+    /** Maximum rate of deletes per second, zero or less for unlimited. */
+    private double maxDeletesPerSecond = 10;
+
+    /** Timer used to schedule the flush and sweep tasks. */
+    @Nullable
+    private Timer sweepTaskTimer;
+
+    /** Timer created for the tasks if none was set. */
+    @Nullable
+    private Timer internalTaskTimer;
+
+    /** Sweep task. */
+    @Nullable
+    private TimerTask sweepTask;
+
+    /** Executor of the delete batches. */
+    @NonnullAfterInit
+    private ExecutorService deleteExecutor;
+
+    /** Limiter of the delete rate. */
+    @NonnullAfterInit
+    private RateLimiter rateLimiter;
+
+    /** Sessions recorded. */
+    @NonnullAfterInit
+    private Counter recorded;
+
+    /** Sessions not recorded, for too many unflushed sessions. */
+    @NonnullAfterInit
+    private Counter unrecorded;
+
+    /** Pages that could not be written. */
+    @NonnullAfterInit
+    private Counter flushFailures;
+
+    /** Sessions swept. */
+    @NonnullAfterInit
+    private Counter swept;
+
+    /** Sessions the sweeper failed to delete. */
+    @NonnullAfterInit
+    private Counter sweepFailures;
+
+    /**
+     * Set storage service of the ledger.
+     * 
+     * @param service storage service of the ledger
+     */
+    public void setStorageService(@Nonnull final StorageService service) {
+        checkSetterPreconditions();
+        storageService = Constraint.isNotNull(service, "StorageService cannot be null");
+    }
+
+    /**
+     * Set deleter of the abandoned sessions.
+     * 
+     * @param deleter deleter of the abandoned sessions
+     */
+    public void setResultDeleter(@Nonnull final CandourResultDeleter deleter) {
+        checkSetterPreconditions();
+        resultDeleter = Constraint.isNotNull(deleter, "ResultDeleter cannot be null");
+    }
+
+    /**
+     * Set time span of a bucket.
+     * 
+     * @param span time span of a bucket
+     */
+    public void setBucketSpan(@Nonnull final Duration span) {
+        checkSetterPreconditions();
+        bucketSpan = positive(span, "Bucket span");
+    }
+
+    /**
+     * Set time after the validity end before a session is swept.
+     * 
+     * @param period time after the validity end before a session is swept
+     */
+    public void setGracePeriod(@Nonnull final Duration period) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(period, "Grace period cannot be null");
+        Constraint.isFalse(period.isNegative(), "Grace period cannot be negative");
+        gracePeriod = period;
+    }
+
+    /**
+     * Set how long records are kept for the sweeper. Sessions not swept within
+     * the retention are forgotten.
+     * 
+     * @param duration how long records are kept
+     */
+    public void setRetention(@Nonnull final Duration duration) {
+        checkSetterPreconditions();
+        retention = positive(duration, "Retention");
+    }
+
+    /**
+     * Set validity assumed for a session without a parseable validity end.
+     * 
+     * @param validity validity assumed for a session
+     */
+    public void setDefaultValidity(@Nonnull final Duration validity) {
+        checkSetterPreconditions();
+        defaultValidity = positive(validity, "Default validity");
+    }
+
+    /**
+     * Set how long a bucket stays claimed by a sweeping node.
+     * 
+     * @param timeout how long a bucket stays claimed
+     */
+    public void setLockTimeout(@Nonnull final Duration timeout) {
+        checkSetterPreconditions();
+        lockTimeout = positive(timeout, "Lock timeout");
+    }
+
+    /**
+     * Set interval of the flush task.
+     * 
+     * @param interval interval of the flush task
+     */
+    public void setFlushInterval(@Nonnull final Duration interval) {
+        checkSetterPreconditions();
+        flushInterval = positive(interval, "Flush interval");
+    }
+
+    /**
+     * Set maximum number of sessions noted and not yet flushed. Sessions beyond
+     * are not recorded.
+     * 
+     * @param max maximum number of unflushed sessions
+     */
+    public void setMaxUnflushed(final int max) {
+        checkSetterPreconditions();
+        maxUnflushed = (int) Constraint.isGreaterThan(0, max, "Maximum unflushed sessions must be greater than 0");
+    }
+
+    /**
+     * Set interval of the sweep task. Zero disables the task.
+     * 
+     * @param interval interval of the sweep task
+     */
+    public void setSweepInterval(@Nonnull final Duration interval) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(interval, "Sweep interval cannot be null");
+        Constraint.isFalse(interval.isNegative(), "Sweep interval cannot be negative");
+        sweepInterval = interval;
+    }
+
+    /**
+     * Set number of sessions deleted sequentially by one task.
+     * 
+     * @param size number of sessions deleted by one task
+     */
+    public void setBatchSize(final int size) {
+        checkSetterPreconditions();
+        batchSize = (int) Constraint.isGreaterThan(0, size, "Batch size must be greater than 0");
+    }
+
+    /**
+     * Set number of batches deleted in parallel.
+     * 
+     * @param count number of batches deleted in parallel
+     */
+    public void setParallelism(final int count) {
+        checkSetterPreconditions();
+        parallelism = (int) Constraint.isGreaterThan(0, count, "Parallelism must be greater than 0");
+    }
+
+    /**
+     * Set maximum rate of deletes per second.
+     * 
+     * @param rate maximum rate of deletes per second, zero or less for unlimited
+     */
+    public void setMaxDeletesPerSecond(final double rate) {
+        checkSetterPreconditions();
+        maxDeletesPerSecond = rate;
+    }
+
+    /**
+     * Set timer used to schedule the flush and sweep tasks. A dedicated timer is
+     * created if none is set.
+     * 
+     * @param timer timer used to schedule the tasks
+     */
+    public void setSweepTaskTimer(@Nullable final Timer timer) {
+        checkSetterPreconditions();
+        sweepTaskTimer = timer;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doInitialize() throws ComponentInitializationException {
+        super.doInitialize();
+        if (storageService == null) {
+            throw new ComponentInitializationException("StorageService cannot be null");
+        }
+        if (resultDeleter == null) {
+            throw new ComponentInitializationException("ResultDeleter cannot be null");
+        }
+        final MetricRegistry registry = MetricsSupport.getMetricRegistry();
+        recorded = registry.counter(MetricRegistry.name(METRIC_PREFIX, "recorded"));
+        unrecorded = registry.counter(MetricRegistry.name(METRIC_PREFIX, "unrecorded"));
+        flushFailures = registry.counter(MetricRegistry.name(METRIC_PREFIX, "flushFailures"));
+        swept = registry.counter(MetricRegistry.name(METRIC_PREFIX, "swept"));
+        sweepFailures = registry.counter(MetricRegistry.name(METRIC_PREFIX, "sweepFailures"));
+        rateLimiter = new RateLimiter(maxDeletesPerSecond);
+        final AtomicInteger threads = new AtomicInteger();
+        deleteExecutor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            final Thread thread = new Thread(runnable, "candourid-sweep-" + threads.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Timer timer = sweepTaskTimer;
+        if (timer == null) {
+            internalTaskTimer = new Timer("candourid-ledger", true);
+            timer = internalTaskTimer;
+        }
+        flushTask = new TimerTask() {
+            @Override
+            public void run() {
+                flush();
+            }
+        };
+        timer.schedule(flushTask, flushInterval.toMillis(), flushInterval.toMillis());
+        if (!sweepInterval.isZero()) {
+            sweepTask = new TimerTask() {
+                @Override
+                public void run() {
+                    sweep();
+                }
+            };
+            timer.schedule(sweepTask, sweepInterval.toMillis(), sweepInterval.toMillis());
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doDestroy() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        if (sweepTask != null) {
+            sweepTask.cancel();
+            sweepTask = null;
+        }
+        flush();
+        if (internalTaskTimer != null) {
+            internalTaskTimer.cancel();
+            internalTaskTimer = null;
+        }
+        if (deleteExecutor != null) {
+            deleteExecutor.shutdownNow();
+        }
+        super.doDestroy();
+    }
+
+    /**
+     * Record a created session. The session is noted in memory and stored by the
+     * next flush.
+     * 
+     * @param sessionId  Candour session id
+     * @param validUntil validity end of the session as returned by Candour
+     * @return whether the session was recorded
+     */
+    public boolean record(@Nonnull final String sessionId, @Nullable final String validUntil) {
+        checkComponentActive();
+        Constraint.isNotNull(sessionId, "Session id cannot be null");
+        if (unflushed.size() >= maxUnflushed) {
+            unrecorded.inc();
+            log.warn("Too many Candour sessions waiting to be stored to the ledger, session {} not recorded",
+                    sessionId);
+            return false;
+        }
+        unflushed.put(sessionId, parseValidity(validUntil).toEpochMilli());
+        recorded.inc();
+        return true;
+    }
+
+    /**
+     * Remove a session whose result has been deleted.
+     * 
+     * @param sessionId Candour session id
+     */
+    public void complete(@Nonnull final String sessionId) {
+        checkComponentActive();
+        Constraint.isNotNull(sessionId, "Session id cannot be null");
+        if (unflushed.remove(sessionId) != null) {
+            return;
+        }
+        // A session completed while being flushed may stay recorded, the sweeper deletes it again
+        try {
+            storageService.delete(STORAGE_CONTEXT, SESSION_PREFIX + sessionId);
+        } catch (final IOException e) {
+            log.warn("Unable to remove Candour session {} from the ledger", sessionId, e);
+        }
+    }
+
+    /**
+     * Store the sessions noted since the last flush.
+     */
+    public synchronized void flush() {
+        // A session is never indexed to a bucket a sweep may have passed already,
+        // with one bucket of margin for clock differences between the nodes
+        final long earliestBucket = bucketOf(System.currentTimeMillis() - gracePeriod.toMillis()) + 1;
+        final Map<Long, List<String>> buckets = new HashMap<>();
+        final Map<String, Long> validities = new HashMap<>();
+        for (final String sessionId : new ArrayList<>(unflushed.keySet())) {
+            final Long validity = unflushed.remove(sessionId);
+            if (validity != null) {
+                validities.put(sessionId, validity);
+                buckets.computeIfAbsent(Math.max(earliestBucket, bucketOf(validity)),
+                        bucket -> new ArrayList<>()).add(sessionId);
+            }
+        }
+        for (final Map.Entry<Long, List<String>> bucket : buckets.entrySet()) {
+            final List<String> sessionIds = bucket.getValue();
+            for (int i = 0; i < sessionIds.size(); i += PAGE_SIZE) {
+                final List<String> page = sessionIds.subList(i, Math.min(sessionIds.size(), i + PAGE_SIZE));
+                if (!writePage(bucket.getKey(), page, validities)) {
+                    flushFailures.inc();
+                    for (final String sessionId : page) {
+                        unflushed.putIfAbsent(sessionId, validities.get(sessionId));
+                    }
+                }
+            }
+        }
+        final Iterator<Long> pages = nextPages.keySet().iterator();
+        while (pages.hasNext()) {
+            if (pages.next() < earliestBucket) {
+                pages.remove();
+            }
+        }
+    }
+
+    /**
+     * Store the session records of a page and the page, removing the session
+     * records again if the page cannot be written.
+     * 
+     * @param bucket     bucket number
+     * @param page       Candour session ids of the page
+     * @param validities validity ends of the sessions in milliseconds
+     * @return whether the page was written
+     */
+    private boolean writePage(final long bucket, @Nonnull final List<String> page,
+            @Nonnull final Map<String, Long> validities) {
+        final long expiration = (bucket + 1) * bucketSpan.toMillis() + retention.toMillis();
+        final List<String> written = new ArrayList<>(page.size());
+        try {
+            for (final String sessionId : page) {
+                storageService.create(STORAGE_CONTEXT, SESSION_PREFIX + sessionId,
+                        Long.toString(validities.get(sessionId)), expiration);
+                written.add(sessionId);
+            }
+            final String value = String.join(" ", page);
+            int number = nextPages.getOrDefault(bucket, 0);
+            while (!storageService.create(STORAGE_CONTEXT, pageKey(bucket, number), value, expiration)) {
+                number++;
+            }
+            nextPages.put(bucket, number + 1);
+            return true;
+        } catch (final IOException e) {
+            log.warn("Unable to store {} Candour sessions to the ledger, retrying with the next flush",
+                    page.size(), e);
+            for (final String sessionId : written) {
+                try {
+                    storageService.delete(STORAGE_CONTEXT, SESSION_PREFIX + sessionId);
+                } catch (final IOException ex) {
+                    log.debug("Unable to remove the record of Candour session {}", sessionId, ex);
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Delete the sessions of the buckets no longer valid and not yet swept.
+     * The sessions noted by this node are flushed first.
+     */
+    public void sweep() {
+        sweep(System.currentTimeMillis());
+    }
+
+    /**
+     * Delete the sessions of the buckets no longer valid at the given time and
+     * not yet swept.
+     * 
+     * @param now time to sweep at in milliseconds
+     */
+    void sweep(final long now) {
+        flush();
+        final long last = Math.floorDiv(now - gracePeriod.toMillis(), bucketSpan.toMillis()) - 1;
+        final long earliest = Math.floorDiv(now - retention.toMillis(), bucketSpan.toMillis());
+        try {
+            final StorageRecord<?> cursor = storageService.read(STORAGE_CONTEXT, CURSOR_KEY);
+            final long first = cursor != null ? Math.max(earliest, Long.parseLong(cursor.getValue())) : earliest;
+            long completedUpTo = first;
+            boolean contiguous = true;
+            for (long bucket = first; bucket <= last; bucket++) {
+                final boolean done = sweepBucket(bucket);
+                if (done && contiguous) {
+                    completedUpTo = bucket + 1;
+                } else {
+                    contiguous = false;
+                }
+            }
+            if (completedUpTo > first) {
+                advanceCursor(completedUpTo, now);
+            }
+        } catch (final IOException | NumberFormatException e) {
+            log.warn("Sweeping the Candour session ledger failed", e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sweep one bucket, if not claimed by another node.
+     * 
+     * @param bucket bucket number
+     * @return whether the bucket is swept
+     * @throws IOException          if the storage service fails
+     * @throws InterruptedException if interrupted while deleting
+     */
+    private boolean sweepBucket(final long bucket) throws IOException, InterruptedException {
+        if (storageService.read(STORAGE_CONTEXT, pageKey(bucket, 0)) == null) {
+            return true;
+        }
+        if (!storageService.create(STORAGE_CONTEXT, LOCK_PREFIX + bucket, nodeId,
+                System.currentTimeMillis() + lockTimeout.toMillis())) {
+            log.debug("Bucket {} of the Candour session ledger is claimed by another node", bucket);
+            return false;
+        }
+        // Pages are numbered from 0 without gaps
+        final Set<String> sessionIds = new LinkedHashSet<>();
+        int pageCount = 0;
+        for (StorageRecord<?> page = storageService.read(STORAGE_CONTEXT, pageKey(bucket, 0)); page != null;
+                page = storageService.read(STORAGE_CONTEXT, pageKey(bucket, ++pageCount))) {
+            sessionIds.addAll(parsePage(page.getValue()));
+        }
+        final List<String> pending = new ArrayList<>();
+        for (final String sessionId : sessionIds) {
+            if (storageService.read(STORAGE_CONTEXT, SESSION_PREFIX + sessionId) != null) {
+                pending.add(sessionId);
+            }
+        }
+        final List<Future<Boolean>> batches = new ArrayList<>();
+        for (int i = 0; i < pending.size(); i += batchSize) {
+            final List<String> batch = pending.subList(i, Math.min(pending.size(), i + batchSize));
+            batches.add(deleteExecutor.submit(() -> deleteBatch(batch)));
+        }
+        boolean done = true;
+        for (final Future<Boolean> batch : batches) {
+            try {
+                done &= batch.get();
+            } catch (final ExecutionException e) {
+                log.warn("Sweeping a batch of the Candour session ledger failed", e.getCause());
+                done = false;
+            }
+        }
+        if (done) {
+            for (int number = 0; number < pageCount; number++) {
+                storageService.delete(STORAGE_CONTEXT, pageKey(bucket, number));
+            }
+        }
+        // Lock is left to expire if not done, the bucket is retried after that
+        return done;
+    }
+
+    /**
+     * Delete a batch of sessions.
+     * 
+     * @param batch Candour session ids
+     * @return whether all the sessions were deleted
+     * @throws IOException          if the storage service fails
+     * @throws InterruptedException if interrupted while waiting for the rate
+     *                                  limit
+     */
+    private boolean deleteBatch(@Nonnull final List<String> batch) throws IOException, InterruptedException {
+        boolean done = true;
+        for (final String sessionId : batch) {
+            rateLimiter.acquire();
+            if (resultDeleter.deleteNow(sessionId)) {
+                storageService.delete(STORAGE_CONTEXT, SESSION_PREFIX + sessionId);
+                log.debug("Swept abandoned Candour session {}", sessionId);
+                swept.inc();
+            } else {
+                sweepFailures.inc();
+                done = false;
+            }
+        }
+        return done;
+    }
+
+    /**
+     * Move the cursor forward, unless another node has moved it further.
+     * 
+     * @param bucket first bucket not yet swept
+     * @param now    current time in milliseconds
+     * @throws IOException if the storage service fails
+     */
+    private void advanceCursor(final long bucket, final long now) throws IOException {
+        final long expiration = now + retention.toMillis();
+        final StorageRecord<?> cursor = storageService.read(STORAGE_CONTEXT, CURSOR_KEY);
+        if (cursor == null) {
+            storageService.create(STORAGE_CONTEXT, CURSOR_KEY, Long.toString(bucket), expiration);
+        } else if (Long.parseLong(cursor.getValue()) < bucket) {
+            try {
+                storageService.updateWithVersion(cursor.getVersion(), STORAGE_CONTEXT, CURSOR_KEY,
+                        Long.toString(bucket), expiration);
+            } catch (final VersionMismatchException e) {
+                log.trace("Cursor moved concurrently");
+            }
+        }
+    }
+
+    /**
+     * Parse the validity end of a session.
+     * 
+     * @param validUntil validity end as returned by Candour
+     * @return validity end, or the default validity from now
+     */
+    @Nonnull
+    private Instant parseValidity(@Nullable final String validUntil) {
+        if (validUntil != null) {
+            try {
+                return Instant.parse(validUntil);
+            } catch (final DateTimeParseException e) {
+                log.debug("Unable to parse validity end {}, using default validity", validUntil);
+            }
+        }
+        return Instant.now().plus(defaultValidity);
+    }
+
+    /**
+     * Get the bucket of a validity end.
+     * 
+     * @param validity validity end in milliseconds
+     * @return bucket number
+     */
+    private long bucketOf(final long validity) {
+        return Math.floorDiv(validity, bucketSpan.toMillis());
+    }
+
+    /**
+     * Get the key of a page record.
+     * 
+     * @param bucket bucket number
+     * @param number page number
+     * @return key of the page record
+     */
+    @Nonnull
+    private static String pageKey(final long bucket, final int number) {
+        return BUCKET_PREFIX + bucket + "." + number;
+    }
+
+    /**
+     * Parse the session ids of a page record.
+     * 
+     * @param value page record value
+     * @return session ids
+     */
+    @Nonnull
+    private static Set<String> parsePage(@Nullable final String value) {
+        final Set<String> sessionIds = new LinkedHashSet<>();
+        if (value != null) {
+            for (final String sessionId : value.split(" ")) {
+                if (!sessionId.isEmpty()) {
+                    sessionIds.add(sessionId);
+                }
+            }
+        }
+        return sessionIds;
+    }
+
+    /**
+     * Check a duration is positive.
+     * 
+     * @param duration duration to check
+     * @param name     name of the duration for the error message
+     * @return the duration
+     */
+    @Nonnull
+    private static Duration positive(@Nullable final Duration duration, @Nonnull final String name) {
+        Constraint.isNotNull(duration, name + " cannot be null");
+        Constraint.isFalse(duration.isNegative() || duration.isZero(), name + " must be greater than 0");
+        return duration;
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.opensaml.core.metrics.MetricsSupport;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.LockFreeExponentiallyDecayingReservoir;
+import com.codahale.metrics.MetricRegistry;
+
+import net.shibboleth.shared.annotation.constraint.ThreadSafe;
+
+/**
+ * Meter of the heap allocated and the CPU time consumed by the executing thread
+ * for a stage of the Candour flow.
+ * 
+ * <p>
+ * Histograms of the bytes allocated and of the CPU time in nanoseconds of each
+ * execution of the stage are registered under {@value #METRIC_PREFIX} followed
+ * by the stage name, as {@code allocatedBytes} and {@code cpuTime}. Only the
+ * work of the executing thread is measured: the parsing of a response handled
+ * on an I/O or executor thread, as in the 'async' and 'virtual' modes or with a
+ * hedged request, is not included.
+ * </p>
+ * 
+ * <p>
+ * The measurement relies on the thread allocation and CPU time accounting of
+ * the JVM, {@link com.sun.management.ThreadMXBean}. No meter is provided when
+ * either is not supported or disabled.
+ * </p>
+ */
+@ThreadSafe
+final class CandourStageMeter {
+
+    /** Prefix of the metric names. */
+    @Nonnull
+    public static final String METRIC_PREFIX = "fi.csc.shibboleth.plugin.candourid.stage";
+
+    /** Thread accounting of the JVM. */
+    @Nonnull
+    private final com.sun.management.ThreadMXBean threads;
+
+    /** Bytes allocated by the executions of the stage. */
+    @Nonnull
+    private final Histogram allocatedBytes;
+
+    /** CPU time of the executions of the stage, in nanoseconds. */
+    @Nonnull
+    private final Histogram cpuTime;
+
+    /**
+     * Constructor.
+     * 
+     * @param threadBean thread accounting of the JVM
+     * @param stage      name of the stage
+     */
+    private CandourStageMeter(@Nonnull final com.sun.management.ThreadMXBean threadBean,
+            @Nonnull final String stage) {
+        threads = threadBean;
+        final MetricRegistry registry = MetricsSupport.getMetricRegistry();
+        allocatedBytes = registry.histogram(MetricRegistry.name(METRIC_PREFIX, stage, "allocatedBytes"),
+                () -> new Histogram(LockFreeExponentiallyDecayingReservoir.builder().build()));
+        cpuTime = registry.histogram(MetricRegistry.name(METRIC_PREFIX, stage, "cpuTime"),
+                () -> new Histogram(LockFreeExponentiallyDecayingReservoir.builder().build()));
+    }
+
+    /**
+     * Get a meter of the stage, sharing the histograms with the other meters of
+     * the same stage.
+     * 
+     * @param stage name of the stage
+     * @return meter of the stage, or null if the JVM does not account the
+     *         allocation or the CPU time of threads
+     */
+    @Nullable
+    static CandourStageMeter forStage(@Nonnull final String stage) {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        if (!threadBean.isThreadAllocatedMemorySupported() || !threadBean.isThreadAllocatedMemoryEnabled()
+                || !threadBean.isCurrentThreadCpuTimeSupported() || !threadBean.isThreadCpuTimeEnabled()) {
+            return null;
+        }
+        return new CandourStageMeter(threadBean, stage);
+    }
+
+    /**
+     * Start measuring an execution of the stage on the current thread.
+     * 
+     * @return the measurement, to be stopped on the same thread
+     */
+    @Nonnull
+    Sample start() {
+        return new Sample();
+    }
+
+    /** Measurement of an execution of the stage. */
+    final class Sample {
+
+        /** Bytes allocated by the thread at the start. */
+        private final long startAllocatedBytes;
+
+        /** CPU time of the thread at the start. */
+        private final long startCpuTime;
+
+        /** Constructor. */
+        private Sample() {
+            startCpuTime = threads.getCurrentThreadCpuTime();
+            startAllocatedBytes = threads.getCurrentThreadAllocatedBytes();
+        }
+
+        /** Stop the measurement and record it, unless not measurable on this thread. */
+        void stop() {
+            final long allocated = threads.getCurrentThreadAllocatedBytes();
+            final long cpu = threads.getCurrentThreadCpuTime();
+            if (startAllocatedBytes >= 0 && allocated >= 0) {
+                allocatedBytes.update(allocated - startAllocatedBytes);
+            }
+            if (startCpuTime >= 0 && cpu >= 0) {
+                cpuTime.update(cpu - startCpuTime);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,445 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
+import org.opensaml.security.httpclient.HttpClientSecurityParameters;
+import org.slf4j.Logger;
+
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourDeleteRequest;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourHmacSigner;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourInvitationRequest;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourInvitationRequestPayload;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourJsonCodec;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponse;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResultRequest;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.ResultProperties;
+import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
+import net.shibboleth.shared.component.AbstractInitializableComponent;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.logic.Constraint;
+import net.shibboleth.shared.primitive.LoggerFactory;
+
+/**
+ * Warms up the Candour API connections and the hot code paths in the
+ * background once initialized.
+ * 
+ * <p>
+ * A configured number of connections to the Candour API are opened
+ * concurrently and left in the pool of the client, paying for DNS, TCP and TLS
+ * handshakes before the first logins. Each connection is opened with an
+ * unsigned HEAD request of the API location. Meanwhile the request signing and
+ * the json serialization and parsing of the invitation and the result are run
+ * a configured number of times with synthetic messages for the JIT to compile
+ * them. No sessions are created at Candour.
+ * </p>
+ */
+public class CandourWarmUp extends AbstractInitializableComponent {
+
+    /** Session id of the synthetic messages. */
+    @Nonnull
+    private static final String SESSION_ID = UUID.randomUUID().toString();
+
+    /** Binary size of each synthetic image claim. */
+    private static final int IMAGE_SIZE = 4096;
+
+    /** How long the connection requests wait for each other, in seconds. */
+    private static final long CONNECTION_HOLD_SECONDS = 5;
+
+    /** Class logger. */
+    @Nonnull
+    private final Logger log = LoggerFactory.getLogger(CandourWarmUp.class);
+
+    /** Whether the warm-up is run. */
+    private boolean enabled;
+
+    /** Candour API location. */
+    @NonnullAfterInit
+    private URI candouridURI;
+
+    /** Candour API client public key. */
+    @NonnullAfterInit
+    private String clientPublicKey;
+
+    /** Signer for Candour API client hmac key. */
+    @NonnullAfterInit
+    private CandourHmacSigner hmacSigner;
+
+    /** Codec for Candour json messages. */
+    @Nonnull
+    private CandourJsonCodec jsonCodec = CandourJsonCodec.getDefault();
+
+    /** Http client for contacting the endpoint. */
+    @Nullable
+    private HttpClient httpClient;
+
+    /** HTTP client security parameters. */
+    @Nullable
+    private HttpClientSecurityParameters httpClientSecurityParameters;
+
+    /** Executor of the requests used instead of the http client. */
+    @Nullable
+    private CandourHttpExecutor httpExecutor;
+
+    /** Invitation request payload of the synthetic invitations. */
+    @Nullable
+    private CandourInvitationRequestPayload payload;
+
+    /** Number of connections to open. */
+    private int connections = 4;
+
+    /** Number of times the code paths are run. */
+    private int iterations = 2000;
+
+    /** Thread running the warm-up. */
+    @Nullable
+    private Thread warmUpThread;
+
+    /**
+     * Set whether the warm-up is run. Defaults to false.
+     * 
+     * @param flag whether the warm-up is run
+     */
+    public void setEnabled(final boolean flag) {
+        checkSetterPreconditions();
+        enabled = flag;
+    }
+
+    /**
+     * Set Candour API location.
+     * 
+     * @param uri Candour API location
+     * @throws URISyntaxException if the location is not a valid uri
+     */
+    public void setCandouridURI(@Nonnull final String uri) throws URISyntaxException {
+        checkSetterPreconditions();
+        candouridURI = new URI(Constraint.isNotNull(uri, "CandouridURI cannot be null"));
+    }
+
+    /**
+     * Set Candour API client public key.
+     * 
+     * @param publicKey Candour API client public key
+     */
+    public void setClientPublicKey(@Nonnull final String publicKey) {
+        checkSetterPreconditions();
+        clientPublicKey = Constraint.isNotNull(publicKey, "ClientPublicKey cannot be null");
+    }
+
+    /**
+     * Set signer for Candour API client hmac key.
+     * 
+     * @param signer signer for Candour API client hmac key
+     */
+    public void setHmacSigner(@Nonnull final CandourHmacSigner signer) {
+        checkSetterPreconditions();
+        hmacSigner = Constraint.isNotNull(signer, "HmacSigner cannot be null");
+    }
+
+    /**
+     * Set the codec for Candour json messages.
+     * 
+     * @param codec codec for Candour json messages
+     */
+    public void setJsonCodec(@Nonnull final CandourJsonCodec codec) {
+        checkSetterPreconditions();
+        jsonCodec = Constraint.isNotNull(codec, "JsonCodec cannot be null");
+    }
+
+    /**
+     * Set the {@link HttpClient} whose pool is warmed up.
+     * 
+     * @param client client to use
+     */
+    public void setHttpClient(@Nullable final HttpClient client) {
+        checkSetterPreconditions();
+        httpClient = client;
+    }
+
+    /**
+     * Set the optional client security parameters.
+     * 
+     * @param params the new client security parameters
+     */
+    public void setHttpClientSecurityParameters(@Nullable final HttpClientSecurityParameters params) {
+        checkSetterPreconditions();
+        httpClientSecurityParameters = params;
+    }
+
+    /**
+     * Set the optional executor of the requests. If set, connections are opened
+     * by it instead of the {@link HttpClient}.
+     * 
+     * @param executor executor of the requests
+     */
+    public void setHttpExecutor(@Nullable final CandourHttpExecutor executor) {
+        checkSetterPreconditions();
+        httpExecutor = executor;
+    }
+
+    /**
+     * Set the invitation request payload of the synthetic invitations.
+     * 
+     * @param invitationPayload invitation request payload
+     */
+    public void setPayload(@Nullable final CandourInvitationRequestPayload invitationPayload) {
+        checkSetterPreconditions();
+        payload = invitationPayload;
+    }
+
+    /**
+     * Set number of connections to open.
+     * 
+     * @param count number of connections to open
+     */
+    public void setConnections(final int count) {
+        checkSetterPreconditions();
+        connections = (int) Constraint.isGreaterThanOrEqual(0, count, "Connections cannot be negative");
+    }
+
+    /**
+     * Set number of times the code paths are run.
+     * 
+     * @param count number of times the code paths are run
+     */
+    public void setIterations(final int count) {
+        checkSetterPreconditions();
+        iterations = (int) Constraint.isGreaterThanOrEqual(0, count, "Iterations cannot be negative");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doInitialize() throws ComponentInitializationException {
+        super.doInitialize();
+        if (!enabled) {
+            return;
+        }
+        if (candouridURI == null) {
+            throw new ComponentInitializationException("CandouridURI cannot be null");
+        }
+        if (clientPublicKey == null) {
+            throw new ComponentInitializationException("ClientPublicKey cannot be null");
+        }
+        if (hmacSigner == null) {
+            throw new ComponentInitializationException("HmacSigner cannot be null");
+        }
+        if (connections > 0 && httpClient == null && httpExecutor == null) {
+            throw new ComponentInitializationException("httpClient or httpExecutor is required to open connections");
+        }
+        warmUpThread = new Thread(this::warmUp, "candourid-warmup");
+        warmUpThread.setDaemon(true);
+        warmUpThread.start();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doDestroy() {
+        if (warmUpThread != null) {
+            warmUpThread.interrupt();
+        }
+        super.doDestroy();
+    }
+
+    /**
+     * Wait for the warm-up to complete.
+     * 
+     * @param timeout how long to wait at most
+     * @return whether the warm-up is complete or was not run
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitCompletion(@Nonnull final Duration timeout) throws InterruptedException {
+        final Thread thread = warmUpThread;
+        if (thread == null) {
+            return true;
+        }
+        thread.join(Math.max(1, timeout.toMillis()));
+        return !thread.isAlive();
+    }
+
+    /** Run the warm-up. */
+    private void warmUp() {
+        final long start = System.nanoTime();
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ExecutorService connectionThreads = connections > 0
+                ? Executors.newFixedThreadPool(connections, runnable -> {
+                    final Thread thread = new Thread(runnable, "candourid-warmup-" + threadCount.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                })
+                : null;
+        try {
+            final List<Future<Boolean>> opened = new ArrayList<>();
+            if (connectionThreads != null) {
+                final CountDownLatch held = new CountDownLatch(connections);
+                for (int i = 0; i < connections; i++) {
+                    opened.add(connectionThreads.submit(() -> openConnection(held)));
+                }
+            }
+            final int completed = runCodePaths();
+            int connected = 0;
+            for (final Future<Boolean> future : opened) {
+                if (Boolean.TRUE.equals(future.get())) {
+                    connected++;
+                }
+            }
+            log.info("Candour warm-up done in {} ms, {}/{} connections opened, {}/{} code path iterations run",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), connected, connections, completed,
+                    iterations);
+        } catch (final InterruptedException e) {
+            log.debug("Candour warm-up interrupted");
+            Thread.currentThread().interrupt();
+        } catch (final Exception e) {
+            log.warn("Candour warm-up failed", e);
+        } finally {
+            if (connectionThreads != null) {
+                connectionThreads.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Open a connection to the Candour API. The response is held until all the
+     * connections are opened or for at most a few seconds so that the
+     * connections are opened in parallel and not reused by each other.
+     * 
+     * @param held latch counting the connections held
+     * @return whether the connection was opened
+     */
+    private boolean openConnection(@Nonnull final CountDownLatch held) {
+        final ClassicHttpRequest request = ClassicRequestBuilder.head(candouridURI).build();
+        try {
+            final CandourResponse response;
+            if (httpExecutor != null) {
+                response = httpExecutor.execute(request, httpClientSecurityParameters, r -> hold(r.getCode(), held));
+            } else {
+                response = CandourHttpSupport.execute(httpClient, httpClientSecurityParameters, request,
+                        r -> hold(r.getCode(), held));
+            }
+            log.trace("Candour warm-up connection responded with {}", response.getCode());
+            return true;
+        } catch (final Exception e) {
+            held.countDown();
+            log.debug("Candour warm-up connection failed: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Hold the response until all the connections are held.
+     * 
+     * @param code status code of the response
+     * @param held latch counting the connections held
+     * @return response
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    @Nonnull
+    private static CandourResponse hold(final int code, @Nonnull final CountDownLatch held)
+            throws InterruptedIOException {
+        held.countDown();
+        try {
+            held.await(CONNECTION_HOLD_SECONDS, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        return new CandourResponse(code, null);
+    }
+
+    /**
+     * Run the signing and json codec paths of a login with synthetic messages.
+     * 
+     * @return number of iterations run
+     * @throws Exception if a code path fails
+     */
+    private int runCodePaths() throws Exception {
+        final String callbackUrl = "https://localhost/idp/profile/SAML2/Redirect/SSO?_eventId_proceed=1&execution=e1s";
+        final String invitationResponse = "{\"redirectUrl\":\"" + candouridURI + "/" + SESSION_ID
+                + "\",\"verificationSessionId\":\"" + SESSION_ID + "\",\"timestamp\":\"" + Instant.now()
+                + "\",\"validUntil\":\"" + Instant.now() + "\"}";
+        final byte[] result = resultResponse();
+        for (int i = 0; i < iterations; i++) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException();
+            }
+            if (payload != null) {
+                final CandourInvitationRequest invitation = new CandourInvitationRequest(candouridURI,
+                        clientPublicKey, hmacSigner);
+                invitation.setJsonCodec(jsonCodec);
+                invitation.setPayload(payload.withCallbackUrl(callbackUrl + i));
+                invitation.toHttpRequest();
+            }
+            jsonCodec.readInvitationSuccessResponse(invitationResponse);
+            final CandourResultRequest resultRequest = new CandourResultRequest(candouridURI, clientPublicKey,
+                    hmacSigner);
+            resultRequest.setPayload(SESSION_ID);
+            resultRequest.toHttpRequest();
+            jsonCodec.readResultClaims(new ByteArrayInputStream(result), null,
+                    i % 2 == 0 ? ResultProperties.IMAGE_CLAIMS : null);
+            final CandourDeleteRequest deleteRequest = new CandourDeleteRequest(candouridURI, clientPublicKey,
+                    hmacSigner);
+            deleteRequest.setPayload(SESSION_ID);
+            deleteRequest.toHttpRequest();
+        }
+        return iterations;
+    }
+
+    /**
+     * Synthetic result with textual claims and small image claims.
+     * 
+     * @return result json
+     */
+    @Nonnull
+    private static byte[] resultResponse() {
+        final SplittableRandom random = new SplittableRandom(SESSION_ID.hashCode());
+        final StringBuilder json = new StringBuilder(8 * IMAGE_SIZE).append('{')
+                .append("\"name\":\"Warm Up\",\"firstName\":\"Warm\",\"lastName\":\"Up\",")
+                .append("\"dateOfBirth\":\"1980-01-01\",\"idNumber\":\"XP1234567\",\"nationality\":\"FIN\",")
+                .append("\"nameScore\":100,\"nameMatch\":true,\"invitationLink\":\"").append(SESSION_ID)
+                .append('"');
+        for (final String claim : ResultProperties.IMAGE_CLAIMS) {
+            final byte[] image = new byte[IMAGE_SIZE];
+            random.nextBytes(image);
+            json.append(",\"").append(claim).append("\":\"").append(Base64.getEncoder().encodeToString(image))
+                    .append('"');
+        }
+        return json.append('}').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+}
@@ -39,12 +39,14 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import fi.csc.shibboleth.plugin.candourid.CandourEventIds;
 import fi.csc.shibboleth.plugin.candourid.context.CandourContext;
 import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourInvitationRequest;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourInvitationPayloadTemplate;
 import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourInvitationRequestPayload;
 import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourInvitationSuccessResponsePayload;
 import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import net.shibboleth.idp.authn.context.AuthenticationContext;
 import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
+import net.shibboleth.shared.annotation.constraint.ThreadSafeAfterInit;
 import net.shibboleth.shared.component.ComponentInitializationException;
 import net.shibboleth.shared.primitive.LoggerFactory;
 
@@ -64,6 +66,7 @@ import net.shibboleth.shared.primitive.LoggerFactory;
  *       redirect.
  * 
  */
+@ThreadSafeAfterInit
 public class CreateSession extends AbstractCandourHttpAuthenticationAction {
 
     /** Class logger. */
@@ -80,8 +83,13 @@ public class CreateSession extends AbstractCandourHttpAuthenticationAction {
     @Nullable
     private Function<ProfileRequestContext, CandourInvitationRequestPayload> candourInvitationRequestPayloadStrategy;
 
+    /** Optional precompiled payload used when the strategy provides none. */
+    @Nullable
+    private CandourInvitationPayloadTemplate payloadTemplate;
+
     /**
-     * Set the payload to send to Candour.
+     * Set the payload to send to Candour. The payload is shared by all requests,
+     * the callback url is set per request.
      * 
      * @param content the payload to send to Candour. Implement a strategy to set it
      */
@@ -102,6 +110,17 @@ public class CreateSession extends AbstractCandourHttpAuthenticationAction {
         candourInvitationRequestPayloadStrategy = strategy;
     }
 
+    /**
+     * Set optional precompiled payload, sent in place of the payload when the
+     * strategy provides none.
+     * 
+     * @param template precompiled payload
+     */
+    public void setPayloadTemplate(@Nullable final CandourInvitationPayloadTemplate template) {
+        checkSetterPreconditions();
+        payloadTemplate = template;
+    }
+
     @Override
     protected void doInitialize() throws ComponentInitializationException {
         super.doInitialize();
@@ -114,68 +133,78 @@ public class CreateSession extends AbstractCandourHttpAuthenticationAction {
     /** {@inheritDoc} */
     @Override
     protected void doExecute(@Nonnull final ProfileRequestContext profileRequestContext,
-            @Nonnull final AuthenticationContext authenticationContext) {
+            @Nonnull final AuthenticationContext authenticationContext, @Nonnull final CandourContext candourContext) {
 
         CandourInvitationRequest message = new CandourInvitationRequest(getCandouridURI(), getClientPublicKey(),
-                getClientHmacKey());
+                getHmacSigner());
+        message.setJsonCodec(getJsonCodec());
         CandourInvitationRequestPayload dynamicPayload = candourInvitationRequestPayloadStrategy != null
                 ? candourInvitationRequestPayloadStrategy.apply(profileRequestContext)
                 : null;
-        message.setPayload(dynamicPayload != null ? dynamicPayload : payload);
-        String uri = buildCallbackUri();
+        String uri = buildCallbackUri(candourContext);
         if (uri == null) {
             ActionSupport.buildEvent(profileRequestContext, EventIds.INVALID_PROFILE_CTX);
-            candourContext.setAuthenticationUri(buildErrorProceedUri());
+            candourContext.setAuthenticationUri(buildErrorProceedUri(candourContext));
             return;
         }
-        message.getPayload().setCallbackUrl(buildCallbackUri());
+        if (dynamicPayload == null && payloadTemplate != null) {
+            message.setPayloadTemplate(payloadTemplate, uri);
+        } else {
+            // The payload is shared, the callback url is set on a copy
+            message.setPayload((dynamicPayload != null ? dynamicPayload : payload).withCallbackUrl(uri));
+        }
 
         CandourResponse response = null;
         try {
-            response = executeHttpRequest(message.toHttpRequest());
+            response = executeHttpRequest(candourContext, message.toHttpRequest());
         } catch (IOException | InvalidKeyException | NoSuchAlgorithmException | IllegalStateException
                 | URISyntaxException e) {
             log.error("{} Exception occurred", getLogPrefix(), e);
             ActionSupport.buildEvent(profileRequestContext, CandourEventIds.CANDOUR_API_COMM_FAILURE);
-            candourContext.setAuthenticationUri(buildErrorProceedUri());
+            candourContext.setAuthenticationUri(buildErrorProceedUri(candourContext));
             return;
         }
         if (!response.indicateSuccess()) {
             log.error("{} Candour invitation response indicates error. Status code {}, payload {}", getLogPrefix(),
                     response.getCode(), response.getPayload());
             ActionSupport.buildEvent(profileRequestContext, CandourEventIds.CANDOUR_API_RESP_FAILURE);
-            candourContext.setAuthenticationUri(buildErrorProceedUri());
+            candourContext.setAuthenticationUri(buildErrorProceedUri(candourContext));
             return;
         }
         // Parse success response
         CandourInvitationSuccessResponsePayload payload = null;
         try {
-            payload = CandourInvitationSuccessResponsePayload.parse(response.getPayload());
+            payload = getJsonCodec().readInvitationSuccessResponse(response.getPayload());
         } catch (JsonProcessingException e) {
             log.error("{} Candour response parsing failed.", getLogPrefix(), e);
             ActionSupport.buildEvent(profileRequestContext, CandourEventIds.CANDOUR_API_RESP_MALFORMED);
-            candourContext.setAuthenticationUri(buildErrorProceedUri());
+            candourContext.setAuthenticationUri(buildErrorProceedUri(candourContext));
             return;
         }
         candourContext.setInvitationResponse(response.getPayload());
         candourContext.setAuthenticationUri(payload.getRedirectUrl());
+        if (getSessionLedger() != null && payload.getVerificationSessionId() != null) {
+            getSessionLedger().record(payload.getVerificationSessionId(), payload.getValidUntil());
+        }
     }
 
     /**
      * We build error proceed uri that will lead external redirect to next action.
      * 
+     * @param candourContext the candour context of the current request
      * @return uri directing to next action
      */
-    private String buildErrorProceedUri() {
+    private String buildErrorProceedUri(@Nonnull final CandourContext candourContext) {
         return candourContext.getCallbackUri().replaceFirst("idp/profile/", "");
     }
 
     /**
      * Builds callback Uri.
      * 
+     * @param candourContext the candour context of the current request
      * @return callback Uri
      */
-    private String buildCallbackUri() {
+    private String buildCallbackUri(@Nonnull final CandourContext candourContext) {
 
         HttpServletRequest request = getHttpServletRequestSupplier().get();
         final String scheme = request.getScheme();
@@ -15,9 +15,12 @@
  */
 package fi.csc.shibboleth.plugin.candourid.impl;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Map;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import org.opensaml.profile.action.ActionSupport;
 import org.opensaml.profile.context.ProfileRequestContext;
@@ -28,6 +31,7 @@ import fi.csc.shibboleth.plugin.candourid.context.CandourContext;
 import jakarta.servlet.http.HttpServletRequest;
 import net.shibboleth.idp.authn.context.AuthenticationContext;
 import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
+import net.shibboleth.shared.annotation.constraint.ThreadSafeAfterInit;
 import net.shibboleth.shared.component.ComponentInitializationException;
 import net.shibboleth.shared.primitive.LoggerFactory;
 
@@ -42,7 +46,10 @@ import net.shibboleth.shared.primitive.LoggerFactory;
  * @event {@link fi.csc.shibboleth.plugin.candourid.CandourEventIds.CANDOUR_REDIRECT_RESP_CANCELLED_U_D}
  * @event {@link fi.csc.shibboleth.plugin.candourid.CandourEventIdsCANDOUR_REDIRECT_RESP_CANCELLED_U_ID}
  * @post {@link CandourContext#getSessionId()} returns session id.
+ * @post {@link CandourContext#getDeadline()} returns the deadline of the result stage if a latency budget is
+ *       set.
  */
+@ThreadSafeAfterInit
 public class ExtractAuthenticationResponse extends AbstractCandourAuthenticationAction {
 
     /** Class logger. */
@@ -65,6 +72,10 @@ public class ExtractAuthenticationResponse extends AbstractCandourAuthentication
     @NonnullAfterInit
     private Map<String, String> mappedStatuses;
 
+    /** Latency budget of the result stage of the flow. */
+    @Nullable
+    private Duration latencyBudget;
+
     /**
      * Set mapping from status codes to events.
      * 
@@ -109,6 +120,17 @@ public class ExtractAuthenticationResponse extends AbstractCandourAuthentication
         sessionIdParameter = parameter;
     }
 
+    /**
+     * Set latency budget of the result stage of the flow, bounding the time its
+     * Candour API calls may take. Zero or null for none.
+     * 
+     * @param budget latency budget of the result stage
+     */
+    public void setLatencyBudget(@Nullable final Duration budget) {
+        checkSetterPreconditions();
+        latencyBudget = budget != null && !budget.isZero() && !budget.isNegative() ? budget : null;
+    }
+
     /** {@inheritDoc} */
     @Override
     protected void doInitialize() throws ComponentInitializationException {
@@ -122,7 +144,7 @@ public class ExtractAuthenticationResponse extends AbstractCandourAuthentication
     /** {@inheritDoc} */
     @Override
     protected void doExecute(@Nonnull final ProfileRequestContext profileRequestContext,
-            @Nonnull final AuthenticationContext authenticationContext) {
+            @Nonnull final AuthenticationContext authenticationContext, @Nonnull final CandourContext candourContext) {
 
         HttpServletRequest request = getHttpServletRequestSupplier().get();
         String status = request.getParameter(statusParameter);
@@ -143,6 +165,8 @@ public class ExtractAuthenticationResponse extends AbstractCandourAuthentication
             return;
         }
         candourContext.setSessionId(sessionId);
+        // The time user spent at Candour does not count, the result stage starts now
+        candourContext.setDeadline(latencyBudget != null ? Instant.now().plus(latencyBudget) : null);
         log.debug("{} Session id set as {}", getLogPrefix(), sessionId);
     }
 }
@@ -19,25 +19,36 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import org.opensaml.profile.action.ActionSupport;
 import org.opensaml.profile.context.ProfileRequestContext;
 import org.slf4j.Logger;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import fi.csc.shibboleth.plugin.candourid.CandourEventIds;
 import fi.csc.shibboleth.plugin.candourid.context.CandourContext;
+import fi.csc.shibboleth.plugin.candourid.image.ImageStore;
 import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourDeleteRequest;
 import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponse;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponseHandler;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponseTooLargeException;
 import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResultRequest;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResultResponseHandler;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.ResultProperties;
 import net.shibboleth.idp.authn.context.AuthenticationContext;
+import net.shibboleth.shared.annotation.constraint.ThreadSafeAfterInit;
+import net.shibboleth.shared.collection.CollectionSupport;
+import net.shibboleth.shared.logic.Constraint;
 import net.shibboleth.shared.primitive.LoggerFactory;
+import net.shibboleth.shared.primitive.StringSupport;
 
 /**
  * An {@link AbstractCandourHttpAuthenticationAction action} that forms and
@@ -52,60 +63,195 @@ import net.shibboleth.shared.primitive.LoggerFactory;
  * @post {@link CandourContext#getResultClaims()} returns response claims.
  *       response.
  */
+@ThreadSafeAfterInit
 public class GetUserClaims extends AbstractCandourHttpAuthenticationAction {
 
     /** Class logger. */
     @Nonnull
     private final Logger log = LoggerFactory.getLogger(GetUserClaims.class);
 
+    /** Default maximum size of result response body in bytes. */
+    public static final long DEFAULT_MAX_RESULT_SIZE = 8 * 1024 * 1024;
+
+    /** Maximum size of result response body in bytes. */
+    private long maxResultSize = DEFAULT_MAX_RESULT_SIZE;
+
+    /** Names of the result claims stored to context, null for all claims. */
+    @Nullable
+    private Set<String> resultClaimNames;
+
+    /** Whether image claims are decoded to byte arrays. */
+    private boolean decodeImages;
+
+    /** Store holding image claims outside the context, null to keep them in the context. */
+    @Nullable
+    private ImageStore imageStore;
+
+    /** Background deleter of results, null to delete results synchronously. */
+    @Nullable
+    private CandourResultDeleter resultDeleter;
+
+    /**
+     * Set maximum size of result response body in bytes. Result containing
+     * image claims is typically several hundreds of kilobytes.
+     * 
+     * @param size maximum size of result response body in bytes
+     */
+    public void setMaxResultSize(final long size) {
+        checkSetterPreconditions();
+        maxResultSize = Constraint.isGreaterThan(0, size, "Maximum result size must be greater than 0");
+    }
+
+    /**
+     * Set names of the result claims stored to context. Other claims are skipped
+     * while parsing the response. Null or empty stores all claims.
+     * 
+     * @param names names of the result claims stored to context
+     */
+    public void setResultClaimNames(@Nullable final Collection<String> names) {
+        checkSetterPreconditions();
+        final Collection<String> normalized = names != null ? StringSupport.normalizeStringCollection(names) : null;
+        resultClaimNames = normalized == null || normalized.isEmpty() ? null
+                : CollectionSupport.copyToSet(normalized);
+    }
+
+    /**
+     * Set whether image claims are decoded from base64 to byte arrays while
+     * parsing the response. Default is false, images are stored as base64
+     * strings.
+     * 
+     * @param flag whether image claims are decoded to byte arrays
+     */
+    public void setDecodeImages(final boolean flag) {
+        checkSetterPreconditions();
+        decodeImages = flag;
+    }
+
+    /**
+     * Set store holding image claims outside the context. The context keeps only
+     * handles to the stored images.
+     * 
+     * @param store store holding image claims, null to keep them in the context
+     */
+    public void setImageStore(@Nullable final ImageStore store) {
+        checkSetterPreconditions();
+        imageStore = store;
+    }
+
+    /**
+     * Set background deleter of results. If set, the result is only queued for
+     * deletion instead of deleting it before proceeding.
+     * 
+     * @param deleter background deleter of results, null to delete synchronously
+     */
+    public void setResultDeleter(@Nullable final CandourResultDeleter deleter) {
+        checkSetterPreconditions();
+        resultDeleter = deleter;
+    }
+
     /** {@inheritDoc} */
     @Override
     protected void doExecute(@Nonnull final ProfileRequestContext profileRequestContext,
-            @Nonnull final AuthenticationContext authenticationContext) {
+            @Nonnull final AuthenticationContext authenticationContext, @Nonnull final CandourContext candourContext) {
+        // Result and delete requests sign the same payload
+        final String signature = getHmacSigner().sign(candourContext.getSessionId());
         CandourResultRequest message = new CandourResultRequest(getCandouridURI(), getClientPublicKey(),
-                getClientHmacKey());
+                getHmacSigner());
         message.setPayload(candourContext.getSessionId());
+        message.setSignature(signature);
         CandourResponse response = null;
         try {
-            response = executeHttpRequest(message.toHttpRequest());
+            response = executeHedgedHttpRequest(candourContext, message.toHttpRequest(),
+                    new CandourResultResponseHandler(getJsonCodec(), maxResultSize, resultClaimNames,
+                            decodeImages ? ResultProperties.IMAGE_CLAIMS : null));
+        } catch (JsonProcessingException e) {
+            log.error("{} Candour response parsing failed.", getLogPrefix(), e);
+            ActionSupport.buildEvent(profileRequestContext, CandourEventIds.CANDOUR_API_RESP_MALFORMED);
+            deleteResult(candourContext, signature);
+            return;
+        } catch (CandourResponseTooLargeException e) {
+            log.error("{} Candour result response too large: {}", getLogPrefix(), e.getMessage());
+            ActionSupport.buildEvent(profileRequestContext, CandourEventIds.CANDOUR_API_RESP_MALFORMED);
+            deleteResult(candourContext, signature);
+            return;
         } catch (IOException | InvalidKeyException | NoSuchAlgorithmException | IllegalStateException
                 | URISyntaxException e) {
             log.error("{} Exception occurred", getLogPrefix(), e);
             ActionSupport.buildEvent(profileRequestContext, CandourEventIds.CANDOUR_API_COMM_FAILURE);
-            deleteResult();
+            deleteResult(candourContext, signature);
             return;
         }
         if (!response.indicateSuccess()) {
             log.error("{} Candour result request response indicates error. Status code {}, payload {}", getLogPrefix(),
                     response.getCode(), response.getPayload());
             ActionSupport.buildEvent(profileRequestContext, CandourEventIds.CANDOUR_API_RESP_FAILURE);
-            deleteResult();
+            deleteResult(candourContext, signature);
             return;
         }
-        try {
-            candourContext.setResultClaims(
-                    new ObjectMapper().readValue(response.getPayload(), new TypeReference<Map<String, Object>>() {
-                    }));
-        } catch (JsonProcessingException e) {
-            log.error("{} Candour response parsing failed.", getLogPrefix(), e);
+        if (response.getResultClaims() == null) {
+            log.error("{} Candour result response has no content", getLogPrefix());
             ActionSupport.buildEvent(profileRequestContext, CandourEventIds.CANDOUR_API_RESP_MALFORMED);
-            deleteResult();
+            deleteResult(candourContext, signature);
             return;
         }
-        deleteResult();
+        final Map<String, Object> claims = response.getResultClaims();
+        if (imageStore != null) {
+            storeImages(claims);
+        }
+        candourContext.setResultClaims(claims);
+        deleteResult(candourContext, signature);
 
     }
 
+    /**
+     * Replaces image claims with handles to images stored to the image store. An
+     * image that cannot be stored is kept in the claims.
+     * 
+     * @param claims result claims
+     */
+    private void storeImages(@Nonnull final Map<String, Object> claims) {
+        for (final String name : ResultProperties.IMAGE_CLAIMS) {
+            final Object image = claims.get(name);
+            if (image == null) {
+                continue;
+            }
+            try {
+                claims.put(name, imageStore.store(image));
+            } catch (final IOException e) {
+                log.warn("{} Unable to store image claim {}, keeping it in memory", getLogPrefix(), name, e);
+            }
+        }
+    }
+
     /**
      * Instructs Candour to delete the result of authentication.
+     * 
+     * @param candourContext the candour context of the current request
+     * @param signature      signature of the session id
      */
-    private void deleteResult() {
+    private void deleteResult(@Nonnull final CandourContext candourContext, @Nonnull final String signature) {
+        if (resultDeleter != null) {
+            // The session stays in the ledger until the deleter has deleted the result
+            final CandourSessionLedger ledger = getSessionLedger();
+            final String sessionId = candourContext.getSessionId();
+            resultDeleter.enqueue(sessionId, ledger != null ? () -> ledger.complete(sessionId) : null);
+            return;
+        }
+        final Duration remaining = getRemainingTime(candourContext);
+        if (remaining != null && remaining.isZero()) {
+            // Best effort, an unfinished session is left for the ledger to delete
+            log.warn("{} Deadline of the flow stage passed, result of session {} not deleted", getLogPrefix(),
+                    candourContext.getSessionId());
+            return;
+        }
         CandourDeleteRequest message = new CandourDeleteRequest(getCandouridURI(), getClientPublicKey(),
-                getClientHmacKey());
+                getHmacSigner());
         message.setPayload(candourContext.getSessionId());
+        message.setSignature(signature);
         CandourResponse response = null;
         try {
-            response = executeHttpRequest(message.toHttpRequest());
+            response = executeRetriedHttpRequest(candourContext, message.toHttpRequest(),
+                    new CandourResponseHandler());
         } catch (InvalidKeyException | NoSuchAlgorithmException | IllegalStateException | IOException
                 | URISyntaxException e) {
             log.error("{} Exception occurred", getLogPrefix(), e);
@@ -114,8 +260,21 @@ public class GetUserClaims extends AbstractCandourHttpAuthenticationAction {
         if (!response.indicateSuccess()) {
             log.error("{} Candour delete response indicates error. Status code {}, payload {}", getLogPrefix(),
                     response.getCode(), response.getPayload());
+            return;
         }
+        completeSession(candourContext);
+
+    }
 
+    /**
+     * Removes the session from the ledger of unfinished sessions, if in use.
+     * 
+     * @param candourContext the candour context of the current request
+     */
+    private void completeSession(@Nonnull final CandourContext candourContext) {
+        if (getSessionLedger() != null) {
+            getSessionLedger().complete(candourContext.getSessionId());
+        }
     }
 
 }
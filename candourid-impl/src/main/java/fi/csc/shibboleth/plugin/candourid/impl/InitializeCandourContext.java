@@ -15,32 +15,108 @@
  */
 package fi.csc.shibboleth.plugin.candourid.impl;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Function;
+
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
+import org.opensaml.messaging.context.navigate.ChildContextLookup;
+import org.opensaml.profile.action.ActionSupport;
+import org.opensaml.profile.action.EventIds;
 import org.opensaml.profile.context.ProfileRequestContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import fi.csc.shibboleth.plugin.candourid.context.CandourContext;
-import net.shibboleth.idp.authn.AbstractAuthenticationAction;
 import net.shibboleth.idp.authn.context.AuthenticationContext;
+import net.shibboleth.idp.profile.AbstractProfileAction;
+import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
+import net.shibboleth.shared.annotation.constraint.ThreadSafeAfterInit;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.logic.Constraint;
 
 /**
- * An {@link AbstractAuthenticationAction action} that instantiates {@link CandourContext} as a sub context of {@link AuthenticationContext}.
+ * An {@link AbstractProfileAction action} that instantiates {@link CandourContext} as a sub context of {@link AuthenticationContext}.
  *
  * @event {@link org.opensaml.profile.action.EventIds#PROCEED_EVENT_ID}
+ * @event {@link org.opensaml.profile.action.EventIds#INVALID_PROFILE_CTX}
  * @post {@link CandourContext} is a sub context of {@link AuthenticationContext}
+ * @post {@link CandourContext#getDeadline()} returns the deadline of the invitation stage if a latency budget
+ *       is set
  */
-public class InitializeCandourContext extends AbstractAuthenticationAction {
+@ThreadSafeAfterInit
+public class InitializeCandourContext extends AbstractProfileAction {
 
     /** Class logger. */
     @Nonnull
     private final Logger log = LoggerFactory.getLogger(InitializeCandourContext.class);
 
+    /** Lookup strategy for the authentication context. */
+    @Nonnull
+    private Function<ProfileRequestContext, AuthenticationContext> authenticationContextLookupStrategy;
+
+    /** Latency budget of the invitation stage of the flow. */
+    @Nullable
+    private Duration latencyBudget;
+
+    /** Monitor of the executions. */
+    @NonnullAfterInit
+    private CandourActionMonitor monitor;
+
+    /** Constructor. */
+    public InitializeCandourContext() {
+        authenticationContextLookupStrategy = new ChildContextLookup<>(AuthenticationContext.class);
+    }
+
+    /**
+     * Set the lookup strategy for the authentication context.
+     * 
+     * @param strategy lookup strategy for the authentication context
+     */
+    public void setAuthenticationContextLookupStrategy(
+            @Nonnull final Function<ProfileRequestContext, AuthenticationContext> strategy) {
+        checkSetterPreconditions();
+        authenticationContextLookupStrategy = Constraint.isNotNull(strategy,
+                "AuthenticationContext lookup strategy cannot be null");
+    }
+
+    /**
+     * Set latency budget of the invitation stage of the flow, bounding the time
+     * its Candour API calls may take. Zero or null for none.
+     * 
+     * @param budget latency budget of the invitation stage
+     */
+    public void setLatencyBudget(@Nullable final Duration budget) {
+        checkSetterPreconditions();
+        latencyBudget = budget != null && !budget.isZero() && !budget.isNegative() ? budget : null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doInitialize() throws ComponentInitializationException {
+        super.doInitialize();
+        monitor = new CandourActionMonitor(this, false, getLogPrefix());
+    }
+
     /** {@inheritDoc} */
     @Override
-    protected void doExecute(@Nonnull final ProfileRequestContext profileRequestContext, @Nonnull final AuthenticationContext authenticationContext) {
-        authenticationContext.addSubcontext(new CandourContext(), true);
+    protected void doExecute(@Nonnull final ProfileRequestContext profileRequestContext) {
+        monitor.execute(profileRequestContext, () -> {
+            final AuthenticationContext authenticationContext = authenticationContextLookupStrategy
+                    .apply(profileRequestContext);
+            if (authenticationContext == null) {
+                log.error("{} No authentication context", getLogPrefix());
+                ActionSupport.buildEvent(profileRequestContext, EventIds.INVALID_PROFILE_CTX);
+                return;
+            }
+            final CandourContext candourContext = new CandourContext();
+            if (latencyBudget != null) {
+                candourContext.setDeadline(Instant.now().plus(latencyBudget));
+            }
+            authenticationContext.addSubcontext(candourContext, true);
+        });
     }
 
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Spaces out permits evenly to at most the given rate. Unused permits are not
+ * accumulated.
+ */
+@ThreadSafe
+final class RateLimiter {
+
+    /** Interval between permits in nanoseconds, zero if unlimited. */
+    private final long intervalNanos;
+
+    /** Time the next permit is available at. */
+    private long nextPermitNanos;
+
+    /**
+     * Constructor.
+     * 
+     * @param permitsPerSecond maximum rate of permits, zero or less for unlimited
+     */
+    RateLimiter(final double permitsPerSecond) {
+        intervalNanos = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0;
+        nextPermitNanos = System.nanoTime();
+    }
+
+    /**
+     * Wait until a permit is available.
+     * 
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void acquire() throws InterruptedException {
+        if (intervalNanos == 0) {
+            return;
+        }
+        final long wait;
+        synchronized (this) {
+            final long now = System.nanoTime();
+            final long permit = Math.max(now, nextPermitNanos);
+            nextPermitNanos = permit + intervalNanos;
+            wait = permit - now;
+        }
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import org.opensaml.profile.context.ProfileRequestContext;
+import org.slf4j.Logger;
+
+import fi.csc.shibboleth.plugin.candourid.context.CandourContext;
+import fi.csc.shibboleth.plugin.candourid.image.StoredImage;
+import net.shibboleth.idp.authn.context.AuthenticationContext;
+import net.shibboleth.shared.annotation.constraint.ThreadSafeAfterInit;
+import net.shibboleth.shared.primitive.LoggerFactory;
+
+/**
+ * An {@link AbstractCandourAuthenticationAction action} that deletes the
+ * {@link StoredImage stored images} of {@link CandourContext} result claims.
+ * Run at the end of the flow, whatever the outcome.
+ *
+ * @event {@link org.opensaml.profile.action.EventIds#PROCEED_EVENT_ID}
+ * @event {@link org.opensaml.profile.action.EventIds#INVALID_PROFILE_CTX}
+ * @post {@link CandourContext#getResultClaims()} contains no stored images.
+ */
+@ThreadSafeAfterInit
+public class ReleaseStoredImages extends AbstractCandourAuthenticationAction {
+
+    /** Class logger. */
+    @Nonnull
+    private final Logger log = LoggerFactory.getLogger(ReleaseStoredImages.class);
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doExecute(@Nonnull final ProfileRequestContext profileRequestContext,
+            @Nonnull final AuthenticationContext authenticationContext, @Nonnull final CandourContext candourContext) {
+        final Iterator<Map.Entry<String, Object>> claims = candourContext.getResultClaims().entrySet().iterator();
+        while (claims.hasNext()) {
+            final Map.Entry<String, Object> claim = claims.next();
+            if (claim.getValue() instanceof StoredImage) {
+                log.debug("{} Deleting stored image of claim {}", getLogPrefix(), claim.getKey());
+                ((StoredImage) claim.getValue()).delete();
+                claims.remove();
+            }
+        }
+    }
+
+}
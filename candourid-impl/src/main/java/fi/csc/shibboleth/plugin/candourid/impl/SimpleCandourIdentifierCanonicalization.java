@@ -32,6 +32,8 @@ import net.shibboleth.idp.authn.AuthnEventIds;
 import net.shibboleth.idp.authn.SubjectCanonicalizationException;
 import net.shibboleth.idp.authn.context.SubjectCanonicalizationContext;
 import net.shibboleth.shared.annotation.ParameterName;
+import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
+import net.shibboleth.shared.component.ComponentInitializationException;
 import net.shibboleth.shared.primitive.LoggerFactory;
 
 /**
@@ -55,6 +57,13 @@ public class SimpleCandourIdentifierCanonicalization extends AbstractSubjectCano
     @Nonnull
     private final ActivationCondition embeddedPredicate;
 
+    /** Whether to meter the allocation and CPU time of the executions. */
+    private boolean stageMetering;
+
+    /** Monitor of the executions. */
+    @NonnullAfterInit
+    private CandourActionMonitor monitor;
+
     /** The custom Principal to operate on. */
     @Nullable
     private CandourIdentifierPrincipal identifierPrincipal;
@@ -64,6 +73,24 @@ public class SimpleCandourIdentifierCanonicalization extends AbstractSubjectCano
         embeddedPredicate = new ActivationCondition(false);
     }
 
+    /**
+     * Set whether to meter the heap allocated and the CPU time consumed by the
+     * executions of the action.
+     * 
+     * @param enabled whether to meter the executions
+     */
+    public void setStageMetering(final boolean enabled) {
+        checkSetterPreconditions();
+        stageMetering = enabled;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doInitialize() throws ComponentInitializationException {
+        super.doInitialize();
+        monitor = new CandourActionMonitor(this, stageMetering, getLogPrefix());
+    }
+
     /** {@inheritDoc} */
     @Override
     protected boolean doPreExecute(@Nonnull final ProfileRequestContext profileRequestContext,
@@ -84,7 +111,9 @@ public class SimpleCandourIdentifierCanonicalization extends AbstractSubjectCano
     protected void doExecute(@Nonnull final ProfileRequestContext profileRequestContext,
             @Nonnull final SubjectCanonicalizationContext c14nContext) {
         assert identifierPrincipal != null;
-        c14nContext.setPrincipalName(applyTransforms(identifierPrincipal.getName()));
+        final CandourIdentifierPrincipal principal = identifierPrincipal;
+        monitor.execute(profileRequestContext,
+                () -> c14nContext.setPrincipalName(applyTransforms(principal.getName())));
     }
 
     /** A predicate that determines if this action can run or not. */
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.nio.entity.AbstractBinAsyncEntityConsumer;
+import org.apache.hc.core5.util.ByteArrayBuffer;
+
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponseTooLargeException;
+
+/**
+ * Consumes a response body to a byte array, failing once the body exceeds the
+ * maximum size.
+ */
+class SizeLimitedAsyncEntityConsumer extends AbstractBinAsyncEntityConsumer<byte[]> {
+
+    /** Initial capacity of the buffer. */
+    private static final int INITIAL_CAPACITY = 8192;
+
+    /** Maximum size of the body in bytes. */
+    private final long maxSize;
+
+    /** Body read so far. */
+    @Nullable
+    private ByteArrayBuffer buffer;
+
+    /**
+     * Constructor.
+     * 
+     * @param max maximum size of the body in bytes
+     */
+    SizeLimitedAsyncEntityConsumer(final long max) {
+        maxSize = max;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void streamStart(@Nullable final ContentType contentType) {
+        buffer = new ByteArrayBuffer(INITIAL_CAPACITY);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected int capacityIncrement() {
+        return Integer.MAX_VALUE;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void data(@Nonnull final ByteBuffer src, final boolean endOfStream) throws IOException {
+        if (buffer.length() + (long) src.remaining() > maxSize) {
+            throw new CandourResponseTooLargeException("Response body exceeds maximum size of " + maxSize + " bytes");
+        }
+        buffer.append(src);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Nonnull
+    protected byte[] generateContent() {
+        return buffer != null ? buffer.toByteArray() : new byte[0];
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void releaseResources() {
+        buffer = null;
+    }
+
+}
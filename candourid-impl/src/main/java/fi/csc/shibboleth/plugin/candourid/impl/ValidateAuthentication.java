@@ -15,6 +15,7 @@
  */
 package fi.csc.shibboleth.plugin.candourid.impl;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -29,8 +30,11 @@ import org.opensaml.profile.context.ProfileRequestContext;
 import org.slf4j.Logger;
 
 import fi.csc.shibboleth.plugin.candourid.context.CandourContext;
+import fi.csc.shibboleth.plugin.candourid.image.StoredImage;
 import fi.csc.shibboleth.plugin.candourid.principal.CandourIdentifierPrincipal;
+import net.shibboleth.idp.attribute.ByteAttributeValue;
 import net.shibboleth.idp.attribute.IdPAttribute;
+import net.shibboleth.idp.attribute.IdPAttributeValue;
 import net.shibboleth.idp.attribute.StringAttributeValue;
 import net.shibboleth.idp.authn.AbstractValidationAction;
 import net.shibboleth.idp.authn.context.AuthenticationContext;
@@ -85,6 +89,16 @@ public class ValidateAuthentication extends AbstractValidationAction {
     @NonnullAfterInit
     private List<String> claimSourceIds;
 
+    /** Whether to add the images held in the image store to the subject. */
+    private boolean storedImagesInSubject;
+
+    /** Whether to meter the allocation and CPU time of the executions. */
+    private boolean stageMetering;
+
+    /** Monitor of the executions. */
+    @NonnullAfterInit
+    private CandourActionMonitor monitor;
+
     /** Candour context. */
     @Nullable
     private CandourContext candourContext;
@@ -107,6 +121,29 @@ public class ValidateAuthentication extends AbstractValidationAction {
         claimSourceIds = new ArrayList<>(StringSupport.normalizeStringCollection(ids));
     }
 
+    /**
+     * Set whether to add the images held in the image store to the subject as
+     * attributes. The stored images are read to memory and kept in the IdP session
+     * then. Images not held in the store are added regardless. Defaults to false.
+     * 
+     * @param enabled whether to add the stored images to the subject
+     */
+    public void setStoredImagesInSubject(final boolean enabled) {
+        checkSetterPreconditions();
+        storedImagesInSubject = enabled;
+    }
+
+    /**
+     * Set whether to meter the heap allocated and the CPU time consumed by the
+     * executions of the action.
+     * 
+     * @param enabled whether to meter the executions
+     */
+    public void setStageMetering(final boolean enabled) {
+        checkSetterPreconditions();
+        stageMetering = enabled;
+    }
+
     @Override
     protected void doInitialize() throws ComponentInitializationException {
         super.doInitialize();
@@ -114,6 +151,7 @@ public class ValidateAuthentication extends AbstractValidationAction {
         if (claimSourceIds == null || claimSourceIds.isEmpty()) {
             throw new ComponentInitializationException("ClaimSourceIds cannot be null or empty");
         }
+        monitor = new CandourActionMonitor(this, stageMetering, getLogPrefix());
     }
 
     @Override
@@ -142,9 +180,11 @@ public class ValidateAuthentication extends AbstractValidationAction {
     protected void doExecute(@Nonnull final ProfileRequestContext profileRequestContext,
             @Nonnull final AuthenticationContext authenticationContext) {
 
-        recordSuccess(profileRequestContext);
-        log.debug("{} Validating Candour ID authentication", getLogPrefix());
-        buildAuthenticationResult(profileRequestContext, authenticationContext);
+        monitor.execute(profileRequestContext, () -> {
+            recordSuccess(profileRequestContext);
+            log.debug("{} Validating Candour ID authentication", getLogPrefix());
+            buildAuthenticationResult(profileRequestContext, authenticationContext);
+        });
 
     }
 
@@ -162,9 +202,24 @@ public class ValidateAuthentication extends AbstractValidationAction {
         for (String id : candourContext.getResultClaims().keySet()) {
             if (candourContext.getResultClaims().get(id) == null)
                 continue;
+            Object value = candourContext.getResultClaims().get(id);
+            if (!storedImagesInSubject && value instanceof StoredImage) {
+                log.trace("{} Stored image claim {} not added to the subject", getLogPrefix(), id);
+                continue;
+            }
+            if (value instanceof StoredImage) {
+                try {
+                    value = ((StoredImage) value).load();
+                } catch (final IOException e) {
+                    log.error("{} Unable to read stored image claim {}", getLogPrefix(), id, e);
+                    continue;
+                }
+            }
             IdPAttribute attribute = new IdPAttribute(id);
-            attribute.setValues(Collections
-                    .singletonList(new StringAttributeValue(candourContext.getResultClaims().get(id).toString())));
+            // Decoded image claims are kept binary
+            attribute.setValues(Collections.<IdPAttributeValue>singletonList(value instanceof byte[]
+                    ? new ByteAttributeValue((byte[]) value)
+                    : new StringAttributeValue(value.toString())));
             subject.getPrincipals().add(new IdPAttributePrincipal(attribute));
         }
         return subject;
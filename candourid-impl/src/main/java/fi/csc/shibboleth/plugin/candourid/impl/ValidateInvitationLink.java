@@ -22,7 +22,9 @@ import org.opensaml.profile.context.ProfileRequestContext;
 import org.slf4j.Logger;
 
 import fi.csc.shibboleth.plugin.candourid.CandourEventIds;
+import fi.csc.shibboleth.plugin.candourid.context.CandourContext;
 import net.shibboleth.idp.authn.context.AuthenticationContext;
+import net.shibboleth.shared.annotation.constraint.ThreadSafeAfterInit;
 import net.shibboleth.shared.primitive.LoggerFactory;
 
 /**
@@ -33,6 +35,7 @@ import net.shibboleth.shared.primitive.LoggerFactory;
  * @event {@link fi.csc.shibboleth.plugin.candourid.CandourEventIds.CANDOUR_INVITE_LINK_VALIDATION_FAILURE}
  *        and based on injected map
  */
+@ThreadSafeAfterInit
 public class ValidateInvitationLink extends AbstractCandourAuthenticationAction {
 
     /** Class logger. */
@@ -57,7 +60,7 @@ public class ValidateInvitationLink extends AbstractCandourAuthenticationAction
     /** {@inheritDoc} */
     @Override
     protected void doExecute(@Nonnull final ProfileRequestContext profileRequestContext,
-            @Nonnull final AuthenticationContext authenticationContext) {
+            @Nonnull final AuthenticationContext authenticationContext, @Nonnull final CandourContext candourContext) {
 
         log.debug("{} Validating invitation link", getLogPrefix());
         if (candourContext.getAuthenticationUri() == null || !candourContext.getAuthenticationUri()
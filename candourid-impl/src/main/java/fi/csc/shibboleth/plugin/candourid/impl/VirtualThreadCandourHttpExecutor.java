@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.opensaml.security.httpclient.HttpClientSecurityParameters;
+import org.slf4j.Logger;
+
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponse;
+import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
+import net.shibboleth.shared.annotation.constraint.ThreadSafeAfterInit;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.logic.Constraint;
+import net.shibboleth.shared.primitive.LoggerFactory;
+
+/**
+ * Executes the requests with a blocking {@link HttpClient} on virtual threads.
+ * 
+ * <p>
+ * The blocking I/O happens on a virtual thread while the calling thread waits
+ * for at most the request timeout. Virtual threads are used when the runtime
+ * supports them (Java 21 or later), otherwise the requests run on a cached pool
+ * of daemon platform threads. Security parameters are applied and checked as
+ * with the blocking client used directly.
+ * </p>
+ */
+@ThreadSafeAfterInit
+public class VirtualThreadCandourHttpExecutor extends AbstractCandourHttpExecutor {
+
+    /** Class logger. */
+    @Nonnull
+    private final Logger log = LoggerFactory.getLogger(VirtualThreadCandourHttpExecutor.class);
+
+    /** Http client for contacting the endpoint. */
+    @NonnullAfterInit
+    private HttpClient httpClient;
+
+    /** Executor running the requests. */
+    @NonnullAfterInit
+    private ExecutorService executor;
+
+    /** Whether the requests run on virtual threads. */
+    private boolean virtual;
+
+    /**
+     * Set the {@link HttpClient} to use.
+     * 
+     * @param client client to use
+     */
+    public void setHttpClient(@Nonnull final HttpClient client) {
+        checkSetterPreconditions();
+        httpClient = Constraint.isNotNull(client, "HttpClient cannot be null");
+    }
+
+    /**
+     * Whether the requests run on virtual threads.
+     * 
+     * @return whether the requests run on virtual threads
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doInitialize() throws ComponentInitializationException {
+        super.doInitialize();
+        if (httpClient == null) {
+            throw new ComponentInitializationException("httpClient cannot be null");
+        }
+        executor = newVirtualThreadPerTaskExecutor();
+        virtual = executor != null;
+        if (!virtual) {
+            log.info("Virtual threads are not supported by the runtime, running Candour API requests on platform "
+                    + "threads");
+            final AtomicInteger count = new AtomicInteger();
+            executor = Executors.newCachedThreadPool(runnable -> {
+                final Thread thread = new Thread(runnable, "candourid-http-" + count.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doDestroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        super.doDestroy();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Nullable
+    protected CandourResponse doExecute(@Nonnull final ClassicHttpRequest request,
+            @Nullable final HttpClientSecurityParameters securityParams, @Nullable final Duration timeout,
+            @Nonnull final HttpClientResponseHandler<CandourResponse> responseHandler, @Nonnull final Runnable release)
+            throws IOException {
+        final FutureTask<CandourResponse> task = new FutureTask<>(() -> {
+            try {
+                return CandourHttpSupport.execute(httpClient, securityParams, request, timeout, responseHandler);
+            } finally {
+                release.run();
+            }
+        });
+        try {
+            // The task does not run if cancelled before it starts, the permit is released regardless.
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    release.run();
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            release.run();
+            throw new IOException("Candour API request executor is shut down", e);
+        }
+        return await(task, timeout);
+    }
+
+    /**
+     * Create an executor starting a new virtual thread for each task. Looked up
+     * reflectively as the plugin is built for Java 17.
+     * 
+     * @return the executor or {@literal null} if virtual threads are not
+     *         supported
+     */
+    @Nullable
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (final ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+}
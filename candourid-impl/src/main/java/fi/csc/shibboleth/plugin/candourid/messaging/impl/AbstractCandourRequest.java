@@ -19,15 +19,15 @@ import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
+import javax.annotation.Nullable;
 
-import org.apache.hc.client5.http.utils.Hex;
 import org.apache.hc.core5.http.ClassicHttpRequest;
 import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
 import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
 import org.springframework.http.HttpMethod;
 
@@ -45,6 +45,14 @@ abstract class AbstractCandourRequest<T> {
     /** Client hmac key. */
     private final String hmacKey;
 
+    /** Signer for the client hmac key. */
+    @Nullable
+    private final CandourHmacSigner signer;
+
+    /** Precalculated signature of the payload. */
+    @Nullable
+    private String signature;
+
     /** API uri. */
     private final URI uri;
 
@@ -69,6 +77,7 @@ abstract class AbstractCandourRequest<T> {
             HttpMethod method) {
         publicKey = clientPublicKey;
         hmacKey = clientHmacKey;
+        signer = null;
         uri = apiUri;
         httpMethod = method;
         applicationJSONHeader = true;
@@ -88,6 +97,27 @@ abstract class AbstractCandourRequest<T> {
             HttpMethod method, boolean appJSONHeader) {
         publicKey = clientPublicKey;
         hmacKey = clientHmacKey;
+        signer = null;
+        uri = apiUri;
+        httpMethod = method;
+        applicationJSONHeader = appJSONHeader;
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param apiUri          API uri
+     * @param clientPublicKey Client public key
+     * @param hmacSigner      Signer for the client hmac key
+     * @param method          Http method to use
+     * @param appJSONHeader   Whether to include 'application/json' content type
+     *                        header
+     */
+    public AbstractCandourRequest(final URI apiUri, final String clientPublicKey, final CandourHmacSigner hmacSigner,
+            HttpMethod method, boolean appJSONHeader) {
+        publicKey = clientPublicKey;
+        hmacKey = null;
+        signer = hmacSigner;
         uri = apiUri;
         httpMethod = method;
         applicationJSONHeader = appJSONHeader;
@@ -105,7 +135,7 @@ abstract class AbstractCandourRequest<T> {
     /**
      * Get client hmac key.
      * 
-     * @return Client hmac key
+     * @return Client hmac key, null if the request was created with a signer
      */
     public String getHmacKey() {
         return hmacKey;
@@ -138,6 +168,16 @@ abstract class AbstractCandourRequest<T> {
         payload = load;
     }
 
+    /**
+     * Set precalculated signature of the serialized payload. Allows requests
+     * sharing the same payload to be signed only once.
+     * 
+     * @param payloadSignature hex encoded signature of the serialized payload
+     */
+    public void setSignature(@Nullable String payloadSignature) {
+        signature = payloadSignature;
+    }
+
     /**
      * CandourRequest to http request.
      * 
@@ -151,20 +191,26 @@ abstract class AbstractCandourRequest<T> {
      */
     public ClassicHttpRequest toHttpRequest() throws JsonProcessingException, InvalidKeyException,
             NoSuchAlgorithmException, IllegalStateException, UnsupportedEncodingException, URISyntaxException {
-        String freezedPayload = payload.toString();
         ClassicRequestBuilder rb = null;
+        if (httpMethod != HttpMethod.GET && httpMethod != HttpMethod.DELETE) {
+            final byte[] body = serializePayloadBytes();
+            rb = ClassicRequestBuilder.post().setUri(uri).setHeader("X-AUTH-CLIENT", publicKey)
+                    .setHeader("X-HMAC-SIGNATURE", calculateHmac(body)).setCharset(Charset.forName("UTF-8"))
+                    .setEntity(new ByteArrayEntity(body, ContentType.APPLICATION_JSON));
+            if (applicationJSONHeader) {
+                rb.setHeader("Content-Type", "application/json");
+            }
+            return rb.build();
+        }
+        String freezedPayload = serializePayload();
         if (httpMethod == HttpMethod.GET) {
             rb = ClassicRequestBuilder.get().setUri(new URI(uri.toString() + "/" + freezedPayload))
                     .setHeader("X-AUTH-CLIENT", publicKey).setHeader("X-HMAC-SIGNATURE", calculateHmac(freezedPayload))
                     .setCharset(Charset.forName("UTF-8"));
-        } else if (httpMethod == HttpMethod.DELETE) {
+        } else {
             rb = ClassicRequestBuilder.delete().setUri(new URI(uri.toString() + "/" + freezedPayload))
                     .setHeader("X-AUTH-CLIENT", publicKey).setHeader("X-HMAC-SIGNATURE", calculateHmac(freezedPayload))
                     .setCharset(Charset.forName("UTF-8"));
-        } else {
-            rb = ClassicRequestBuilder.post().setUri(uri).setHeader("X-AUTH-CLIENT", publicKey)
-                    .setHeader("X-HMAC-SIGNATURE", calculateHmac(freezedPayload)).setCharset(Charset.forName("UTF-8"))
-                    .setEntity(freezedPayload, ContentType.APPLICATION_JSON);
         }
         if (applicationJSONHeader) {
             rb.setHeader("Content-Type", "application/json");
@@ -172,6 +218,43 @@ abstract class AbstractCandourRequest<T> {
         return rb.build();
     }
 
+    /**
+     * Serialize the payload to the form that is sent and signed.
+     * 
+     * @return serialized payload
+     * @throws JsonProcessingException if serialization fails
+     */
+    protected String serializePayload() throws JsonProcessingException {
+        return payload.toString();
+    }
+
+    /**
+     * Serialize the payload to the UTF-8 encoded body that is sent and signed.
+     * 
+     * @return serialized payload
+     * @throws JsonProcessingException if serialization fails
+     */
+    protected byte[] serializePayloadBytes() throws JsonProcessingException {
+        return serializePayload().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Calculate hmac for the UTF-8 encoded body.
+     * 
+     * @param body body of the request
+     * @return hex encoded hmac
+     * @throws NoSuchAlgorithmException something went wrong
+     * @throws InvalidKeyException      something went wrong
+     * @throws IllegalStateException    something went wrong
+     */
+    private String calculateHmac(byte[] body)
+            throws NoSuchAlgorithmException, InvalidKeyException, IllegalStateException {
+        if (signature != null) {
+            return signature;
+        }
+        return (signer != null ? signer : new CandourHmacSigner(hmacKey)).sign(body, 0, body.length);
+    }
+
     /**
      * Calculate hmac for the payload.
      * 
@@ -185,10 +268,10 @@ abstract class AbstractCandourRequest<T> {
      */
     private String calculateHmac(String payload) throws NoSuchAlgorithmException, InvalidKeyException,
             JsonProcessingException, IllegalStateException, UnsupportedEncodingException {
-        SecretKeySpec secretKeySpec = new SecretKeySpec(hmacKey.getBytes(), "HmacSHA256");
-        Mac mac = Mac.getInstance("HmacSHA256");
-        mac.init(secretKeySpec);
-        return Hex.encodeHexString(mac.doFinal(payload.getBytes("UTF-8")));
+        if (signature != null) {
+            return signature;
+        }
+        return (signer != null ? signer : new CandourHmacSigner(hmacKey)).sign(payload);
     }
 
 }
@@ -15,49 +15,59 @@
  */
 package fi.csc.shibboleth.plugin.candourid.messaging.impl;
 
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
 
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
 import com.fasterxml.jackson.annotation.JsonInclude;
 
 /**
  * Class implementing fields for allowed verification documents.
  */
+@Immutable
 @JsonInclude(JsonInclude.Include.NON_NULL)
-public class AllowedVerificationDocuments {
+@JsonAutoDetect(fieldVisibility = Visibility.ANY)
+public final class AllowedVerificationDocuments {
 
     /** Whether passport is allowed as verification document. */
     @Nullable
-    private Boolean passport;
+    private final Boolean passport;
+
     /** Whether national id card is allowed as verification document. */
     @Nullable
-    private Boolean idCard;
+    private final Boolean idCard;
 
     /**
-     * Set whether passport is allowed as verification document.
+     * Constructor.
      * 
-     * @param allowed whether passport is allowed as verification document.
+     * @param builder builder providing the values
      */
-    public void setPassport(@Nullable Boolean allowed) {
-        passport = allowed;
+    private AllowedVerificationDocuments(@Nonnull final Builder builder) {
+        passport = builder.passport;
+        idCard = builder.idCard;
     }
 
     /**
-     * Whether passport is allowed as verification document.
+     * Create a builder.
      * 
-     * @return Whether passport is allowed as verification document
+     * @return new builder
      */
-    @Nullable
-    public Boolean isPassport() {
-        return passport;
+    @Nonnull
+    public static Builder builder() {
+        return new Builder();
     }
 
     /**
-     * Set whether national id card is allowed as verification document.
+     * Whether passport is allowed as verification document.
      * 
-     * @param allowed Whether national id card is allowed as verification document
+     * @return Whether passport is allowed as verification document
      */
-    public void setIdCard(@Nullable Boolean allowed) {
-        idCard = allowed;
+    @Nullable
+    public Boolean isPassport() {
+        return passport;
     }
 
     /**
@@ -69,4 +79,56 @@ public class AllowedVerificationDocuments {
     public Boolean isIdCard() {
         return idCard;
     }
+
+    /** Builder of {@link AllowedVerificationDocuments}. */
+    @NotThreadSafe
+    public static final class Builder {
+
+        /** Whether passport is allowed as verification document. */
+        @Nullable
+        private Boolean passport;
+
+        /** Whether national id card is allowed as verification document. */
+        @Nullable
+        private Boolean idCard;
+
+        /** Constructor. */
+        public Builder() {
+            // no op
+        }
+
+        /**
+         * Set whether passport is allowed as verification document.
+         * 
+         * @param allowed whether passport is allowed as verification document.
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setPassport(@Nullable final Boolean allowed) {
+            passport = allowed;
+            return this;
+        }
+
+        /**
+         * Set whether national id card is allowed as verification document.
+         * 
+         * @param allowed Whether national id card is allowed as verification document
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setIdCard(@Nullable final Boolean allowed) {
+            idCard = allowed;
+            return this;
+        }
+
+        /**
+         * Build the immutable instance.
+         * 
+         * @return new instance
+         */
+        @Nonnull
+        public AllowedVerificationDocuments build() {
+            return new AllowedVerificationDocuments(this);
+        }
+    }
 }
@@ -15,71 +15,79 @@
  */
 package fi.csc.shibboleth.plugin.candourid.messaging.impl;
 
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
 
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
 import com.fasterxml.jackson.annotation.JsonInclude;
 
 /**
  * Class implementing fields for allowed verification methods.
  */
+@Immutable
 @JsonInclude(JsonInclude.Include.NON_NULL)
-public class AllowedVerificationMethods {
+@JsonAutoDetect(fieldVisibility = Visibility.ANY)
+public final class AllowedVerificationMethods {
 
     /** Whether web browser based optical verification is allowed. */
     @Nullable
-    private Boolean idWeb;
+    private final Boolean idWeb;
 
     /**
      * Whether mobile app based optical verification + nfc chip verification is
      * allowed.
      */
     @Nullable
-    private Boolean rfidApp;
+    private final Boolean rfidApp;
 
     /** Whether mobile app based optical verification is allowed. */
     @Nullable
-    private Boolean idApp;
+    private final Boolean idApp;
 
     /**
-     * Whether web browser based optical verification is allowed.
+     * Constructor.
      * 
-     * @return whether web browser based optical verification is allowed
+     * @param builder builder providing the values
      */
-    @Nullable
-    public Boolean isIdWeb() {
-        return idWeb;
+    private AllowedVerificationMethods(@Nonnull final Builder builder) {
+        idWeb = builder.idWeb;
+        rfidApp = builder.rfidApp;
+        idApp = builder.idApp;
     }
 
     /**
-     * Set whether web browser based optical verification is allowed.
+     * Create a builder.
      * 
-     * @param allowed Whether web browser based optical verification is allowed
+     * @return new builder
      */
-    public void setIdWeb(@Nullable Boolean allowed) {
-        idWeb = allowed;
+    @Nonnull
+    public static Builder builder() {
+        return new Builder();
     }
 
     /**
-     * Whether mobile app based optical verification + nfc chip verification is
-     * allowed.
+     * Whether web browser based optical verification is allowed.
      * 
-     * @return Whether mobile app based optical verification + nfc chip verification
-     *         is allowed
+     * @return whether web browser based optical verification is allowed
      */
     @Nullable
-    public Boolean isRfidApp() {
-        return rfidApp;
+    public Boolean isIdWeb() {
+        return idWeb;
     }
 
     /**
-     * Set whether mobile app based optical verification + nfc chip verification is
+     * Whether mobile app based optical verification + nfc chip verification is
      * allowed.
      * 
-     * @param allowed whether mobile app based optical verification + nfc chip
-     *                verification is allowed.
+     * @return Whether mobile app based optical verification + nfc chip verification
+     *         is allowed
      */
-    public void setRfidApp(@Nullable Boolean allowed) {
-        rfidApp = allowed;
+    @Nullable
+    public Boolean isRfidApp() {
+        return rfidApp;
     }
 
     /**
@@ -92,12 +100,76 @@ public class AllowedVerificationMethods {
         return idApp;
     }
 
-    /**
-     * Set whether mobile app based optical verification is allowed.
-     * 
-     * @param idApp whether mobile app based optical verification is allowed.
-     */
-    public void setIdApp(@Nullable Boolean allowed) {
-        idApp = allowed;
+    /** Builder of {@link AllowedVerificationMethods}. */
+    @NotThreadSafe
+    public static final class Builder {
+
+        /** Whether web browser based optical verification is allowed. */
+        @Nullable
+        private Boolean idWeb;
+
+        /**
+         * Whether mobile app based optical verification + nfc chip verification is
+         * allowed.
+         */
+        @Nullable
+        private Boolean rfidApp;
+
+        /** Whether mobile app based optical verification is allowed. */
+        @Nullable
+        private Boolean idApp;
+
+        /** Constructor. */
+        public Builder() {
+            // no op
+        }
+
+        /**
+         * Set whether web browser based optical verification is allowed.
+         * 
+         * @param allowed Whether web browser based optical verification is allowed
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setIdWeb(@Nullable final Boolean allowed) {
+            idWeb = allowed;
+            return this;
+        }
+
+        /**
+         * Set whether mobile app based optical verification + nfc chip verification is
+         * allowed.
+         * 
+         * @param allowed whether mobile app based optical verification + nfc chip
+         *                verification is allowed.
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setRfidApp(@Nullable final Boolean allowed) {
+            rfidApp = allowed;
+            return this;
+        }
+
+        /**
+         * Set whether mobile app based optical verification is allowed.
+         * 
+         * @param idApp whether mobile app based optical verification is allowed.
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setIdApp(@Nullable final Boolean allowed) {
+            idApp = allowed;
+            return this;
+        }
+
+        /**
+         * Build the immutable instance.
+         * 
+         * @return new instance
+         */
+        @Nonnull
+        public AllowedVerificationMethods build() {
+            return new AllowedVerificationMethods(this);
+        }
     }
-}
\ No newline at end of file
+}
@@ -36,4 +36,15 @@ public class CandourDeleteRequest extends AbstractCandourRequest<String> {
         super(apiUri, clientPublicKey, clientHmacKey, HttpMethod.DELETE, false);
     }
 
+    /**
+     * Constructor.
+     * 
+     * @param apiUri          API uri
+     * @param clientPublicKey Client public key
+     * @param hmacSigner      Signer for the client hmac key
+     */
+    public CandourDeleteRequest(final URI apiUri, final String clientPublicKey, final CandourHmacSigner hmacSigner) {
+        super(apiUri, clientPublicKey, hmacSigner, HttpMethod.DELETE, false);
+    }
+
 }
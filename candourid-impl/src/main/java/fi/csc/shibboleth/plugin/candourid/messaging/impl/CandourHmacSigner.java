@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.messaging.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+
+import net.shibboleth.shared.annotation.ParameterName;
+import net.shibboleth.shared.logic.Constraint;
+
+/**
+ * Calculates the hex encoded HmacSHA256 signature of Candour API requests.
+ * 
+ * <p>
+ * One instance is meant to be created per client key. Initialized {@link Mac}
+ * instances are cloned from a prototype and kept in a pool together with their
+ * output buffers, so signing does not look up the provider or allocate
+ * anything but the payload bytes and the resulting string.
+ * </p>
+ */
+@ThreadSafe
+public final class CandourHmacSigner {
+
+    /** Signature algorithm. */
+    @Nonnull
+    private static final String ALGORITHM = "HmacSHA256";
+
+    /** Default maximum number of idle {@link Mac} instances kept. */
+    private static final int DEFAULT_MAX_IDLE = 64;
+
+    /** Lower case hex digits. */
+    @Nonnull
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    /** Signing key. */
+    @Nonnull
+    private final SecretKeySpec key;
+
+    /** Initialized prototype instance, only used for cloning. */
+    @Nonnull
+    private final Mac prototype;
+
+    /** Idle signing states. */
+    @Nonnull
+    private final Queue<SigningState> pool = new ConcurrentLinkedQueue<>();
+
+    /** Number of idle signing states. */
+    @Nonnull
+    private final AtomicInteger idle = new AtomicInteger();
+
+    /** Maximum number of idle signing states. */
+    private final int maxIdle;
+
+    /**
+     * Constructor.
+     * 
+     * @param hmacKey Client hmac key
+     * @throws NoSuchAlgorithmException if HmacSHA256 is not available
+     * @throws InvalidKeyException      if the key is not valid
+     */
+    public CandourHmacSigner(@Nonnull @ParameterName(name = "hmacKey") final String hmacKey)
+            throws NoSuchAlgorithmException, InvalidKeyException {
+        this(hmacKey, DEFAULT_MAX_IDLE);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param hmacKey Client hmac key
+     * @param max     maximum number of idle {@link Mac} instances kept
+     * @throws NoSuchAlgorithmException if HmacSHA256 is not available
+     * @throws InvalidKeyException      if the key is not valid
+     */
+    public CandourHmacSigner(@Nonnull @ParameterName(name = "hmacKey") final String hmacKey,
+            @ParameterName(name = "maxIdle") final int max) throws NoSuchAlgorithmException, InvalidKeyException {
+        Constraint.isNotNull(hmacKey, "Hmac key cannot be null");
+        key = new SecretKeySpec(hmacKey.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        prototype = Mac.getInstance(ALGORITHM);
+        prototype.init(key);
+        maxIdle = max;
+    }
+
+    /**
+     * Calculate the hex encoded signature of the payload.
+     * 
+     * @param payload payload of the request
+     * @return lower case hex encoded signature
+     */
+    @Nonnull
+    public String sign(@Nonnull final String payload) {
+        final byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        return sign(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Calculate the hex encoded signature of the UTF-8 encoded payload.
+     * 
+     * @param payload buffer holding the payload of the request
+     * @param offset  offset of the payload in the buffer
+     * @param length  length of the payload
+     * @return lower case hex encoded signature
+     */
+    @Nonnull
+    public String sign(@Nonnull final byte[] payload, final int offset, final int length) {
+        final SigningState state = acquire();
+        try {
+            state.mac.update(payload, offset, length);
+            state.mac.doFinal(state.digest, 0);
+            final byte[] digest = state.digest;
+            final byte[] hex = state.hex;
+            for (int i = 0; i < digest.length; i++) {
+                hex[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0x0f];
+                hex[i * 2 + 1] = HEX_DIGITS[digest[i] & 0x0f];
+            }
+            return new String(hex, StandardCharsets.ISO_8859_1);
+        } catch (final ShortBufferException e) {
+            // Buffer is sized by the Mac itself
+            throw new IllegalStateException(e);
+        } finally {
+            release(state);
+        }
+    }
+
+    /**
+     * Take an idle signing state or create a new one.
+     * 
+     * @return signing state
+     */
+    @Nonnull
+    private SigningState acquire() {
+        final SigningState state = pool.poll();
+        if (state != null) {
+            idle.decrementAndGet();
+            return state;
+        }
+        return new SigningState(newMac());
+    }
+
+    /**
+     * Return the signing state to the pool unless the pool is full.
+     * 
+     * @param state signing state
+     */
+    private void release(@Nonnull final SigningState state) {
+        // doFinal() has already reset the Mac
+        if (idle.incrementAndGet() <= maxIdle) {
+            pool.offer(state);
+        } else {
+            idle.decrementAndGet();
+        }
+    }
+
+    /**
+     * Clone an initialized {@link Mac} from the prototype, or initialize a new
+     * one if the provider does not support cloning.
+     * 
+     * @return initialized Mac
+     */
+    @Nonnull
+    private Mac newMac() {
+        try {
+            synchronized (prototype) {
+                return (Mac) prototype.clone();
+            }
+        } catch (final CloneNotSupportedException e) {
+            try {
+                final Mac mac = Mac.getInstance(ALGORITHM, prototype.getProvider());
+                mac.init(key);
+                return mac;
+            } catch (final NoSuchAlgorithmException | InvalidKeyException e1) {
+                // Already succeeded once in the constructor
+                throw new IllegalStateException(e1);
+            }
+        }
+    }
+
+    /** Mac instance with its output buffers. */
+    private static final class SigningState {
+
+        /** Initialized Mac. */
+        @Nonnull
+        private final Mac mac;
+
+        /** Raw signature. */
+        @Nonnull
+        private final byte[] digest;
+
+        /** Hex encoded signature. */
+        @Nonnull
+        private final byte[] hex;
+
+        /**
+         * Constructor.
+         * 
+         * @param initializedMac initialized Mac
+         */
+        private SigningState(@Nonnull final Mac initializedMac) {
+            mac = initializedMac;
+            digest = new byte[mac.getMacLength()];
+            hex = new byte[digest.length * 2];
+        }
+    }
+
+}
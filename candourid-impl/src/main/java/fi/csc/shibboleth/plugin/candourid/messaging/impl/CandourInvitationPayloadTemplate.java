@@ -0,0 +1,380 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.messaging.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import net.shibboleth.shared.annotation.ParameterName;
+import net.shibboleth.shared.logic.Constraint;
+
+/**
+ * Precompiled serialization of a {@link CandourInvitationRequestPayload}.
+ * 
+ * <p>
+ * The payload is serialized once with the codec, with markers in place of the
+ * timestamp, the validity end and the callback url, and the json between the
+ * markers is kept as UTF-8 bytes. Rendering a request copies the static parts
+ * and writes the dynamic values in between into a reusable per thread buffer,
+ * producing the same bytes the codec would for the payload.
+ * </p>
+ */
+@ThreadSafe
+public final class CandourInvitationPayloadTemplate {
+
+    /** Marker of the timestamp. */
+    @Nonnull
+    private static final String TIMESTAMP_MARKER = "@@candour.template.timestamp@@";
+
+    /** Marker of the validity end. */
+    @Nonnull
+    private static final String VALID_UNTIL_MARKER = "@@candour.template.validUntil@@";
+
+    /** Marker of the callback url. */
+    @Nonnull
+    private static final String CALLBACK_URL_MARKER = "@@candour.template.callbackUrl@@";
+
+    /** Field type of the timestamp. */
+    private static final int TIMESTAMP = 0;
+
+    /** Field type of the validity end. */
+    private static final int VALID_UNTIL = 1;
+
+    /** Field type of the callback url. */
+    private static final int CALLBACK_URL = 2;
+
+    /** Upper case hex digits as used by Jackson for escapes. */
+    @Nonnull
+    private static final byte[] HEX_DIGITS = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    /** Initial size of the per thread buffer beyond the static parts. */
+    private static final int DYNAMIC_RESERVE = 512;
+
+    /** Per thread buffer the payload is rendered to. */
+    @Nonnull
+    private final ThreadLocal<Buffer> buffers;
+
+    /** Static json before each dynamic field and after the last one. */
+    @Nonnull
+    private final byte[][] segments;
+
+    /** Types of the dynamic fields in order of appearance. */
+    @Nonnull
+    private final int[] fields;
+
+    /** Duration for the session to be valid. */
+    @Nonnull
+    private final Duration invitationValidity;
+
+    /**
+     * Constructor.
+     * 
+     * @param payload   payload providing the static content
+     * @param jsonCodec codec the payload is otherwise serialized with
+     * @throws JsonProcessingException if the payload cannot be serialized
+     */
+    public CandourInvitationPayloadTemplate(
+            @Nonnull @ParameterName(name = "payload") final CandourInvitationRequestPayload payload,
+            @Nonnull @ParameterName(name = "jsonCodec") final CandourJsonCodec jsonCodec)
+            throws JsonProcessingException {
+        Constraint.isNotNull(payload, "Payload cannot be null");
+        Constraint.isNotNull(jsonCodec, "Codec cannot be null");
+        invitationValidity = payload.getInvitationValidity();
+        final String json = jsonCodec.writeInvitationRequestPayload(new MarkedPayload(payload));
+        final int[] positions = new int[] { indexOfOnly(json, TIMESTAMP_MARKER),
+                indexOfOnly(json, VALID_UNTIL_MARKER), indexOfOnly(json, CALLBACK_URL_MARKER) };
+        final String[] markers = new String[] { TIMESTAMP_MARKER, VALID_UNTIL_MARKER, CALLBACK_URL_MARKER };
+        fields = new int[] { TIMESTAMP, VALID_UNTIL, CALLBACK_URL };
+        // Order the fields as the serializer wrote them
+        for (int i = 1; i < fields.length; i++) {
+            for (int j = i; j > 0 && positions[fields[j]] < positions[fields[j - 1]]; j--) {
+                final int field = fields[j];
+                fields[j] = fields[j - 1];
+                fields[j - 1] = field;
+            }
+        }
+        segments = new byte[fields.length + 1][];
+        int start = 0;
+        for (int i = 0; i < fields.length; i++) {
+            segments[i] = json.substring(start, positions[fields[i]]).getBytes(StandardCharsets.UTF_8);
+            start = positions[fields[i]] + markers[fields[i]].length();
+        }
+        segments[fields.length] = json.substring(start).getBytes(StandardCharsets.UTF_8);
+        int size = DYNAMIC_RESERVE;
+        for (final byte[] segment : segments) {
+            size += segment.length;
+        }
+        final int initialSize = size;
+        buffers = ThreadLocal.withInitial(() -> new Buffer(initialSize));
+    }
+
+    /**
+     * Render the payload with the current time.
+     * 
+     * @param callbackUrl redirect callback url
+     * @return UTF-8 encoded json
+     */
+    @Nonnull
+    public byte[] render(@Nonnull final String callbackUrl) {
+        return render(callbackUrl, System.currentTimeMillis());
+    }
+
+    /**
+     * Render the payload with the given time.
+     * 
+     * @param callbackUrl redirect callback url
+     * @param epochMilli  current time in milliseconds from the epoch
+     * @return UTF-8 encoded json
+     */
+    @Nonnull
+    public byte[] render(@Nonnull final String callbackUrl, final long epochMilli) {
+        Constraint.isNotNull(callbackUrl, "Callback url cannot be null");
+        final Buffer buffer = buffers.get();
+        buffer.length = 0;
+        for (int i = 0; i < fields.length; i++) {
+            buffer.write(segments[i]);
+            switch (fields[i]) {
+                case TIMESTAMP:
+                    writeTimestamp(buffer, epochMilli);
+                    break;
+                case VALID_UNTIL:
+                    writeTimestamp(buffer, Instant.ofEpochMilli(epochMilli).plus(invitationValidity).toEpochMilli());
+                    break;
+                default:
+                    writeEscaped(buffer, callbackUrl);
+                    break;
+            }
+        }
+        buffer.write(segments[fields.length]);
+        return Arrays.copyOf(buffer.bytes, buffer.length);
+    }
+
+    /**
+     * Write the time in format yyyy-MM-dd'T'HH:mm:ss.SSS'Z'.
+     * 
+     * @param buffer     target
+     * @param epochMilli time in milliseconds from the epoch
+     */
+    private static void writeTimestamp(@Nonnull final Buffer buffer, final long epochMilli) {
+        final LocalDateTime time = LocalDateTime.ofEpochSecond(Math.floorDiv(epochMilli, 1000L),
+                (int) Math.floorMod(epochMilli, 1000L) * 1_000_000, ZoneOffset.UTC);
+        final int year = time.getYear();
+        if (year < 1000 || year > 9999) {
+            buffer.write(CandourInvitationRequestPayload.TIMESTAMP_FORMAT.format(time)
+                    .getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+        buffer.ensure(24);
+        final byte[] bytes = buffer.bytes;
+        int pos = buffer.length;
+        pos = writeDigits(bytes, pos, year, 4);
+        bytes[pos++] = '-';
+        pos = writeDigits(bytes, pos, time.getMonthValue(), 2);
+        bytes[pos++] = '-';
+        pos = writeDigits(bytes, pos, time.getDayOfMonth(), 2);
+        bytes[pos++] = 'T';
+        pos = writeDigits(bytes, pos, time.getHour(), 2);
+        bytes[pos++] = ':';
+        pos = writeDigits(bytes, pos, time.getMinute(), 2);
+        bytes[pos++] = ':';
+        pos = writeDigits(bytes, pos, time.getSecond(), 2);
+        bytes[pos++] = '.';
+        pos = writeDigits(bytes, pos, time.getNano() / 1_000_000, 3);
+        bytes[pos++] = 'Z';
+        buffer.length = pos;
+    }
+
+    /**
+     * Write a zero padded decimal number.
+     * 
+     * @param bytes  target
+     * @param pos    position to write to
+     * @param value  non-negative value
+     * @param digits number of digits
+     * @return position after the number
+     */
+    private static int writeDigits(@Nonnull final byte[] bytes, final int pos, final int value, final int digits) {
+        int remaining = value;
+        for (int i = pos + digits - 1; i >= pos; i--) {
+            bytes[i] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        return pos + digits;
+    }
+
+    /**
+     * Write a json string value escaped as Jackson does by default: quotes,
+     * backslashes and control characters are escaped, other characters are
+     * written as UTF-8.
+     * 
+     * @param buffer target
+     * @param value  string value
+     */
+    private static void writeEscaped(@Nonnull final Buffer buffer, @Nonnull final String value) {
+        final byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        buffer.ensure(utf8.length);
+        for (final byte b : utf8) {
+            // Bytes of multibyte sequences are all negative
+            if (b >= 0 && (b < 0x20 || b == '"' || b == '\\')) {
+                writeEscape(buffer, b);
+            } else {
+                buffer.ensure(1);
+                buffer.bytes[buffer.length++] = b;
+            }
+        }
+    }
+
+    /**
+     * Write the escape of a character.
+     * 
+     * @param buffer target
+     * @param c      character to escape
+     */
+    private static void writeEscape(@Nonnull final Buffer buffer, final byte c) {
+        final byte shortEscape;
+        switch (c) {
+            case '"':
+                shortEscape = '"';
+                break;
+            case '\\':
+                shortEscape = '\\';
+                break;
+            case '\b':
+                shortEscape = 'b';
+                break;
+            case '\t':
+                shortEscape = 't';
+                break;
+            case '\n':
+                shortEscape = 'n';
+                break;
+            case '\f':
+                shortEscape = 'f';
+                break;
+            case '\r':
+                shortEscape = 'r';
+                break;
+            default:
+                shortEscape = 0;
+                break;
+        }
+        buffer.ensure(6);
+        final byte[] bytes = buffer.bytes;
+        bytes[buffer.length++] = '\\';
+        if (shortEscape != 0) {
+            bytes[buffer.length++] = shortEscape;
+        } else {
+            bytes[buffer.length++] = 'u';
+            bytes[buffer.length++] = '0';
+            bytes[buffer.length++] = '0';
+            bytes[buffer.length++] = HEX_DIGITS[c >> 4];
+            bytes[buffer.length++] = HEX_DIGITS[c & 0x0f];
+        }
+    }
+
+    /**
+     * Find the only occurrence of a marker.
+     * 
+     * @param json   serialized payload
+     * @param marker marker to find
+     * @return index of the marker
+     */
+    private static int indexOfOnly(@Nonnull final String json, @Nonnull final String marker) {
+        final int index = json.indexOf(marker);
+        if (index < 0 || json.indexOf(marker, index + 1) >= 0) {
+            throw new IllegalArgumentException("Payload cannot be used as a template, marker " + marker
+                    + (index < 0 ? " not serialized" : " found in the static content"));
+        }
+        return index;
+    }
+
+    /** Growable byte buffer. */
+    private static final class Buffer {
+
+        /** Content. */
+        @Nonnull
+        private byte[] bytes;
+
+        /** Length of the content. */
+        private int length;
+
+        /**
+         * Constructor.
+         * 
+         * @param size initial size
+         */
+        private Buffer(final int size) {
+            bytes = new byte[size];
+        }
+
+        /**
+         * Make room for more bytes.
+         * 
+         * @param count number of bytes to make room for
+         */
+        private void ensure(final int count) {
+            if (length + count > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + count));
+            }
+        }
+
+        /**
+         * Append bytes.
+         * 
+         * @param data bytes to append
+         */
+        private void write(@Nonnull final byte[] data) {
+            ensure(data.length);
+            System.arraycopy(data, 0, bytes, length, data.length);
+            length += data.length;
+        }
+    }
+
+    /** Payload serializing the markers in place of the dynamic fields. */
+    private static final class MarkedPayload extends CandourInvitationRequestPayload {
+
+        /**
+         * Constructor.
+         * 
+         * @param payload payload providing the static content
+         */
+        private MarkedPayload(@Nonnull final CandourInvitationRequestPayload payload) {
+            super(payload.toBuilder().setCallbackUrl(CALLBACK_URL_MARKER));
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public String getTimestamp() {
+            return TIMESTAMP_MARKER;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public String getValidUntil() {
+            return VALID_UNTIL_MARKER;
+        }
+    }
+
+}
@@ -16,14 +16,34 @@
 package fi.csc.shibboleth.plugin.candourid.messaging.impl;
 
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import org.springframework.http.HttpMethod;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import net.shibboleth.shared.logic.Constraint;
+
 /**
  * Class to create Candour invitation request.
  */
 public class CandourInvitationRequest extends AbstractCandourRequest<CandourInvitationRequestPayload> {
 
+    /** Codec used to serialize the payload. */
+    @Nonnull
+    private CandourJsonCodec jsonCodec = CandourJsonCodec.getDefault();
+
+    /** Precompiled payload used in place of the payload, if set. */
+    @Nullable
+    private CandourInvitationPayloadTemplate payloadTemplate;
+
+    /** Redirect callback url rendered to the precompiled payload. */
+    @Nullable
+    private String templateCallbackUrl;
+
     /**
      * Constructor.
      * 
@@ -35,4 +55,56 @@ public class CandourInvitationRequest extends AbstractCandourRequest<CandourInvi
         super(apiUri, clientPublicKey, clientHmacKey, HttpMethod.POST);
     }
 
+    /**
+     * Constructor.
+     * 
+     * @param apiUri          API uri
+     * @param clientPublicKey Client public key
+     * @param hmacSigner      Signer for the client hmac key
+     */
+    public CandourInvitationRequest(final URI apiUri, final String clientPublicKey, final CandourHmacSigner hmacSigner) {
+        super(apiUri, clientPublicKey, hmacSigner, HttpMethod.POST, true);
+    }
+
+    /**
+     * Set codec used to serialize the payload.
+     * 
+     * @param codec codec used to serialize the payload
+     */
+    public void setJsonCodec(@Nonnull final CandourJsonCodec codec) {
+        jsonCodec = Constraint.isNotNull(codec, "Codec cannot be null");
+    }
+
+    /**
+     * Set precompiled payload to send in place of the payload.
+     * 
+     * @param template    precompiled payload, null to serialize the payload
+     * @param callbackUrl redirect callback url rendered to the precompiled
+     *                    payload
+     */
+    public void setPayloadTemplate(@Nullable final CandourInvitationPayloadTemplate template,
+            @Nullable final String callbackUrl) {
+        Constraint.isTrue(template == null || callbackUrl != null, "Callback url cannot be null");
+        payloadTemplate = template;
+        templateCallbackUrl = callbackUrl;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected String serializePayload() throws JsonProcessingException {
+        if (payloadTemplate != null) {
+            return new String(payloadTemplate.render(templateCallbackUrl), StandardCharsets.UTF_8);
+        }
+        return jsonCodec.writeInvitationRequestPayload(getPayload());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected byte[] serializePayloadBytes() throws JsonProcessingException {
+        if (payloadTemplate != null) {
+            return payloadTemplate.render(templateCallbackUrl);
+        }
+        return super.serializePayloadBytes();
+    }
+
 }
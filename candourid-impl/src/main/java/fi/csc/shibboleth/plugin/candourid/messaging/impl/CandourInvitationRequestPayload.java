@@ -15,57 +15,145 @@
  */
 package fi.csc.shibboleth.plugin.candourid.messaging.impl;
 
+import java.time.Clock;
 import java.time.Duration;
-import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * The payload for {@link CandourInvitationRequest}
  *
+ * <p>
+ * Instances are immutable and may be shared between threads. The per request
+ * callback url is set on a copy, see {@link #withCallbackUrl(String)}.
+ * </p>
  */
+@Immutable
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class CandourInvitationRequestPayload {
 
+    /** Format of the timestamps. */
+    @Nonnull
+    static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+
+    /** Clock for the timestamps. */
+    @Nonnull
+    private final Clock clock;
+
     /** Duration for the session to be valid. Defaults to 10 minutes. */
-    private Duration invitationValidity = Duration.ofMinutes(10);
+    @Nonnull
+    private final Duration invitationValidity;
 
     /** How many verification tries User is allowed to have. Defaults to 5. */
-    private Integer tries = 5;
+    @Nullable
+    private final Integer tries;
 
     /** redirect callback url. */
-    private String callbackUrl;
+    @Nullable
+    private final String callbackUrl;
 
     /** redirect callback post url. */
-    private String callbackPostEndpoint;
+    @Nullable
+    private final String callbackPostEndpoint;
 
     /** Allowed verification methods. */
-    private AllowedVerificationMethods allowedVerificationMethods = new AllowedVerificationMethods();
+    @Nullable
+    private final AllowedVerificationMethods allowedVerificationMethods;
 
     /** Allowed verification documents. */
-    private AllowedVerificationDocuments allowedVerificationDocuments = new AllowedVerificationDocuments();
+    @Nullable
+    private final AllowedVerificationDocuments allowedVerificationDocuments;
 
     /** Expected result claims and used matchers. */
-    private ResultProperties resultProperties = new ResultProperties();
+    @Nullable
+    private final ResultProperties resultProperties;
 
     /** Data for matching a user with resultProperties matchers. */
-    private User user = new User();
+    @Nullable
+    private final User user;
 
     /** Data for matching a user. */
-    private EnforceValues enforceValues = new EnforceValues();
+    @Nullable
+    private final EnforceValues enforceValues;
+
+    /**
+     * Constructor.
+     * 
+     * @param builder builder providing the values
+     */
+    protected CandourInvitationRequestPayload(@Nonnull final Builder builder) {
+        clock = builder.clock;
+        invitationValidity = builder.invitationValidity;
+        tries = builder.tries;
+        callbackUrl = builder.callbackUrl;
+        callbackPostEndpoint = builder.callbackPostEndpoint;
+        allowedVerificationMethods = builder.allowedVerificationMethods;
+        allowedVerificationDocuments = builder.allowedVerificationDocuments;
+        resultProperties = builder.resultProperties;
+        user = builder.user;
+        enforceValues = builder.enforceValues;
+    }
+
+    /**
+     * Create a builder.
+     * 
+     * @return new builder
+     */
+    @Nonnull
+    public static Builder builder() {
+        return new Builder();
+    }
 
     /**
-     * Set duration for the session to be valid.
+     * Create a builder initialized with the values of this instance.
      * 
-     * @param validityDuration Duration for the session to be valid
+     * @return new builder
      */
-    public void setInvitationValidity(Duration validityDuration) {
-        invitationValidity = validityDuration;
+    @Nonnull
+    public Builder toBuilder() {
+        return new Builder().setClock(clock)
+                .setInvitationValidity(invitationValidity)
+                .setTries(tries)
+                .setCallbackUrl(callbackUrl)
+                .setCallbackPostEndpoint(callbackPostEndpoint)
+                .setAllowedVerificationMethods(allowedVerificationMethods)
+                .setAllowedVerificationDocuments(allowedVerificationDocuments)
+                .setResultProperties(resultProperties)
+                .setUser(user)
+                .setEnforceValues(enforceValues);
+    }
+
+    /**
+     * Copy of this payload with the given redirect callback url. The other values
+     * are shared with this instance.
+     * 
+     * @param url Redirect callback url
+     * @return payload with the callback url
+     */
+    @Nonnull
+    public CandourInvitationRequestPayload withCallbackUrl(@Nullable final String url) {
+        return toBuilder().setCallbackUrl(url).build();
+    }
+
+    /**
+     * Get duration for the session to be valid.
+     * 
+     * @return Duration for the session to be valid
+     */
+    @JsonIgnore
+    @Nonnull
+    public Duration getInvitationValidity() {
+        return invitationValidity;
     }
 
     /**
@@ -74,8 +162,7 @@ public class CandourInvitationRequestPayload {
      * @return Current instant in format yyyy-MM-dd'T'HH:mm:ss.SSS'Z
      */
     public String getTimestamp() {
-        return LocalDateTime.ofInstant(Instant.now(), ZoneOffset.UTC)
-                .format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'"));
+        return LocalDateTime.ofInstant(clock.instant(), ZoneOffset.UTC).format(TIMESTAMP_FORMAT);
     }
 
     /**
@@ -85,8 +172,8 @@ public class CandourInvitationRequestPayload {
      *         yyyy-MM-dd'T'HH:mm:ss.SSS'Z
      */
     public String getValidUntil() {
-        return LocalDateTime.ofInstant(Instant.now().plus(invitationValidity), ZoneOffset.UTC)
-                .format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'"));
+        return LocalDateTime.ofInstant(clock.instant().plus(invitationValidity), ZoneOffset.UTC)
+                .format(TIMESTAMP_FORMAT);
     }
 
     /**
@@ -94,61 +181,37 @@ public class CandourInvitationRequestPayload {
      * 
      * @return How many verification tries User is allowed to have. Defaults to 5
      */
+    @Nullable
     public Integer getTries() {
         return tries;
     }
 
-    /**
-     * Set how many verification tries User is allowed to have. Defaults to 5.
-     * 
-     * @param numTries How many verification tries User is allowed to have. Defaults
-     *                 to 5
-     */
-    public void setTries(Integer numTries) {
-        tries = numTries;
-    }
-
     /**
      * Get redirect callback url.
      * 
      * @return Redirect callback url.
      */
+    @Nullable
     public String getCallbackUrl() {
         return callbackUrl;
     }
 
-    /**
-     * Set redirect callback url.
-     * 
-     * @param url Redirect callback url.
-     */
-    public void setCallbackUrl(String url) {
-        callbackUrl = url;
-    }
-
     /**
      * Get redirect callback post url.
      * 
      * @return redirect callback post url
      */
+    @Nullable
     public String getCallbackPostEndpoint() {
         return callbackPostEndpoint;
     }
 
-    /**
-     * Set redirect callback post url.
-     * 
-     * @param callbackPostEndpoint Redirect callback post url
-     */
-    public void setCallbackPostEndpoint(String endPoint) {
-        callbackPostEndpoint = endPoint;
-    }
-
     /**
      * Get allowed verification methods.
      * 
      * @return Allowed verification methods
      */
+    @Nullable
     public AllowedVerificationMethods getAllowedVerificationMethods() {
         return allowedVerificationMethods;
     }
@@ -158,6 +221,7 @@ public class CandourInvitationRequestPayload {
      * 
      * @return Allowed verification documents
      */
+    @Nullable
     public AllowedVerificationDocuments getAllowedVerificationDocuments() {
         return allowedVerificationDocuments;
     }
@@ -167,6 +231,7 @@ public class CandourInvitationRequestPayload {
      * 
      * @return Expected result claims and used matchers
      */
+    @Nullable
     public ResultProperties getResultProperties() {
         return resultProperties;
     }
@@ -176,6 +241,7 @@ public class CandourInvitationRequestPayload {
      * 
      * @return data for matching a user with resultProperties matchers.
      */
+    @Nullable
     public User getUser() {
         return user;
     }
@@ -185,55 +251,11 @@ public class CandourInvitationRequestPayload {
      * 
      * @return Data for matching a user
      */
+    @Nullable
     public EnforceValues getEnforceValues() {
         return enforceValues;
     }
 
-    /**
-     * Set allowed verification methods.
-     * 
-     * @param documents Allowed verification methods
-     */
-    public void setAllowedVerificationMethods(AllowedVerificationMethods methods) {
-        allowedVerificationMethods = methods;
-    }
-
-    /**
-     * Set Allowed verification documents.
-     * 
-     * @param properties Allowed verification documents
-     */
-    public void setAllowedVerificationDocuments(AllowedVerificationDocuments documents) {
-        allowedVerificationDocuments = documents;
-    }
-
-    /**
-     * Set expected result claims and used matchers.
-     * 
-     * @param properties Expected result claims and used matchers.
-     */
-    public void setResultProperties(ResultProperties properties) {
-        resultProperties = properties;
-    }
-
-    /**
-     * Set data for matching a user with resultProperties matchers.
-     * 
-     * @param usr Data for matching a user with resultProperties matchers
-     */
-    public void setUser(User usr) {
-        user = usr;
-    }
-
-    /**
-     * Set data for matching a user.
-     * 
-     * @param values Data for matching a user.
-     */
-    public void setEnforceValues(EnforceValues values) {
-        enforceValues = values;
-    }
-
     /**
      * Serialize instance to json string.
      * 
@@ -241,8 +263,7 @@ public class CandourInvitationRequestPayload {
      * @throws JsonProcessingException something went wrong
      */
     public String serialize() throws JsonProcessingException {
-        ObjectMapper objectMapper = new ObjectMapper();
-        return objectMapper.writeValueAsString(this);
+        return CandourJsonCodec.getDefault().writeInvitationRequestPayload(this);
     }
 
     /**
@@ -259,4 +280,182 @@ public class CandourInvitationRequestPayload {
         return null;
     }
 
+    /** Builder of {@link CandourInvitationRequestPayload}. */
+    @NotThreadSafe
+    public static class Builder {
+
+        /** Clock for the timestamps. */
+        @Nonnull
+        private Clock clock = Clock.systemUTC();
+
+        /** Duration for the session to be valid. */
+        @Nonnull
+        private Duration invitationValidity = Duration.ofMinutes(10);
+
+        /** How many verification tries User is allowed to have. */
+        @Nullable
+        private Integer tries = 5;
+
+        /** redirect callback url. */
+        @Nullable
+        private String callbackUrl;
+
+        /** redirect callback post url. */
+        @Nullable
+        private String callbackPostEndpoint;
+
+        /** Allowed verification methods. */
+        @Nullable
+        private AllowedVerificationMethods allowedVerificationMethods = AllowedVerificationMethods.builder().build();
+
+        /** Allowed verification documents. */
+        @Nullable
+        private AllowedVerificationDocuments allowedVerificationDocuments =
+                AllowedVerificationDocuments.builder().build();
+
+        /** Expected result claims and used matchers. */
+        @Nullable
+        private ResultProperties resultProperties = ResultProperties.builder().build();
+
+        /** Data for matching a user with resultProperties matchers. */
+        @Nullable
+        private User user = User.builder().build();
+
+        /** Data for matching a user. */
+        @Nullable
+        private EnforceValues enforceValues = EnforceValues.builder().build();
+
+        /**
+         * Set clock for the timestamps. Defaults to the system clock.
+         * 
+         * @param timestampClock Clock for the timestamps
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setClock(@Nonnull final Clock timestampClock) {
+            assert timestampClock != null;
+            clock = timestampClock;
+            return this;
+        }
+
+        /**
+         * Set duration for the session to be valid. Defaults to 10 minutes.
+         * 
+         * @param validityDuration Duration for the session to be valid
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setInvitationValidity(@Nonnull final Duration validityDuration) {
+            assert validityDuration != null;
+            invitationValidity = validityDuration;
+            return this;
+        }
+
+        /**
+         * Set how many verification tries User is allowed to have. Defaults to 5.
+         * 
+         * @param numTries How many verification tries User is allowed to have
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setTries(@Nullable final Integer numTries) {
+            tries = numTries;
+            return this;
+        }
+
+        /**
+         * Set redirect callback url.
+         * 
+         * @param url Redirect callback url.
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setCallbackUrl(@Nullable final String url) {
+            callbackUrl = url;
+            return this;
+        }
+
+        /**
+         * Set redirect callback post url.
+         * 
+         * @param endPoint Redirect callback post url
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setCallbackPostEndpoint(@Nullable final String endPoint) {
+            callbackPostEndpoint = endPoint;
+            return this;
+        }
+
+        /**
+         * Set allowed verification methods.
+         * 
+         * @param methods Allowed verification methods
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setAllowedVerificationMethods(@Nullable final AllowedVerificationMethods methods) {
+            allowedVerificationMethods = methods;
+            return this;
+        }
+
+        /**
+         * Set Allowed verification documents.
+         * 
+         * @param documents Allowed verification documents
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setAllowedVerificationDocuments(@Nullable final AllowedVerificationDocuments documents) {
+            allowedVerificationDocuments = documents;
+            return this;
+        }
+
+        /**
+         * Set expected result claims and used matchers.
+         * 
+         * @param properties Expected result claims and used matchers.
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setResultProperties(@Nullable final ResultProperties properties) {
+            resultProperties = properties;
+            return this;
+        }
+
+        /**
+         * Set data for matching a user with resultProperties matchers.
+         * 
+         * @param usr Data for matching a user with resultProperties matchers
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setUser(@Nullable final User usr) {
+            user = usr;
+            return this;
+        }
+
+        /**
+         * Set data for matching a user.
+         * 
+         * @param values Data for matching a user.
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setEnforceValues(@Nullable final EnforceValues values) {
+            enforceValues = values;
+            return this;
+        }
+
+        /**
+         * Build the immutable instance.
+         * 
+         * @return new instance
+         */
+        @Nonnull
+        public CandourInvitationRequestPayload build() {
+            return new CandourInvitationRequestPayload(this);
+        }
+    }
+
 }
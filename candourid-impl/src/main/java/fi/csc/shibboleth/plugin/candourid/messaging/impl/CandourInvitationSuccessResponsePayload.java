@@ -17,9 +17,7 @@ package fi.csc.shibboleth.plugin.candourid.messaging.impl;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * The payload of success response to {@link CandourInvitationRequest}
@@ -119,8 +117,7 @@ public class CandourInvitationSuccessResponsePayload {
      */
     public static CandourInvitationSuccessResponsePayload parse(String payload)
             throws JsonMappingException, JsonProcessingException {
-        ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        return objectMapper.readValue(payload, CandourInvitationSuccessResponsePayload.class);
+        return CandourJsonCodec.getDefault().readInvitationSuccessResponse(payload);
     }
 
     /**
@@ -130,8 +127,7 @@ public class CandourInvitationSuccessResponsePayload {
      * @throws JsonProcessingException something went wrong
      */
     public String serialize() throws JsonProcessingException {
-        ObjectMapper objectMapper = new ObjectMapper();
-        return objectMapper.writeValueAsString(this);
+        return CandourJsonCodec.getDefault().writeInvitationSuccessResponse(this);
     }
 
 }
@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.messaging.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+
+import net.shibboleth.shared.annotation.ParameterName;
+import net.shibboleth.shared.primitive.LoggerFactory;
+
+/**
+ * Json reading and writing of Candour messages.
+ * 
+ * <p>
+ * Readers and writers are built once per instance and are immutable, so the
+ * serializer and deserializer caches of Jackson are shared between requests.
+ * Optionally a bytecode generating Jackson module (Blackbird, or Afterburner as
+ * a fallback) is registered if found from the classpath.
+ * </p>
+ */
+@ThreadSafe
+public final class CandourJsonCodec {
+
+    /** Class name of the Blackbird module. */
+    @Nonnull
+    private static final String BLACKBIRD_MODULE = "com.fasterxml.jackson.module.blackbird.BlackbirdModule";
+
+    /** Class name of the Afterburner module. */
+    @Nonnull
+    private static final String AFTERBURNER_MODULE = "com.fasterxml.jackson.module.afterburner.AfterburnerModule";
+
+    /** Type of the result claims. */
+    @Nonnull
+    private static final TypeReference<Map<String, Object>> CLAIMS_TYPE = new TypeReference<>() {
+    };
+
+    /** Default instance, without bytecode acceleration. */
+    @Nonnull
+    private static final CandourJsonCodec DEFAULT_INSTANCE = new CandourJsonCodec(false);
+
+    /** Class logger. */
+    @Nonnull
+    private final Logger log = LoggerFactory.getLogger(CandourJsonCodec.class);
+
+    /** Whether a bytecode generating module is in use. */
+    private final boolean accelerated;
+
+    /** Writer for {@link CandourInvitationRequestPayload}. */
+    @Nonnull
+    private final ObjectWriter invitationRequestPayloadWriter;
+
+    /** Reader for {@link CandourInvitationSuccessResponsePayload}. */
+    @Nonnull
+    private final ObjectReader invitationSuccessResponseReader;
+
+    /** Writer for {@link CandourInvitationSuccessResponsePayload}. */
+    @Nonnull
+    private final ObjectWriter invitationSuccessResponseWriter;
+
+    /** Reader for result claims. */
+    @Nonnull
+    private final ObjectReader resultClaimsReader;
+
+    /** Reader for a single result claim value. */
+    @Nonnull
+    private final ObjectReader resultClaimValueReader;
+
+    /**
+     * Constructor.
+     * 
+     * @param accelerate whether to register a bytecode generating module if one
+     *                   is available
+     */
+    public CandourJsonCodec(@ParameterName(name = "accelerated") final boolean accelerate) {
+        final ObjectMapper mapper = new ObjectMapper();
+        accelerated = accelerate && registerAccelerator(mapper);
+        invitationRequestPayloadWriter = mapper.writerFor(CandourInvitationRequestPayload.class);
+        invitationSuccessResponseReader = mapper.readerFor(CandourInvitationSuccessResponsePayload.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        invitationSuccessResponseWriter = mapper.writerFor(CandourInvitationSuccessResponsePayload.class);
+        resultClaimsReader = mapper.readerFor(CLAIMS_TYPE);
+        resultClaimValueReader = mapper.readerFor(Object.class);
+    }
+
+    /**
+     * Get the shared default instance.
+     * 
+     * @return the shared default instance
+     */
+    @Nonnull
+    public static CandourJsonCodec getDefault() {
+        return DEFAULT_INSTANCE;
+    }
+
+    /**
+     * Whether a bytecode generating module is in use.
+     * 
+     * @return whether a bytecode generating module is in use
+     */
+    public boolean isAccelerated() {
+        return accelerated;
+    }
+
+    /**
+     * Serialize invitation request payload.
+     * 
+     * @param payload invitation request payload
+     * @return json string representing the payload
+     * @throws JsonProcessingException something went wrong
+     */
+    @Nonnull
+    public String writeInvitationRequestPayload(@Nonnull final CandourInvitationRequestPayload payload)
+            throws JsonProcessingException {
+        return invitationRequestPayloadWriter.writeValueAsString(payload);
+    }
+
+    /**
+     * Parse invitation success response payload. Unknown fields are ignored.
+     * 
+     * @param payload json string representing the payload
+     * @return parsed payload
+     * @throws JsonProcessingException json is not valid
+     */
+    @Nonnull
+    public CandourInvitationSuccessResponsePayload readInvitationSuccessResponse(@Nonnull final String payload)
+            throws JsonProcessingException {
+        return invitationSuccessResponseReader.readValue(payload);
+    }
+
+    /**
+     * Serialize invitation success response payload.
+     * 
+     * @param payload invitation success response payload
+     * @return json string representing the payload
+     * @throws JsonProcessingException something went wrong
+     */
+    @Nonnull
+    public String writeInvitationSuccessResponse(@Nonnull final CandourInvitationSuccessResponsePayload payload)
+            throws JsonProcessingException {
+        return invitationSuccessResponseWriter.writeValueAsString(payload);
+    }
+
+    /**
+     * Parse result claims.
+     * 
+     * @param payload json string representing the result
+     * @return result claims
+     * @throws JsonProcessingException json is not valid
+     */
+    @Nonnull
+    public Map<String, Object> readResultClaims(@Nonnull final String payload) throws JsonProcessingException {
+        return resultClaimsReader.readValue(payload);
+    }
+
+    /**
+     * Parse result claims directly from a stream. Character encoding is detected
+     * by the parser.
+     * 
+     * @param payload stream of json representing the result
+     * @return result claims
+     * @throws JsonProcessingException json is not valid
+     * @throws IOException             reading the stream fails
+     */
+    @Nonnull
+    public Map<String, Object> readResultClaims(@Nonnull final InputStream payload) throws IOException {
+        return readResultClaims(payload, null);
+    }
+
+    /**
+     * Parse the wanted result claims directly from a stream. Values of other
+     * claims are skipped by the parser without decoding them.
+     * 
+     * @param payload stream of json representing the result
+     * @param claims  names of the claims to parse, null for all claims
+     * @return result claims
+     * @throws JsonProcessingException json is not valid
+     * @throws IOException             reading the stream fails
+     */
+    @Nonnull
+    public Map<String, Object> readResultClaims(@Nonnull final InputStream payload,
+            @Nullable final Set<String> claims) throws IOException {
+        return readResultClaims(payload, claims, null);
+    }
+
+    /**
+     * Parse the wanted result claims directly from a stream. Values of other
+     * claims are skipped by the parser without decoding them. Base64 string
+     * values of the listed binary claims are decoded to byte arrays straight from
+     * the parser input.
+     * 
+     * @param payload      stream of json representing the result
+     * @param claims       names of the claims to parse, null for all claims
+     * @param binaryClaims names of the claims decoded to byte arrays, null for
+     *                         none
+     * @return result claims
+     * @throws JsonProcessingException json is not valid
+     * @throws IOException             reading the stream fails
+     */
+    @Nonnull
+    public Map<String, Object> readResultClaims(@Nonnull final InputStream payload,
+            @Nullable final Set<String> claims, @Nullable final Set<String> binaryClaims) throws IOException {
+        if (claims == null && (binaryClaims == null || binaryClaims.isEmpty())) {
+            return resultClaimsReader.readValue(payload);
+        }
+        try (JsonParser parser = resultClaimsReader.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw MismatchedInputException.from(parser, Map.class, "Result is not a json object");
+            }
+            final Map<String, Object> result = new LinkedHashMap<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.currentName();
+                final JsonToken token = parser.nextToken();
+                if (claims != null && !claims.contains(name)) {
+                    // Value is not decoded until asked for, skip it unread
+                    parser.skipChildren();
+                } else if (token == JsonToken.VALUE_STRING && binaryClaims != null && binaryClaims.contains(name)) {
+                    result.put(name, parser.getBinaryValue());
+                } else {
+                    result.put(name, resultClaimValueReader.readValue(parser));
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Register the first bytecode generating module found from the classpath.
+     * 
+     * @param mapper mapper to register the module to
+     * @return whether a module was registered
+     */
+    private boolean registerAccelerator(@Nonnull final ObjectMapper mapper) {
+        for (final String moduleClass : new String[] { BLACKBIRD_MODULE, AFTERBURNER_MODULE }) {
+            try {
+                mapper.registerModule((Module) Class.forName(moduleClass).getDeclaredConstructor().newInstance());
+                log.debug("Registered Jackson module {}", moduleClass);
+                return true;
+            } catch (final ReflectiveOperationException | LinkageError e) {
+                log.trace("Jackson module {} not available", moduleClass, e);
+            }
+        }
+        log.warn("Accelerated json processing requested but neither Blackbird nor Afterburner module is available");
+        return false;
+    }
+
+}
@@ -15,15 +15,35 @@
  */
 package fi.csc.shibboleth.plugin.candourid.messaging.impl;
 
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
 public class CandourResponse {
 
     final private int code;
 
     final private String payload;
 
+    /** Result claims parsed directly from the response entity. */
+    @Nullable
+    final private Map<String, Object> resultClaims;
+
     public CandourResponse(int code, String payload) {
+        this(code, payload, null);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param code    http status code
+     * @param payload response payload, if read as string
+     * @param claims  result claims, if parsed directly from the response entity
+     */
+    public CandourResponse(int code, @Nullable String payload, @Nullable Map<String, Object> claims) {
         this.code = code;
         this.payload = payload;
+        resultClaims = claims;
     }
 
     public int getCode() {
@@ -34,6 +54,16 @@ public class CandourResponse {
         return payload;
     }
 
+    /**
+     * Get result claims parsed directly from the response entity.
+     * 
+     * @return result claims or null if the payload was read as string
+     */
+    @Nullable
+    public Map<String, Object> getResultClaims() {
+        return resultClaims;
+    }
+
     public boolean indicateSuccess() {
         return (code >= 200 && code < 300);
     }
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.messaging.impl;
+
+import java.io.IOException;
+
+/**
+ * Signals a Candour API response body exceeds the maximum size. The response
+ * was received, so the call is not a communication failure.
+ */
+public class CandourResponseTooLargeException extends IOException {
+
+    /** Serial version UID. */
+    private static final long serialVersionUID = -4785215790834117702L;
+
+    /**
+     * Constructor.
+     * 
+     * @param message exception message
+     */
+    public CandourResponseTooLargeException(final String message) {
+        super(message);
+    }
+
+}
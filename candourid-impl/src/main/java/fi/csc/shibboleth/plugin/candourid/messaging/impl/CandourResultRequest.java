@@ -36,4 +36,15 @@ public class CandourResultRequest extends AbstractCandourRequest<String> {
         super(apiUri, clientPublicKey, clientHmacKey, HttpMethod.GET);
     }
 
+    /**
+     * Constructor.
+     * 
+     * @param apiUri          API uri
+     * @param clientPublicKey Client public key
+     * @param hmacSigner      Signer for the client hmac key
+     */
+    public CandourResultRequest(final URI apiUri, final String clientPublicKey, final CandourHmacSigner hmacSigner) {
+        super(apiUri, clientPublicKey, hmacSigner, HttpMethod.GET, true);
+    }
+
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.messaging.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+
+import net.shibboleth.shared.httpclient.HttpClientSupport;
+import net.shibboleth.shared.logic.Constraint;
+
+/**
+ * Instantiates and returns {@link CandourResponse} for result requests.
+ * 
+ * <p>
+ * Success responses are parsed to result claims straight from the entity
+ * stream, without buffering the body to a string first. Reading is aborted as
+ * soon as the body exceeds the configured maximum size. Error responses are
+ * read to a string as by {@link CandourResponseHandler}. Optionally only the
+ * listed claims are parsed, values of the other claims are skipped unread, and
+ * the listed binary claims are decoded from base64 to byte arrays.
+ * </p>
+ */
+public class CandourResultResponseHandler implements HttpClientResponseHandler<CandourResponse> {
+
+    /** Maximum size of error response body read. */
+    private static final int MAX_ERROR_SIZE = 65536;
+
+    /** Codec used to parse the claims. */
+    @Nonnull
+    private final CandourJsonCodec jsonCodec;
+
+    /** Maximum size of success response body in bytes. */
+    private final long maxSize;
+
+    /** Names of the claims to parse, null for all claims. */
+    @Nullable
+    private final Set<String> claims;
+
+    /** Names of the claims decoded to byte arrays, null for none. */
+    @Nullable
+    private final Set<String> binaryClaims;
+
+    /**
+     * Constructor.
+     * 
+     * @param codec codec used to parse the claims
+     * @param max   maximum size of success response body in bytes
+     */
+    public CandourResultResponseHandler(@Nonnull final CandourJsonCodec codec, final long max) {
+        this(codec, max, null);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param codec      codec used to parse the claims
+     * @param max        maximum size of success response body in bytes
+     * @param claimNames names of the claims to parse, null for all claims
+     */
+    public CandourResultResponseHandler(@Nonnull final CandourJsonCodec codec, final long max,
+            @Nullable final Set<String> claimNames) {
+        this(codec, max, claimNames, null);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param codec            codec used to parse the claims
+     * @param max              maximum size of success response body in bytes
+     * @param claimNames       names of the claims to parse, null for all claims
+     * @param binaryClaimNames names of the claims decoded to byte arrays, null
+     *                             for none
+     */
+    public CandourResultResponseHandler(@Nonnull final CandourJsonCodec codec, final long max,
+            @Nullable final Set<String> claimNames, @Nullable final Set<String> binaryClaimNames) {
+        jsonCodec = Constraint.isNotNull(codec, "Codec cannot be null");
+        maxSize = max;
+        claims = claimNames;
+        binaryClaims = binaryClaimNames;
+    }
+
+    @Override
+    public CandourResponse handleResponse(ClassicHttpResponse response) throws HttpException, IOException {
+        final HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            return new CandourResponse(response.getCode(), null);
+        }
+        if (response.getCode() < 200 || response.getCode() >= 300) {
+            return new CandourResponse(response.getCode(),
+                    HttpClientSupport.toString(entity, "UTF-8", MAX_ERROR_SIZE));
+        }
+        if (entity.getContentLength() > maxSize) {
+            throw new CandourResponseTooLargeException("Response body of " + entity.getContentLength()
+                    + " bytes exceeds maximum size of " + maxSize + " bytes");
+        }
+        try (InputStream in = new SizeLimitedInputStream(entity.getContent(), maxSize)) {
+            return new CandourResponse(response.getCode(), null, jsonCodec.readResultClaims(in, claims, binaryClaims));
+        }
+    }
+
+}
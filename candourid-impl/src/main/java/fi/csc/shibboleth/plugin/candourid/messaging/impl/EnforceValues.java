@@ -15,86 +15,101 @@
  */
 package fi.csc.shibboleth.plugin.candourid.messaging.impl;
 
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
 
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
 import com.fasterxml.jackson.annotation.JsonInclude;
 
 /**
  * Class implementing fields that indicate which matchers must match.
  */
+@Immutable
 @JsonInclude(JsonInclude.Include.NON_NULL)
-public class EnforceValues {
+@JsonAutoDetect(fieldVisibility = Visibility.ANY)
+public final class EnforceValues {
 
     /** Whether expected date of birth matching is enforced. */
     @Nullable
-    private Boolean dateOfBirth;
+    private final Boolean dateOfBirth;
 
     /** Whether identity document number in id matching is enforced. */
     @Nullable
-    private Boolean idNumber;
+    private final Boolean idNumber;
 
     /** Whether national identification number in id matching is enforced. */
     @Nullable
-    private Boolean nationalIdentificationNumber;
+    private final Boolean nationalIdentificationNumber;
 
     /** Whether document expiration date in id matching is enforced. */
     @Nullable
-    private Boolean expirationDate;
+    private final Boolean expirationDate;
 
     /** Whether document issuing country in id matching is enforced. */
     @Nullable
-    private Boolean issuingCountry;
+    private final Boolean issuingCountry;
 
     /** Whether user nationality in id matching is enforced. */
     @Nullable
-    private Boolean nationality;
+    private final Boolean nationality;
 
     /** Whether user sex id matching is enforced. */
     @Nullable
-    private Boolean sex;
+    private final Boolean sex;
 
     /**
      * Number between 1-100, a threshold that name score must be equal or higher.
      */
     @Nullable
-    private Integer nameScore;
+    private final Integer nameScore;
 
     /**
-     * Whether expected date of birth matching is enforced.
+     * Constructor.
      * 
-     * @return Whether expected date of birth matching is enforced.
+     * @param builder builder providing the values
      */
-    @Nullable
-    public Boolean isDateOfBirth() {
-        return dateOfBirth;
+    private EnforceValues(@Nonnull final Builder builder) {
+        dateOfBirth = builder.dateOfBirth;
+        idNumber = builder.idNumber;
+        nationalIdentificationNumber = builder.nationalIdentificationNumber;
+        expirationDate = builder.expirationDate;
+        issuingCountry = builder.issuingCountry;
+        nationality = builder.nationality;
+        sex = builder.sex;
+        nameScore = builder.nameScore;
     }
 
     /**
-     * Set whether expected date of birth matching is enforced.
+     * Create a builder.
      * 
-     * @param isEnforced Whether expected date of birth matching is enforced
+     * @return new builder
      */
-    public void setDateOfBirth(@Nullable Boolean isEnforced) {
-        dateOfBirth = isEnforced;
+    @Nonnull
+    public static Builder builder() {
+        return new Builder();
     }
 
     /**
-     * Whether identity document number in id matching is enforced.
+     * Whether expected date of birth matching is enforced.
      * 
-     * @return Whether identity document number in id matching is enforced
+     * @return Whether expected date of birth matching is enforced.
      */
     @Nullable
-    public Boolean isIdNumber() {
-        return idNumber;
+    public Boolean isDateOfBirth() {
+        return dateOfBirth;
     }
 
     /**
-     * Set whether identity document number in id matching is enforced.
+     * Whether identity document number in id matching is enforced.
      * 
-     * @param isEnforced Whether identity document number in id matching is enforced
+     * @return Whether identity document number in id matching is enforced
      */
-    public void setIdNumber(@Nullable Boolean isEnforced) {
-        idNumber = isEnforced;
+    @Nullable
+    public Boolean isIdNumber() {
+        return idNumber;
     }
 
     /**
@@ -107,16 +122,6 @@ public class EnforceValues {
         return nationalIdentificationNumber;
     }
 
-    /**
-     * Set whether national identification number in id matching is enforced.
-     * 
-     * @param isEnforced Whether national identification number in id matching is
-     *                   enforced
-     */
-    public void setNationalIdentificationNumber(@Nullable Boolean isEnforced) {
-        nationalIdentificationNumber = isEnforced;
-    }
-
     /**
      * Whether document expiration date in id matching is enforced.
      * 
@@ -127,15 +132,6 @@ public class EnforceValues {
         return expirationDate;
     }
 
-    /**
-     * Set whether document expiration date in id matching is enforced.
-     * 
-     * @param isEnforced Whether document expiration date in id matching is enforced
-     */
-    public void setExpirationDate(@Nullable Boolean isEnforced) {
-        expirationDate = isEnforced;
-    }
-
     /**
      * Whether document issuing country in id matching is enforced.
      * 
@@ -146,15 +142,6 @@ public class EnforceValues {
         return issuingCountry;
     }
 
-    /**
-     * Set whether document issuing country in id matching is enforced.
-     * 
-     * @param isEnforced Whether document issuing country in id matching is enforced
-     */
-    public void setIssuingCountry(@Nullable Boolean isEnforced) {
-        issuingCountry = isEnforced;
-    }
-
     /**
      * Whether nationality in id matching is enforced.
      * 
@@ -165,14 +152,6 @@ public class EnforceValues {
         return nationality;
     }
 
-    /**
-     * Set whether nationality in id matching is enforced.
-     * 
-     */
-    public void setNationality(@Nullable Boolean isEnforced) {
-        nationality = isEnforced;
-    }
-
     /**
      * Whether user sex in id matching is enforced.
      * 
@@ -183,14 +162,6 @@ public class EnforceValues {
         return sex;
     }
 
-    /**
-     * Set whether user sex in id matching is enforced.
-     * 
-     */
-    public void setSex(@Nullable Boolean isEnforced) {
-        sex = isEnforced;
-    }
-
     /**
      * Get number between 1-100, a threshold that name score must be equal or
      * higher.
@@ -203,15 +174,154 @@ public class EnforceValues {
         return nameScore;
     }
 
-    /**
-     * Set number between 1-100, a threshold that name score must be equal or
-     * higher.
-     * 
-     * @param score Number between 1-100, a threshold that name score must be equal
-     *              or higher
-     */
-    public void setNameScore(@Nullable Integer score) {
-        nameScore = score;
-    }
+    /** Builder of {@link EnforceValues}. */
+    @NotThreadSafe
+    public static final class Builder {
+
+        /** Whether expected date of birth matching is enforced. */
+        @Nullable
+        private Boolean dateOfBirth;
+
+        /** Whether identity document number in id matching is enforced. */
+        @Nullable
+        private Boolean idNumber;
 
+        /** Whether national identification number in id matching is enforced. */
+        @Nullable
+        private Boolean nationalIdentificationNumber;
+
+        /** Whether document expiration date in id matching is enforced. */
+        @Nullable
+        private Boolean expirationDate;
+
+        /** Whether document issuing country in id matching is enforced. */
+        @Nullable
+        private Boolean issuingCountry;
+
+        /** Whether user nationality in id matching is enforced. */
+        @Nullable
+        private Boolean nationality;
+
+        /** Whether user sex id matching is enforced. */
+        @Nullable
+        private Boolean sex;
+
+        /**
+         * Number between 1-100, a threshold that name score must be equal or higher.
+         */
+        @Nullable
+        private Integer nameScore;
+
+        /** Constructor. */
+        public Builder() {
+            // no op
+        }
+
+        /**
+         * Set whether expected date of birth matching is enforced.
+         * 
+         * @param isEnforced Whether expected date of birth matching is enforced
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setDateOfBirth(@Nullable final Boolean isEnforced) {
+            dateOfBirth = isEnforced;
+            return this;
+        }
+
+        /**
+         * Set whether identity document number in id matching is enforced.
+         * 
+         * @param isEnforced Whether identity document number in id matching is enforced
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setIdNumber(@Nullable final Boolean isEnforced) {
+            idNumber = isEnforced;
+            return this;
+        }
+
+        /**
+         * Set whether national identification number in id matching is enforced.
+         * 
+         * @param isEnforced Whether national identification number in id matching is
+         *                   enforced
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setNationalIdentificationNumber(@Nullable final Boolean isEnforced) {
+            nationalIdentificationNumber = isEnforced;
+            return this;
+        }
+
+        /**
+         * Set whether document expiration date in id matching is enforced.
+         * 
+         * @param isEnforced Whether document expiration date in id matching is enforced
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setExpirationDate(@Nullable final Boolean isEnforced) {
+            expirationDate = isEnforced;
+            return this;
+        }
+
+        /**
+         * Set whether document issuing country in id matching is enforced.
+         * 
+         * @param isEnforced Whether document issuing country in id matching is enforced
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setIssuingCountry(@Nullable final Boolean isEnforced) {
+            issuingCountry = isEnforced;
+            return this;
+        }
+
+        /**
+         * Set whether nationality in id matching is enforced.
+         * 
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setNationality(@Nullable final Boolean isEnforced) {
+            nationality = isEnforced;
+            return this;
+        }
+
+        /**
+         * Set whether user sex in id matching is enforced.
+         * 
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setSex(@Nullable final Boolean isEnforced) {
+            sex = isEnforced;
+            return this;
+        }
+
+        /**
+         * Set number between 1-100, a threshold that name score must be equal or
+         * higher.
+         * 
+         * @param score Number between 1-100, a threshold that name score must be equal
+         *              or higher
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setNameScore(@Nullable final Integer score) {
+            nameScore = score;
+            return this;
+        }
+
+        /**
+         * Build the immutable instance.
+         * 
+         * @return new instance
+         */
+        @Nonnull
+        public EnforceValues build() {
+            return new EnforceValues(this);
+        }
+    }
 }
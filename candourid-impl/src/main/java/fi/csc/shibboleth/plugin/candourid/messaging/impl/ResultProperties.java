@@ -15,116 +15,146 @@
  */
 package fi.csc.shibboleth.plugin.candourid.messaging.impl;
 
+import java.util.Set;
+
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
 
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
 import com.fasterxml.jackson.annotation.JsonInclude;
 
 /**
  * Class implementing fields for expected result claims and used matchers.
  */
+@Immutable
 @JsonInclude(JsonInclude.Include.NON_NULL)
-public class ResultProperties {
+@JsonAutoDetect(fieldVisibility = Visibility.ANY)
+public final class ResultProperties {
+
+    /** Names of the result claims carrying base64 encoded images. */
+    @Nonnull
+    public static final Set<String> IMAGE_CLAIMS = Set.of("selfieImage", "idMrzImage", "idOtherImage",
+            "idChipImage");
 
     /** Whether name data is returned. */
     @Nullable
-    private Boolean name;
+    private final Boolean name;
 
     /** Whether expected name matching is used. */
     @Nullable
-    private Boolean nameMatch;
+    private final Boolean nameMatch;
 
     /** Whether expected name matching is used and what is the match score. */
     @Nullable
-    private Boolean nameScore;
+    private final Boolean nameScore;
 
     /** Whether date of birth is returned. */
     @Nullable
-    private Boolean dateOfBirth;
+    private final Boolean dateOfBirth;
 
     /** Whether expected date of birth matching is used. */
     @Nullable
-    private Boolean dateOfBirthMatch;
+    private final Boolean dateOfBirthMatch;
 
     /** Whether national identification data is returned. */
     @Nullable
-    private Boolean nationalIdentificationNumber;
+    private final Boolean nationalIdentificationNumber;
 
     /** Whether id number of id document is returned. */
     @Nullable
-    private Boolean idNumber;
+    private final Boolean idNumber;
 
     /** Whether id type id document is returned. */
     @Nullable
-    private Boolean idDocumentType;
+    private final Boolean idDocumentType;
 
     /** Whether id document expiration is returned. */
     @Nullable
-    private Boolean idExpiration;
+    private final Boolean idExpiration;
 
     /** Whether issuer country code is returned. */
     @Nullable
-    private Boolean idIssuer;
+    private final Boolean idIssuer;
 
     /** Whether nationality is returned. */
     @Nullable
-    private Boolean nationality;
+    private final Boolean nationality;
 
     /** Whether sex is returned. */
     @Nullable
-    private Boolean sex;
+    private final Boolean sex;
 
     /** Whether selfie img is returned. */
     @Nullable
-    private Boolean selfieImage;
+    private final Boolean selfieImage;
 
     /** Whether MRZ side of id img is returned. */
     @Nullable
-    private Boolean idMrzImage;
+    private final Boolean idMrzImage;
 
     /** Whether other side of id img is returned. */
     @Nullable
-    private Boolean idOtherImage;
+    private final Boolean idOtherImage;
 
     /** Whether user img from id biometric is returned. */
     @Nullable
-    private Boolean idChipImage;
+    private final Boolean idChipImage;
 
     /**
-     * Whether name data is returned. True by default.
+     * Constructor.
      * 
-     * @return whether name data is returned. True by default
+     * @param builder builder providing the values
      */
-    @Nullable
-    public Boolean isName() {
-        return name;
+    private ResultProperties(@Nonnull final Builder builder) {
+        name = builder.name;
+        nameMatch = builder.nameMatch;
+        nameScore = builder.nameScore;
+        dateOfBirth = builder.dateOfBirth;
+        dateOfBirthMatch = builder.dateOfBirthMatch;
+        nationalIdentificationNumber = builder.nationalIdentificationNumber;
+        idNumber = builder.idNumber;
+        idDocumentType = builder.idDocumentType;
+        idExpiration = builder.idExpiration;
+        idIssuer = builder.idIssuer;
+        nationality = builder.nationality;
+        sex = builder.sex;
+        selfieImage = builder.selfieImage;
+        idMrzImage = builder.idMrzImage;
+        idOtherImage = builder.idOtherImage;
+        idChipImage = builder.idChipImage;
     }
 
     /**
-     * Set whether name data is returned. True by default.
+     * Create a builder.
      * 
-     * @param isRequired Whether name data is returned. True by default.
+     * @return new builder
      */
-    public void setName(@Nullable Boolean isRequired) {
-        name = isRequired;
+    @Nonnull
+    public static Builder builder() {
+        return new Builder();
     }
 
     /**
-     * Whether expected name matching is used.
+     * Whether name data is returned. True by default.
      * 
-     * @return whether expected name matching is used
+     * @return whether name data is returned. True by default
      */
     @Nullable
-    public Boolean isNameMatch() {
-        return nameMatch;
+    public Boolean isName() {
+        return name;
     }
 
     /**
-     * Set whether expected name matching is used.
+     * Whether expected name matching is used.
      * 
-     * @param isUsed whether expected name matching is used.
+     * @return whether expected name matching is used
      */
-    public void setNameMatch(@Nullable Boolean isUsed) {
-        nameMatch = isUsed;
+    @Nullable
+    public Boolean isNameMatch() {
+        return nameMatch;
     }
 
     /**
@@ -137,16 +167,6 @@ public class ResultProperties {
         return nameScore;
     }
 
-    /**
-     * Set whether expected name matching is used and what is the match score.
-     * 
-     * @param isUsed Whether expected name matching is used and what is the match
-     *               score
-     */
-    public void setNameScore(@Nullable Boolean isUsed) {
-        nameScore = isUsed;
-    }
-
     /**
      * Whether date of birth is returned.
      * 
@@ -157,15 +177,6 @@ public class ResultProperties {
         return dateOfBirth;
     }
 
-    /**
-     * Set whether date of birth is returned.
-     * 
-     * @param isRequired Whether date of birth is returned
-     */
-    public void setDateOfBirth(@Nullable Boolean isRequired) {
-        dateOfBirth = isRequired;
-    }
-
     /**
      * Whether expected date of birth matching is used.
      * 
@@ -176,15 +187,6 @@ public class ResultProperties {
         return dateOfBirthMatch;
     }
 
-    /**
-     * Set whether expected date of birth matching is used.
-     * 
-     * @param isUsed whether expected date of birth matching is used.
-     */
-    public void setDateOfBirthMatch(@Nullable Boolean isUsed) {
-        dateOfBirthMatch = isUsed;
-    }
-
     /**
      * Whether national identification data is returned.
      * 
@@ -195,15 +197,6 @@ public class ResultProperties {
         return nationalIdentificationNumber;
     }
 
-    /**
-     * Set whether national identification data is returned.
-     * 
-     * @param isRequired Whether national identification data is returned
-     */
-    public void setNationalIdentificationNumber(@Nullable Boolean isRequired) {
-        nationalIdentificationNumber = isRequired;
-    }
-
     /**
      * Whether id number of id document is returned.
      * 
@@ -214,15 +207,6 @@ public class ResultProperties {
         return idNumber;
     }
 
-    /**
-     * Set whether id number of id document is returned.
-     * 
-     * @param isRequired Whether id number of id document is returned.
-     */
-    public void setIdNumber(@Nullable Boolean isRequired) {
-        idNumber = isRequired;
-    }
-
     /**
      * Whether id type id document is returned.
      * 
@@ -233,15 +217,6 @@ public class ResultProperties {
         return idDocumentType;
     }
 
-    /**
-     * Set whether id type id document is returned
-     * 
-     * @param isRequired Whether id type id document is returned.
-     */
-    public void setIdDocumentType(@Nullable Boolean isRequired) {
-        idDocumentType = isRequired;
-    }
-
     /**
      * Whether id document expiration is returned.
      * 
@@ -252,15 +227,6 @@ public class ResultProperties {
         return idExpiration;
     }
 
-    /**
-     * Set whether id document expiration is returned.
-     * 
-     * @param isRequired Whether id document expiration is returned.
-     */
-    public void setIdExpiration(@Nullable Boolean isRequired) {
-        idExpiration = isRequired;
-    }
-
     /**
      * Whether issuer country code is returned.
      * 
@@ -271,15 +237,6 @@ public class ResultProperties {
         return idIssuer;
     }
 
-    /**
-     * Set whether issuer country code is returned.
-     * 
-     * @param isRequired Whether issuer country code is returned.
-     */
-    public void setIdIssuer(@Nullable Boolean isRequired) {
-        idIssuer = isRequired;
-    }
-
     /**
      * Whether nationality is returned.
      * 
@@ -290,15 +247,6 @@ public class ResultProperties {
         return nationality;
     }
 
-    /**
-     * Set whether nationality is returned.
-     * 
-     * @param isRequired Whether nationality is returned.
-     */
-    public void setNationality(@Nullable Boolean isRequired) {
-        nationality = isRequired;
-    }
-
     /**
      * Whether sex is returned.
      * 
@@ -309,15 +257,6 @@ public class ResultProperties {
         return sex;
     }
 
-    /**
-     * Set whether sex is returned.
-     * 
-     * @param isRequired Whether sex is returned.
-     */
-    public void setSex(@Nullable Boolean isRequired) {
-        sex = isRequired;
-    }
-
     /**
      * Whether selfie img is returned.
      * 
@@ -328,15 +267,6 @@ public class ResultProperties {
         return selfieImage;
     }
 
-    /**
-     * Set whether selfie img is returned.
-     * 
-     * @param isRequired Whether selfie img is returned
-     */
-    public void setSelfieImage(@Nullable Boolean isRequired) {
-        selfieImage = isRequired;
-    }
-
     /**
      * Whether MRZ side of id img is returned.
      * 
@@ -347,15 +277,6 @@ public class ResultProperties {
         return idMrzImage;
     }
 
-    /**
-     * Set whether MRZ side of id img is returned.
-     * 
-     * @param isRequired Whether MRZ side of id img is returned.
-     */
-    public void setIdMrzImage(@Nullable Boolean isRequired) {
-        idMrzImage = isRequired;
-    }
-
     /**
      * Whether other side of id img is returned.
      * 
@@ -366,15 +287,6 @@ public class ResultProperties {
         return idOtherImage;
     }
 
-    /**
-     * Set whether other side of id img is returned.
-     * 
-     * @param isRequired Whether other side of id img is returned
-     */
-    public void setIdOtherImage(@Nullable Boolean isRequired) {
-        idOtherImage = isRequired;
-    }
-
     /**
      * Whether user img from id biometric is returned.
      * 
@@ -385,13 +297,280 @@ public class ResultProperties {
         return idChipImage;
     }
 
-    /**
-     * Set whether user img from id biometric is returned.
-     * 
-     * @param isRequired Whether user img from id biometric is returned
-     */
-    public void setIdChipImage(@Nullable Boolean isRequired) {
-        idChipImage = isRequired;
+    /** Builder of {@link ResultProperties}. */
+    @NotThreadSafe
+    public static final class Builder {
+
+        /** Whether name data is returned. */
+        @Nullable
+        private Boolean name;
+
+        /** Whether expected name matching is used. */
+        @Nullable
+        private Boolean nameMatch;
+
+        /** Whether expected name matching is used and what is the match score. */
+        @Nullable
+        private Boolean nameScore;
+
+        /** Whether date of birth is returned. */
+        @Nullable
+        private Boolean dateOfBirth;
+
+        /** Whether expected date of birth matching is used. */
+        @Nullable
+        private Boolean dateOfBirthMatch;
+
+        /** Whether national identification data is returned. */
+        @Nullable
+        private Boolean nationalIdentificationNumber;
+
+        /** Whether id number of id document is returned. */
+        @Nullable
+        private Boolean idNumber;
+
+        /** Whether id type id document is returned. */
+        @Nullable
+        private Boolean idDocumentType;
+
+        /** Whether id document expiration is returned. */
+        @Nullable
+        private Boolean idExpiration;
+
+        /** Whether issuer country code is returned. */
+        @Nullable
+        private Boolean idIssuer;
+
+        /** Whether nationality is returned. */
+        @Nullable
+        private Boolean nationality;
+
+        /** Whether sex is returned. */
+        @Nullable
+        private Boolean sex;
+
+        /** Whether selfie img is returned. */
+        @Nullable
+        private Boolean selfieImage;
+
+        /** Whether MRZ side of id img is returned. */
+        @Nullable
+        private Boolean idMrzImage;
+
+        /** Whether other side of id img is returned. */
+        @Nullable
+        private Boolean idOtherImage;
+
+        /** Whether user img from id biometric is returned. */
+        @Nullable
+        private Boolean idChipImage;
+
+        /** Constructor. */
+        public Builder() {
+            // no op
+        }
+
+        /**
+         * Set whether name data is returned. True by default.
+         * 
+         * @param isRequired Whether name data is returned. True by default.
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setName(@Nullable final Boolean isRequired) {
+            name = isRequired;
+            return this;
+        }
+
+        /**
+         * Set whether expected name matching is used.
+         * 
+         * @param isUsed whether expected name matching is used.
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setNameMatch(@Nullable final Boolean isUsed) {
+            nameMatch = isUsed;
+            return this;
+        }
+
+        /**
+         * Set whether expected name matching is used and what is the match score.
+         * 
+         * @param isUsed Whether expected name matching is used and what is the match
+         *               score
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setNameScore(@Nullable final Boolean isUsed) {
+            nameScore = isUsed;
+            return this;
+        }
+
+        /**
+         * Set whether date of birth is returned.
+         * 
+         * @param isRequired Whether date of birth is returned
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setDateOfBirth(@Nullable final Boolean isRequired) {
+            dateOfBirth = isRequired;
+            return this;
+        }
+
+        /**
+         * Set whether expected date of birth matching is used.
+         * 
+         * @param isUsed whether expected date of birth matching is used.
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setDateOfBirthMatch(@Nullable final Boolean isUsed) {
+            dateOfBirthMatch = isUsed;
+            return this;
+        }
+
+        /**
+         * Set whether national identification data is returned.
+         * 
+         * @param isRequired Whether national identification data is returned
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setNationalIdentificationNumber(@Nullable final Boolean isRequired) {
+            nationalIdentificationNumber = isRequired;
+            return this;
+        }
+
+        /**
+         * Set whether id number of id document is returned.
+         * 
+         * @param isRequired Whether id number of id document is returned.
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setIdNumber(@Nullable final Boolean isRequired) {
+            idNumber = isRequired;
+            return this;
+        }
+
+        /**
+         * Set whether id type id document is returned
+         * 
+         * @param isRequired Whether id type id document is returned.
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setIdDocumentType(@Nullable final Boolean isRequired) {
+            idDocumentType = isRequired;
+            return this;
+        }
+
+        /**
+         * Set whether id document expiration is returned.
+         * 
+         * @param isRequired Whether id document expiration is returned.
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setIdExpiration(@Nullable final Boolean isRequired) {
+            idExpiration = isRequired;
+            return this;
+        }
+
+        /**
+         * Set whether issuer country code is returned.
+         * 
+         * @param isRequired Whether issuer country code is returned.
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setIdIssuer(@Nullable final Boolean isRequired) {
+            idIssuer = isRequired;
+            return this;
+        }
+
+        /**
+         * Set whether nationality is returned.
+         * 
+         * @param isRequired Whether nationality is returned.
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setNationality(@Nullable final Boolean isRequired) {
+            nationality = isRequired;
+            return this;
+        }
+
+        /**
+         * Set whether sex is returned.
+         * 
+         * @param isRequired Whether sex is returned.
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setSex(@Nullable final Boolean isRequired) {
+            sex = isRequired;
+            return this;
+        }
+
+        /**
+         * Set whether selfie img is returned.
+         * 
+         * @param isRequired Whether selfie img is returned
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setSelfieImage(@Nullable final Boolean isRequired) {
+            selfieImage = isRequired;
+            return this;
+        }
+
+        /**
+         * Set whether MRZ side of id img is returned.
+         * 
+         * @param isRequired Whether MRZ side of id img is returned.
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setIdMrzImage(@Nullable final Boolean isRequired) {
+            idMrzImage = isRequired;
+            return this;
+        }
+
+        /**
+         * Set whether other side of id img is returned.
+         * 
+         * @param isRequired Whether other side of id img is returned
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setIdOtherImage(@Nullable final Boolean isRequired) {
+            idOtherImage = isRequired;
+            return this;
+        }
+
+        /**
+         * Set whether user img from id biometric is returned.
+         * 
+         * @param isRequired Whether user img from id biometric is returned
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setIdChipImage(@Nullable final Boolean isRequired) {
+            idChipImage = isRequired;
+            return this;
+        }
+
+        /**
+         * Build the immutable instance.
+         * 
+         * @return new instance
+         */
+        @Nonnull
+        public ResultProperties build() {
+            return new ResultProperties(this);
+        }
     }
-
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.messaging.impl;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Input stream failing as soon as more than the allowed number of bytes has
+ * been read from it.
+ */
+class SizeLimitedInputStream extends FilterInputStream {
+
+    /** Maximum number of bytes allowed. */
+    private final long maxSize;
+
+    /** Number of bytes read so far. */
+    private long count;
+
+    /**
+     * Constructor.
+     * 
+     * @param in  stream to wrap
+     * @param max maximum number of bytes allowed
+     */
+    SizeLimitedInputStream(@Nonnull final InputStream in, final long max) {
+        super(in);
+        maxSize = max;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int read() throws IOException {
+        final int b = super.read();
+        if (b != -1) {
+            count(1);
+        }
+        return b;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        final int n = super.read(b, off, len);
+        if (n > 0) {
+            count(n);
+        }
+        return n;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long skip(final long n) throws IOException {
+        final long skipped = super.skip(n);
+        count(skipped);
+        return skipped;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Add to the count of read bytes.
+     * 
+     * @param n number of bytes read
+     * @throws CandourResponseTooLargeException if the maximum size is exceeded
+     */
+    private void count(final long n) throws IOException {
+        count += n;
+        if (count > maxSize) {
+            throw new CandourResponseTooLargeException("Response body exceeds maximum size of " + maxSize + " bytes");
+        }
+    }
+
+}
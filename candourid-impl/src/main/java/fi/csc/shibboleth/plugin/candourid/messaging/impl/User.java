@@ -15,92 +15,109 @@
  */
 package fi.csc.shibboleth.plugin.candourid.messaging.impl;
 
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
 
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
 import com.fasterxml.jackson.annotation.JsonInclude;
 
 /**
  * Class implementing fields that are input for user matchers.
  */
+@Immutable
 @JsonInclude(JsonInclude.Include.NON_NULL)
-public class User {
+@JsonAutoDetect(fieldVisibility = Visibility.ANY)
+public final class User {
 
     /** First name. */
     @Nullable
-    private String firstName;
+    private final String firstName;
 
     /** Last name. */
     @Nullable
-    private String lastName;
+    private final String lastName;
 
     /** Date of birth in YYYY-MM-DD */
     @Nullable
-    private String dateOfBirth;
+    private final String dateOfBirth;
 
     /** National identification number. */
     @Nullable
-    private String nationalIdentificationNumber;
+    private final String nationalIdentificationNumber;
 
     /** Id document number. */
     @Nullable
-    private String idNumber;
+    private final String idNumber;
 
     /** Id document expiration date. */
     @Nullable
-    private String expirationDate;
+    private final String expirationDate;
 
     /** Country that has issued ID document. */
     @Nullable
-    private String issuingCountry;
+    private final String issuingCountry;
 
     /** User nationality. */
     @Nullable
-    private String nationality;
+    private final String nationality;
 
     /** Custom identifier for the user. */
     @Nullable
-    private String identifier;
+    private final String identifier;
 
     /** User sex, ‘M’ or ‘F’. */
     @Nullable
-    private String sex;
+    private final String sex;
 
     /**
-     * Get first name.
+     * Constructor.
      * 
-     * @return First name
+     * @param builder builder providing the values
      */
-    @Nullable
-    public String getFirstName() {
-        return firstName;
+    private User(@Nonnull final Builder builder) {
+        firstName = builder.firstName;
+        lastName = builder.lastName;
+        dateOfBirth = builder.dateOfBirth;
+        nationalIdentificationNumber = builder.nationalIdentificationNumber;
+        idNumber = builder.idNumber;
+        expirationDate = builder.expirationDate;
+        issuingCountry = builder.issuingCountry;
+        nationality = builder.nationality;
+        identifier = builder.identifier;
+        sex = builder.sex;
     }
 
     /**
-     * Set first name.
+     * Create a builder.
      * 
-     * @param name First name
+     * @return new builder
      */
-    public void setFirstName(@Nullable String name) {
-        firstName = name;
+    @Nonnull
+    public static Builder builder() {
+        return new Builder();
     }
 
     /**
-     * Get last name.
+     * Get first name.
      * 
-     * @return Last name
+     * @return First name
      */
     @Nullable
-    public String getLastName() {
-        return lastName;
+    public String getFirstName() {
+        return firstName;
     }
 
     /**
-     * Set last name.
+     * Get last name.
      * 
-     * @param name Last name
+     * @return Last name
      */
-    public void setLastName(@Nullable String name) {
-        lastName = name;
+    @Nullable
+    public String getLastName() {
+        return lastName;
     }
 
     /**
@@ -113,15 +130,6 @@ public class User {
         return dateOfBirth;
     }
 
-    /**
-     * Set date of birth in YYYY-MM-DD.
-     * 
-     * @param date Date of birth in YYYY-MM-DD
-     */
-    public void setDateOfBirth(@Nullable String date) {
-        dateOfBirth = date;
-    }
-
     /**
      * Get national identification number.
      * 
@@ -132,15 +140,6 @@ public class User {
         return nationalIdentificationNumber;
     }
 
-    /**
-     * Set national identification number.
-     * 
-     * @param number National identification number
-     */
-    public void setNationalIdentificationNumber(@Nullable String number) {
-        nationalIdentificationNumber = number;
-    }
-
     /**
      * Get id document number.
      * 
@@ -151,15 +150,6 @@ public class User {
         return idNumber;
     }
 
-    /**
-     * Set id document number.
-     * 
-     * @param number Id document number
-     */
-    public void setIdNumber(@Nullable String number) {
-        idNumber = number;
-    }
-
     /**
      * Get dd document expiration date.
      * 
@@ -170,15 +160,6 @@ public class User {
         return expirationDate;
     }
 
-    /**
-     * Set id document expiration date.
-     * 
-     * @param date Id document expiration date
-     */
-    public void setExpirationDate(@Nullable String date) {
-        expirationDate = date;
-    }
-
     /**
      * Get country that has issued ID document.
      * 
@@ -189,15 +170,6 @@ public class User {
         return issuingCountry;
     }
 
-    /**
-     * Set country that has issued ID document.
-     * 
-     * @param country Country that has issued ID document
-     */
-    public void setIssuingCountry(@Nullable String country) {
-        issuingCountry = country;
-    }
-
     /**
      * Get user nationality.
      * 
@@ -208,15 +180,6 @@ public class User {
         return nationality;
     }
 
-    /**
-     * Set user nationality.
-     * 
-     * @param nat User nationality
-     */
-    public void setNationality(@Nullable String nat) {
-        nationality = nat;
-    }
-
     /**
      * Get custom identifier for the user.
      * 
@@ -227,15 +190,6 @@ public class User {
         return identifier;
     }
 
-    /**
-     * Set custom identifier for the user.
-     * 
-     * @param id Custom identifier for the user
-     */
-    public void setIdentifier(@Nullable String id) {
-        identifier = id;
-    }
-
     /**
      * Get user sex, ‘M’ or ‘F’.
      * 
@@ -246,12 +200,183 @@ public class User {
         return sex;
     }
 
-    /**
-     * Set user sex, ‘M’ or ‘F’..
-     * 
-     * @param sexId User sex, ‘M’ or ‘F’
-     */
-    public void setSex(@Nullable String sexId) {
-        sex = sexId;
+    /** Builder of {@link User}. */
+    @NotThreadSafe
+    public static final class Builder {
+
+        /** First name. */
+        @Nullable
+        private String firstName;
+
+        /** Last name. */
+        @Nullable
+        private String lastName;
+
+        /** Date of birth in YYYY-MM-DD */
+        @Nullable
+        private String dateOfBirth;
+
+        /** National identification number. */
+        @Nullable
+        private String nationalIdentificationNumber;
+
+        /** Id document number. */
+        @Nullable
+        private String idNumber;
+
+        /** Id document expiration date. */
+        @Nullable
+        private String expirationDate;
+
+        /** Country that has issued ID document. */
+        @Nullable
+        private String issuingCountry;
+
+        /** User nationality. */
+        @Nullable
+        private String nationality;
+
+        /** Custom identifier for the user. */
+        @Nullable
+        private String identifier;
+
+        /** User sex, ‘M’ or ‘F’. */
+        @Nullable
+        private String sex;
+
+        /** Constructor. */
+        public Builder() {
+            // no op
+        }
+
+        /**
+         * Set first name.
+         * 
+         * @param name First name
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setFirstName(@Nullable final String name) {
+            firstName = name;
+            return this;
+        }
+
+        /**
+         * Set last name.
+         * 
+         * @param name Last name
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setLastName(@Nullable final String name) {
+            lastName = name;
+            return this;
+        }
+
+        /**
+         * Set date of birth in YYYY-MM-DD.
+         * 
+         * @param date Date of birth in YYYY-MM-DD
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setDateOfBirth(@Nullable final String date) {
+            dateOfBirth = date;
+            return this;
+        }
+
+        /**
+         * Set national identification number.
+         * 
+         * @param number National identification number
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setNationalIdentificationNumber(@Nullable final String number) {
+            nationalIdentificationNumber = number;
+            return this;
+        }
+
+        /**
+         * Set id document number.
+         * 
+         * @param number Id document number
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setIdNumber(@Nullable final String number) {
+            idNumber = number;
+            return this;
+        }
+
+        /**
+         * Set id document expiration date.
+         * 
+         * @param date Id document expiration date
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setExpirationDate(@Nullable final String date) {
+            expirationDate = date;
+            return this;
+        }
+
+        /**
+         * Set country that has issued ID document.
+         * 
+         * @param country Country that has issued ID document
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setIssuingCountry(@Nullable final String country) {
+            issuingCountry = country;
+            return this;
+        }
+
+        /**
+         * Set user nationality.
+         * 
+         * @param nat User nationality
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setNationality(@Nullable final String nat) {
+            nationality = nat;
+            return this;
+        }
+
+        /**
+         * Set custom identifier for the user.
+         * 
+         * @param id Custom identifier for the user
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setIdentifier(@Nullable final String id) {
+            identifier = id;
+            return this;
+        }
+
+        /**
+         * Set user sex, ‘M’ or ‘F’..
+         * 
+         * @param sexId User sex, ‘M’ or ‘F’
+         * @return this builder
+         */
+        @Nonnull
+        public Builder setSex(@Nullable final String sexId) {
+            sex = sexId;
+            return this;
+        }
+
+        /**
+         * Build the immutable instance.
+         * 
+         * @return new instance
+         */
+        @Nonnull
+        public User build() {
+            return new User(this);
+        }
     }
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.transport;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/** Operations of the Candour API, each mapped to the http method of its request. */
+public enum CandourOperation {
+
+    /** Create an invitation to a verification session. */
+    CREATE_INVITATION("POST", "createInvitation"),
+
+    /** Fetch the result of a verification session. */
+    FETCH_RESULT("GET", "fetchResult"),
+
+    /** Delete the result of a verification session. */
+    DELETE_RESULT("DELETE", "deleteResult");
+
+    /** Http method of the request of the operation. */
+    @Nonnull
+    private final String method;
+
+    /** Name of the operation in metrics and events. */
+    @Nonnull
+    private final String operationName;
+
+    /**
+     * Constructor.
+     * 
+     * @param httpMethod http method of the request of the operation
+     * @param name       name of the operation in metrics and events
+     */
+    CandourOperation(@Nonnull final String httpMethod, @Nonnull final String name) {
+        method = httpMethod;
+        operationName = name;
+    }
+
+    /**
+     * Get http method of the request of the operation.
+     * 
+     * @return http method
+     */
+    @Nonnull
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Get name of the operation in metrics and events.
+     * 
+     * @return name of the operation
+     */
+    @Nonnull
+    public String getOperationName() {
+        return operationName;
+    }
+
+    /**
+     * Get the operation of a request by its http method.
+     * 
+     * @param method http method of the request
+     * @return the operation, or null if the method matches none
+     */
+    @Nullable
+    public static CandourOperation forMethod(@Nullable final String method) {
+        for (final CandourOperation operation : values()) {
+            if (operation.method.equalsIgnoreCase(method)) {
+                return operation;
+            }
+        }
+        return null;
+    }
+
+}
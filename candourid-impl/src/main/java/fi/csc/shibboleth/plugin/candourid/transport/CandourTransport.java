@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.transport;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.opensaml.security.httpclient.HttpClientSecurityParameters;
+
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponse;
+
+/**
+ * Transport carrying the signed Candour API requests and their responses.
+ * 
+ * <p>
+ * The actions prepare and sign the requests and apply the deadline, circuit
+ * breaker, retries and hedging of the calls. The transport only delivers the
+ * request and hands the response to the response handler, so an
+ * implementation may use any http client or no network at all.
+ * </p>
+ * 
+ * <p>
+ * Implementations must be thread safe.
+ * </p>
+ */
+public interface CandourTransport {
+
+    /**
+     * Send the invitation request of a new verification session.
+     * 
+     * @param request         the prepared HTTP request
+     * @param timeout         the optional time to wait for the response
+     * @param responseHandler the handler producing the response
+     * 
+     * @return the encoded Http response
+     * 
+     * @throws IOException if there is an error producing a response
+     */
+    @Nullable
+    default CandourResponse createInvitation(@Nonnull final ClassicHttpRequest request,
+            @Nullable final Duration timeout, @Nonnull final HttpClientResponseHandler<CandourResponse> responseHandler)
+            throws IOException {
+        return execute(CandourOperation.CREATE_INVITATION, request, timeout, responseHandler);
+    }
+
+    /**
+     * Send the request fetching the result of a verification session.
+     * 
+     * @param request         the prepared HTTP request
+     * @param timeout         the optional time to wait for the response
+     * @param responseHandler the handler producing the response
+     * 
+     * @return the encoded Http response
+     * 
+     * @throws IOException if there is an error producing a response
+     */
+    @Nullable
+    default CandourResponse fetchResult(@Nonnull final ClassicHttpRequest request, @Nullable final Duration timeout,
+            @Nonnull final HttpClientResponseHandler<CandourResponse> responseHandler) throws IOException {
+        return execute(CandourOperation.FETCH_RESULT, request, timeout, responseHandler);
+    }
+
+    /**
+     * Send the request deleting the result of a verification session.
+     * 
+     * @param request         the prepared HTTP request
+     * @param timeout         the optional time to wait for the response
+     * @param responseHandler the handler producing the response
+     * 
+     * @return the encoded Http response
+     * 
+     * @throws IOException if there is an error producing a response
+     */
+    @Nullable
+    default CandourResponse deleteResult(@Nonnull final ClassicHttpRequest request, @Nullable final Duration timeout,
+            @Nonnull final HttpClientResponseHandler<CandourResponse> responseHandler) throws IOException {
+        return execute(CandourOperation.DELETE_RESULT, request, timeout, responseHandler);
+    }
+
+    /**
+     * Whether the transport applies the given http client security parameters to
+     * the requests and checks the TLS credential evaluation they call for. A
+     * transport must not be used with security parameters it does not apply.
+     * 
+     * @param securityParams the optional client security parameters
+     * 
+     * @return whether the security parameters are applied, by default only when
+     *         there are none
+     */
+    default boolean isSupported(@Nullable final HttpClientSecurityParameters securityParams) {
+        return securityParams == null;
+    }
+
+    /**
+     * Send the request of the operation and produce the response with the given
+     * handler.
+     * 
+     * @param operation       the operation of the request
+     * @param request         the prepared HTTP request
+     * @param timeout         the optional time to wait for the response
+     * @param responseHandler the handler producing the response
+     * 
+     * @return the encoded Http response
+     * 
+     * @throws IOException if there is an error producing a response
+     */
+    @Nullable
+    CandourResponse execute(@Nonnull CandourOperation operation, @Nonnull ClassicHttpRequest request,
+            @Nullable Duration timeout, @Nonnull HttpClientResponseHandler<CandourResponse> responseHandler)
+            throws IOException;
+
+}
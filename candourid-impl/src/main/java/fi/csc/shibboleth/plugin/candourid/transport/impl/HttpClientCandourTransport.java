@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.transport.impl;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.opensaml.security.httpclient.HttpClientSecurityParameters;
+
+import fi.csc.shibboleth.plugin.candourid.impl.CandourHttpSupport;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponse;
+import fi.csc.shibboleth.plugin.candourid.transport.CandourOperation;
+import fi.csc.shibboleth.plugin.candourid.transport.CandourTransport;
+import net.shibboleth.shared.annotation.ParameterName;
+import net.shibboleth.shared.annotation.constraint.ThreadSafe;
+import net.shibboleth.shared.logic.Constraint;
+
+/**
+ * Transport executing the requests with the blocking HttpClient 5
+ * {@link HttpClient classic client} on the calling thread. The security
+ * parameters are applied to each request and the TLS credential evaluation is
+ * checked after the exchange.
+ */
+@ThreadSafe
+public class HttpClientCandourTransport implements CandourTransport {
+
+    /** Http client for contacting the endpoint. */
+    @Nonnull
+    private final HttpClient httpClient;
+
+    /** HTTP client security parameters. */
+    @Nullable
+    private final HttpClientSecurityParameters httpClientSecurityParameters;
+
+    /**
+     * Constructor.
+     * 
+     * @param client         client to use
+     * @param securityParams the optional client security parameters
+     */
+    public HttpClientCandourTransport(@Nonnull @ParameterName(name = "httpClient") final HttpClient client,
+            @Nullable @ParameterName(name = "httpClientSecurityParameters")
+            final HttpClientSecurityParameters securityParams) {
+        httpClient = Constraint.isNotNull(client, "HttpClient cannot be null");
+        httpClientSecurityParameters = securityParams;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isSupported(@Nullable final HttpClientSecurityParameters securityParams) {
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Nullable
+    public CandourResponse execute(@Nonnull final CandourOperation operation,
+            @Nonnull final ClassicHttpRequest request, @Nullable final Duration timeout,
+            @Nonnull final HttpClientResponseHandler<CandourResponse> responseHandler) throws IOException {
+        return CandourHttpSupport.execute(httpClient, httpClientSecurityParameters, request, timeout,
+                responseHandler);
+    }
+
+}
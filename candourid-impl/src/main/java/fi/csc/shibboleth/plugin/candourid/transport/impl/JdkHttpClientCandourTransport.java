@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.transport.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.hc.client5.http.ClientProtocolException;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.io.entity.InputStreamEntity;
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
+
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponse;
+import fi.csc.shibboleth.plugin.candourid.transport.CandourOperation;
+import fi.csc.shibboleth.plugin.candourid.transport.CandourTransport;
+import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
+import net.shibboleth.shared.annotation.constraint.ThreadSafeAfterInit;
+import net.shibboleth.shared.component.AbstractInitializableComponent;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.logic.Constraint;
+
+/**
+ * Transport executing the requests with the JDK {@link HttpClient}.
+ * 
+ * <p>
+ * If no client is set, one is created negotiating HTTP/2 unless disabled and
+ * never following redirects. The response body is streamed to the response
+ * handler. The client establishes TLS with its own SSL context, the default of
+ * the JVM for a created client; the http client security parameters of the
+ * flow are not applied and the transport is not {@link #isSupported supported}
+ * together with any.
+ * </p>
+ */
+@ThreadSafeAfterInit
+public class JdkHttpClientCandourTransport extends AbstractInitializableComponent implements CandourTransport {
+
+    /** Request headers the JDK client sets itself and refuses to take from the caller. */
+    @Nonnull
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "expect", "host",
+            "upgrade");
+
+    /** Http client for contacting the endpoint. */
+    @NonnullAfterInit
+    private HttpClient httpClient;
+
+    /** How long a created client waits for a connection to be established. */
+    @Nonnull
+    private Duration connectTimeout = Duration.ofSeconds(5);
+
+    /** How long to wait for the response. */
+    @Nonnull
+    private Duration requestTimeout = Duration.ofSeconds(30);
+
+    /** Whether a created client negotiates HTTP/2. */
+    private boolean http2 = true;
+
+    /**
+     * Set the client to use.
+     * 
+     * @param client client to use
+     */
+    public void setHttpClient(@Nullable final HttpClient client) {
+        checkSetterPreconditions();
+        httpClient = client;
+    }
+
+    /**
+     * Set how long a created client waits for a connection to be established.
+     * 
+     * @param timeout how long to wait for a connection
+     */
+    public void setConnectTimeout(@Nonnull final Duration timeout) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(timeout, "Connect timeout cannot be null");
+        Constraint.isFalse(timeout.isNegative() || timeout.isZero(), "Connect timeout must be positive");
+        connectTimeout = timeout;
+    }
+
+    /**
+     * Set how long to wait for the response.
+     * 
+     * @param timeout how long to wait for the response
+     */
+    public void setRequestTimeout(@Nonnull final Duration timeout) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(timeout, "Request timeout cannot be null");
+        Constraint.isFalse(timeout.isNegative() || timeout.isZero(), "Request timeout must be positive");
+        requestTimeout = timeout;
+    }
+
+    /**
+     * Set whether a created client negotiates HTTP/2. Defaults to true.
+     * 
+     * @param flag whether to negotiate HTTP/2
+     */
+    public void setHttp2(final boolean flag) {
+        checkSetterPreconditions();
+        http2 = flag;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doInitialize() throws ComponentInitializationException {
+        super.doInitialize();
+        if (httpClient == null) {
+            httpClient = HttpClient.newBuilder()
+                    .version(http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(connectTimeout)
+                    .followRedirects(HttpClient.Redirect.NEVER)
+                    .build();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Nullable
+    public CandourResponse execute(@Nonnull final CandourOperation operation,
+            @Nonnull final ClassicHttpRequest request, @Nullable final Duration timeout,
+            @Nonnull final HttpClientResponseHandler<CandourResponse> responseHandler) throws IOException {
+        checkComponentActive();
+        Constraint.isNotNull(request, "Request can not be null");
+        Constraint.isNotNull(responseHandler, "Response handler can not be null");
+        final Duration wait = timeout != null && timeout.compareTo(requestTimeout) < 0 ? timeout : requestTimeout;
+        final HttpResponse<InputStream> response;
+        try {
+            response = httpClient.send(toJdkRequest(request, wait), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for Candour API response");
+        }
+        try (BasicClassicHttpResponse classic = toClassicResponse(response)) {
+            return responseHandler.handleResponse(classic);
+        } catch (final HttpException e) {
+            throw new ClientProtocolException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Convert a classic request to a request of the JDK client.
+     * 
+     * @param request classic request
+     * @param timeout time to wait for the response
+     * @return request of the JDK client
+     * @throws IOException if the request cannot be converted
+     */
+    @Nonnull
+    private static HttpRequest toJdkRequest(@Nonnull final ClassicHttpRequest request,
+            @Nonnull final Duration timeout) throws IOException {
+        final HttpRequest.Builder builder;
+        try {
+            builder = HttpRequest.newBuilder(request.getUri())
+                    .timeout(Duration.ofMillis(Math.max(1, timeout.toMillis())));
+        } catch (final URISyntaxException e) {
+            throw new IOException("Invalid request uri", e);
+        }
+        for (final Header header : request.getHeaders()) {
+            if (!RESTRICTED_HEADERS.contains(header.getName().toLowerCase(Locale.ROOT))) {
+                builder.header(header.getName(), header.getValue());
+            }
+        }
+        final HttpEntity entity = request.getEntity();
+        if (entity == null) {
+            return builder.method(request.getMethod(), HttpRequest.BodyPublishers.noBody()).build();
+        }
+        if (entity.getContentType() != null && !request.containsHeader(HttpHeaders.CONTENT_TYPE)) {
+            builder.header(HttpHeaders.CONTENT_TYPE, entity.getContentType());
+        }
+        return builder.method(request.getMethod(),
+                HttpRequest.BodyPublishers.ofByteArray(EntityUtils.toByteArray(entity))).build();
+    }
+
+    /**
+     * Convert a response of the JDK client to a classic response streaming the
+     * body.
+     * 
+     * @param response response of the JDK client
+     * @return classic response
+     */
+    @Nonnull
+    private static BasicClassicHttpResponse toClassicResponse(@Nonnull final HttpResponse<InputStream> response) {
+        final BasicClassicHttpResponse classic = new BasicClassicHttpResponse(response.statusCode());
+        for (final Map.Entry<String, List<String>> header : response.headers().map().entrySet()) {
+            for (final String value : header.getValue()) {
+                classic.addHeader(header.getKey(), value);
+            }
+        }
+        final String contentType = response.headers().firstValue(HttpHeaders.CONTENT_TYPE).orElse(null);
+        classic.setEntity(new InputStreamEntity(response.body(),
+                response.headers().firstValueAsLong(HttpHeaders.CONTENT_LENGTH).orElse(-1),
+                contentType != null ? ContentType.parseLenient(contentType) : null));
+        return classic;
+    }
+
+}
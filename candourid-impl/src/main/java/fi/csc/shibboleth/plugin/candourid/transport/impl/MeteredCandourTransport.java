@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.transport.impl;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.opensaml.core.metrics.MetricsSupport;
+import org.opensaml.security.httpclient.HttpClientSecurityParameters;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.LockFreeExponentiallyDecayingReservoir;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponse;
+import fi.csc.shibboleth.plugin.candourid.transport.CandourOperation;
+import fi.csc.shibboleth.plugin.candourid.transport.CandourTransport;
+import net.shibboleth.shared.annotation.ParameterName;
+import net.shibboleth.shared.annotation.constraint.ThreadSafe;
+import net.shibboleth.shared.logic.Constraint;
+
+/**
+ * Transport recording metrics of the calls carried by another transport.
+ * 
+ * <p>
+ * For each operation a timer of the call duration, response handling included,
+ * a histogram of the response sizes where known, counters of the responses by
+ * status class ({@code status.2xx} and so on) and a counter of the calls
+ * failing for an I/O error are registered under {@value #METRIC_PREFIX}
+ * followed by the operation name. A gauge of the calls in flight over all the
+ * transports is registered as {@value #METRIC_PREFIX}.inFlight. Each attempt of
+ * a retried or hedged call is recorded as a call of its own.
+ * </p>
+ * 
+ * <p>
+ * The metrics are shared by all the instances and safe to update from
+ * concurrent calls without contention: the counters are striped and the
+ * reservoirs of the timers and histograms are lock free.
+ * </p>
+ */
+@ThreadSafe
+public class MeteredCandourTransport implements CandourTransport {
+
+    /** Prefix of the metric names. */
+    @Nonnull
+    public static final String METRIC_PREFIX = "fi.csc.shibboleth.plugin.candourid.api";
+
+    /** Number of calls in flight over all the instances. */
+    @Nonnull
+    private static final LongAdder IN_FLIGHT = new LongAdder();
+
+    /** Transport carrying the calls. */
+    @Nonnull
+    private final CandourTransport delegate;
+
+    /** Metrics of the operations. */
+    @Nonnull
+    private final Map<CandourOperation, OperationMetrics> operationMetrics = new EnumMap<>(CandourOperation.class);
+
+    /**
+     * Constructor.
+     * 
+     * @param transport transport carrying the calls
+     */
+    public MeteredCandourTransport(@Nonnull @ParameterName(name = "transport") final CandourTransport transport) {
+        delegate = Constraint.isNotNull(transport, "Transport cannot be null");
+        final MetricRegistry registry = MetricsSupport.getMetricRegistry();
+        for (final CandourOperation operation : CandourOperation.values()) {
+            operationMetrics.put(operation, new OperationMetrics(registry, operation));
+        }
+        registry.gauge(MetricRegistry.name(METRIC_PREFIX, "inFlight"), () -> (Gauge<Long>) IN_FLIGHT::sum);
+    }
+
+    /**
+     * Get transport carrying the calls.
+     * 
+     * @return transport carrying the calls
+     */
+    @Nonnull
+    public CandourTransport getDelegate() {
+        return delegate;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isSupported(@Nullable final HttpClientSecurityParameters securityParams) {
+        return delegate.isSupported(securityParams);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Nullable
+    public CandourResponse execute(@Nonnull final CandourOperation operation,
+            @Nonnull final ClassicHttpRequest request, @Nullable final Duration timeout,
+            @Nonnull final HttpClientResponseHandler<CandourResponse> responseHandler) throws IOException {
+        final OperationMetrics metrics = operationMetrics.get(operation);
+        IN_FLIGHT.increment();
+        final long start = System.nanoTime();
+        try {
+            return delegate.execute(operation, request, timeout, response -> {
+                metrics.recordStatus(response.getCode());
+                final HttpEntity entity = response.getEntity();
+                if (entity != null && entity.getContentLength() >= 0) {
+                    metrics.responseSize.update(entity.getContentLength());
+                }
+                return responseHandler.handleResponse(response);
+            });
+        } catch (final IOException e) {
+            metrics.ioErrors.inc();
+            throw e;
+        } finally {
+            metrics.duration.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            IN_FLIGHT.decrement();
+        }
+    }
+
+    /** Metrics of an operation. */
+    private static final class OperationMetrics {
+
+        /** Duration of the calls. */
+        @Nonnull
+        private final Timer duration;
+
+        /** Size of the response payloads. */
+        @Nonnull
+        private final Histogram responseSize;
+
+        /** Responses by status class, from 1xx to 5xx. */
+        @Nonnull
+        private final Counter[] statusClasses = new Counter[5];
+
+        /** Responses with a status outside the known classes. */
+        @Nonnull
+        private final Counter otherStatuses;
+
+        /** Calls failing for an I/O error. */
+        @Nonnull
+        private final Counter ioErrors;
+
+        /**
+         * Constructor.
+         * 
+         * @param registry  metric registry
+         * @param operation the operation
+         */
+        private OperationMetrics(@Nonnull final MetricRegistry registry, @Nonnull final CandourOperation operation) {
+            final String prefix = MetricRegistry.name(METRIC_PREFIX, operation.getOperationName());
+            duration = registry.timer(MetricRegistry.name(prefix, "duration"),
+                    () -> new Timer(LockFreeExponentiallyDecayingReservoir.builder().build()));
+            responseSize = registry.histogram(MetricRegistry.name(prefix, "responseSize"),
+                    () -> new Histogram(LockFreeExponentiallyDecayingReservoir.builder().build()));
+            for (int i = 0; i < statusClasses.length; i++) {
+                statusClasses[i] = registry.counter(MetricRegistry.name(prefix, "status", (i + 1) + "xx"));
+            }
+            otherStatuses = registry.counter(MetricRegistry.name(prefix, "status", "other"));
+            ioErrors = registry.counter(MetricRegistry.name(prefix, "ioErrors"));
+        }
+
+        /**
+         * Count a response by its status class.
+         * 
+         * @param code http status code
+         */
+        private void recordStatus(final int code) {
+            final int statusClass = code / 100;
+            if (statusClass >= 1 && statusClass <= statusClasses.length) {
+                statusClasses[statusClass - 1].inc();
+            } else {
+                otherStatuses.inc();
+            }
+        }
+    }
+
+}
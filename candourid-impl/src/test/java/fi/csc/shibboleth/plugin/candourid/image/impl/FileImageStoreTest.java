@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.image.impl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import fi.csc.shibboleth.plugin.candourid.image.StoredImage;
+
+/** Tests for {@link FileImageStore}. */
+public class FileImageStoreTest {
+
+    private Path directory;
+
+    private FileImageStore store;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        directory = Files.createTempDirectory("candourid-test").resolve("images");
+        store = new FileImageStore();
+        store.setDirectory(directory);
+        store.setCleanupInterval(Duration.ZERO);
+        store.initialize();
+    }
+
+    @AfterMethod
+    public void teardown() {
+        store.destroy();
+    }
+
+    @Test
+    public void testBinary() throws Exception {
+        StoredImage image = store.store(new byte[] { 1, 2, 3 });
+        Assert.assertEquals(image.getSize(), 3);
+        Assert.assertEquals(image.load(), new byte[] { 1, 2, 3 });
+        Assert.assertEquals(countFiles(), 1);
+        image.delete();
+        Assert.assertEquals(countFiles(), 0);
+    }
+
+    @Test
+    public void testString() throws Exception {
+        StoredImage image = store.store("aW1hZ2U=");
+        Assert.assertEquals(image.load(), "aW1hZ2U=");
+        image.delete();
+        // second delete has no effect
+        image.delete();
+        Assert.assertEquals(countFiles(), 0);
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testLoadDeleted() throws Exception {
+        StoredImage image = store.store(new byte[] { 1 });
+        image.delete();
+        image.load();
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUnsupported() throws Exception {
+        store.store(Integer.valueOf(1));
+    }
+
+    @Test
+    public void testRemoveExpired() throws Exception {
+        store.store(new byte[] { 1 });
+        StoredImage expired = store.store(new byte[] { 2 });
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                if (Files.readAllBytes(file)[0] == 2) {
+                    Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+                }
+            }
+        }
+        store.removeExpired();
+        Assert.assertEquals(countFiles(), 1);
+        expired.delete();
+        Assert.assertEquals(countFiles(), 1);
+    }
+
+    private long countFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.impl.BasicEntityDetails;
+import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
+import org.apache.hc.core5.http.message.BasicHttpResponse;
+import org.apache.hc.core5.http.nio.AsyncPushConsumer;
+import org.apache.hc.core5.http.nio.AsyncRequestProducer;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.HandlerFactory;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.io.CloseMode;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.opensaml.security.httpclient.HttpClientSecurityParameters;
+import org.opensaml.security.trust.TrustEngine;
+import org.opensaml.security.x509.X509Credential;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponse;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponseHandler;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponseTooLargeException;
+
+/** Tests for {@link AsyncCandourHttpExecutor}. */
+public class AsyncCandourHttpExecutorTest {
+
+    private AsyncCandourHttpExecutor executor;
+
+    private CloseableHttpAsyncClient httpAsyncClient;
+
+    private ClassicHttpRequest request;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        httpAsyncClient = Mockito.mock(CloseableHttpAsyncClient.class);
+        executor = new AsyncCandourHttpExecutor();
+        executor.setHttpAsyncClient(httpAsyncClient);
+        request = ClassicRequestBuilder.post("https://example.com/api").setHeader("X-AUTH-CLIENT", "publicKey")
+                .setEntity("{\"callbackUrl\":\"https://idp.example.org\"}", ContentType.APPLICATION_JSON).build();
+    }
+
+    @AfterMethod
+    public void teardown() {
+        executor.destroy();
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private ArgumentCaptor<AsyncRequestProducer> respond(CompletableFuture<Message<HttpResponse, byte[]>> future) {
+        final ArgumentCaptor<AsyncRequestProducer> producer = ArgumentCaptor.forClass(AsyncRequestProducer.class);
+        Mockito.when(httpAsyncClient.execute(producer.capture(), (AsyncResponseConsumer<Object>) Mockito.any(),
+                (HandlerFactory<AsyncPushConsumer>) Mockito.any(), (HttpContext) Mockito.any(),
+                (FutureCallback<Object>) Mockito.any())).thenReturn((CompletableFuture) future);
+        return producer;
+    }
+
+    @Test
+    public void testExecute() throws Exception {
+        final BasicHttpResponse head = new BasicHttpResponse(200);
+        head.setHeader("Content-Type", "application/json");
+        final ArgumentCaptor<AsyncRequestProducer> producer = respond(CompletableFuture
+                .completedFuture(new Message<>(head, "{\"status\":\"ok\"}".getBytes(StandardCharsets.UTF_8))));
+        executor.initialize();
+        Mockito.verify(httpAsyncClient).start();
+        final CandourResponse response = executor.execute(request, null, new CandourResponseHandler());
+        Assert.assertEquals(response.getCode(), 200);
+        Assert.assertEquals(response.getPayload(), "{\"status\":\"ok\"}");
+        Assert.assertTrue(producer.getValue().isRepeatable());
+    }
+
+    @Test
+    public void testNoBody() throws Exception {
+        respond(CompletableFuture.completedFuture(new Message<>(new BasicHttpResponse(204), null)));
+        executor.initialize();
+        final CandourResponse response = executor.execute(request, null, new CandourResponseHandler());
+        Assert.assertEquals(response.getCode(), 204);
+        Assert.assertNull(response.getPayload());
+    }
+
+    @Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = "Connection reset")
+    public void testIOException() throws Exception {
+        respond(CompletableFuture.failedFuture(new IOException("Connection reset")));
+        executor.initialize();
+        executor.execute(request, null, new CandourResponseHandler());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testTrustEngineNotSupported() throws Exception {
+        final HttpClientSecurityParameters params = new HttpClientSecurityParameters();
+        Assert.assertTrue(executor.isSupported(null));
+        Assert.assertTrue(executor.isSupported(params));
+        params.setTLSTrustEngine(Mockito.mock(TrustEngine.class));
+        Assert.assertFalse(executor.isSupported(params));
+    }
+
+    @Test
+    public void testClientTLSCredentialNotSupported() throws Exception {
+        final HttpClientSecurityParameters params = new HttpClientSecurityParameters();
+        params.setClientTLSCredential(Mockito.mock(X509Credential.class));
+        Assert.assertFalse(executor.isSupported(params));
+    }
+
+    @Test
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public void testPermitHeldUntilExchangeCompletes() throws Exception {
+        final ArgumentCaptor<FutureCallback> callback = ArgumentCaptor.forClass(FutureCallback.class);
+        Mockito.when(httpAsyncClient.execute(Mockito.any(AsyncRequestProducer.class),
+                (AsyncResponseConsumer<Object>) Mockito.any(), (HandlerFactory<AsyncPushConsumer>) Mockito.any(),
+                (HttpContext) Mockito.any(), callback.capture())).thenAnswer(invocation -> new CompletableFuture<>());
+        executor.setMaxConcurrentRequests(1);
+        executor.setRequestTimeout(Duration.ofMillis(50));
+        executor.initialize();
+        try {
+            executor.execute(request, null, new CandourResponseHandler());
+            Assert.fail("Request should time out");
+        } catch (final SocketTimeoutException e) {
+            // expected, the exchange is still in flight
+        }
+        try {
+            executor.execute(request, null, new CandourResponseHandler());
+            Assert.fail("Request over the limit should be rejected");
+        } catch (final IOException e) {
+            Assert.assertEquals(e.getMessage(), "Too many concurrent Candour API requests");
+        }
+        callback.getAllValues().get(0).cancelled();
+        try {
+            executor.execute(request, null, new CandourResponseHandler());
+            Assert.fail("Request should time out");
+        } catch (final SocketTimeoutException e) {
+            // expected, admitted once the first exchange completed
+        }
+    }
+
+    @Test
+    public void testInjectedClientNotClosed() throws Exception {
+        executor.initialize();
+        executor.destroy();
+        Mockito.verify(httpAsyncClient, Mockito.never()).close(Mockito.any(CloseMode.class));
+        Mockito.verify(httpAsyncClient, Mockito.never()).close();
+    }
+
+    @Test
+    public void testSizeLimitedConsumer() throws Exception {
+        final CompletableFuture<byte[]> result = new CompletableFuture<>();
+        final SizeLimitedAsyncEntityConsumer consumer = new SizeLimitedAsyncEntityConsumer(8);
+        consumer.streamStart(new BasicEntityDetails(-1, ContentType.APPLICATION_JSON), callback(result));
+        consumer.consume(ByteBuffer.wrap("{\"a\":".getBytes(StandardCharsets.UTF_8)));
+        consumer.consume(ByteBuffer.wrap("1}".getBytes(StandardCharsets.UTF_8)));
+        consumer.streamEnd(null);
+        Assert.assertEquals(new String(result.get(), StandardCharsets.UTF_8), "{\"a\":1}");
+    }
+
+    @Test(expectedExceptions = CandourResponseTooLargeException.class)
+    public void testSizeLimitedConsumerTooLarge() throws Exception {
+        final SizeLimitedAsyncEntityConsumer consumer = new SizeLimitedAsyncEntityConsumer(8);
+        consumer.streamStart(new BasicEntityDetails(-1, ContentType.APPLICATION_JSON),
+                callback(new CompletableFuture<>()));
+        consumer.consume(ByteBuffer.wrap("{\"a\":\"123456\"}".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static FutureCallback<byte[]> callback(final CompletableFuture<byte[]> result) {
+        return new FutureCallback<>() {
+
+            @Override
+            public void completed(final byte[] content) {
+                result.complete(content);
+            }
+
+            @Override
+            public void failed(final Exception e) {
+                result.completeExceptionally(e);
+            }
+
+            @Override
+            public void cancelled() {
+                result.cancel(false);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CyclicBarrier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequest;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.mockito.Mockito;
+import org.mockito.stubbing.Answer;
+import org.opensaml.profile.context.ProfileRequestContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.webflow.execution.RequestContext;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import fi.csc.shibboleth.plugin.candourid.CandourEventIds;
+import fi.csc.shibboleth.plugin.candourid.context.CandourContext;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourInvitationRequestPayload;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponse;
+import net.shibboleth.idp.authn.context.AuthenticationContext;
+import net.shibboleth.idp.profile.context.navigate.WebflowRequestContextProfileRequestContextLookup;
+import net.shibboleth.idp.profile.testing.RequestContextBuilder;
+import net.shibboleth.shared.servlet.impl.HttpServletRequestResponseContext;
+import net.shibboleth.shared.servlet.impl.ThreadLocalHttpServletRequestSupplier;
+
+/**
+ * Runs concurrent logins through single shared instances of the Candour
+ * actions and verifies that no state leaks from one login to another.
+ */
+public class CandourActionConcurrencyTest {
+
+    private static final int THREADS = 8;
+
+    private static final int LOGINS = 200;
+
+    private static final Pattern EXECUTION = Pattern.compile("execution=([0-9a-f-]+)");
+
+    private InitializeCandourContext initializeCandourContext;
+
+    private CreateSession createSession;
+
+    private ExtractAuthenticationResponse extractAuthenticationResponse;
+
+    private GetUserClaims getUserClaims;
+
+    private ValidateInvitationLink validateInvitationLink;
+
+    private ReleaseStoredImages releaseStoredImages;
+
+    @SuppressWarnings("unchecked")
+    @BeforeClass
+    public void setup() throws Exception {
+        final HttpClient httpClient = Mockito.mock(HttpClient.class);
+        Mockito.when(httpClient.execute((HttpUriRequest) Mockito.any(), (HttpContext) Mockito.any(),
+                (HttpClientResponseHandler<CandourResponse>) Mockito.any())).thenAnswer(candourApi());
+
+        initializeCandourContext = new InitializeCandourContext();
+        initializeCandourContext.initialize();
+
+        createSession = new CreateSession();
+        createSession.setCandouridURI("https://example.com/api");
+        createSession.setClientPublicKey("publicKey");
+        createSession.setClientHmacKey("hmacKey");
+        createSession.setPayload(CandourInvitationRequestPayload.builder().build());
+        createSession.setHttpServletRequestSupplier(new ThreadLocalHttpServletRequestSupplier());
+        createSession.setHttpClient(httpClient);
+        createSession.initialize();
+
+        extractAuthenticationResponse = new ExtractAuthenticationResponse();
+        extractAuthenticationResponse
+                .setMappedStatuses(Map.of("cancelled", CandourEventIds.CANDOUR_REDIRECT_RESP_CANCELLED));
+        extractAuthenticationResponse.setHttpServletRequestSupplier(new ThreadLocalHttpServletRequestSupplier());
+        extractAuthenticationResponse.initialize();
+
+        getUserClaims = new GetUserClaims();
+        getUserClaims.setCandouridURI("https://example.com/api");
+        getUserClaims.setClientPublicKey("publicKey");
+        getUserClaims.setClientHmacKey("hmacKey");
+        getUserClaims.setHttpServletRequestSupplier(new ThreadLocalHttpServletRequestSupplier());
+        getUserClaims.setHttpClient(httpClient);
+        getUserClaims.initialize();
+
+        validateInvitationLink = new ValidateInvitationLink();
+        validateInvitationLink.initialize();
+
+        releaseStoredImages = new ReleaseStoredImages();
+        releaseStoredImages.initialize();
+    }
+
+    @Test
+    public void testConcurrentLogins() throws Exception {
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            final String serverName = "idp" + i + ".example.org";
+            final Thread thread = new Thread(() -> {
+                try {
+                    barrier.await();
+                    for (int j = 0; j < LOGINS; j++) {
+                        login(serverName);
+                    }
+                } catch (final Throwable t) {
+                    failures.add(t);
+                } finally {
+                    HttpServletRequestResponseContext.clearCurrent();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        if (!failures.isEmpty()) {
+            Assert.fail(failures.size() + " failed threads, first failure", failures.get(0));
+        }
+    }
+
+    private void login(final String serverName) {
+        final String key = UUID.randomUUID().toString();
+        final RequestContext src = new RequestContextBuilder().buildRequestContext();
+        final ProfileRequestContext prc = new WebflowRequestContextProfileRequestContextLookup().apply(src);
+        final AuthenticationContext authnContext = prc.addSubcontext(new AuthenticationContext());
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setServerName(serverName);
+        request.setParameter("status", "success");
+        request.setParameter("sessionId", key);
+        HttpServletRequestResponseContext.loadCurrent(request, new MockHttpServletResponse());
+
+        Assert.assertNull(initializeCandourContext.execute(src));
+        final CandourContext ctx = authnContext.getSubcontext(CandourContext.class);
+        Assert.assertNotNull(ctx);
+        ctx.setCallbackUri("/idp/profile/Authn?execution=" + key);
+        Assert.assertNull(createSession.execute(src));
+        Assert.assertEquals(ctx.getAuthenticationUri(), "https://id.example.org/verify/" + key);
+        Assert.assertNull(extractAuthenticationResponse.execute(src));
+        Assert.assertEquals(ctx.getSessionId(), key);
+        Assert.assertNull(getUserClaims.execute(src));
+        Assert.assertEquals(ctx.getResultClaims().get("sid"), key);
+        Assert.assertNull(validateInvitationLink.execute(src));
+        Assert.assertNull(releaseStoredImages.execute(src));
+    }
+
+    /**
+     * Answers as the Candour API would, echoing the login key of the request back in the response.
+     */
+    @SuppressWarnings("unchecked")
+    private static Answer<CandourResponse> candourApi() {
+        return invocation -> {
+            final HttpUriRequest request = invocation.getArgument(0);
+            final BasicClassicHttpResponse response = new BasicClassicHttpResponse(200);
+            if ("POST".equals(request.getMethod())) {
+                final Matcher matcher =
+                        EXECUTION.matcher(EntityUtils.toString(request.getEntity(), StandardCharsets.UTF_8));
+                Assert.assertTrue(matcher.find());
+                response.setEntity(new StringEntity("{\"redirectUrl\":\"https://id.example.org/verify/"
+                        + matcher.group(1) + "\",\"verificationSessionId\":\"" + matcher.group(1) + "\"}",
+                        ContentType.APPLICATION_JSON));
+            } else if ("GET".equals(request.getMethod())) {
+                final String path = request.getUri().getPath();
+                final String sid = path.substring(path.lastIndexOf('/') + 1);
+                response.setEntity(new StringEntity("{\"invitationLink\":\"https://id.example.org/verify/" + sid
+                        + "\",\"sid\":\"" + sid + "\"}", ContentType.APPLICATION_JSON));
+            }
+            return ((HttpClientResponseHandler<CandourResponse>) invocation.getArgument(2)).handleResponse(response);
+        };
+    }
+}
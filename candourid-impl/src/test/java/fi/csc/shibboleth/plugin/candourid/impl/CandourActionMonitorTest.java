@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import org.opensaml.core.metrics.MetricsSupport;
+import org.opensaml.profile.action.ActionSupport;
+import org.opensaml.profile.action.EventIds;
+import org.opensaml.profile.context.ProfileRequestContext;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+
+import fi.csc.shibboleth.plugin.candourid.CandourEventIds;
+
+/** Tests for {@link CandourActionMonitor}. */
+public class CandourActionMonitorTest {
+
+    @Test
+    public void testEventCounted() {
+        final CandourActionMonitor monitor = new CandourActionMonitor(this, false, "test");
+        final Counter failures = MetricsSupport.getMetricRegistry().counter(MetricRegistry.name(
+                CandourActionMonitor.EVENT_METRIC_PREFIX, CandourEventIds.CANDOUR_API_COMM_FAILURE));
+        final long before = failures.getCount();
+        final ProfileRequestContext prc = new ProfileRequestContext();
+        monitor.execute(prc, () -> ActionSupport.buildEvent(prc, CandourEventIds.CANDOUR_API_COMM_FAILURE));
+        Assert.assertEquals(failures.getCount(), before + 1);
+        // Events of other origin are not counted
+        monitor.execute(prc, () -> ActionSupport.buildEvent(prc, EventIds.INVALID_PROFILE_CTX));
+        Assert.assertEquals(failures.getCount(), before + 1);
+    }
+
+    @Test
+    public void testStageMetered() {
+        final CandourActionMonitor monitor = new CandourActionMonitor(this, true, "test");
+        monitor.execute(new ProfileRequestContext(), () -> {
+        });
+        Assert.assertEquals(MetricsSupport.getMetricRegistry()
+                .histogram(MetricRegistry.name(CandourStageMeter.METRIC_PREFIX, "CandourActionMonitorTest",
+                        "allocatedBytes"))
+                .getCount(), 1L);
+    }
+
+}
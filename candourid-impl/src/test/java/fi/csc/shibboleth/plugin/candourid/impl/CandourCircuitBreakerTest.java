@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.time.Duration;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import fi.csc.shibboleth.plugin.candourid.impl.CandourCircuitBreaker.State;
+import net.shibboleth.shared.component.ComponentInitializationException;
+
+/** Tests for {@link CandourCircuitBreaker}. */
+public class CandourCircuitBreakerTest {
+
+    private static final long SLOW = Duration.ofSeconds(11).toNanos();
+
+    private CandourCircuitBreaker breaker;
+
+    @BeforeMethod
+    public void setup() {
+        breaker = new CandourCircuitBreaker();
+        breaker.setWindowSize(4);
+        breaker.setMinimumCalls(4);
+        breaker.setHalfOpenCalls(2);
+        breaker.setOpenDuration(Duration.ofMillis(50));
+    }
+
+    @AfterMethod
+    public void teardown() {
+        breaker.destroy();
+    }
+
+    private void call(final long duration, final boolean failed) {
+        Assert.assertTrue(breaker.tryAcquirePermission());
+        breaker.onResult(duration, failed);
+    }
+
+    @Test
+    public void testFailureRate() throws Exception {
+        breaker.initialize();
+        call(0, true);
+        call(0, false);
+        call(0, true);
+        // Rates are not evaluated before the minimum number of calls
+        Assert.assertEquals(breaker.getState(), State.CLOSED);
+        call(0, false);
+        Assert.assertEquals(breaker.getState(), State.OPEN);
+        Assert.assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    public void testSlowCallRate() throws Exception {
+        breaker.setSlowCallRateThreshold(75);
+        breaker.initialize();
+        call(0, false);
+        call(SLOW, false);
+        call(SLOW, false);
+        call(0, false);
+        Assert.assertEquals(breaker.getState(), State.CLOSED);
+        call(SLOW, false);
+        Assert.assertEquals(breaker.getState(), State.OPEN);
+    }
+
+    @Test
+    public void testSlidingWindow() throws Exception {
+        breaker.setFailureRateThreshold(75);
+        breaker.initialize();
+        call(0, true);
+        call(0, false);
+        call(0, false);
+        call(0, false);
+        call(0, true);
+        call(0, true);
+        // The first failure has left the window
+        Assert.assertEquals(breaker.getState(), State.CLOSED);
+        call(0, true);
+        Assert.assertEquals(breaker.getState(), State.OPEN);
+    }
+
+    @Test
+    public void testHalfOpenCloses() throws Exception {
+        breaker.initialize();
+        for (int i = 0; i < 4; i++) {
+            call(0, true);
+        }
+        Assert.assertEquals(breaker.getState(), State.OPEN);
+        Thread.sleep(60);
+        Assert.assertTrue(breaker.tryAcquirePermission());
+        Assert.assertEquals(breaker.getState(), State.HALF_OPEN);
+        Assert.assertTrue(breaker.tryAcquirePermission());
+        // Only the configured number of probes are let through
+        Assert.assertFalse(breaker.tryAcquirePermission());
+        breaker.onResult(0, false);
+        breaker.onResult(0, false);
+        Assert.assertEquals(breaker.getState(), State.CLOSED);
+        Assert.assertTrue(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    public void testHalfOpenReopens() throws Exception {
+        breaker.initialize();
+        for (int i = 0; i < 4; i++) {
+            call(0, true);
+        }
+        Thread.sleep(60);
+        call(0, false);
+        call(0, true);
+        Assert.assertEquals(breaker.getState(), State.OPEN);
+        Assert.assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    public void testIgnored() throws Exception {
+        breaker.initialize();
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(breaker.tryAcquirePermission());
+            breaker.onIgnored();
+        }
+        Assert.assertEquals(breaker.getState(), State.CLOSED);
+        for (int i = 0; i < 4; i++) {
+            call(0, true);
+        }
+        Thread.sleep(60);
+        Assert.assertTrue(breaker.tryAcquirePermission());
+        Assert.assertTrue(breaker.tryAcquirePermission());
+        // An ignored probe is released for another one
+        breaker.onIgnored();
+        Assert.assertTrue(breaker.tryAcquirePermission());
+        Assert.assertEquals(breaker.getState(), State.HALF_OPEN);
+    }
+
+    @Test(expectedExceptions = ComponentInitializationException.class)
+    public void testMinimumCallsOverWindow() throws Exception {
+        breaker.setMinimumCalls(5);
+        breaker.initialize();
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.time.Duration;
+
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.core5.reactor.IOReactorStatus;
+import org.opensaml.core.metrics.MetricsSupport;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+/** Tests for {@link CandourHttpClientFactoryBean} and {@link CandourHttpAsyncClientFactoryBean}. */
+public class CandourHttpClientFactoryBeanTest {
+
+    private static Object gauge(String pool, String stat) {
+        final Gauge<?> gauge = MetricsSupport.getMetricRegistry().getGauges()
+                .get(MetricRegistry.name(AbstractCandourHttpClientFactoryBean.METRIC_PREFIX, pool, stat));
+        return gauge != null ? gauge.getValue() : null;
+    }
+
+    @Test
+    public void testClient() throws Exception {
+        final CandourHttpClientFactoryBean factory = new CandourHttpClientFactoryBean();
+        factory.setMaxConnectionsTotal(10);
+        factory.setMaxConnectionsPerRoute(5);
+        factory.setConnectionTimeout(Duration.ofSeconds(1));
+        factory.setSocketTimeout(Duration.ofSeconds(2));
+        factory.setIdleTimeout(Duration.ZERO);
+        factory.afterPropertiesSet();
+        final CloseableHttpClient client = factory.getObject();
+        Assert.assertNotNull(client);
+        Assert.assertEquals(gauge("blocking", "max"), 10);
+        Assert.assertEquals(gauge("blocking", "leased"), 0);
+        Assert.assertEquals(gauge("blocking", "pending"), 0);
+        Assert.assertEquals(gauge("blocking", "available"), 0);
+        factory.destroy();
+        Assert.assertNull(gauge("blocking", "max"));
+    }
+
+    @Test
+    public void testAsyncClient() throws Exception {
+        final CandourHttpAsyncClientFactoryBean factory = new CandourHttpAsyncClientFactoryBean();
+        factory.setMaxConnectionsTotal(20);
+        factory.setHttp2(false);
+        factory.afterPropertiesSet();
+        final CloseableHttpAsyncClient client = factory.getObject();
+        Assert.assertEquals(client.getStatus(), IOReactorStatus.ACTIVE);
+        Assert.assertEquals(gauge("async", "max"), 20);
+        Assert.assertEquals(gauge("async", "leased"), 0);
+        factory.destroy();
+        Assert.assertNull(gauge("async", "max"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidTimeout() {
+        new CandourHttpClientFactoryBean().setSocketTimeout(Duration.ZERO);
+    }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.time.Duration;
+
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.util.Timeout;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/** Tests for {@link CandourHttpSupport}. */
+public class CandourHttpSupportTest {
+
+    @Test
+    public void testShorterConfiguredTimeoutKept() {
+        final HttpClientContext context = HttpClientContext.create();
+        CandourHttpSupport.applyTimeout(context,
+                CandourHttpSupport.buildRequestConfig(Duration.ofSeconds(1), Duration.ofSeconds(30)),
+                Duration.ofSeconds(10));
+        final RequestConfig config = context.getRequestConfig();
+        Assert.assertEquals(config.getConnectionRequestTimeout().toMilliseconds(), 1000);
+        Assert.assertEquals(config.getResponseTimeout().toMilliseconds(), 10000);
+        Assert.assertFalse(config.isRedirectsEnabled());
+    }
+
+    @Test
+    public void testDefaultsKept() {
+        final HttpClientContext context = HttpClientContext.create();
+        CandourHttpSupport.applyTimeout(context, RequestConfig.custom()
+                .setResponseTimeout(Timeout.DISABLED)
+                .setExpectContinueEnabled(true)
+                .build(), Duration.ofSeconds(10));
+        final RequestConfig config = context.getRequestConfig();
+        Assert.assertEquals(config.getResponseTimeout().toMilliseconds(), 10000);
+        Assert.assertTrue(config.isExpectContinueEnabled());
+    }
+
+    @Test
+    public void testNoTimeout() {
+        final HttpClientContext context = HttpClientContext.create();
+        CandourHttpSupport.applyTimeout(context, RequestConfig.DEFAULT, null);
+        Assert.assertNull(context.getAttribute(HttpClientContext.REQUEST_CONFIG));
+    }
+
+}
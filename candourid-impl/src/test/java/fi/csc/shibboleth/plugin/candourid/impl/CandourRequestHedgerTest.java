@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.opensaml.core.metrics.MetricsSupport;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+
+/** Tests for {@link CandourRequestHedger}. */
+public class CandourRequestHedgerTest {
+
+    private CandourRequestHedger hedger;
+
+    private ClassicHttpRequest request;
+
+    private AtomicInteger attempts;
+
+    private CountDownLatch release;
+
+    @BeforeMethod
+    public void setup() {
+        hedger = new CandourRequestHedger();
+        hedger.setHedgeDelay(Duration.ofMillis(50));
+        hedger.setTimeout(Duration.ofSeconds(5));
+        request = new HttpGet("https://localhost/v1/result/session");
+        attempts = new AtomicInteger();
+        release = new CountDownLatch(1);
+    }
+
+    @AfterMethod
+    public void teardown() {
+        release.countDown();
+        hedger.destroy();
+    }
+
+    /** First attempt blocks until released, later ones answer at once. */
+    private String slowFirst(final ClassicHttpRequest req) throws IOException {
+        if (attempts.getAndIncrement() == 0) {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                throw new IOException(e);
+            }
+            return "first";
+        }
+        return "second";
+    }
+
+    @Test
+    public void testNotHedged() throws Exception {
+        hedger.initialize();
+        final String result = hedger.execute(request, req -> {
+            attempts.incrementAndGet();
+            return "first";
+        });
+        Assert.assertEquals(result, "first");
+        Assert.assertEquals(attempts.get(), 1);
+    }
+
+    @Test
+    public void testHedgeWins() throws Exception {
+        hedger.initialize();
+        final String result = hedger.execute(request, this::slowFirst);
+        Assert.assertEquals(result, "second");
+        Assert.assertEquals(attempts.get(), 2);
+    }
+
+    @Test
+    public void testHedgeIsCopy() throws Exception {
+        hedger.initialize();
+        final ClassicHttpRequest[] seen = new ClassicHttpRequest[2];
+        hedger.execute(request, req -> {
+            seen[attempts.get()] = req;
+            return slowFirst(req);
+        });
+        Assert.assertSame(seen[0], request);
+        Assert.assertNotSame(seen[1], request);
+        Assert.assertEquals(seen[1].getRequestUri(), request.getRequestUri());
+        Assert.assertEquals(seen[1].getMethod(), request.getMethod());
+    }
+
+    @Test
+    public void testBudget() throws Exception {
+        hedger.setBudgetReserve(1);
+        hedger.setBudgetPercent(0);
+        hedger.initialize();
+        String result = hedger.execute(request, this::slowFirst);
+        Assert.assertEquals(result, "second");
+        // Budget spent, the slow attempt is waited for
+        attempts.set(0);
+        new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (final InterruptedException e) {
+                // no op
+            }
+            release.countDown();
+        }).start();
+        result = hedger.execute(request, this::slowFirst);
+        Assert.assertEquals(result, "first");
+        Assert.assertEquals(attempts.get(), 1);
+    }
+
+    @Test
+    public void testFailureThenSuccess() throws Exception {
+        hedger.initialize();
+        final String result = hedger.execute(request, req -> {
+            if (attempts.getAndIncrement() == 0) {
+                try {
+                    Thread.sleep(100);
+                } catch (final InterruptedException e) {
+                    throw new IOException(e);
+                }
+                throw new IOException("first failed");
+            }
+            try {
+                Thread.sleep(200);
+            } catch (final InterruptedException e) {
+                throw new IOException(e);
+            }
+            return "second";
+        });
+        Assert.assertEquals(result, "second");
+    }
+
+    @Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = "first failed")
+    public void testAllFail() throws Exception {
+        hedger.initialize();
+        hedger.execute(request, req -> {
+            if (attempts.getAndIncrement() == 0) {
+                try {
+                    Thread.sleep(100);
+                } catch (final InterruptedException e) {
+                    throw new IOException(e);
+                }
+                throw new IOException("first failed");
+            }
+            try {
+                Thread.sleep(300);
+            } catch (final InterruptedException e) {
+                throw new IOException(e);
+            }
+            throw new IOException("second failed");
+        });
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testTimeout() throws Exception {
+        hedger.setTimeout(Duration.ofMillis(200));
+        hedger.initialize();
+        hedger.execute(request, req -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                throw new IOException(e);
+            }
+            return "never";
+        });
+    }
+
+    @Test
+    public void testMaxThreads() throws Exception {
+        hedger.setMaxThreads(1);
+        hedger.initialize();
+        final CountDownLatch started = new CountDownLatch(1);
+        final Thread blocked = new Thread(() -> {
+            try {
+                hedger.execute(request, req -> {
+                    started.countDown();
+                    return slowFirst(req);
+                });
+            } catch (final IOException e) {
+                // no op
+            }
+        });
+        blocked.start();
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        // No thread left, executed on the calling thread
+        final Thread caller = Thread.currentThread();
+        final String result = hedger.execute(request, req -> Thread.currentThread() == caller ? "caller" : "pool");
+        Assert.assertEquals(result, "caller");
+        release.countDown();
+        blocked.join(5000);
+    }
+
+    @Test
+    public void testSaturatedHedgeRefunded() throws Exception {
+        hedger.setMaxThreads(1);
+        hedger.setBudgetReserve(1);
+        hedger.setBudgetPercent(0);
+        hedger.initialize();
+        final Counter saturated = MetricsSupport.getMetricRegistry()
+                .counter(MetricRegistry.name(CandourRequestHedger.METRIC_PREFIX, "saturated"));
+        final long before = saturated.getCount();
+        final Thread blocked = new Thread(() -> {
+            try {
+                hedger.execute(request, this::slowFirst);
+            } catch (final IOException e) {
+                // no op
+            }
+        });
+        blocked.start();
+        for (int i = 0; i < 500 && saturated.getCount() == before; i++) {
+            Thread.sleep(10);
+        }
+        // The hedge found no thread and was returned to the budget
+        Assert.assertEquals(saturated.getCount(), before + 1);
+        Assert.assertEquals(hedger.getAvailableHedges(), 1);
+        release.countDown();
+        blocked.join(5000);
+        Assert.assertEquals(attempts.get(), 1);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidBudgetPercent() {
+        hedger.setBudgetPercent(101);
+    }
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequest;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourHmacSigner;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponse;
+
+/** Tests for {@link CandourResultDeleter}. */
+public class CandourResultDeleterTest {
+
+    private CandourResultDeleter deleter;
+
+    private HttpClient httpClient;
+
+    private AtomicInteger calls;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        calls = new AtomicInteger();
+        httpClient = Mockito.mock(HttpClient.class);
+        deleter = new CandourResultDeleter();
+        deleter.setCandouridURI("https://example.com/api");
+        deleter.setClientPublicKey("publicKey");
+        deleter.setHmacSigner(new CandourHmacSigner("hmacKey"));
+        deleter.setHttpClient(httpClient);
+        deleter.setRetryBackoff(Duration.ZERO);
+    }
+
+    @AfterMethod
+    public void teardown() {
+        deleter.destroy();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void respond(Answer<CandourResponse> answer) throws IOException {
+        Mockito.when(httpClient.execute((HttpUriRequest) Mockito.any(), (HttpContext) Mockito.any(),
+                (HttpClientResponseHandler<CandourResponse>) Mockito.any())).thenAnswer(answer);
+    }
+
+    @SuppressWarnings("unchecked")
+    private CandourResponse handle(InvocationOnMock invocation, int code) throws Exception {
+        calls.incrementAndGet();
+        return ((HttpClientResponseHandler<CandourResponse>) invocation.getArgument(2))
+                .handleResponse(new BasicClassicHttpResponse(code));
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        for (int i = 0; i < 500 && deleter.getPending() > 0; i++) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(deleter.getPending(), 0);
+    }
+
+    @Test
+    public void testDelete() throws Exception {
+        respond(invocation -> handle(invocation, 204));
+        deleter.initialize();
+        Assert.assertTrue(deleter.enqueue("session1"));
+        Assert.assertTrue(deleter.enqueue("session2"));
+        Assert.assertTrue(deleter.enqueue("session3"));
+        awaitIdle();
+        Assert.assertEquals(calls.get(), 3);
+    }
+
+    @Test
+    public void testRetry() throws Exception {
+        respond(invocation -> handle(invocation, calls.get() == 0 ? 503 : 200));
+        deleter.initialize();
+        deleter.enqueue("session1");
+        awaitIdle();
+        Assert.assertEquals(calls.get(), 2);
+    }
+
+    @Test
+    public void testRetryIOException() throws Exception {
+        respond(invocation -> {
+            if (calls.get() == 0) {
+                calls.incrementAndGet();
+                throw new IOException("Connection reset");
+            }
+            return handle(invocation, 200);
+        });
+        deleter.initialize();
+        deleter.enqueue("session1");
+        awaitIdle();
+        Assert.assertEquals(calls.get(), 2);
+    }
+
+    @Test
+    public void testMaxAttempts() throws Exception {
+        respond(invocation -> handle(invocation, 500));
+        deleter.setMaxAttempts(2);
+        deleter.initialize();
+        deleter.enqueue("session1");
+        awaitIdle();
+        Assert.assertEquals(calls.get(), 2);
+    }
+
+    @Test
+    public void testPendingUntilDone() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        respond(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return handle(invocation, calls.get() == 0 ? 503 : 204);
+        });
+        deleter.initialize();
+        deleter.enqueue("session1");
+        // Counted while queued, taken by a worker and waiting for the retry
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals(deleter.getPending(), 1);
+            Thread.sleep(5);
+        }
+        release.countDown();
+        awaitIdle();
+        Assert.assertEquals(calls.get(), 2);
+    }
+
+    @Test
+    public void testCallback() throws Exception {
+        respond(invocation -> handle(invocation, calls.get() == 0 ? 503 : 204));
+        deleter.initialize();
+        final AtomicInteger deleted = new AtomicInteger();
+        Assert.assertTrue(deleter.enqueue("session1", deleted::incrementAndGet));
+        awaitIdle();
+        Assert.assertEquals(deleted.get(), 1);
+    }
+
+    @Test
+    public void testNoCallbackOnFailure() throws Exception {
+        respond(invocation -> handle(invocation, 500));
+        deleter.setMaxAttempts(2);
+        deleter.initialize();
+        final AtomicInteger deleted = new AtomicInteger();
+        deleter.enqueue("session1", deleted::incrementAndGet);
+        awaitIdle();
+        Assert.assertEquals(calls.get(), 2);
+        Assert.assertEquals(deleted.get(), 0);
+    }
+
+    @Test
+    public void testNoRetryOnClientError() throws Exception {
+        respond(invocation -> handle(invocation, 400));
+        deleter.initialize();
+        deleter.enqueue("session1");
+        awaitIdle();
+        Assert.assertEquals(calls.get(), 1);
+    }
+
+    @Test
+    public void testQueueFull() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        respond(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return handle(invocation, 200);
+        });
+        deleter.setQueueCapacity(1);
+        deleter.setWorkerCount(1);
+        deleter.setBatchSize(1);
+        deleter.initialize();
+        Assert.assertTrue(deleter.enqueue("session1"));
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(deleter.enqueue("session2"));
+        Assert.assertFalse(deleter.enqueue("session3"));
+        release.countDown();
+        awaitIdle();
+        Assert.assertEquals(calls.get(), 2);
+    }
+
+    @Test
+    public void testDrainOnDestroy() throws Exception {
+        respond(invocation -> {
+            Thread.sleep(20);
+            return handle(invocation, 200);
+        });
+        deleter.setWorkerCount(1);
+        deleter.initialize();
+        for (int i = 0; i < 10; i++) {
+            deleter.enqueue("session" + i);
+        }
+        deleter.destroy();
+        Assert.assertEquals(calls.get(), 10);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponse;
+
+/** Tests for {@link CandourRetryPolicy}. */
+public class CandourRetryPolicyTest {
+
+    private CandourRetryPolicy policy;
+
+    private ClassicHttpRequest request;
+
+    private AtomicInteger attempts;
+
+    @BeforeMethod
+    public void setup() {
+        policy = new CandourRetryPolicy();
+        policy.setInitialBackoff(Duration.ofMillis(1));
+        policy.setMaxBackoff(Duration.ofMillis(5));
+        request = new HttpGet("https://localhost/v1/result/session");
+        attempts = new AtomicInteger();
+    }
+
+    @Test
+    public void testNoRetryOnSuccess() throws Exception {
+        policy.initialize();
+        final CandourResponse response = policy.execute(request, req -> {
+            attempts.incrementAndGet();
+            return new CandourResponse(200, "{}");
+        });
+        Assert.assertEquals(response.getCode(), 200);
+        Assert.assertEquals(attempts.get(), 1);
+    }
+
+    @Test
+    public void testRetryOnConnectionReset() throws Exception {
+        policy.initialize();
+        final ClassicHttpRequest[] seen = new ClassicHttpRequest[2];
+        final CandourResponse response = policy.execute(request, req -> {
+            seen[attempts.get()] = req;
+            if (attempts.getAndIncrement() == 0) {
+                throw new SocketException("Connection reset");
+            }
+            return new CandourResponse(200, "{}");
+        });
+        Assert.assertEquals(response.getCode(), 200);
+        Assert.assertEquals(attempts.get(), 2);
+        Assert.assertSame(seen[0], request);
+        Assert.assertNotSame(seen[1], request);
+        Assert.assertEquals(seen[1].getRequestUri(), request.getRequestUri());
+    }
+
+    @Test
+    public void testRetryOnStatus() throws Exception {
+        policy.initialize();
+        final CandourResponse response = policy.execute(request,
+                req -> new CandourResponse(attempts.getAndIncrement() < 2 ? 503 : 200, "{}"));
+        Assert.assertEquals(response.getCode(), 200);
+        Assert.assertEquals(attempts.get(), 3);
+    }
+
+    @Test
+    public void testExhaustedReturnsLastResponse() throws Exception {
+        policy.setMaxAttempts(2);
+        policy.initialize();
+        final CandourResponse response = policy.execute(request, req -> {
+            attempts.incrementAndGet();
+            return new CandourResponse(429, "{}");
+        });
+        Assert.assertEquals(response.getCode(), 429);
+        Assert.assertEquals(attempts.get(), 2);
+    }
+
+    @Test(expectedExceptions = SocketException.class)
+    public void testExhaustedThrowsLastException() throws Exception {
+        policy.initialize();
+        policy.execute(request, req -> {
+            attempts.incrementAndGet();
+            throw new SocketException("Connection reset");
+        });
+    }
+
+    @Test
+    public void testNotRetryable() throws Exception {
+        policy.initialize();
+        try {
+            policy.execute(request, req -> {
+                attempts.incrementAndGet();
+                throw new UnknownHostException("localhost");
+            });
+            Assert.fail("Expected exception");
+        } catch (final UnknownHostException e) {
+            Assert.assertEquals(attempts.get(), 1);
+        }
+        final CandourResponse response = policy.execute(request, req -> {
+            attempts.incrementAndGet();
+            return new CandourResponse(404, "{}");
+        });
+        Assert.assertEquals(response.getCode(), 404);
+        Assert.assertEquals(attempts.get(), 2);
+    }
+
+    @Test
+    public void testRetryableConfiguration() throws Exception {
+        policy.setRetryableStatuses(List.of(404));
+        policy.setRetryableExceptions(null);
+        policy.initialize();
+        final CandourResponse response = policy.execute(request,
+                req -> new CandourResponse(attempts.getAndIncrement() == 0 ? 404 : 503, "{}"));
+        Assert.assertEquals(response.getCode(), 503);
+        Assert.assertEquals(attempts.get(), 2);
+    }
+
+    @Test
+    public void testDeadline() throws Exception {
+        policy.setMaxAttempts(100);
+        policy.setInitialBackoff(Duration.ofMillis(50));
+        policy.setMaxBackoff(Duration.ofMillis(50));
+        policy.setTimeout(Duration.ofMillis(200));
+        policy.initialize();
+        final long start = System.nanoTime();
+        final CandourResponse response = policy.execute(request, req -> {
+            attempts.incrementAndGet();
+            return new CandourResponse(503, "{}");
+        });
+        Assert.assertEquals(response.getCode(), 503);
+        Assert.assertTrue(attempts.get() > 1);
+        Assert.assertTrue(attempts.get() < 100);
+        Assert.assertTrue(System.nanoTime() - start < Duration.ofMillis(400).toNanos());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidMaxAttempts() {
+        policy.setMaxAttempts(0);
+    }
+
+}
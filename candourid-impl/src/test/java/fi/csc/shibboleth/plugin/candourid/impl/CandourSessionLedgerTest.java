@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.opensaml.storage.impl.MemoryStorageService;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/** Tests for {@link CandourSessionLedger}. */
+public class CandourSessionLedgerTest {
+
+    private MemoryStorageService storageService;
+
+    private CandourResultDeleter deleter;
+
+    private CandourSessionLedger ledger;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        storageService = new MemoryStorageService();
+        storageService.setId("test");
+        storageService.initialize();
+        deleter = Mockito.mock(CandourResultDeleter.class);
+        Mockito.when(deleter.deleteNow(Mockito.anyString())).thenReturn(true);
+        ledger = newLedger();
+    }
+
+    private CandourSessionLedger newLedger() throws Exception {
+        return newLedger(storageService);
+    }
+
+    private CandourSessionLedger newLedger(MemoryStorageService storageService) throws Exception {
+        CandourSessionLedger ledger = new CandourSessionLedger();
+        ledger.setStorageService(storageService);
+        ledger.setResultDeleter(deleter);
+        ledger.setGracePeriod(Duration.ZERO);
+        ledger.setSweepInterval(Duration.ZERO);
+        ledger.setBatchSize(2);
+        ledger.setMaxDeletesPerSecond(0);
+        ledger.initialize();
+        return ledger;
+    }
+
+    @AfterMethod
+    public void teardown() {
+        ledger.destroy();
+        storageService.destroy();
+    }
+
+    private static String minutesAgo(int minutes) {
+        return Instant.now().minus(Duration.ofMinutes(minutes)).toString();
+    }
+
+    private static void sweepLater(CandourSessionLedger ledger) {
+        // Sessions flushed late are indexed to the buckets after the current one
+        ledger.sweep(System.currentTimeMillis() + Duration.ofMinutes(3).toMillis());
+    }
+
+    @Test
+    public void testSweepAbandoned() throws Exception {
+        Assert.assertTrue(ledger.record("abandoned1", minutesAgo(10)));
+        Assert.assertTrue(ledger.record("abandoned2", minutesAgo(10)));
+        Assert.assertTrue(ledger.record("abandoned3", minutesAgo(10)));
+        Assert.assertTrue(ledger.record("completed", minutesAgo(10)));
+        ledger.complete("completed");
+        sweepLater(ledger);
+        Mockito.verify(deleter).deleteNow("abandoned1");
+        Mockito.verify(deleter).deleteNow("abandoned2");
+        Mockito.verify(deleter).deleteNow("abandoned3");
+        Mockito.verify(deleter, Mockito.never()).deleteNow("completed");
+        // Nothing left to sweep
+        sweepLater(ledger);
+        Mockito.verify(deleter, Mockito.times(3)).deleteNow(Mockito.anyString());
+    }
+
+    @Test
+    public void testValidNotSwept() throws Exception {
+        ledger.record("valid", Instant.now().plus(Duration.ofMinutes(10)).toString());
+        sweepLater(ledger);
+        Mockito.verify(deleter, Mockito.never()).deleteNow(Mockito.anyString());
+    }
+
+    @Test
+    public void testFailedDeleteRetried() throws Exception {
+        Mockito.when(deleter.deleteNow("abandoned")).thenReturn(false).thenReturn(true);
+        ledger.record("abandoned", minutesAgo(10));
+        sweepLater(ledger);
+        // Bucket stays claimed until the lock expires
+        sweepLater(ledger);
+        Mockito.verify(deleter, Mockito.times(1)).deleteNow("abandoned");
+    }
+
+    @Test
+    public void testFailedDeleteRetriedAfterLockTimeout() throws Exception {
+        ledger.destroy();
+        ledger = new CandourSessionLedger();
+        ledger.setStorageService(storageService);
+        ledger.setResultDeleter(deleter);
+        ledger.setGracePeriod(Duration.ZERO);
+        ledger.setSweepInterval(Duration.ZERO);
+        ledger.setLockTimeout(Duration.ofMillis(1));
+        ledger.initialize();
+        Mockito.when(deleter.deleteNow("abandoned")).thenReturn(false).thenReturn(true);
+        ledger.record("abandoned", minutesAgo(10));
+        sweepLater(ledger);
+        Thread.sleep(10);
+        sweepLater(ledger);
+        sweepLater(ledger);
+        Mockito.verify(deleter, Mockito.times(2)).deleteNow("abandoned");
+    }
+
+    @Test
+    public void testSharedStorage() throws Exception {
+        // A second node, or a restarted one, sees the sessions recorded by the first one
+        ledger.record("abandoned", minutesAgo(10));
+        ledger.flush();
+        CandourSessionLedger other = newLedger();
+        try {
+            sweepLater(other);
+            sweepLater(ledger);
+        } finally {
+            other.destroy();
+        }
+        Mockito.verify(deleter, Mockito.times(1)).deleteNow("abandoned");
+    }
+
+    @Test
+    public void testUnparseableValidity() throws Exception {
+        Assert.assertTrue(ledger.record("session", "not a timestamp"));
+        sweepLater(ledger);
+        Mockito.verify(deleter, Mockito.never()).deleteNow(Mockito.anyString());
+    }
+
+    @Test
+    public void testCompletedBeforeFlush() throws Exception {
+        ledger.record("completed", minutesAgo(10));
+        ledger.complete("completed");
+        ledger.flush();
+        Assert.assertNull(storageService.read(CandourSessionLedger.STORAGE_CONTEXT, "session.completed"));
+        sweepLater(ledger);
+        Mockito.verify(deleter, Mockito.never()).deleteNow(Mockito.anyString());
+    }
+
+    @Test
+    public void testFlushFailureRolledBack() throws Exception {
+        MemoryStorageService failing = Mockito.spy(storageService);
+        Mockito.doThrow(new IOException("fail")).doCallRealMethod().when(failing).create(
+                ArgumentMatchers.eq(CandourSessionLedger.STORAGE_CONTEXT),
+                ArgumentMatchers.startsWith("bucket."), ArgumentMatchers.anyString(), ArgumentMatchers.anyLong());
+        ledger.destroy();
+        ledger = newLedger(failing);
+        ledger.record("abandoned", minutesAgo(10));
+        ledger.flush();
+        Assert.assertNull(storageService.read(CandourSessionLedger.STORAGE_CONTEXT, "session.abandoned"));
+        // Retried with the next flush
+        ledger.flush();
+        Assert.assertNotNull(storageService.read(CandourSessionLedger.STORAGE_CONTEXT, "session.abandoned"));
+        sweepLater(ledger);
+        Mockito.verify(deleter).deleteNow("abandoned");
+    }
+
+    @Test
+    public void testMaxUnflushed() throws Exception {
+        ledger.destroy();
+        ledger = new CandourSessionLedger();
+        ledger.setStorageService(storageService);
+        ledger.setResultDeleter(deleter);
+        ledger.setMaxUnflushed(1);
+        ledger.initialize();
+        Assert.assertTrue(ledger.record("first", minutesAgo(10)));
+        Assert.assertFalse(ledger.record("second", minutesAgo(10)));
+        ledger.flush();
+        Assert.assertTrue(ledger.record("second", minutesAgo(10)));
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+
+import org.opensaml.profile.context.ProfileRequestContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.webflow.execution.Event;
+import org.springframework.webflow.execution.RequestContext;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import fi.csc.shibboleth.plugin.candourid.CandourEventIds;
+import fi.csc.shibboleth.plugin.candourid.context.CandourContext;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourInvitationRequestPayload;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.ResultProperties;
+import fi.csc.shibboleth.plugin.candourid.simulator.CandourApiSimulator;
+import fi.csc.shibboleth.plugin.candourid.transport.impl.JdkHttpClientCandourTransport;
+import net.shibboleth.idp.authn.context.AuthenticationContext;
+import net.shibboleth.idp.profile.context.navigate.WebflowRequestContextProfileRequestContextLookup;
+import net.shibboleth.idp.profile.testing.RequestContextBuilder;
+import net.shibboleth.shared.servlet.impl.HttpServletRequestResponseContext;
+import net.shibboleth.shared.servlet.impl.ThreadLocalHttpServletRequestSupplier;
+
+/**
+ * Runs the Candour actions against the {@link CandourApiSimulator} over real
+ * HTTP.
+ */
+public class CandourSimulatorIntegrationTest {
+
+    private CandourApiSimulator simulator;
+
+    private JdkHttpClientCandourTransport transport;
+
+    private RequestContext src;
+
+    private CandourContext ctx;
+
+    private MockHttpServletRequest request;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        simulator = new CandourApiSimulator();
+        simulator.setClientPublicKey("publicKey");
+        simulator.setClientHmacKey("hmacKey");
+        simulator.setThreads(4);
+        simulator.initialize();
+        transport = new JdkHttpClientCandourTransport();
+        transport.setHttp2(false);
+        transport.initialize();
+
+        src = new RequestContextBuilder().buildRequestContext();
+        final ProfileRequestContext prc = new WebflowRequestContextProfileRequestContextLookup().apply(src);
+        ctx = (CandourContext) prc.addSubcontext(new AuthenticationContext()).addSubcontext(new CandourContext());
+        ctx.setCallbackUri("/idp/profile/Authn?execution=e1s2&_eventId_proceed=1");
+        request = new MockHttpServletRequest();
+        HttpServletRequestResponseContext.loadCurrent(request, new MockHttpServletResponse());
+    }
+
+    @AfterMethod
+    public void teardown() {
+        HttpServletRequestResponseContext.clearCurrent();
+        simulator.destroy();
+    }
+
+    private CreateSession createSession(final String hmacKey, final CandourRetryPolicy retryPolicy)
+            throws Exception {
+        final CreateSession action = new CreateSession();
+        action.setCandouridURI(simulator.getApiUri());
+        action.setClientPublicKey("publicKey");
+        action.setClientHmacKey(hmacKey);
+        action.setPayload(CandourInvitationRequestPayload.builder()
+                .setResultProperties(ResultProperties.builder().setName(true).setSelfieImage(true).build())
+                .build());
+        action.setHttpServletRequestSupplier(new ThreadLocalHttpServletRequestSupplier());
+        action.setTransport(transport);
+        action.setRetryPolicy(retryPolicy);
+        action.initialize();
+        return action;
+    }
+
+    @Test
+    public void testAuthentication() throws Exception {
+        Assert.assertNull(createSession("hmacKey", null).execute(src));
+        final HttpResponse<Void> redirect = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create(ctx.getAuthenticationUri())).build(),
+                HttpResponse.BodyHandlers.discarding());
+        Assert.assertEquals(redirect.statusCode(), 303);
+        final String location = redirect.headers().firstValue("Location").orElseThrow();
+        Assert.assertTrue(location.contains("execution=e1s2"));
+        request.setParameter("status", "success");
+        request.setParameter("sessionId", location.substring(location.lastIndexOf('=') + 1));
+
+        final ExtractAuthenticationResponse extract = new ExtractAuthenticationResponse();
+        extract.setMappedStatuses(Map.of("cancelled", CandourEventIds.CANDOUR_REDIRECT_RESP_CANCELLED));
+        extract.setHttpServletRequestSupplier(new ThreadLocalHttpServletRequestSupplier());
+        extract.initialize();
+        Assert.assertNull(extract.execute(src));
+
+        final GetUserClaims getUserClaims = new GetUserClaims();
+        getUserClaims.setCandouridURI(simulator.getApiUri());
+        getUserClaims.setClientPublicKey("publicKey");
+        getUserClaims.setClientHmacKey("hmacKey");
+        getUserClaims.setHttpServletRequestSupplier(new ThreadLocalHttpServletRequestSupplier());
+        getUserClaims.setTransport(transport);
+        getUserClaims.initialize();
+        Assert.assertNull(getUserClaims.execute(src));
+        Assert.assertEquals(ctx.getResultClaims().get("firstName"), "Matti");
+        Assert.assertNotNull(ctx.getResultClaims().get("selfieImage"));
+
+        final ValidateInvitationLink validate = new ValidateInvitationLink();
+        validate.initialize();
+        Assert.assertNull(validate.execute(src));
+        Assert.assertEquals(simulator.getResultCount(), 1);
+    }
+
+    @Test
+    public void testInvalidSignature() throws Exception {
+        final Event event = createSession("otherKey", null).execute(src);
+        Assert.assertEquals(event.getId(), CandourEventIds.CANDOUR_API_RESP_FAILURE);
+        Assert.assertEquals(simulator.getRejectedCount(), 1);
+    }
+
+    @Test
+    public void testRetryThrottled() throws Exception {
+        final CandourRetryPolicy retryPolicy = new CandourRetryPolicy();
+        retryPolicy.setInitialBackoff(Duration.ofMillis(1));
+        retryPolicy.setMaxBackoff(Duration.ofMillis(5));
+        retryPolicy.initialize();
+        simulator.getFaults().throttleNext(1);
+        simulator.getFaults().failNext(1);
+        Assert.assertNull(createSession("hmacKey", retryPolicy).execute(src));
+        Assert.assertEquals(simulator.getInvitationCount(), 1);
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import org.opensaml.core.metrics.MetricsSupport;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+
+/** Tests for {@link CandourStageMeter}. */
+public class CandourStageMeterTest {
+
+    private static byte[] sink;
+
+    @Test
+    public void testSample() {
+        final CandourStageMeter meter = CandourStageMeter.forStage("test");
+        Assert.assertNotNull(meter);
+        final CandourStageMeter.Sample sample = meter.start();
+        sink = new byte[1 << 20];
+        sample.stop();
+        final MetricRegistry registry = MetricsSupport.getMetricRegistry();
+        final Histogram allocated = registry.histogram(
+                MetricRegistry.name(CandourStageMeter.METRIC_PREFIX, "test", "allocatedBytes"));
+        final Histogram cpuTime = registry.histogram(MetricRegistry.name(CandourStageMeter.METRIC_PREFIX, "test",
+                "cpuTime"));
+        Assert.assertEquals(allocated.getCount(), 1L);
+        Assert.assertTrue(allocated.getSnapshot().getMax() >= sink.length);
+        Assert.assertEquals(cpuTime.getCount(), 1L);
+        Assert.assertTrue(cpuTime.getSnapshot().getMax() >= 0);
+    }
+
+    @Test
+    public void testSharedHistograms() {
+        final CandourStageMeter first = CandourStageMeter.forStage("shared");
+        final CandourStageMeter second = CandourStageMeter.forStage("shared");
+        first.start().stop();
+        second.start().stop();
+        Assert.assertEquals(MetricsSupport.getMetricRegistry()
+                .histogram(MetricRegistry.name(CandourStageMeter.METRIC_PREFIX, "shared", "allocatedBytes"))
+                .getCount(), 2L);
+    }
+
+}
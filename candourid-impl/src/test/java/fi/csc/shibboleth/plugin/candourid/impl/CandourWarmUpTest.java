@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequest;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourHmacSigner;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourInvitationRequestPayload;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.ResultProperties;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponse;
+import net.shibboleth.shared.component.ComponentInitializationException;
+
+/** Tests for {@link CandourWarmUp}. */
+public class CandourWarmUpTest {
+
+    private CandourWarmUp warmUp;
+
+    private HttpClient httpClient;
+
+    private AtomicInteger requests;
+
+    private Set<Thread> threads;
+
+    @SuppressWarnings("unchecked")
+    @BeforeMethod
+    public void setup() throws Exception {
+        requests = new AtomicInteger();
+        threads = ConcurrentHashMap.newKeySet();
+        httpClient = Mockito.mock(HttpClient.class);
+        Mockito.when(httpClient.execute((HttpUriRequest) Mockito.any(), (HttpContext) Mockito.any(),
+                (HttpClientResponseHandler<CandourResponse>) Mockito.any())).thenAnswer(invocation -> {
+                    final HttpUriRequest request = invocation.getArgument(0);
+                    Assert.assertEquals(request.getMethod(), "HEAD");
+                    Assert.assertEquals(request.getUri().toString(), "https://example.com/api");
+                    requests.incrementAndGet();
+                    threads.add(Thread.currentThread());
+                    return ((HttpClientResponseHandler<CandourResponse>) invocation.getArgument(2))
+                            .handleResponse(new BasicClassicHttpResponse(404));
+                });
+        warmUp = new CandourWarmUp();
+        warmUp.setCandouridURI("https://example.com/api");
+        warmUp.setClientPublicKey("publicKey");
+        warmUp.setHmacSigner(new CandourHmacSigner("hmacKey"));
+        warmUp.setHttpClient(httpClient);
+        warmUp.setPayload(CandourInvitationRequestPayload.builder()
+                .setResultProperties(ResultProperties.builder().setName(true).build())
+                .build());
+    }
+
+    @AfterMethod
+    public void teardown() {
+        warmUp.destroy();
+    }
+
+    @Test
+    public void testWarmUp() throws Exception {
+        warmUp.setEnabled(true);
+        warmUp.setConnections(3);
+        warmUp.setIterations(10);
+        warmUp.initialize();
+        Assert.assertTrue(warmUp.awaitCompletion(Duration.ofSeconds(10)));
+        Assert.assertEquals(requests.get(), 3);
+        // Responses are held until all are received, each on its own connection
+        Assert.assertEquals(threads.size(), 3);
+    }
+
+    @Test
+    public void testConnectionFailure() throws Exception {
+        Mockito.reset(httpClient);
+        Mockito.when(httpClient.execute((HttpUriRequest) Mockito.any(), (HttpContext) Mockito.any(),
+                Mockito.<HttpClientResponseHandler<CandourResponse>> any())).thenThrow(new IOException("refused"));
+        warmUp.setEnabled(true);
+        warmUp.setConnections(2);
+        warmUp.setIterations(1);
+        warmUp.initialize();
+        Assert.assertTrue(warmUp.awaitCompletion(Duration.ofSeconds(10)));
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        warmUp.initialize();
+        Assert.assertTrue(warmUp.awaitCompletion(Duration.ofMillis(1)));
+        Mockito.verifyNoInteractions(httpClient);
+    }
+
+    @Test(expectedExceptions = ComponentInitializationException.class)
+    public void testNoClient() throws Exception {
+        final CandourWarmUp noClient = new CandourWarmUp();
+        noClient.setEnabled(true);
+        noClient.setCandouridURI("https://example.com/api");
+        noClient.setClientPublicKey("publicKey");
+        noClient.setHmacSigner(new CandourHmacSigner("hmacKey"));
+        noClient.initialize();
+    }
+
+}
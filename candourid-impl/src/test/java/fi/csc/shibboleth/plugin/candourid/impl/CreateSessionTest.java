@@ -15,12 +15,25 @@
  */
 package fi.csc.shibboleth.plugin.candourid.impl;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
 import org.apache.hc.client5.http.classic.HttpClient;
 import org.apache.hc.client5.http.classic.methods.HttpUriRequest;
+import org.apache.hc.core5.http.ContentType;
 import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
 import org.apache.hc.core5.http.protocol.HttpContext;
 import org.mockito.Mockito;
+import org.opensaml.core.metrics.MetricsSupport;
 import org.opensaml.profile.context.ProfileRequestContext;
+import org.opensaml.security.httpclient.HttpClientSecurityParameters;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.webflow.execution.Event;
@@ -29,10 +42,16 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+
 import fi.csc.shibboleth.plugin.candourid.CandourEventIds;
 import fi.csc.shibboleth.plugin.candourid.context.CandourContext;
 import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourInvitationRequestPayload;
 import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponse;
+import fi.csc.shibboleth.plugin.candourid.transport.CandourTransport;
+import fi.csc.shibboleth.plugin.candourid.transport.impl.JdkHttpClientCandourTransport;
 import net.shibboleth.idp.authn.context.AuthenticationContext;
 import net.shibboleth.idp.profile.context.navigate.WebflowRequestContextProfileRequestContextLookup;
 import net.shibboleth.idp.profile.testing.RequestContextBuilder;
@@ -42,6 +61,9 @@ import net.shibboleth.shared.servlet.impl.ThreadLocalHttpServletRequestSupplier;
 
 public class CreateSessionTest {
 
+    private static final String INVITATION_RESPONSE = "{\"redirectUrl\":\"http://example.com/auth\","
+            + "\"verificationSessionId\":\"id\",\"timestamp\":\"stamp\",\"validUntil\":\"until\"}";
+
     private CreateSession action;
 
     private RequestContext src;
@@ -60,7 +82,7 @@ public class CreateSessionTest {
         action.setCandouridURI("https://example.com/api");
         action.setClientPublicKey("publicKey");
         action.setClientHmacKey("hmacKey");
-        action.setPayload(new CandourInvitationRequestPayload());
+        action.setPayload(CandourInvitationRequestPayload.builder().build());
         action.setHttpServletRequestSupplier(new ThreadLocalHttpServletRequestSupplier());
         HttpServletRequestResponseContext.loadCurrent(new MockHttpServletRequest(), new MockHttpServletResponse());
 
@@ -82,6 +104,83 @@ public class CreateSessionTest {
         Assert.assertEquals(ctx.getAuthenticationUri(), "http://example.com/auth");
     }
 
+    @Test
+    public void testTransport() throws Exception {
+        action.setTransport(respond(200, INVITATION_RESPONSE));
+        action.initialize();
+        Event event = action.execute(src);
+        Assert.assertNull(event);
+        Assert.assertEquals(ctx.getAuthenticationUri(), "http://example.com/auth");
+    }
+
+    @Test
+    public void testFlightRecorderEvents() throws Exception {
+        action.setTransport(respond(200, INVITATION_RESPONSE));
+        action.initialize();
+        final Path file = Files.createTempFile("candour", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(CandourApiCallEvent.NAME);
+            recording.enable(CandourActionEvent.NAME);
+            recording.start();
+            Assert.assertNull(action.execute(src));
+            recording.stop();
+            recording.dump(file);
+            final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            final RecordedEvent call = events.stream()
+                    .filter(e -> CandourApiCallEvent.NAME.equals(e.getEventType().getName()))
+                    .findFirst()
+                    .orElseThrow();
+            Assert.assertEquals(call.getString("operation"), "createInvitation");
+            Assert.assertEquals(call.getInt("statusCode"), 200);
+            Assert.assertTrue(call.getLong("requestSize") > 0);
+            Assert.assertTrue(call.getLong("responseSize") > 0);
+            Assert.assertEquals(call.getLong("poolWait"), -1L);
+            Assert.assertNull(call.getString("failure"));
+            final RecordedEvent execution = events.stream()
+                    .filter(e -> CandourActionEvent.NAME.equals(e.getEventType().getName()))
+                    .findFirst()
+                    .orElseThrow();
+            Assert.assertEquals(execution.getString("action"), "CreateSession");
+            Assert.assertNull(execution.getString("outcome"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testStageMetering() throws Exception {
+        action.setTransport(respond(200, INVITATION_RESPONSE));
+        action.setStageMetering(true);
+        action.initialize();
+        final Histogram allocated = MetricsSupport.getMetricRegistry()
+                .histogram(MetricRegistry.name(CandourStageMeter.METRIC_PREFIX, "CreateSession", "allocatedBytes"));
+        final long before = allocated.getCount();
+        Assert.assertNull(action.execute(src));
+        Assert.assertEquals(allocated.getCount(), before + 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testSharedPayloadNotModified() throws Exception {
+
+        final HttpClient httpClient = Mockito.mock(HttpClient.class);
+        CandourResponse candourResponse = new CandourResponse(200,
+                "{\"redirectUrl\":\"http://example.com/auth\", \"verificationSessionId\":\"id\"}");
+        Mockito.when(httpClient.execute((HttpUriRequest) Mockito.any(), (HttpContext) Mockito.any(),
+                (HttpClientResponseHandler<CandourResponse>) Mockito.any())).thenReturn(candourResponse);
+        final CandourInvitationRequestPayload payload = CandourInvitationRequestPayload.builder().build();
+        action = new CreateSession();
+        action.setCandouridURI("https://example.com/api");
+        action.setClientPublicKey("publicKey");
+        action.setClientHmacKey("hmacKey");
+        action.setPayload(payload);
+        action.setHttpServletRequestSupplier(new ThreadLocalHttpServletRequestSupplier());
+        action.setHttpClient(httpClient);
+        action.initialize();
+        Assert.assertNull(action.execute(src));
+        Assert.assertNull(payload.getCallbackUrl());
+    }
+
     @SuppressWarnings("unchecked")
     @Test
     public void testUnexpectedSuccess() throws Exception {
@@ -110,8 +209,12 @@ public class CreateSessionTest {
                 (HttpClientResponseHandler<CandourResponse>) Mockito.any())).thenReturn(candourResponse);
         action.setHttpClient(httpClient);
         action.initialize();
+        final Counter failures = MetricsSupport.getMetricRegistry().counter(MetricRegistry.name(
+                CandourActionMonitor.EVENT_METRIC_PREFIX, CandourEventIds.CANDOUR_API_RESP_FAILURE));
+        final long before = failures.getCount();
         Event event = action.execute(src);
         Assert.assertEquals(event.getId(), CandourEventIds.CANDOUR_API_RESP_FAILURE);
+        Assert.assertEquals(failures.getCount(), before + 1);
     }
 
     @SuppressWarnings("unchecked")
@@ -129,12 +232,38 @@ public class CreateSessionTest {
         Assert.assertEquals(event.getId(), CandourEventIds.CANDOUR_API_RESP_MALFORMED);
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testCircuitBreakerOpen() throws Exception {
+
+        final HttpClient httpClient = Mockito.mock(HttpClient.class);
+        CandourResponse candourResponse = new CandourResponse(503, "Service unavailable");
+        Mockito.when(httpClient.execute((HttpUriRequest) Mockito.any(), (HttpContext) Mockito.any(),
+                (HttpClientResponseHandler<CandourResponse>) Mockito.any())).thenReturn(candourResponse);
+        final CandourCircuitBreaker breaker = new CandourCircuitBreaker();
+        breaker.setWindowSize(1);
+        breaker.setMinimumCalls(1);
+        breaker.initialize();
+        action.setHttpClient(httpClient);
+        action.setCircuitBreaker(breaker);
+        action.initialize();
+        Event event = action.execute(src);
+        Assert.assertEquals(event.getId(), CandourEventIds.CANDOUR_API_RESP_FAILURE);
+        Assert.assertEquals(breaker.getState(), CandourCircuitBreaker.State.OPEN);
+        // Open breaker fails the call without contacting Candour
+        event = action.execute(src);
+        Assert.assertEquals(event.getId(), CandourEventIds.CANDOUR_API_COMM_FAILURE);
+        Mockito.verify(httpClient, Mockito.times(1)).execute((HttpUriRequest) Mockito.any(),
+                (HttpContext) Mockito.any(), (HttpClientResponseHandler<CandourResponse>) Mockito.any());
+        breaker.destroy();
+    }
+
     @Test(expectedExceptions = ComponentInitializationException.class)
     public void testInitFailNoUri() throws Exception {
         action = new CreateSession();
         action.setClientPublicKey("publicKey");
         action.setClientHmacKey("hmacKey");
-        action.setPayload(new CandourInvitationRequestPayload());
+        action.setPayload(CandourInvitationRequestPayload.builder().build());
         action.setHttpServletRequestSupplier(new ThreadLocalHttpServletRequestSupplier());
         final HttpClient httpClient = Mockito.mock(HttpClient.class);
         action.setHttpClient(httpClient);
@@ -146,7 +275,7 @@ public class CreateSessionTest {
         action = new CreateSession();
         action.setCandouridURI("https://example.com/api");
         action.setClientHmacKey("hmacKey");
-        action.setPayload(new CandourInvitationRequestPayload());
+        action.setPayload(CandourInvitationRequestPayload.builder().build());
         action.setHttpServletRequestSupplier(new ThreadLocalHttpServletRequestSupplier());
         final HttpClient httpClient = Mockito.mock(HttpClient.class);
         action.setHttpClient(httpClient);
@@ -158,13 +287,22 @@ public class CreateSessionTest {
         action = new CreateSession();
         action.setCandouridURI("https://example.com/api");
         action.setClientPublicKey("publicKey");
-        action.setPayload(new CandourInvitationRequestPayload());
+        action.setPayload(CandourInvitationRequestPayload.builder().build());
         action.setHttpServletRequestSupplier(new ThreadLocalHttpServletRequestSupplier());
         final HttpClient httpClient = Mockito.mock(HttpClient.class);
         action.setHttpClient(httpClient);
         action.initialize();
     }
 
+    @Test(expectedExceptions = ComponentInitializationException.class)
+    public void testInitFailUnsupportedSecurityParameters() throws Exception {
+        final JdkHttpClientCandourTransport transport = new JdkHttpClientCandourTransport();
+        transport.initialize();
+        action.setTransport(transport);
+        action.setHttpClientSecurityParameters(new HttpClientSecurityParameters());
+        action.initialize();
+    }
+
     @Test(expectedExceptions = ComponentInitializationException.class)
     public void testInitFailNoPayload() throws Exception {
         action = new CreateSession();
@@ -177,4 +315,11 @@ public class CreateSessionTest {
         action.initialize();
     }
 
+    private static CandourTransport respond(final int code, final String body) {
+        return (operation, request, timeout, handler) -> {
+            final BasicClassicHttpResponse response = new BasicClassicHttpResponse(code);
+            response.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+            return handler.handleResponse(response);
+        };
+    }
 }
@@ -15,6 +15,7 @@
  */
 package fi.csc.shibboleth.plugin.candourid.impl;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -72,9 +73,20 @@ public class ExtractAuthenticationResponseTest {
         Event event = action.execute(src);
         Assert.assertNull(event);
         Assert.assertEquals(ctx.getSessionId(), "sessionIdValue");
+        Assert.assertNull(ctx.getDeadline());
 
     }
 
+    @Test
+    public void testLatencyBudget() throws Exception {
+        action.setLatencyBudget(Duration.ofSeconds(10));
+        action.initialize();
+        Event event = action.execute(src);
+        Assert.assertNull(event);
+        Assert.assertTrue(ctx.getRemainingTime().compareTo(Duration.ofSeconds(10)) <= 0);
+        Assert.assertTrue(ctx.getRemainingTime().compareTo(Duration.ZERO) > 0);
+    }
+
     @Test
     public void testCancel() throws Exception {
         mockHttpServletRequest.setParameter("status", "cancelled");
@@ -15,11 +15,21 @@
  */
 package fi.csc.shibboleth.plugin.candourid.impl;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
 import org.apache.hc.client5.http.classic.HttpClient;
 import org.apache.hc.client5.http.classic.methods.HttpUriRequest;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.ContentType;
 import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
 import org.apache.hc.core5.http.protocol.HttpContext;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.mockito.stubbing.Answer;
 import org.opensaml.profile.context.ProfileRequestContext;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
@@ -31,6 +41,8 @@ import org.testng.annotations.Test;
 
 import fi.csc.shibboleth.plugin.candourid.CandourEventIds;
 import fi.csc.shibboleth.plugin.candourid.context.CandourContext;
+import fi.csc.shibboleth.plugin.candourid.image.ImageStore;
+import fi.csc.shibboleth.plugin.candourid.image.StoredImage;
 import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponse;
 import net.shibboleth.idp.authn.context.AuthenticationContext;
 import net.shibboleth.idp.profile.context.navigate.WebflowRequestContextProfileRequestContextLookup;
@@ -67,10 +79,9 @@ public class GetUserClaimsTest {
     @Test
     public void testExpectedSuccess() throws Exception {
         final HttpClient httpClient = Mockito.mock(HttpClient.class);
-        CandourResponse candourResponse = new CandourResponse(200,
-                "{\"claim1\":\"value1\", \"claim2\":\"value2\",\"claim3\":\"value3\",\"claim4\":\"value4\"}");
         Mockito.when(httpClient.execute((HttpUriRequest) Mockito.any(), (HttpContext) Mockito.any(),
-                (HttpClientResponseHandler<CandourResponse>) Mockito.any())).thenReturn(candourResponse);
+                (HttpClientResponseHandler<CandourResponse>) Mockito.any())).thenAnswer(respond(200,
+                        "{\"claim1\":\"value1\", \"claim2\":\"value2\",\"claim3\":\"value3\",\"claim4\":\"value4\"}"));
         action.setHttpClient(httpClient);
         action.initialize();
         Event event = action.execute(src);
@@ -81,15 +92,109 @@ public class GetUserClaimsTest {
         Assert.assertEquals(ctx.getResultClaims().get("claim4"), "value4");
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testClaimProjection() throws Exception {
+        final HttpClient httpClient = Mockito.mock(HttpClient.class);
+        Mockito.when(httpClient.execute((HttpUriRequest) Mockito.any(), (HttpContext) Mockito.any(),
+                (HttpClientResponseHandler<CandourResponse>) Mockito.any())).thenAnswer(respond(200,
+                        "{\"claim1\":\"value1\", \"claim2\":\"value2\",\"selfieImage\":\"aW1hZ2U=\"}"));
+        action.setHttpClient(httpClient);
+        action.setResultClaimNames(List.of("claim1", " claim2 ", ""));
+        action.initialize();
+        Event event = action.execute(src);
+        Assert.assertNull(event);
+        Assert.assertEquals(ctx.getResultClaims().size(), 2);
+        Assert.assertEquals(ctx.getResultClaims().get("claim1"), "value1");
+        Assert.assertEquals(ctx.getResultClaims().get("claim2"), "value2");
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testDecodeImages() throws Exception {
+        final HttpClient httpClient = Mockito.mock(HttpClient.class);
+        Mockito.when(httpClient.execute((HttpUriRequest) Mockito.any(), (HttpContext) Mockito.any(),
+                (HttpClientResponseHandler<CandourResponse>) Mockito.any())).thenAnswer(respond(200,
+                        "{\"claim1\":\"value1\",\"selfieImage\":\"aW1hZ2U=\"}"));
+        action.setHttpClient(httpClient);
+        action.setDecodeImages(true);
+        action.initialize();
+        Event event = action.execute(src);
+        Assert.assertNull(event);
+        Assert.assertEquals(ctx.getResultClaims().get("claim1"), "value1");
+        Assert.assertEquals(ctx.getResultClaims().get("selfieImage"), "image".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testImageStore() throws Exception {
+        final HttpClient httpClient = Mockito.mock(HttpClient.class);
+        Mockito.when(httpClient.execute((HttpUriRequest) Mockito.any(), (HttpContext) Mockito.any(),
+                (HttpClientResponseHandler<CandourResponse>) Mockito.any())).thenAnswer(respond(200,
+                        "{\"claim1\":\"value1\",\"selfieImage\":\"aW1hZ2U=\"}"));
+        final StoredImage image = Mockito.mock(StoredImage.class);
+        final ImageStore imageStore = Mockito.mock(ImageStore.class);
+        Mockito.when(imageStore.store("aW1hZ2U=")).thenReturn(image);
+        action.setHttpClient(httpClient);
+        action.setImageStore(imageStore);
+        action.initialize();
+        Event event = action.execute(src);
+        Assert.assertNull(event);
+        Assert.assertEquals(ctx.getResultClaims().get("claim1"), "value1");
+        Assert.assertSame(ctx.getResultClaims().get("selfieImage"), image);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testResultDeleter() throws Exception {
+        final HttpClient httpClient = Mockito.mock(HttpClient.class);
+        Mockito.when(httpClient.execute((HttpUriRequest) Mockito.any(), (HttpContext) Mockito.any(),
+                (HttpClientResponseHandler<CandourResponse>) Mockito.any()))
+                .thenAnswer(respond(200, "{\"claim1\":\"value1\"}"));
+        final CandourResultDeleter deleter = Mockito.mock(CandourResultDeleter.class);
+        action.setHttpClient(httpClient);
+        action.setResultDeleter(deleter);
+        action.initialize();
+        Event event = action.execute(src);
+        Assert.assertNull(event);
+        Mockito.verify(deleter).enqueue(Mockito.eq("sessionIdValue"), Mockito.isNull());
+        // Only the result request is sent
+        Mockito.verify(httpClient, Mockito.times(1)).execute((HttpUriRequest) Mockito.any(),
+                (HttpContext) Mockito.any(), (HttpClientResponseHandler<CandourResponse>) Mockito.any());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testResultDeleterCompletesLedger() throws Exception {
+        final HttpClient httpClient = Mockito.mock(HttpClient.class);
+        Mockito.when(httpClient.execute((HttpUriRequest) Mockito.any(), (HttpContext) Mockito.any(),
+                (HttpClientResponseHandler<CandourResponse>) Mockito.any()))
+                .thenAnswer(respond(200, "{\"claim1\":\"value1\"}"));
+        final CandourResultDeleter deleter = Mockito.mock(CandourResultDeleter.class);
+        Mockito.when(deleter.enqueue(Mockito.anyString(), Mockito.any())).thenReturn(true);
+        final CandourSessionLedger ledger = Mockito.mock(CandourSessionLedger.class);
+        action.setHttpClient(httpClient);
+        action.setResultDeleter(deleter);
+        action.setSessionLedger(ledger);
+        action.initialize();
+        Assert.assertNull(action.execute(src));
+        final ArgumentCaptor<Runnable> onDeleted = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(deleter).enqueue(Mockito.eq("sessionIdValue"), onDeleted.capture());
+        // Queued is not deleted, the session stays in the ledger
+        Mockito.verify(ledger, Mockito.never()).complete(Mockito.anyString());
+        onDeleted.getValue().run();
+        Mockito.verify(ledger).complete("sessionIdValue");
+    }
+
     @SuppressWarnings("unchecked")
     @Test
     public void testFailure() throws Exception {
 
         final HttpClient httpClient = Mockito.mock(HttpClient.class);
         // http code not indicating success
-        CandourResponse candourResponse = new CandourResponse(400, "Something bad happened");
         Mockito.when(httpClient.execute((HttpUriRequest) Mockito.any(), (HttpContext) Mockito.any(),
-                (HttpClientResponseHandler<CandourResponse>) Mockito.any())).thenReturn(candourResponse);
+                (HttpClientResponseHandler<CandourResponse>) Mockito.any()))
+                .thenAnswer(respond(400, "Something bad happened"));
         action.setHttpClient(httpClient);
         action.initialize();
         Event event = action.execute(src);
@@ -102,12 +207,88 @@ public class GetUserClaimsTest {
 
         final HttpClient httpClient = Mockito.mock(HttpClient.class);
         // Success case is expected to have json sting in payload
-        CandourResponse candourResponse = new CandourResponse(200, "Something bad happened");
         Mockito.when(httpClient.execute((HttpUriRequest) Mockito.any(), (HttpContext) Mockito.any(),
-                (HttpClientResponseHandler<CandourResponse>) Mockito.any())).thenReturn(candourResponse);
+                (HttpClientResponseHandler<CandourResponse>) Mockito.any()))
+                .thenAnswer(respond(200, "Something bad happened"));
+        action.setHttpClient(httpClient);
+        action.initialize();
+        Event event = action.execute(src);
+        Assert.assertEquals(event.getId(), CandourEventIds.CANDOUR_API_RESP_MALFORMED);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testTooLarge() throws Exception {
+
+        final HttpClient httpClient = Mockito.mock(HttpClient.class);
+        Mockito.when(httpClient.execute((HttpUriRequest) Mockito.any(), (HttpContext) Mockito.any(),
+                (HttpClientResponseHandler<CandourResponse>) Mockito.any()))
+                .thenAnswer(respond(200, "{\"claim1\":\"" + "x".repeat(1024) + "\"}"));
+        final CandourCircuitBreaker breaker = new CandourCircuitBreaker();
+        breaker.setWindowSize(1);
+        breaker.setMinimumCalls(1);
+        breaker.initialize();
         action.setHttpClient(httpClient);
+        action.setCircuitBreaker(breaker);
+        action.setMaxResultSize(1024);
         action.initialize();
         Event event = action.execute(src);
         Assert.assertEquals(event.getId(), CandourEventIds.CANDOUR_API_RESP_MALFORMED);
+        // Candour answered, the response is not a failure of the API
+        Assert.assertEquals(breaker.getState(), CandourCircuitBreaker.State.CLOSED);
+        breaker.destroy();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testDeadlinePassed() throws Exception {
+        final HttpClient httpClient = Mockito.mock(HttpClient.class);
+        action.setHttpClient(httpClient);
+        action.initialize();
+        ctx.setDeadline(Instant.now().minusSeconds(1));
+        Event event = action.execute(src);
+        Assert.assertEquals(event.getId(), CandourEventIds.CANDOUR_API_COMM_FAILURE);
+        // Neither result nor the best effort delete is attempted
+        Mockito.verify(httpClient, Mockito.never()).execute((HttpUriRequest) Mockito.any(),
+                (HttpContext) Mockito.any(), (HttpClientResponseHandler<CandourResponse>) Mockito.any());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testRemainingTime() throws Exception {
+        final HttpClient httpClient = Mockito.mock(HttpClient.class);
+        final ArgumentCaptor<HttpContext> contexts = ArgumentCaptor.forClass(HttpContext.class);
+        Mockito.when(httpClient.execute((HttpUriRequest) Mockito.any(), contexts.capture(),
+                (HttpClientResponseHandler<CandourResponse>) Mockito.any()))
+                .thenAnswer(respond(200, "{\"claim1\":\"value1\"}"));
+        action.setHttpClient(httpClient);
+        action.initialize();
+        ctx.setDeadline(Instant.now().plusSeconds(10));
+        Event event = action.execute(src);
+        Assert.assertNull(event);
+        // Result and delete requests
+        Assert.assertEquals(contexts.getAllValues().size(), 2);
+        for (final HttpContext context : contexts.getAllValues()) {
+            final long timeout = ((HttpClientContext) context).getRequestConfig().getResponseTimeout()
+                    .toMilliseconds();
+            Assert.assertTrue(timeout > 0 && timeout <= 10000);
+        }
+    }
+
+    /**
+     * Answer passing a response with given status code and body to the response
+     * handler of the request.
+     * 
+     * @param code status code
+     * @param body response body
+     * @return answer
+     */
+    @SuppressWarnings("unchecked")
+    private static Answer<CandourResponse> respond(final int code, final String body) {
+        return invocation -> {
+            final BasicClassicHttpResponse response = new BasicClassicHttpResponse(code);
+            response.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+            return ((HttpClientResponseHandler<CandourResponse>) invocation.getArgument(2)).handleResponse(response);
+        };
     }
 }
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.mockito.Mockito;
+import org.opensaml.profile.action.EventIds;
+import org.opensaml.profile.context.ProfileRequestContext;
+import org.springframework.webflow.execution.Event;
+import org.springframework.webflow.execution.RequestContext;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import fi.csc.shibboleth.plugin.candourid.context.CandourContext;
+import fi.csc.shibboleth.plugin.candourid.image.StoredImage;
+import net.shibboleth.idp.authn.context.AuthenticationContext;
+import net.shibboleth.idp.profile.context.navigate.WebflowRequestContextProfileRequestContextLookup;
+import net.shibboleth.idp.profile.testing.RequestContextBuilder;
+
+public class ReleaseStoredImagesTest {
+
+    private ReleaseStoredImages action;
+
+    private RequestContext src;
+
+    private ProfileRequestContext prc;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        src = new RequestContextBuilder().buildRequestContext();
+        prc = new WebflowRequestContextProfileRequestContextLookup().apply(src);
+        action = new ReleaseStoredImages();
+        action.initialize();
+    }
+
+    @Test
+    public void testRelease() throws Exception {
+        CandourContext ctx = (CandourContext) prc.addSubcontext(new AuthenticationContext())
+                .addSubcontext(new CandourContext());
+        StoredImage image = Mockito.mock(StoredImage.class);
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("name", "value");
+        claims.put("selfieImage", image);
+        ctx.setResultClaims(claims);
+        Event event = action.execute(src);
+        Assert.assertNull(event);
+        Mockito.verify(image).delete();
+        Assert.assertEquals(ctx.getResultClaims().size(), 1);
+        Assert.assertEquals(ctx.getResultClaims().get("name"), "value");
+    }
+
+    @Test
+    public void testNoContext() throws Exception {
+        prc.addSubcontext(new AuthenticationContext());
+        Event event = action.execute(src);
+        Assert.assertEquals(event.getId(), EventIds.INVALID_PROFILE_CTX);
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.impl;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequest;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.mockito.Mockito;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponse;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponseHandler;
+
+/** Tests for {@link VirtualThreadCandourHttpExecutor}. */
+public class VirtualThreadCandourHttpExecutorTest {
+
+    private VirtualThreadCandourHttpExecutor executor;
+
+    private HttpClient httpClient;
+
+    private ClassicHttpRequest request;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        httpClient = Mockito.mock(HttpClient.class);
+        executor = new VirtualThreadCandourHttpExecutor();
+        executor.setHttpClient(httpClient);
+        request = ClassicRequestBuilder.get("https://example.com/api/session").build();
+    }
+
+    @AfterMethod
+    public void teardown() {
+        executor.destroy();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void respond(Answer<CandourResponse> answer) throws IOException {
+        Mockito.when(httpClient.execute((HttpUriRequest) Mockito.any(), (HttpContext) Mockito.any(),
+                (HttpClientResponseHandler<CandourResponse>) Mockito.any())).thenAnswer(answer);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Answer<CandourResponse> respond(int code, String body) {
+        return invocation -> {
+            final BasicClassicHttpResponse response = new BasicClassicHttpResponse(code);
+            response.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+            return ((HttpClientResponseHandler<CandourResponse>) invocation.getArgument(2)).handleResponse(response);
+        };
+    }
+
+    @Test
+    public void testExecute() throws Exception {
+        respond(respond(200, "{\"status\":\"ok\"}"));
+        executor.initialize();
+        final CandourResponse response = executor.execute(request, null, new CandourResponseHandler());
+        Assert.assertEquals(response.getCode(), 200);
+        Assert.assertEquals(response.getPayload(), "{\"status\":\"ok\"}");
+    }
+
+    @Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = "Connection reset")
+    public void testIOException() throws Exception {
+        respond(invocation -> {
+            throw new IOException("Connection reset");
+        });
+        executor.initialize();
+        executor.execute(request, null, new CandourResponseHandler());
+    }
+
+    @Test(expectedExceptions = SocketTimeoutException.class)
+    public void testTimeout() throws Exception {
+        respond(invocation -> {
+            Thread.sleep(5000);
+            return null;
+        });
+        executor.setRequestTimeout(Duration.ofMillis(50));
+        executor.initialize();
+        executor.execute(request, null, new CandourResponseHandler());
+    }
+
+    @Test
+    public void testMaxConcurrentRequests() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        respond(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return respond(200, "{}").answer(invocation);
+        });
+        executor.setMaxConcurrentRequests(1);
+        executor.initialize();
+        final CompletableFuture<CandourResponse> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return executor.execute(request, null, new CandourResponseHandler());
+            } catch (final IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        try {
+            executor.execute(request, null, new CandourResponseHandler());
+            Assert.fail("Request over the limit should be rejected");
+        } catch (final IOException e) {
+            Assert.assertEquals(e.getMessage(), "Too many concurrent Candour API requests");
+        }
+        release.countDown();
+        Assert.assertEquals(first.get(5, TimeUnit.SECONDS).getCode(), 200);
+        Assert.assertEquals(executor.execute(request, null, new CandourResponseHandler()).getCode(), 200);
+    }
+
+    @Test
+    public void testPermitHeldUntilTimedOutRequestCompletes() throws Exception {
+        final CompletableFuture<Void> release = new CompletableFuture<>();
+        respond(invocation -> {
+            // Not interruptible, as a request stuck in I/O
+            release.join();
+            return respond(200, "{}").answer(invocation);
+        });
+        executor.setMaxConcurrentRequests(1);
+        executor.setRequestTimeout(Duration.ofMillis(50));
+        executor.initialize();
+        try {
+            executor.execute(request, null, new CandourResponseHandler());
+            Assert.fail("Request should time out");
+        } catch (final SocketTimeoutException e) {
+            // expected, the request is still in flight
+        }
+        try {
+            executor.execute(request, null, new CandourResponseHandler());
+            Assert.fail("Request over the limit should be rejected");
+        } catch (final IOException e) {
+            Assert.assertEquals(e.getMessage(), "Too many concurrent Candour API requests");
+        }
+        release.complete(null);
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            try {
+                Assert.assertEquals(executor.execute(request, null, new CandourResponseHandler()).getCode(), 200);
+                break;
+            } catch (final IOException e) {
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.messaging.impl;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.hc.client5.http.utils.Hex;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/** Tests for {@link CandourHmacSigner}. */
+public class CandourHmacSignerTest {
+
+    private String hmacKey = "d818a281-3226-4615-8455-7a004894ca97";
+
+    private String expected(String payload) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(hmacKey.getBytes("UTF-8"), "HmacSHA256"));
+        return Hex.encodeHexString(mac.doFinal(payload.getBytes("UTF-8")));
+    }
+
+    @Test
+    public void testSign() throws Exception {
+        CandourHmacSigner signer = new CandourHmacSigner(hmacKey);
+        Assert.assertEquals(signer.sign("sessionIdValue"), expected("sessionIdValue"));
+        Assert.assertEquals(signer.sign("{\"name\":\"Meikäläinen\"}"), expected("{\"name\":\"Meikäläinen\"}"));
+        Assert.assertEquals(signer.sign(""), expected(""));
+        // Pooled instance is reset between calls
+        Assert.assertEquals(signer.sign("sessionIdValue"), expected("sessionIdValue"));
+    }
+
+    @Test
+    public void testConcurrentSign() throws Exception {
+        CandourHmacSigner signer = new CandourHmacSigner(hmacKey, 2);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                String payload = "session" + i;
+                results.add(executor.submit(() -> signer.sign(payload).equals(expected(payload))));
+            }
+            for (Future<Boolean> result : results) {
+                Assert.assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testPrecalculatedSignature() throws Exception {
+        CandourHmacSigner signer = new CandourHmacSigner(hmacKey);
+        String signature = signer.sign("sessionIdValue");
+        CandourResultRequest result = new CandourResultRequest(new URI("https://example.com"), "publicKey", signer);
+        result.setPayload("sessionIdValue");
+        result.setSignature(signature);
+        CandourDeleteRequest delete = new CandourDeleteRequest(new URI("https://example.com"), "publicKey", hmacKey);
+        delete.setPayload("sessionIdValue");
+        ClassicHttpRequest resultRequest = result.toHttpRequest();
+        ClassicHttpRequest deleteRequest = delete.toHttpRequest();
+        Assert.assertEquals(resultRequest.getHeader("X-HMAC-SIGNATURE").getValue(), signature);
+        Assert.assertEquals(deleteRequest.getHeader("X-HMAC-SIGNATURE").getValue(), signature);
+        Assert.assertEquals(resultRequest.getUri().toString(), "https://example.com/sessionIdValue");
+    }
+
+}
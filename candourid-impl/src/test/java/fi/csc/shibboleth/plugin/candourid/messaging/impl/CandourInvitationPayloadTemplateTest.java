@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.messaging.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/** Tests for {@link CandourInvitationPayloadTemplate}. */
+public class CandourInvitationPayloadTemplateTest {
+
+    private CandourJsonCodec codec = new CandourJsonCodec(false);
+
+    private CandourInvitationRequestPayload payload;
+
+    @BeforeMethod
+    protected void setUp() {
+        payload = CandourInvitationRequestPayload.builder()
+                .setCallbackPostEndpoint("https://example.com/callback/done")
+                .setAllowedVerificationMethods(AllowedVerificationMethods.builder().setIdWeb(true).build())
+                .setAllowedVerificationDocuments(AllowedVerificationDocuments.builder().setIdCard(true).build())
+                .setResultProperties(ResultProperties.builder().setName(true).setSelfieImage(true).build())
+                .setUser(User.builder().setFirstName("Matti").setLastName("Meikäläinen").build())
+                .setInvitationValidity(Duration.ofMinutes(10))
+                .build();
+    }
+
+    private void assertRendered(CandourInvitationPayloadTemplate template, String callbackUrl, Instant instant)
+            throws Exception {
+        String expected = codec.writeInvitationRequestPayload(
+                payload.toBuilder().setClock(Clock.fixed(instant, ZoneOffset.UTC)).setCallbackUrl(callbackUrl).build());
+        Assert.assertEquals(new String(template.render(callbackUrl, instant.toEpochMilli()), StandardCharsets.UTF_8),
+                expected);
+        Assert.assertEquals(template.render(callbackUrl, instant.toEpochMilli()),
+                expected.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testRender() throws Exception {
+        CandourInvitationPayloadTemplate template = new CandourInvitationPayloadTemplate(payload, codec);
+        assertRendered(template, "https://example.com/callback/init?execution=e1s1&_eventId_proceed=1",
+                Instant.parse("2024-06-01T10:00:00.123Z"));
+        assertRendered(template, "https://example.com/callback/init", Instant.EPOCH);
+        assertRendered(template, "https://example.com/callback/init", Instant.parse("9999-12-31T23:55:00.999Z"));
+    }
+
+    @Test
+    public void testRenderOutOfRangeYear() throws Exception {
+        CandourInvitationPayloadTemplate template = new CandourInvitationPayloadTemplate(payload, codec);
+        assertRendered(template, "https://example.com/callback/init", Instant.parse("0999-01-01T00:00:00Z"));
+        assertRendered(template, "https://example.com/callback/init", Instant.parse("+10000-01-01T00:00:00Z"));
+    }
+
+    @Test
+    public void testRenderEscapes() throws Exception {
+        CandourInvitationPayloadTemplate template = new CandourInvitationPayloadTemplate(payload, codec);
+        assertRendered(template, "https://example.com/\"quoted\"\\path\t\n\r\b\f\u0001\u001f",
+                Instant.parse("2024-06-01T10:00:00Z"));
+        assertRendered(template, "https://example.com/päivä/€/\ud83d\ude00", Instant.parse("2024-06-01T10:00:00Z"));
+    }
+
+    @Test
+    public void testPayloadNotModified() throws Exception {
+        new CandourInvitationPayloadTemplate(payload, codec).render("https://example.com/a", 0L);
+        Assert.assertNull(payload.getCallbackUrl());
+    }
+
+    @Test
+    public void testRenderReturnsCopy() throws Exception {
+        CandourInvitationPayloadTemplate template = new CandourInvitationPayloadTemplate(payload, codec);
+        byte[] first = template.render("https://example.com/a", 0L);
+        byte[] second = template.render("https://example.com/b", 0L);
+        Assert.assertNotSame(first, second);
+        Assert.assertTrue(new String(first, StandardCharsets.UTF_8).contains("\"https://example.com/a\""));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMarkerInContent() throws Exception {
+        new CandourInvitationPayloadTemplate(payload.toBuilder()
+                .setUser(User.builder().setFirstName("@@candour.template.timestamp@@").build())
+                .build(), codec);
+    }
+
+}
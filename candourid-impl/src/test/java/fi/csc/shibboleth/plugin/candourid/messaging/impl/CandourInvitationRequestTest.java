@@ -42,12 +42,13 @@ public class CandourInvitationRequestTest {
     @BeforeMethod
     protected void setUp() throws Exception {
         message = new CandourInvitationRequest(new URI("https://example.com"), publicKey, hmacKey);
-        message.setPayload(new CandourInvitationRequestPayload());
-        message.getPayload().setCallbackUrl("https://example.com/callback/init");
-        message.getPayload().setCallbackPostEndpoint("https://example.com/callback/done");
-        message.getPayload().getAllowedVerificationMethods().setIdWeb(true);
-        message.getPayload().getAllowedVerificationDocuments().setIdCard(true);
-        message.getPayload().getResultProperties().setName(true);
+        message.setPayload(CandourInvitationRequestPayload.builder()
+                .setCallbackUrl("https://example.com/callback/init")
+                .setCallbackPostEndpoint("https://example.com/callback/done")
+                .setAllowedVerificationMethods(AllowedVerificationMethods.builder().setIdWeb(true).build())
+                .setAllowedVerificationDocuments(AllowedVerificationDocuments.builder().setIdCard(true).build())
+                .setResultProperties(ResultProperties.builder().setName(true).build())
+                .build());
 
     }
 
@@ -82,4 +83,19 @@ public class CandourInvitationRequestTest {
         Assert.assertEquals(requestHmac, hmac);
     }
 
+    @Test
+    public void testHmacTemplatePayload() throws Exception {
+        message.setPayloadTemplate(new CandourInvitationPayloadTemplate(message.getPayload(),
+                CandourJsonCodec.getDefault()), "https://example.com/callback/template");
+        ClassicHttpRequest request = message.toHttpRequest();
+        String requestHmac = request.getHeader("X-HMAC-SIGNATURE").getValue();
+        String requestPayload = EntityUtils.toString(request.getEntity(), "UTF-8");
+        Assert.assertTrue(requestPayload.contains("\"callbackUrl\":\"https://example.com/callback/template\""));
+        SecretKeySpec secretKeySpec = new SecretKeySpec(hmacKey.getBytes(), "HmacSHA256");
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(secretKeySpec);
+        String hmac = Hex.encodeHexString(mac.doFinal(requestPayload.getBytes("UTF-8")));
+        Assert.assertEquals(requestHmac, hmac);
+    }
+
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.messaging.impl;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/** Tests for {@link CandourJsonCodec}. */
+public class CandourJsonCodecTest {
+
+    private CandourJsonCodec codec = new CandourJsonCodec(false);
+
+    @Test
+    public void testInvitationSuccessResponse() throws Exception {
+        CandourInvitationSuccessResponsePayload payload = codec.readInvitationSuccessResponse(
+                "{\"newclaim\":\"value\",\"redirectUrl\":\"http://example.com/auth\",\"verificationSessionId\":\"id\","
+                        + "\"timestamp\":\"stamp\",\"validUntil\":\"until\"}");
+        Assert.assertEquals(payload.getRedirectUrl(), "http://example.com/auth");
+        Assert.assertEquals(payload.getVerificationSessionId(), "id");
+        Assert.assertEquals(payload.getTimestamp(), "stamp");
+        Assert.assertEquals(payload.getValidUntil(), "until");
+        Assert.assertEquals(codec.readInvitationSuccessResponse(codec.writeInvitationSuccessResponse(payload))
+                .getRedirectUrl(), "http://example.com/auth");
+    }
+
+    @Test(expectedExceptions = JsonProcessingException.class)
+    public void testInvitationSuccessResponseMalformed() throws Exception {
+        codec.readInvitationSuccessResponse("Something bad happened");
+    }
+
+    @Test
+    public void testInvitationRequestPayload() throws Exception {
+        CandourInvitationRequestPayload payload = CandourInvitationRequestPayload.builder()
+                .setCallbackUrl("https://example.com/callback")
+                .setResultProperties(ResultProperties.builder().setName(true).build())
+                .build();
+        String json = codec.writeInvitationRequestPayload(payload);
+        Assert.assertTrue(json.contains("\"callbackUrl\":\"https://example.com/callback\""));
+        Assert.assertTrue(json.contains("\"resultProperties\":{\"name\":true}"));
+        Assert.assertFalse(json.contains("callbackPostEndpoint"));
+    }
+
+    @Test
+    public void testResultClaims() throws Exception {
+        Map<String, Object> claims = codec.readResultClaims("{\"claim1\":\"value1\",\"nameScore\":100,\"nameMatch\":true}");
+        Assert.assertEquals(claims.get("claim1"), "value1");
+        Assert.assertEquals(claims.get("nameScore"), 100);
+        Assert.assertEquals(claims.get("nameMatch"), true);
+    }
+
+    @Test
+    public void testResultClaimsProjection() throws Exception {
+        Map<String, Object> claims = codec.readResultClaims(new ByteArrayInputStream(
+                ("{\"claim1\":\"value1\",\"selfieImage\":\"aW1hZ2U=\",\"nameScore\":100,"
+                        + "\"skip\":{\"a\":[1,2]},\"obj\":{\"a\":[1,2]}}").getBytes(StandardCharsets.UTF_8)),
+                Set.of("claim1", "nameScore", "obj"));
+        Assert.assertEquals(claims.size(), 3);
+        Assert.assertEquals(claims.get("claim1"), "value1");
+        Assert.assertEquals(claims.get("nameScore"), 100);
+        Assert.assertEquals(((Map<?, ?>) claims.get("obj")).get("a"), List.of(1, 2));
+        Assert.assertFalse(claims.containsKey("selfieImage"));
+    }
+
+    @Test
+    public void testResultClaimsBinary() throws Exception {
+        Map<String, Object> claims = codec.readResultClaims(new ByteArrayInputStream(
+                "{\"claim1\":\"value1\",\"selfieImage\":\"aW1hZ2U=\",\"idChipImage\":null}"
+                        .getBytes(StandardCharsets.UTF_8)),
+                null, ResultProperties.IMAGE_CLAIMS);
+        Assert.assertEquals(claims.get("claim1"), "value1");
+        Assert.assertEquals(claims.get("selfieImage"), "image".getBytes(StandardCharsets.UTF_8));
+        Assert.assertTrue(claims.containsKey("idChipImage"));
+        Assert.assertNull(claims.get("idChipImage"));
+    }
+
+    @Test(expectedExceptions = JsonProcessingException.class)
+    public void testResultClaimsBinaryMalformed() throws Exception {
+        codec.readResultClaims(new ByteArrayInputStream("{\"selfieImage\":\"not base64!\"}"
+                .getBytes(StandardCharsets.UTF_8)), null, ResultProperties.IMAGE_CLAIMS);
+    }
+
+    @Test(expectedExceptions = JsonProcessingException.class)
+    public void testResultClaimsProjectionMalformed() throws Exception {
+        codec.readResultClaims(new ByteArrayInputStream("[\"claim1\"]".getBytes(StandardCharsets.UTF_8)),
+                Set.of("claim1"));
+    }
+
+    @Test
+    public void testAcceleratedFallback() throws Exception {
+        // Neither Blackbird nor Afterburner is on the test classpath
+        CandourJsonCodec accelerated = new CandourJsonCodec(true);
+        Assert.assertFalse(accelerated.isAccelerated());
+        Assert.assertEquals(accelerated.readResultClaims("{\"claim1\":\"value1\"}").get("claim1"), "value1");
+    }
+
+    @Test
+    public void testDefault() {
+        Assert.assertSame(CandourJsonCodec.getDefault(), CandourJsonCodec.getDefault());
+        Assert.assertFalse(CandourJsonCodec.getDefault().isAccelerated());
+    }
+
+}
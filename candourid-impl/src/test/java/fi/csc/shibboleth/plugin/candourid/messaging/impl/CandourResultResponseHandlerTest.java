@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.messaging.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.InputStreamEntity;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/** Tests for {@link CandourResultResponseHandler}. */
+public class CandourResultResponseHandlerTest {
+
+    private CandourResultResponseHandler handler = new CandourResultResponseHandler(new CandourJsonCodec(false),
+            1024);
+
+    @Test
+    public void testSuccess() throws Exception {
+        CandourResponse response = handler.handleResponse(response(200, "{\"claim1\":\"value1\",\"nameScore\":100}"));
+        Assert.assertTrue(response.indicateSuccess());
+        Assert.assertNull(response.getPayload());
+        Assert.assertEquals(response.getResultClaims().get("claim1"), "value1");
+        Assert.assertEquals(response.getResultClaims().get("nameScore"), 100);
+    }
+
+    @Test
+    public void testError() throws Exception {
+        CandourResponse response = handler.handleResponse(response(400, "Something bad happened"));
+        Assert.assertFalse(response.indicateSuccess());
+        Assert.assertEquals(response.getPayload(), "Something bad happened");
+        Assert.assertNull(response.getResultClaims());
+    }
+
+    @Test
+    public void testNoEntity() throws Exception {
+        CandourResponse response = handler.handleResponse(new BasicClassicHttpResponse(200));
+        Assert.assertNull(response.getPayload());
+        Assert.assertNull(response.getResultClaims());
+    }
+
+    @Test(expectedExceptions = JsonProcessingException.class)
+    public void testMalformed() throws Exception {
+        handler.handleResponse(response(200, "Something bad happened"));
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testContentLengthExceeded() throws Exception {
+        handler.handleResponse(response(200, "{\"claim1\":\"" + "x".repeat(1024) + "\"}"));
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testChunkedExceeded() throws Exception {
+        // No content length, limit is enforced while parsing
+        BasicClassicHttpResponse response = new BasicClassicHttpResponse(200);
+        response.setEntity(new InputStreamEntity(new ByteArrayInputStream(
+                ("{\"claim1\":\"" + "x".repeat(1024) + "\"}").getBytes(StandardCharsets.UTF_8)), -1,
+                ContentType.APPLICATION_JSON));
+        handler.handleResponse(response);
+    }
+
+    private static BasicClassicHttpResponse response(final int code, final String body) {
+        final BasicClassicHttpResponse response = new BasicClassicHttpResponse(code);
+        response.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+        return response;
+    }
+}
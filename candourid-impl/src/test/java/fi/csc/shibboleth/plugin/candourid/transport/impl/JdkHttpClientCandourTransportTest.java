@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.transport.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponse;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponseHandler;
+
+/** Tests for {@link JdkHttpClientCandourTransport}. */
+public class JdkHttpClientCandourTransportTest {
+
+    private HttpServer server;
+
+    private String api;
+
+    private JdkHttpClientCandourTransport transport;
+
+    private final AtomicReference<HttpExchange> received = new AtomicReference<>();
+
+    private final AtomicReference<String> receivedBody = new AtomicReference<>();
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/api", exchange -> {
+            received.set(exchange);
+            receivedBody.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            if (exchange.getRequestURI().getPath().endsWith("/slow")) {
+                try {
+                    Thread.sleep(2000);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if ("DELETE".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+                return;
+            }
+            respond(exchange, "{\"sid\":\"value\"}");
+        });
+        server.start();
+        api = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/api";
+        transport = new JdkHttpClientCandourTransport();
+        transport.setHttp2(false);
+    }
+
+    @AfterMethod
+    public void teardown() {
+        server.stop(0);
+    }
+
+    private static void respond(final HttpExchange exchange, final String body) throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Test
+    public void testCreateInvitation() throws Exception {
+        transport.initialize();
+        final CandourResponse response = transport.createInvitation(ClassicRequestBuilder.post(api)
+                .setHeader("X-AUTH-CLIENT", "publicKey")
+                .setEntity("{\"callbackUrl\":\"https://idp.example.org\"}", ContentType.APPLICATION_JSON)
+                .build(), null, new CandourResponseHandler());
+        Assert.assertEquals(response.getCode(), 200);
+        Assert.assertEquals(response.getPayload(), "{\"sid\":\"value\"}");
+        Assert.assertEquals(received.get().getRequestMethod(), "POST");
+        Assert.assertEquals(received.get().getRequestHeaders().getFirst("X-AUTH-CLIENT"), "publicKey");
+        Assert.assertTrue(received.get().getRequestHeaders().getFirst("Content-Type").startsWith("application/json"));
+        Assert.assertEquals(receivedBody.get(), "{\"callbackUrl\":\"https://idp.example.org\"}");
+    }
+
+    @Test
+    public void testFetchAndDeleteResult() throws Exception {
+        transport.initialize();
+        final CandourResponse result = transport.fetchResult(ClassicRequestBuilder.get(api + "/sid").build(), null,
+                new CandourResponseHandler());
+        Assert.assertEquals(result.getCode(), 200);
+        Assert.assertEquals(result.getPayload(), "{\"sid\":\"value\"}");
+        Assert.assertEquals(received.get().getRequestMethod(), "GET");
+        Assert.assertEquals(received.get().getRequestURI().getPath(), "/api/sid");
+
+        final CandourResponse deleted = transport.deleteResult(ClassicRequestBuilder.delete(api + "/sid").build(),
+                null, new CandourResponseHandler());
+        Assert.assertEquals(deleted.getCode(), 200);
+        Assert.assertEquals(received.get().getRequestMethod(), "DELETE");
+    }
+
+    @Test(expectedExceptions = HttpTimeoutException.class)
+    public void testTimeout() throws Exception {
+        transport.initialize();
+        transport.fetchResult(ClassicRequestBuilder.get(api + "/slow").build(), Duration.ofMillis(100),
+                new CandourResponseHandler());
+    }
+
+}
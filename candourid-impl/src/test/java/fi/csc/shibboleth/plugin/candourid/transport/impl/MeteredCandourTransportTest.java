@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.transport.impl;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
+import org.opensaml.core.metrics.MetricsSupport;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponse;
+import fi.csc.shibboleth.plugin.candourid.messaging.impl.CandourResponseHandler;
+import fi.csc.shibboleth.plugin.candourid.transport.CandourOperation;
+
+/** Tests for {@link MeteredCandourTransport}. */
+public class MeteredCandourTransportTest {
+
+    private final MetricRegistry registry = MetricsSupport.getMetricRegistry();
+
+    private long count(final String name) {
+        return registry.counter(MetricRegistry.name(MeteredCandourTransport.METRIC_PREFIX, name)).getCount();
+    }
+
+    private long timed(final CandourOperation operation) {
+        return registry.timer(MetricRegistry.name(MeteredCandourTransport.METRIC_PREFIX,
+                operation.getOperationName(), "duration")).getCount();
+    }
+
+    private long inFlight() {
+        return (Long) registry.getGauges()
+                .get(MetricRegistry.name(MeteredCandourTransport.METRIC_PREFIX, "inFlight")).getValue();
+    }
+
+    @Test
+    public void testStatusClasses() throws Exception {
+        final int[] status = {200};
+        final MeteredCandourTransport transport = new MeteredCandourTransport((operation, request, timeout,
+                handler) -> {
+            final BasicClassicHttpResponse response = new BasicClassicHttpResponse(status[0]);
+            response.setEntity(new StringEntity("{\"sid\":\"value\"}", ContentType.APPLICATION_JSON));
+            return handler.handleResponse(response);
+        });
+        final long ok = count("fetchResult.status.2xx");
+        final long throttled = count("fetchResult.status.4xx");
+        final long fetched = timed(CandourOperation.FETCH_RESULT);
+        final long sizes = registry.histogram(MetricRegistry.name(MeteredCandourTransport.METRIC_PREFIX,
+                "fetchResult", "responseSize")).getCount();
+
+        final CandourResponse response = transport.fetchResult(ClassicRequestBuilder.get("https://example.com/api/sid")
+                .build(), null, new CandourResponseHandler());
+        Assert.assertEquals(response.getPayload(), "{\"sid\":\"value\"}");
+        status[0] = 429;
+        transport.fetchResult(ClassicRequestBuilder.get("https://example.com/api/sid").build(), null,
+                new CandourResponseHandler());
+
+        Assert.assertEquals(count("fetchResult.status.2xx"), ok + 1);
+        Assert.assertEquals(count("fetchResult.status.4xx"), throttled + 1);
+        Assert.assertEquals(timed(CandourOperation.FETCH_RESULT), fetched + 2);
+        Assert.assertEquals(registry.histogram(MetricRegistry.name(MeteredCandourTransport.METRIC_PREFIX,
+                "fetchResult", "responseSize")).getCount(), sizes + 2);
+    }
+
+    @Test
+    public void testIOError() throws Exception {
+        final MeteredCandourTransport transport = new MeteredCandourTransport((operation, request, timeout,
+                handler) -> {
+            throw new SocketException("Connection reset");
+        });
+        final long errors = count("deleteResult.ioErrors");
+        final long deleted = timed(CandourOperation.DELETE_RESULT);
+        Assert.assertThrows(SocketException.class, () -> transport.deleteResult(
+                ClassicRequestBuilder.delete("https://example.com/api/sid").build(), null,
+                new CandourResponseHandler()));
+        Assert.assertEquals(count("deleteResult.ioErrors"), errors + 1);
+        Assert.assertEquals(timed(CandourOperation.DELETE_RESULT), deleted + 1);
+    }
+
+    @Test
+    public void testInFlight() throws Exception {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final MeteredCandourTransport transport = new MeteredCandourTransport((operation, request, timeout,
+                handler) -> {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (final InterruptedException e) {
+                throw new IOException(e);
+            }
+            return handler.handleResponse(new BasicClassicHttpResponse(200));
+        });
+        final long before = inFlight();
+        final Thread thread = new Thread(() -> {
+            try {
+                transport.createInvitation(ClassicRequestBuilder.post("https://example.com/api").build(), null,
+                        new CandourResponseHandler());
+            } catch (final IOException e) {
+                // counted by the transport
+            }
+        });
+        thread.start();
+        Assert.assertTrue(entered.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(inFlight(), before + 1);
+        release.countDown();
+        thread.join();
+        Assert.assertEquals(inFlight(), before);
+    }
+
+}
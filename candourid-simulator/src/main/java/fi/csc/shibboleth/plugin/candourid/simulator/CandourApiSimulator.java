@@ -0,0 +1,686 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.simulator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import net.shibboleth.shared.annotation.constraint.NonnullAfterInit;
+import net.shibboleth.shared.annotation.constraint.ThreadSafeAfterInit;
+import net.shibboleth.shared.component.AbstractInitializableComponent;
+import net.shibboleth.shared.component.ComponentInitializationException;
+import net.shibboleth.shared.logic.Constraint;
+import net.shibboleth.shared.primitive.LoggerFactory;
+import net.shibboleth.shared.primitive.StringSupport;
+
+/**
+ * Embedded stand-in for the Candour REST API, served on the loopback interface
+ * by the JDK HTTP server.
+ * 
+ * <p>
+ * Implements the contract used by the invitation, result and delete requests of
+ * the plugin: a signed POST of the invitation payload to {@value #API_PATH}
+ * creates a verification session, a signed GET of {@value #API_PATH}/{id}
+ * returns its result and a signed DELETE of the same location removes it.
+ * Requests not carrying the configured client public key in X-AUTH-CLIENT and a
+ * matching HmacSHA256 signature in X-HMAC-SIGNATURE are rejected with 401.
+ * </p>
+ * 
+ * <p>
+ * The invitation link returned for a session points back to the simulator,
+ * following it redirects to the callback url of the session with a successful
+ * status, as the Candour service does once the user has verified. The result
+ * carries the requested result properties with images of realistic size.
+ * </p>
+ * 
+ * <p>
+ * Latency and failures are injected as set to {@link #getFaults()}.
+ * </p>
+ */
+@ThreadSafeAfterInit
+public class CandourApiSimulator extends AbstractInitializableComponent {
+
+    /** Path of the API. */
+    @Nonnull
+    public static final String API_PATH = "/v1";
+
+    /** Path of the invitation links. */
+    @Nonnull
+    public static final String VERIFY_PATH = "/verify/";
+
+    /** Signature algorithm of the requests. */
+    @Nonnull
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    /** Lifetime of a verification session reported in the invitation response. */
+    @Nonnull
+    private static final Duration SESSION_LIFETIME = Duration.ofMinutes(10);
+
+    /** Seed for the image content. */
+    private static final long SEED = 20240601L;
+
+    /** Class logger. */
+    @Nonnull
+    private final Logger log = LoggerFactory.getLogger(CandourApiSimulator.class);
+
+    /** Injected latency and failures. */
+    @Nonnull
+    private final SimulatedFaults faults = new SimulatedFaults();
+
+    /** Verification sessions by id. */
+    @Nonnull
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    /** Number of invitations created. */
+    @Nonnull
+    private final LongAdder invitations = new LongAdder();
+
+    /** Number of results returned. */
+    @Nonnull
+    private final LongAdder results = new LongAdder();
+
+    /** Number of results deleted. */
+    @Nonnull
+    private final LongAdder deletes = new LongAdder();
+
+    /** Number of requests rejected for authentication. */
+    @Nonnull
+    private final LongAdder rejected = new LongAdder();
+
+    /** Json mapper for parsing payloads. */
+    @Nonnull
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /** Json factory for writing payloads. */
+    @Nonnull
+    private final JsonFactory jsonFactory = mapper.getFactory();
+
+    /** Textual result claims. */
+    @Nonnull
+    private Map<String, String> textClaims = defaultTextClaims();
+
+    /** Image result claims as base64, by result property. */
+    @Nonnull
+    private final Map<String, String> imageClaims = new LinkedHashMap<>();
+
+    /** Client public key expected in X-AUTH-CLIENT. */
+    @NonnullAfterInit
+    private String clientPublicKey;
+
+    /** Client hmac key the requests are signed with. */
+    @NonnullAfterInit
+    private String clientHmacKey;
+
+    /** Port to listen on, 0 for any free port. */
+    private int port;
+
+    /** Number of threads serving requests. */
+    private int threads = 64;
+
+    /** Hmac key of the client. */
+    @NonnullAfterInit
+    private SecretKeySpec hmacKey;
+
+    /** The server. */
+    @NonnullAfterInit
+    private HttpServer server;
+
+    /** Executor of the server. */
+    @NonnullAfterInit
+    private ExecutorService executor;
+
+    /**
+     * Set client public key expected in X-AUTH-CLIENT.
+     * 
+     * @param key client public key
+     */
+    public void setClientPublicKey(@Nullable final String key) {
+        checkSetterPreconditions();
+        clientPublicKey = StringSupport.trimOrNull(key);
+    }
+
+    /**
+     * Set client hmac key the requests are signed with.
+     * 
+     * @param key client hmac key
+     */
+    public void setClientHmacKey(@Nullable final String key) {
+        checkSetterPreconditions();
+        clientHmacKey = StringSupport.trimOrNull(key);
+    }
+
+    /**
+     * Set port to listen on. Defaults to 0, any free port.
+     * 
+     * @param listenPort port to listen on
+     */
+    public void setPort(final int listenPort) {
+        checkSetterPreconditions();
+        Constraint.isTrue(listenPort >= 0 && listenPort <= 0xffff, "Port must be between 0 and 65535");
+        port = listenPort;
+    }
+
+    /**
+     * Set number of threads serving requests. Defaults to 64. Injected latency
+     * holds a thread for its duration.
+     * 
+     * @param count number of threads
+     */
+    public void setThreads(final int count) {
+        checkSetterPreconditions();
+        Constraint.isTrue(count > 0, "Number of threads must be greater than 0");
+        threads = count;
+    }
+
+    /**
+     * Set textual result claims, by name. The invitation link claim is added by
+     * the simulator. Defaults to the claims of a Finnish passport.
+     * 
+     * @param claims textual result claims
+     */
+    public void setTextClaims(@Nonnull final Map<String, String> claims) {
+        checkSetterPreconditions();
+        Constraint.isNotNull(claims, "Text claims cannot be null");
+        textClaims = new LinkedHashMap<>(claims);
+    }
+
+    /**
+     * Get injected latency and failures.
+     * 
+     * @return injected latency and failures
+     */
+    @Nonnull
+    public SimulatedFaults getFaults() {
+        return faults;
+    }
+
+    /**
+     * Get location of the API, to be set as the Candour API location of the
+     * plugin.
+     * 
+     * @return location of the API
+     */
+    @Nonnull
+    public String getApiUri() {
+        checkComponentActive();
+        return baseUri() + API_PATH;
+    }
+
+    /**
+     * Get number of verification sessions held.
+     * 
+     * @return number of verification sessions
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Get number of invitations created.
+     * 
+     * @return number of invitations
+     */
+    public long getInvitationCount() {
+        return invitations.sum();
+    }
+
+    /**
+     * Get number of results returned.
+     * 
+     * @return number of results
+     */
+    public long getResultCount() {
+        return results.sum();
+    }
+
+    /**
+     * Get number of results deleted.
+     * 
+     * @return number of deletes
+     */
+    public long getDeleteCount() {
+        return deletes.sum();
+    }
+
+    /**
+     * Get number of requests rejected for failing authentication.
+     * 
+     * @return number of rejected requests
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doInitialize() throws ComponentInitializationException {
+        super.doInitialize();
+        if (clientPublicKey == null || clientHmacKey == null) {
+            throw new ComponentInitializationException("Client public key and hmac key must be set");
+        }
+        hmacKey = new SecretKeySpec(clientHmacKey.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+        final SplittableRandom random = new SplittableRandom(SEED);
+        imageClaims.put("selfieImage", image(random, 48 * 1024));
+        imageClaims.put("idMrzImage", image(random, 180 * 1024));
+        imageClaims.put("idOtherImage", image(random, 180 * 1024));
+        imageClaims.put("idChipImage", image(random, 16 * 1024));
+        executor = Executors.newFixedThreadPool(threads, r -> {
+            final Thread thread = new Thread(r, "candour-simulator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        } catch (final IOException e) {
+            executor.shutdownNow();
+            throw new ComponentInitializationException("Unable to start Candour API simulator", e);
+        }
+        server.setExecutor(executor);
+        server.createContext(API_PATH, this::handleApi);
+        server.createContext(VERIFY_PATH, this::handleVerify);
+        server.start();
+        log.info("Candour API simulator listening at {}", getApiUri());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doDestroy() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        sessions.clear();
+        super.doDestroy();
+    }
+
+    /**
+     * Serve a request to the API.
+     * 
+     * @param exchange the exchange
+     * @throws IOException if the exchange fails
+     */
+    private void handleApi(@Nonnull final HttpExchange exchange) throws IOException {
+        try (exchange) {
+            final byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = in.readAllBytes();
+            }
+            if (!injectFaults(exchange)) {
+                return;
+            }
+            final String path = exchange.getRequestURI().getPath();
+            final String method = exchange.getRequestMethod();
+            if (API_PATH.equals(path)) {
+                if (!"POST".equals(method)) {
+                    exchange.sendResponseHeaders(405, -1);
+                } else if (authenticate(exchange, body)) {
+                    createInvitation(exchange, body);
+                }
+                return;
+            }
+            final String sessionId = path.startsWith(API_PATH + "/") ? path.substring(API_PATH.length() + 1) : "";
+            if (sessionId.isEmpty() || sessionId.indexOf('/') >= 0) {
+                exchange.sendResponseHeaders(404, -1);
+            } else if (!"GET".equals(method) && !"DELETE".equals(method)) {
+                exchange.sendResponseHeaders(405, -1);
+            } else if (authenticate(exchange, sessionId.getBytes(StandardCharsets.UTF_8))) {
+                if ("GET".equals(method)) {
+                    fetchResult(exchange, sessionId);
+                } else {
+                    deleteResult(exchange, sessionId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Serve an invitation link, redirecting to the callback url of the session
+     * with a successful status.
+     * 
+     * @param exchange the exchange
+     * @throws IOException if the exchange fails
+     */
+    private void handleVerify(@Nonnull final HttpExchange exchange) throws IOException {
+        try (exchange) {
+            final String sessionId = exchange.getRequestURI().getPath().substring(VERIFY_PATH.length());
+            final Session session = sessions.get(sessionId);
+            if (session == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            final String callback = session.callbackUrl();
+            exchange.getResponseHeaders().set("Location", callback + (callback.indexOf('?') >= 0 ? '&' : '?')
+                    + "status=success&sessionId=" + sessionId);
+            exchange.sendResponseHeaders(303, -1);
+        }
+    }
+
+    /**
+     * Apply the injected latency and failure to a request.
+     * 
+     * @param exchange the exchange
+     * @return whether the request is to be served
+     * @throws IOException if the exchange fails
+     */
+    private boolean injectFaults(@Nonnull final HttpExchange exchange) throws IOException {
+        final long latency = faults.nextLatencyNanos();
+        if (latency > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(latency);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        switch (faults.nextFault()) {
+            case DROP_CONNECTION:
+                // Closing the exchange before sending the headers closes the connection.
+                log.debug("Dropping connection of {} {}", exchange.getRequestMethod(), exchange.getRequestURI());
+                return false;
+            case THROTTLE:
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendJson(exchange, 429, error("Too many requests"));
+                return false;
+            case SERVER_ERROR:
+                sendJson(exchange, 503, error("Service unavailable"));
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Check the client key and signature of a request, rejecting it with 401 if
+     * they do not match.
+     * 
+     * @param exchange the exchange
+     * @param signed   the signed content
+     * @return whether the request is authenticated
+     * @throws IOException if the exchange fails
+     */
+    private boolean authenticate(@Nonnull final HttpExchange exchange, @Nonnull final byte[] signed)
+            throws IOException {
+        final String client = exchange.getRequestHeaders().getFirst("X-AUTH-CLIENT");
+        final String signature = exchange.getRequestHeaders().getFirst("X-HMAC-SIGNATURE");
+        if (clientPublicKey.equals(client) && signature != null && MessageDigest.isEqual(sign(signed),
+                signature.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.US_ASCII))) {
+            return true;
+        }
+        rejected.increment();
+        log.debug("Rejecting {} {}, client or signature does not match", exchange.getRequestMethod(),
+                exchange.getRequestURI());
+        sendJson(exchange, 401, error("Unauthorized"));
+        return false;
+    }
+
+    /**
+     * Create a verification session from an invitation request.
+     * 
+     * @param exchange the exchange
+     * @param body     the invitation request payload
+     * @throws IOException if the exchange fails
+     */
+    private void createInvitation(@Nonnull final HttpExchange exchange, @Nonnull final byte[] body)
+            throws IOException {
+        final JsonNode payload;
+        try {
+            payload = mapper.readTree(body);
+        } catch (final IOException e) {
+            sendJson(exchange, 400, error("Malformed payload"));
+            return;
+        }
+        final String callbackUrl = payload != null ? payload.path("callbackUrl").asText(null) : null;
+        if (callbackUrl == null || callbackUrl.isBlank()) {
+            sendJson(exchange, 400, error("callbackUrl is required"));
+            return;
+        }
+        final Set<String> properties = new LinkedHashSet<>();
+        payload.path("resultProperties").fields().forEachRemaining(property -> {
+            if (property.getValue().asBoolean()) {
+                properties.add(property.getKey());
+            }
+        });
+        final String sessionId = UUID.randomUUID().toString();
+        final String link = baseUri() + VERIFY_PATH + sessionId;
+        sessions.put(sessionId, new Session(callbackUrl, Set.copyOf(properties), link));
+        invitations.increment();
+        final Instant now = Instant.now();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try (JsonGenerator json = jsonFactory.createGenerator(out)) {
+            json.writeStartObject();
+            json.writeStringField("redirectUrl", link);
+            json.writeStringField("verificationSessionId", sessionId);
+            json.writeStringField("timestamp", now.toString());
+            json.writeStringField("validUntil", now.plus(SESSION_LIFETIME).toString());
+            json.writeEndObject();
+        }
+        sendJson(exchange, 200, out.toByteArray());
+    }
+
+    /**
+     * Return the result of a verification session.
+     * 
+     * @param exchange  the exchange
+     * @param sessionId the verification session id
+     * @throws IOException if the exchange fails
+     */
+    private void fetchResult(@Nonnull final HttpExchange exchange, @Nonnull final String sessionId)
+            throws IOException {
+        final Session session = sessions.get(sessionId);
+        if (session == null) {
+            sendJson(exchange, 404, error("Session not found"));
+            return;
+        }
+        final Set<String> requested = session.resultProperties();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(requested.isEmpty() ? 1024 : 1 << 20);
+        try (JsonGenerator json = jsonFactory.createGenerator(out)) {
+            json.writeStartObject();
+            for (final Map.Entry<String, String> claim : textClaims.entrySet()) {
+                if (requested.isEmpty() || requested.contains(claim.getKey())
+                        || (isNamePart(claim.getKey()) && requested.contains("name"))) {
+                    json.writeStringField(claim.getKey(), claim.getValue());
+                }
+            }
+            if (requested.contains("nameScore")) {
+                json.writeNumberField("nameScore", 100);
+            }
+            if (requested.contains("nameMatch")) {
+                json.writeBooleanField("nameMatch", true);
+            }
+            if (requested.contains("dateOfBirthMatch")) {
+                json.writeBooleanField("dateOfBirthMatch", true);
+            }
+            for (final Map.Entry<String, String> image : imageClaims.entrySet()) {
+                if (requested.contains(image.getKey())) {
+                    json.writeStringField(image.getKey(), image.getValue());
+                }
+            }
+            json.writeStringField("invitationLink", session.invitationLink());
+            json.writeEndObject();
+        }
+        results.increment();
+        sendJson(exchange, 200, out.toByteArray());
+    }
+
+    /**
+     * Delete the result of a verification session.
+     * 
+     * @param exchange  the exchange
+     * @param sessionId the verification session id
+     * @throws IOException if the exchange fails
+     */
+    private void deleteResult(@Nonnull final HttpExchange exchange, @Nonnull final String sessionId)
+            throws IOException {
+        if (sessions.remove(sessionId) == null) {
+            sendJson(exchange, 404, error("Session not found"));
+            return;
+        }
+        deletes.increment();
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    /**
+     * Send a json response.
+     * 
+     * @param exchange the exchange
+     * @param status   status code
+     * @param payload  json payload
+     * @throws IOException if the exchange fails
+     */
+    private static void sendJson(@Nonnull final HttpExchange exchange, final int status,
+            @Nonnull final byte[] payload) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, payload.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(payload);
+        }
+    }
+
+    /**
+     * Json payload of an error response.
+     * 
+     * @param message error message
+     * @return error payload
+     */
+    @Nonnull
+    private static byte[] error(@Nonnull final String message) {
+        return ("{\"error\":\"" + message + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Lower case hex HmacSHA256 signature of content, as ascii.
+     * 
+     * @param content the signed content
+     * @return the signature
+     */
+    @Nonnull
+    private byte[] sign(@Nonnull final byte[] content) {
+        try {
+            final Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(hmacKey);
+            return HexFormat.of().formatHex(mac.doFinal(content)).getBytes(StandardCharsets.US_ASCII);
+        } catch (final GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Location of the server.
+     * 
+     * @return location of the server
+     */
+    @Nonnull
+    private String baseUri() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Whether a claim is part of the name result property.
+     * 
+     * @param claim claim name
+     * @return whether the claim is returned with the name
+     */
+    private static boolean isNamePart(@Nonnull final String claim) {
+        return "firstName".equals(claim) || "lastName".equals(claim);
+    }
+
+    /**
+     * Random image content as base64.
+     * 
+     * @param random random source
+     * @param size   binary size of the image
+     * @return base64 encoded image
+     */
+    @Nonnull
+    private static String image(@Nonnull final SplittableRandom random, final int size) {
+        final byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+
+    /**
+     * Textual claims of a Finnish passport.
+     * 
+     * @return textual claims in response order
+     */
+    @Nonnull
+    private static Map<String, String> defaultTextClaims() {
+        final Map<String, String> claims = new LinkedHashMap<>();
+        claims.put("name", "Matti Meikäläinen");
+        claims.put("firstName", "Matti");
+        claims.put("lastName", "Meikäläinen");
+        claims.put("dateOfBirth", "1980-01-01");
+        claims.put("nationalIdentificationNumber", "010180-123N");
+        claims.put("idNumber", "XP1234567");
+        claims.put("idDocumentType", "PASSPORT");
+        claims.put("idExpiration", "2030-01-01");
+        claims.put("idIssuer", "FIN");
+        claims.put("nationality", "FIN");
+        claims.put("sex", "M");
+        return claims;
+    }
+
+    /**
+     * Verification session.
+     * 
+     * @param callbackUrl      callback url of the flow
+     * @param resultProperties requested result properties
+     * @param invitationLink   invitation link of the session
+     */
+    private record Session(@Nonnull String callbackUrl, @Nonnull Set<String> resultProperties,
+            @Nonnull String invitationLink) {
+    }
+
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.simulator;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+import net.shibboleth.shared.annotation.constraint.ThreadSafe;
+import net.shibboleth.shared.logic.Constraint;
+
+/**
+ * Latency and failures injected by the {@link CandourApiSimulator}. May be
+ * changed while the simulator is running.
+ * 
+ * <p>
+ * The latency of a call is log-normally distributed around the median latency,
+ * the spread set by the shape parameter sigma; 0 gives a constant latency. A
+ * call fails at random with a dropped connection, a 429 or a 503 response at
+ * the configured rates. Failures may also be scheduled for the next calls, they
+ * take precedence over the random ones.
+ * </p>
+ */
+@ThreadSafe
+public final class SimulatedFaults {
+
+    /** Failure of a call. */
+    public enum Fault {
+
+        /** No failure. */
+        NONE,
+
+        /** Connection closed without a response. */
+        DROP_CONNECTION,
+
+        /** Call answered with 429. */
+        THROTTLE,
+
+        /** Call answered with 503. */
+        SERVER_ERROR
+    }
+
+    /** Median latency of a call. */
+    @Nonnull
+    private volatile Duration medianLatency = Duration.ZERO;
+
+    /** Shape parameter of the log-normal latency distribution. */
+    private volatile double latencySigma;
+
+    /** Rate of calls failing with a dropped connection. */
+    private volatile double connectionDropRate;
+
+    /** Rate of calls answered with 429. */
+    private volatile double throttleRate;
+
+    /** Rate of calls answered with 503. */
+    private volatile double serverErrorRate;
+
+    /** Number of next calls failing with a dropped connection. */
+    @Nonnull
+    private final AtomicInteger scheduledDrops = new AtomicInteger();
+
+    /** Number of next calls answered with 429. */
+    @Nonnull
+    private final AtomicInteger scheduledThrottles = new AtomicInteger();
+
+    /** Number of next calls answered with 503. */
+    @Nonnull
+    private final AtomicInteger scheduledServerErrors = new AtomicInteger();
+
+    /**
+     * Set median latency of a call. Defaults to 0.
+     * 
+     * @param latency median latency of a call
+     */
+    public void setMedianLatency(@Nonnull final Duration latency) {
+        Constraint.isNotNull(latency, "Median latency cannot be null");
+        Constraint.isFalse(latency.isNegative(), "Median latency cannot be negative");
+        medianLatency = latency;
+    }
+
+    /**
+     * Set shape parameter of the log-normal latency distribution. Defaults to 0,
+     * a constant latency.
+     * 
+     * @param sigma shape parameter of the latency distribution
+     */
+    public void setLatencySigma(final double sigma) {
+        Constraint.isTrue(sigma >= 0, "Latency sigma cannot be negative");
+        latencySigma = sigma;
+    }
+
+    /**
+     * Set rate of calls failing with a dropped connection, between 0 and 1.
+     * 
+     * @param rate rate of dropped connections
+     */
+    public void setConnectionDropRate(final double rate) {
+        connectionDropRate = checkRate(rate);
+    }
+
+    /**
+     * Set rate of calls answered with 429, between 0 and 1.
+     * 
+     * @param rate rate of 429 responses
+     */
+    public void setThrottleRate(final double rate) {
+        throttleRate = checkRate(rate);
+    }
+
+    /**
+     * Set rate of calls answered with 503, between 0 and 1.
+     * 
+     * @param rate rate of 503 responses
+     */
+    public void setServerErrorRate(final double rate) {
+        serverErrorRate = checkRate(rate);
+    }
+
+    /**
+     * Drop the connection of the next calls.
+     * 
+     * @param count number of calls
+     */
+    public void dropNext(final int count) {
+        scheduledDrops.addAndGet(count);
+    }
+
+    /**
+     * Answer the next calls with 429.
+     * 
+     * @param count number of calls
+     */
+    public void throttleNext(final int count) {
+        scheduledThrottles.addAndGet(count);
+    }
+
+    /**
+     * Answer the next calls with 503.
+     * 
+     * @param count number of calls
+     */
+    public void failNext(final int count) {
+        scheduledServerErrors.addAndGet(count);
+    }
+
+    /** Remove all latency and failures. */
+    public void reset() {
+        medianLatency = Duration.ZERO;
+        latencySigma = 0;
+        connectionDropRate = 0;
+        throttleRate = 0;
+        serverErrorRate = 0;
+        scheduledDrops.set(0);
+        scheduledThrottles.set(0);
+        scheduledServerErrors.set(0);
+    }
+
+    /**
+     * Draw the latency of a call.
+     * 
+     * @return latency in nanoseconds
+     */
+    public long nextLatencyNanos() {
+        final long median = medianLatency.toNanos();
+        final double sigma = latencySigma;
+        if (median == 0 || sigma == 0) {
+            return median;
+        }
+        return (long) (median * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+    }
+
+    /**
+     * Draw the failure of a call.
+     * 
+     * @return failure of the call
+     */
+    @Nonnull
+    public Fault nextFault() {
+        if (take(scheduledDrops)) {
+            return Fault.DROP_CONNECTION;
+        }
+        if (take(scheduledThrottles)) {
+            return Fault.THROTTLE;
+        }
+        if (take(scheduledServerErrors)) {
+            return Fault.SERVER_ERROR;
+        }
+        final double draw = ThreadLocalRandom.current().nextDouble();
+        double bound = connectionDropRate;
+        if (draw < bound) {
+            return Fault.DROP_CONNECTION;
+        }
+        bound += throttleRate;
+        if (draw < bound) {
+            return Fault.THROTTLE;
+        }
+        bound += serverErrorRate;
+        if (draw < bound) {
+            return Fault.SERVER_ERROR;
+        }
+        return Fault.NONE;
+    }
+
+    /**
+     * Take one of the scheduled failures, if any.
+     * 
+     * @param scheduled number of scheduled failures
+     * @return whether a failure was taken
+     */
+    private static boolean take(@Nonnull final AtomicInteger scheduled) {
+        int count;
+        do {
+            count = scheduled.get();
+            if (count <= 0) {
+                return false;
+            }
+        } while (!scheduled.compareAndSet(count, count - 1));
+        return true;
+    }
+
+    /**
+     * Check a rate is between 0 and 1.
+     * 
+     * @param rate the rate
+     * @return the rate
+     */
+    private static double checkRate(final double rate) {
+        Constraint.isTrue(rate >= 0 && rate <= 1, "Rate must be between 0 and 1");
+        return rate;
+    }
+
+}
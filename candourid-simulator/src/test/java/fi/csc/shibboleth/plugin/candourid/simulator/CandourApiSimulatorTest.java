@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2026 CSC- IT Center for Science, www.csc.fi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fi.csc.shibboleth.plugin.candourid.simulator;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HexFormat;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/** Tests for {@link CandourApiSimulator}. */
+public class CandourApiSimulatorTest {
+
+    private static final String PUBLIC_KEY = "publicKey";
+
+    private static final String HMAC_KEY = "hmacKey";
+
+    private static final String CALLBACK = "https://idp.example.org/idp/profile/SAML2/Redirect/SSO?execution=e1s2";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private CandourApiSimulator simulator;
+
+    private HttpClient client;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        simulator = new CandourApiSimulator();
+        simulator.setClientPublicKey(PUBLIC_KEY);
+        simulator.setClientHmacKey(HMAC_KEY);
+        simulator.setThreads(4);
+        simulator.initialize();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @AfterMethod
+    public void teardown() {
+        simulator.destroy();
+    }
+
+    private static String sign(final String content) throws Exception {
+        final Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(HMAC_KEY.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return HexFormat.of().formatHex(mac.doFinal(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private HttpResponse<String> invite(final String payload, final String signature) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create(simulator.getApiUri()))
+                .header("X-AUTH-CLIENT", PUBLIC_KEY)
+                .header("X-HMAC-SIGNATURE", signature)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(payload))
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> session(final String method, final String sessionId) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create(simulator.getApiUri() + "/" + sessionId))
+                .header("X-AUTH-CLIENT", PUBLIC_KEY)
+                .header("X-HMAC-SIGNATURE", sign(sessionId))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String payload(final boolean images) {
+        return "{\"callbackUrl\":\"" + CALLBACK + "\",\"resultProperties\":{\"name\":true,\"dateOfBirth\":true,"
+                + "\"nameScore\":true,\"selfieImage\":" + images + ",\"idMrzImage\":" + images + "}}";
+    }
+
+    @Test
+    public void testVerificationSession() throws Exception {
+        final String payload = payload(true);
+        final HttpResponse<String> invitation = invite(payload, sign(payload));
+        Assert.assertEquals(invitation.statusCode(), 200);
+        final JsonNode invitationJson = mapper.readTree(invitation.body());
+        final String sessionId = invitationJson.get("verificationSessionId").asText();
+        final String link = invitationJson.get("redirectUrl").asText();
+        Assert.assertTrue(link.endsWith(CandourApiSimulator.VERIFY_PATH + sessionId));
+        Assert.assertNotNull(invitationJson.get("validUntil"));
+        Assert.assertEquals(simulator.getSessionCount(), 1);
+
+        final HttpResponse<Void> redirect = client.send(HttpRequest.newBuilder(URI.create(link)).build(),
+                HttpResponse.BodyHandlers.discarding());
+        Assert.assertEquals(redirect.statusCode(), 303);
+        Assert.assertEquals(redirect.headers().firstValue("Location").orElseThrow(),
+                CALLBACK + "&status=success&sessionId=" + sessionId);
+
+        final HttpResponse<String> result = session("GET", sessionId);
+        Assert.assertEquals(result.statusCode(), 200);
+        final JsonNode claims = mapper.readTree(result.body());
+        Assert.assertEquals(claims.get("invitationLink").asText(), link);
+        Assert.assertEquals(claims.get("firstName").asText(), "Matti");
+        Assert.assertEquals(claims.get("dateOfBirth").asText(), "1980-01-01");
+        Assert.assertEquals(claims.get("nameScore").asInt(), 100);
+        Assert.assertEquals(claims.get("selfieImage").asText().length(), 4 * 48 * 1024 / 3);
+        Assert.assertTrue(claims.get("idMrzImage").asText().length() > 180 * 1024);
+        Assert.assertNull(claims.get("idChipImage"));
+        Assert.assertNull(claims.get("nationalIdentificationNumber"));
+
+        Assert.assertEquals(session("DELETE", sessionId).statusCode(), 200);
+        Assert.assertEquals(session("GET", sessionId).statusCode(), 404);
+        Assert.assertEquals(session("DELETE", sessionId).statusCode(), 404);
+        Assert.assertEquals(simulator.getSessionCount(), 0);
+        Assert.assertEquals(simulator.getInvitationCount(), 1);
+        Assert.assertEquals(simulator.getResultCount(), 1);
+        Assert.assertEquals(simulator.getDeleteCount(), 1);
+    }
+
+    @Test
+    public void testImagesNotRequested() throws Exception {
+        final String payload = payload(false);
+        final String sessionId = mapper.readTree(invite(payload, sign(payload)).body())
+                .get("verificationSessionId").asText();
+        final JsonNode claims = mapper.readTree(session("GET", sessionId).body());
+        Assert.assertNull(claims.get("selfieImage"));
+        Assert.assertNotNull(claims.get("name"));
+    }
+
+    @Test
+    public void testInvalidSignature() throws Exception {
+        final String payload = payload(false);
+        Assert.assertEquals(invite(payload, sign(payload + " ")).statusCode(), 401);
+        Assert.assertEquals(session("GET", "unknown").statusCode(), 404);
+        final HttpResponse<String> wrongClient = client.send(
+                HttpRequest.newBuilder(URI.create(simulator.getApiUri() + "/unknown"))
+                        .header("X-AUTH-CLIENT", "other")
+                        .header("X-HMAC-SIGNATURE", sign("unknown"))
+                        .build(), HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(wrongClient.statusCode(), 401);
+        Assert.assertEquals(simulator.getRejectedCount(), 2);
+        Assert.assertEquals(simulator.getSessionCount(), 0);
+    }
+
+    @Test
+    public void testMissingCallback() throws Exception {
+        final String payload = "{\"resultProperties\":{\"name\":true}}";
+        Assert.assertEquals(invite(payload, sign(payload)).statusCode(), 400);
+    }
+
+    @Test
+    public void testScheduledFaults() throws Exception {
+        final String payload = payload(false);
+        simulator.getFaults().throttleNext(1);
+        simulator.getFaults().failNext(1);
+        final HttpResponse<String> throttled = invite(payload, sign(payload));
+        Assert.assertEquals(throttled.statusCode(), 429);
+        Assert.assertEquals(throttled.headers().firstValue("Retry-After").orElseThrow(), "1");
+        Assert.assertEquals(invite(payload, sign(payload)).statusCode(), 503);
+        Assert.assertEquals(invite(payload, sign(payload)).statusCode(), 200);
+        simulator.getFaults().dropNext(1);
+        Assert.assertThrows(IOException.class, () -> invite(payload, sign(payload)));
+        Assert.assertEquals(simulator.getInvitationCount(), 1);
+    }
+
+    @Test
+    public void testRandomFaults() throws Exception {
+        final String payload = payload(false);
+        simulator.getFaults().setServerErrorRate(1);
+        Assert.assertEquals(invite(payload, sign(payload)).statusCode(), 503);
+        simulator.getFaults().reset();
+        Assert.assertEquals(invite(payload, sign(payload)).statusCode(), 200);
+    }
+
+    @Test
+    public void testLatency() throws Exception {
+        final String payload = payload(false);
+        simulator.getFaults().setMedianLatency(Duration.ofMillis(200));
+        final long start = System.nanoTime();
+        Assert.assertEquals(invite(payload, sign(payload)).statusCode(), 200);
+        Assert.assertTrue(System.nanoTime() - start >= Duration.ofMillis(200).toNanos());
+    }
+
+    @Test
+    public void testMethodNotAllowed() throws Exception {
+        final HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(URI.create(simulator.getApiUri())).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(response.statusCode(), 405);
+    }
+
+}